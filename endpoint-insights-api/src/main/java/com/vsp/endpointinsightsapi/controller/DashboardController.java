@@ -68,4 +68,18 @@ public class DashboardController {
                 performanceChartService.getApiPerformanceChart(jobId, batchId, limit)
         );
     }
-}
\ No newline at end of file
+
+    @GetMapping("/charts/runs/{runId}/timeline")
+    @Operation(summary = "Get run timeline chart data", description = "Retrieves per-sampler requests, errors and p95 latency over the course of a single test run")
+    @RequiredRoles(roles = {UserRole.READ})
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Chart data retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Test run not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public ResponseEntity<ChartResponseDTO> getRunTimelineChart(
+            @Parameter(description = "Test run ID", required = true)
+            @PathVariable UUID runId) {
+        return ResponseEntity.ok(performanceChartService.getRunTimelineChart(runId));
+    }
+}
@@ -1,7 +1,11 @@
 package com.vsp.endpointinsightsapi.controller;
 
 import com.vsp.endpointinsightsapi.authentication.RequiredRoles;
+import com.vsp.endpointinsightsapi.dto.CompileCacheStatsDTO;
+import com.vsp.endpointinsightsapi.dto.LatencyPercentilesDTO;
+import com.vsp.endpointinsightsapi.dto.LiveRunSnapshotDTO;
 import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
 import com.vsp.endpointinsightsapi.exception.CustomException;
 import com.vsp.endpointinsightsapi.exception.CustomExceptionBuilder;
 import com.vsp.endpointinsightsapi.model.TestRunCreateRequest;
@@ -83,6 +87,48 @@ public class TestRunsController {
         return ResponseEntity.ok(result);
 	}
 
+	@GetMapping("/latency-percentiles")
+    @RequiredRoles(roles = {UserRole.READ})
+	@Operation(summary = "Get latency percentiles", description = "Computes any latency percentile from the stored histograms, merged across the given runs, jobs or batches")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Percentiles computed"),
+			@ApiResponse(responseCode = "400", description = "Invalid parameters - provide exactly one of runId, jobId or batchId, and percentiles between 0 and 100"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<LatencyPercentilesDTO> getLatencyPercentiles(
+			@Parameter(description = "Test run IDs to merge")
+			@RequestParam(name = "runId", required = false) List<UUID> runIds,
+			@Parameter(description = "Job IDs whose runs are merged")
+			@RequestParam(name = "jobId", required = false) List<UUID> jobIds,
+			@Parameter(description = "Batch IDs whose runs are merged")
+			@RequestParam(name = "batchId", required = false) List<UUID> batchIds,
+			@Parameter(description = "Percentiles to compute", example = "50,90,99.9")
+			@RequestParam(name = "percentiles", required = false) List<Double> percentiles) {
+		return ResponseEntity.ok(testRunService.getLatencyPercentiles(runIds, jobIds, batchIds, percentiles));
+	}
+
+	@GetMapping("/queue")
+    @RequiredRoles(roles = {UserRole.READ})
+	@Operation(summary = "Get run queue", description = "Reports how many tests are running and waiting for a slot on this host, and how long they have waited")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Run queue retrieved"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<RunQueueDTO> getRunQueue() {
+		return ResponseEntity.ok(testRunService.getRunQueue());
+	}
+
+	@GetMapping("/compile-cache")
+    @RequiredRoles(roles = {UserRole.READ})
+	@Operation(summary = "Get compile cache stats", description = "Reports how often compiles on this host were served from the compile output cache since it started")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Compile cache stats retrieved"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<CompileCacheStatsDTO> getCompileCacheStats() {
+		return ResponseEntity.ok(testRunService.getCompileCacheStats());
+	}
+
 	@GetMapping("/{id}")
     @RequiredRoles(roles = {UserRole.READ})
 	@Operation(summary = "Get test run by ID", description = "Retrieves a specific test run by its unique identifier")
@@ -97,6 +143,50 @@ public class TestRunsController {
 		return ResponseEntity.ok(testRunService.getTestRunById(runId));
 	}
 
+	@GetMapping("/{id}/live")
+    @RequiredRoles(roles = {UserRole.READ})
+	@Operation(summary = "Get live results", description = "Retrieves interim latency percentiles, throughput and error rates of a test run that is still executing")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Live results retrieved"),
+			@ApiResponse(responseCode = "404", description = "Test run not found, or not currently producing results"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<LiveRunSnapshotDTO> getLiveResults(
+			@Parameter(description = "Test run ID", required = true, example = "550e8400-e29b-41d4-a716-446655440000")
+			@PathVariable("id") UUID runId) {
+		return ResponseEntity.ok(testRunService.getLiveResults(runId));
+	}
+
+	@PostMapping("/{id}/cancel")
+    @RequiredRoles(roles = {UserRole.WRITE})
+	@Operation(summary = "Cancel test run", description = "Cancels a queued or running test run, killing its test processes and keeping the results written so far. Cancelling a batch run cancels all of its jobs")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "202", description = "Test run cancelled, or being stopped"),
+			@ApiResponse(responseCode = "404", description = "Test run not found"),
+			@ApiResponse(responseCode = "409", description = "Test run has already finished"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<TestRun> cancelTestRun(
+			@Parameter(description = "Test run ID", required = true, example = "550e8400-e29b-41d4-a716-446655440000")
+			@PathVariable("id") UUID runId) {
+		return ResponseEntity.status(HttpStatus.ACCEPTED).body(testRunService.cancelTestRun(runId));
+	}
+
+	@PostMapping("/{id}/reanalyse")
+    @RequiredRoles(roles = {UserRole.WRITE})
+	@Operation(summary = "Re-analyse test run", description = "Interprets a finished test run again from its archived result files, replacing its results and pass/fail status without running the test again")
+	@ApiResponses(value = {
+			@ApiResponse(responseCode = "200", description = "Test run re-analysed"),
+			@ApiResponse(responseCode = "404", description = "Test run not found"),
+			@ApiResponse(responseCode = "409", description = "Test run hasn't finished, or its results weren't archived"),
+			@ApiResponse(responseCode = "401", description = "Unauthorized")
+	})
+	public ResponseEntity<TestRun> reanalyseTestRun(
+			@Parameter(description = "Test run ID", required = true, example = "550e8400-e29b-41d4-a716-446655440000")
+			@PathVariable("id") UUID runId) {
+		return ResponseEntity.ok(testRunService.reanalyseTestRun(runId));
+	}
+
 	@DeleteMapping("/{id}")
     @RequiredRoles(roles = {UserRole.WRITE})
 	@Operation(summary = "Delete test run", description = "Permanently deletes a test run by its ID")
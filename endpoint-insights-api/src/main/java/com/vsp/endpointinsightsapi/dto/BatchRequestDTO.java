@@ -18,6 +18,7 @@ public class BatchRequestDTO {
     private UUID id;
     private String batchName;
     private String cronExpression;
+    private Integer parallelism;
     private Long scheduleId;
     private LocalDateTime startTime;
     private LocalDateTime lastTimeRun;
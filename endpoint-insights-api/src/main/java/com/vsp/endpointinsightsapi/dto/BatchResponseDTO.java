@@ -23,6 +23,7 @@ public class BatchResponseDTO extends AuditedDTO {
     private LocalDateTime lastTimeRun;
     private Boolean active;
     private String cronExpression;
+    private Integer parallelism;
     private List<String> notificationList;
     private List<JobDTO> jobs;
     private List<NotificationGroupDTO> groups;
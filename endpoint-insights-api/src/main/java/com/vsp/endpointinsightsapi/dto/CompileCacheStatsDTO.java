@@ -0,0 +1,13 @@
+package com.vsp.endpointinsightsapi.dto;
+
+/**
+ * How often the compile output cache of this host has saved a compile since the application started.
+ *
+ * @param hits   compiles skipped by restoring cached output
+ * @param misses compiles that found no cached output
+ */
+public record CompileCacheStatsDTO(
+        long hits,
+        long misses
+) {
+}
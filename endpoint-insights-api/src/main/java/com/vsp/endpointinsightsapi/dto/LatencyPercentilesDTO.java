@@ -0,0 +1,30 @@
+package com.vsp.endpointinsightsapi.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency percentiles computed from the stored histograms of one or more runs.
+ *
+ * @param overall                  every matching sample, across all samplers
+ * @param samplers                 one entry per (thread group, sampler) pair
+ * @param resultsWithoutHistogram  results that matched but were stored before histograms were kept, and so are not
+ *                                 included
+ */
+public record LatencyPercentilesDTO(
+        Distribution overall,
+        List<Distribution> samplers,
+        int resultsWithoutHistogram
+) {
+    /**
+     * @param percentiles percentile value in milliseconds, keyed by the requested percentile, e.g. {@code "99.9"}
+     */
+    public record Distribution(
+            String threadGroup,
+            String samplerName,
+            long sampleCount,
+            long minLatencyMs,
+            long maxLatencyMs,
+            Map<String, Long> percentiles
+    ) {}
+}
@@ -0,0 +1,26 @@
+package com.vsp.endpointinsightsapi.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Interim results of a test run that is still executing, rebuilt from the result file every few seconds.
+ */
+public record LiveRunSnapshotDTO(
+        UUID runId,
+        Instant updatedAt,
+        List<Sampler> samplers
+) {
+    public record Sampler(
+            String threadGroup,
+            String samplerName,
+            long sampleCount,
+            long errorCount,
+            double errorRatePercent,
+            long latencyP50,
+            long latencyP95,
+            long latencyP99,
+            double throughputPerSecond
+    ) {}
+}
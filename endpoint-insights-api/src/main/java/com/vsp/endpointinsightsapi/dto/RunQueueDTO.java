@@ -0,0 +1,28 @@
+package com.vsp.endpointinsightsapi.dto;
+
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+
+import java.util.Map;
+
+/**
+ * How busy the test slots of this host are, and how long tests have waited for one.
+ *
+ * @param running              tests running now
+ * @param maxRunning           tests allowed to run at once
+ * @param queued               tests waiting for a slot
+ * @param queuedByPriority     tests waiting for a slot, by priority
+ * @param admitted             tests started since the application started
+ * @param averageWaitMillis    mean time those tests waited for a slot
+ * @param maxWaitMillis        longest time any of those tests waited for a slot
+ * @param longestWaitingMillis how long the test waiting longest right now has been waiting
+ */
+public record RunQueueDTO(
+        int running,
+        int maxRunning,
+        int queued,
+        Map<RunPriority, Integer> queuedByPriority,
+        long admitted,
+        long averageWaitMillis,
+        long maxWaitMillis,
+        long longestWaitingMillis
+) {}
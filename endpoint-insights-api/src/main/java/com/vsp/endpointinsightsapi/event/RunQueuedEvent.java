@@ -0,0 +1,13 @@
+package com.vsp.endpointinsightsapi.event;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * A run has been added to the run queue, so this instance can claim it without waiting for its next poll.
+ */
+public class RunQueuedEvent extends ApplicationEvent {
+
+	public RunQueuedEvent(Object source) {
+		super(source);
+	}
+}
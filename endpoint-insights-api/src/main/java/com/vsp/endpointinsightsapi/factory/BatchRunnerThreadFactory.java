@@ -3,10 +3,11 @@ package com.vsp.endpointinsightsapi.factory;
 import com.vsp.endpointinsightsapi.model.BatchRunnerThreadStatus;
 import com.vsp.endpointinsightsapi.model.TestBatch;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
 import com.vsp.endpointinsightsapi.runner.BatchRunnerThread;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
 import org.springframework.stereotype.Component;
 
 import java.util.function.Consumer;
@@ -17,13 +18,13 @@ public class BatchRunnerThreadFactory {
 	private final TestRunRepository testRunRepository;
 	private final TestBatchRepository testBatchRepository;
 	private final JobRunnerThreadFactory jobRunnerThreadFactory;
-	private final ThreadPoolTaskScheduler vspTaskScheduler;
+	private final RunExecutor runExecutor;
 
-	public BatchRunnerThreadFactory(TestRunRepository testRunRepository, TestBatchRepository testBatchRepository, JobRunnerThreadFactory jobRunnerThreadFactory, ThreadPoolTaskScheduler vspTaskScheduler) {
+	public BatchRunnerThreadFactory(TestRunRepository testRunRepository, TestBatchRepository testBatchRepository, JobRunnerThreadFactory jobRunnerThreadFactory, RunExecutor runExecutor) {
 		this.testRunRepository = testRunRepository;
 		this.testBatchRepository = testBatchRepository;
 		this.jobRunnerThreadFactory = jobRunnerThreadFactory;
-		this.vspTaskScheduler = vspTaskScheduler;
+		this.runExecutor = runExecutor;
 	}
 
 	/**
@@ -33,17 +34,19 @@ public class BatchRunnerThreadFactory {
 	 *
 	 * @param batch      the test batch to be processed in the new thread
 	 * @param testRun    the test run entity associated with this batch execution
+	 * @param priority   whether the batch was started by hand or by its schedule
 	 * @param onComplete a {@link Consumer} to be called with the status of the batch runner upon completion
 	 * @return a new {@link Thread} ready to execute the batch runner
 	 */
-	public BatchRunnerThread create(TestBatch batch, TestRun testRun, Consumer<BatchRunnerThreadStatus> onComplete) {
+	public BatchRunnerThread create(TestBatch batch, TestRun testRun, RunPriority priority, Consumer<BatchRunnerThreadStatus> onComplete) {
 		return new BatchRunnerThread(batch,
 				testRun,
+				priority,
 				onComplete,
 				testRunRepository,
 				testBatchRepository,
 				jobRunnerThreadFactory,
-				vspTaskScheduler);
+				runExecutor);
 	}
 
 }
@@ -3,12 +3,21 @@ package com.vsp.endpointinsightsapi.factory;
 import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.JobRunnerThreadStatus;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import com.vsp.endpointinsightsapi.runner.AggregateStreamServer;
+import com.vsp.endpointinsightsapi.runner.CompileOutputCache;
 import com.vsp.endpointinsightsapi.runner.GitService;
+import com.vsp.endpointinsightsapi.runner.HostCapacity;
+import com.vsp.endpointinsightsapi.runner.ProcessSupervisor;
+import com.vsp.endpointinsightsapi.runner.ResultArchive;
 import com.vsp.endpointinsightsapi.runner.JMeterCommandService;
 import com.vsp.endpointinsightsapi.runner.JMeterInterpreterService;
 import com.vsp.endpointinsightsapi.runner.JobRunnerThread;
+import com.vsp.endpointinsightsapi.runner.RunAdmission;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
+import com.vsp.endpointinsightsapi.service.LiveResultsService;
 import com.vsp.endpointinsightsapi.service.NotificationService;
 import org.springframework.stereotype.Component;
 
@@ -23,13 +32,27 @@ public class JobRunnerThreadFactory {
 	private final NotificationService notificationService;
 	private final GitService gitService;
 	private final JMeterCommandService jMeterCommandService;
+	private final LiveResultsService liveResultsService;
+	private final CompileOutputCache compileOutputCache;
+	private final RunExecutor runExecutor;
+	private final HostCapacity hostCapacity;
+	private final ProcessSupervisor processSupervisor;
+	private final AggregateStreamServer aggregateStream;
+	private final ResultArchive resultArchive;
 
-	public JobRunnerThreadFactory(TestRunRepository testRunRepository, JMeterInterpreterService jMeterInterpreterService, NotificationService notificationService, GitService gitService, JMeterCommandService jMeterCommandService) {
+	public JobRunnerThreadFactory(TestRunRepository testRunRepository, JMeterInterpreterService jMeterInterpreterService, NotificationService notificationService, GitService gitService, JMeterCommandService jMeterCommandService, LiveResultsService liveResultsService, CompileOutputCache compileOutputCache, RunExecutor runExecutor, HostCapacity hostCapacity, ProcessSupervisor processSupervisor, AggregateStreamServer aggregateStream, ResultArchive resultArchive) {
 		this.testRunRepository = testRunRepository;
 		this.jMeterInterpreterService = jMeterInterpreterService;
 		this.notificationService = notificationService;
 		this.gitService = gitService;
 		this.jMeterCommandService = jMeterCommandService;
+		this.liveResultsService = liveResultsService;
+		this.compileOutputCache = compileOutputCache;
+		this.runExecutor = runExecutor;
+		this.hostCapacity = hostCapacity;
+		this.processSupervisor = processSupervisor;
+		this.aggregateStream = aggregateStream;
+		this.resultArchive = resultArchive;
 	}
 
 	/**
@@ -44,15 +67,36 @@ public class JobRunnerThreadFactory {
 	 * @return a new {@link Thread} ready to execute the job runner
 	 */
 	public JobRunnerThread create(Job job, TestRun testRun, boolean isBatchRun, Consumer<JobRunnerThreadStatus> onComplete) {
-		return new JobRunnerThread(job,
+		return create(job, testRun, isBatchRun, RunAdmission.forJob(testRun, RunPriority.MANUAL), onComplete);
+	}
+
+	/**
+	 * Same as {@link #create(Job, TestRun, boolean, Consumer)}, with the test waiting for its turn to run according to
+	 * {@code admission}.
+	 */
+	public JobRunnerThread create(Job job, TestRun testRun, boolean isBatchRun, RunAdmission admission, Consumer<JobRunnerThreadStatus> onComplete) {
+		JobRunnerThread runner = new JobRunnerThread(job,
 				testRun,
 				testRunRepository,
 				jMeterInterpreterService,
 				notificationService,
 				gitService,
 				jMeterCommandService,
+				liveResultsService,
+				compileOutputCache,
+				runExecutor,
+				admission,
+				hostCapacity,
+				processSupervisor,
+				aggregateStream,
+				resultArchive,
 				onComplete,
 				isBatchRun);
+		// Tracked from the start, so the run can be cancelled while the runner is still waiting for a thread
+		if (testRun.getRunId() != null) {
+			runExecutor.track(testRun.getRunId(), runner);
+		}
+		return runner;
 	}
 
 }
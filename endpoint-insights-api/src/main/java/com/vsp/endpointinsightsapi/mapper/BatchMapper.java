@@ -30,6 +30,7 @@ public class BatchMapper extends AuditedMapper {
         dto.setLastTimeRun(testBatch.getLastTimeRun());
         dto.setActive(testBatch.getActive());
         dto.setCronExpression(testBatch.getCronExpression());
+        dto.setParallelism(testBatch.getParallelism());
         dto.setNotificationList(mapEmails(testBatch.getNotificationList()));
 
         if (testBatch.getJobs() != null) {
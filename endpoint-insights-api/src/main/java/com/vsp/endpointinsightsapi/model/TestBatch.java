@@ -51,6 +51,10 @@ public class TestBatch extends AuditingEntity{
     @Column(name = "cron_expression")
     String cronExpression;
 
+    // How many of the batch's jobs may run their tests at once; null for no limit beyond the global one
+    @Column(name = "parallelism")
+    Integer parallelism;
+
     @JsonManagedReference
     @ToString.Exclude
     @OneToMany(mappedBy = "testBatch", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
@@ -12,6 +12,7 @@ public class BatchUpdateRequest {
 
 	public String cronExpression;
 	public String batchName;
+	public Integer parallelism;
 	public List<UUID> jobs;
 	public List<String> emails;
 	public List<UUID> groupIds;
@@ -50,4 +50,9 @@ public class PerfTestResult {
     @Column(name = "latency_threshold")
     private Integer latencyThreshold;
 
+	// Encoded by LatencyHistogram#encode(); null for results stored before histograms were kept
+	@JsonIgnore
+	@Column(name = "latency_histogram")
+	private byte[] latencyHistogram;
+
 }
\ No newline at end of file
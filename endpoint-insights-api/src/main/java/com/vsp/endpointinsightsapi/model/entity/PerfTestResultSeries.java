@@ -0,0 +1,41 @@
+package com.vsp.endpointinsightsapi.model.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Time-bucketed request, error and latency series of one sampler, encoded by
+ * {@link com.vsp.endpointinsightsapi.runner.jtl.SamplerTimeSeries#encode()}.
+ */
+@Getter
+@Setter
+@Entity
+@Table(name = "perf_test_result_series")
+public class PerfTestResultSeries {
+	@Id
+	@Column(name = "result_id", nullable = false)
+	private UUID resultId;
+
+	@JsonIgnore
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "result_id", nullable = false, insertable = false, updatable = false)
+	private TestResult testResult;
+
+	@Column(name = "sampler_name", nullable = false)
+	private String samplerName;
+
+	@Column(name = "thread_group", nullable = false)
+	private String threadGroup;
+
+	@Column(name = "bucket_width_ms", nullable = false)
+	private Integer bucketWidthMs;
+
+	@JsonIgnore
+	@Column(name = "series", nullable = false)
+	private byte[] series;
+
+}
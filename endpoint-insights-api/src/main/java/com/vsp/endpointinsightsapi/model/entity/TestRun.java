@@ -44,6 +44,36 @@ public class TestRun {
     @Column(name = "batch_id")
     private UUID batchId;
 
+	// Host load when JMeter was launched; for a batch, the busiest launch of its jobs
+	@Column(name = "host_cpu_load")
+	private Double hostCpuLoad;
+
+	@Column(name = "host_available_memory_mb")
+	private Long hostAvailableMemoryMb;
+
+	@Column(name = "jmeter_heap_mb")
+	private Long jmeterHeapMb;
+
+	@Column(name = "launch_delay_ms")
+	private Long launchDelayMs;
+
+	// Launched without enough CPU or memory to spare, so its latencies may be skewed
+	@Column(name = "host_oversubscribed")
+	private Boolean hostOversubscribed;
+
+	// How long each stage of the run took; for a batch, the longest of its jobs
+	@Column(name = "clone_ms")
+	private Long cloneMs;
+
+	@Column(name = "compile_ms")
+	private Long compileMs;
+
+	@Column(name = "execute_ms")
+	private Long executeMs;
+
+	@Column(name = "interpret_ms")
+	private Long interpretMs;
+
 	@OneToMany(mappedBy = "testRun", cascade = CascadeType.REMOVE, orphanRemoval = true)
 	private List<TestResult> results = new ArrayList<>();
 
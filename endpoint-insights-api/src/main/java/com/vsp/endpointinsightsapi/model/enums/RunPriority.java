@@ -0,0 +1,8 @@
+package com.vsp.endpointinsightsapi.model.enums;
+
+/**
+ * Order in which queued tests are started; runs someone asked for go ahead of scheduled ones.
+ */
+public enum RunPriority {
+    MANUAL, SCHEDULED
+}
@@ -1,5 +1,5 @@
 package com.vsp.endpointinsightsapi.model.enums;
 
 public enum TestRunStatus {
-    PENDING, RUNNING, COMPLETED, FAILED
+    PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
 }
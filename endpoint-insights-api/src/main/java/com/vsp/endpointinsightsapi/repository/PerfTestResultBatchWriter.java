@@ -0,0 +1,102 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResult;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResultCode;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResultSeries;
+import com.vsp.endpointinsightsapi.model.entity.TestResult;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Inserts the rows produced by interpreting a run with batched JDBC statements.
+ *
+ * <p>Going through {@code saveAll} costs a SELECT and an INSERT round trip per entity, because every id is assigned
+ * up front and Hibernate has to check whether the row already exists. These rows are always new, so they're written
+ * straight to the tables in batches of {@link #BATCH_SIZE}; with {@code reWriteBatchedInserts} enabled the PostgreSQL
+ * driver folds each batch into a single multi-row INSERT. The writes join the caller's transaction.</p>
+ */
+@Repository
+public class PerfTestResultBatchWriter {
+
+	static final int BATCH_SIZE = 500;
+
+	static final String INSERT_TEST_RESULT =
+			"INSERT INTO test_result (result_id, job_type, run_id) VALUES (?, ?, ?)";
+
+	static final String INSERT_PERF_TEST_RESULT =
+			"INSERT INTO perf_test_result (result_id, sampler_name, thread_group, p50_latency_ms, p95_latency_ms, p99_latency_ms, "
+					+ "volume_last_minute, volume_last_5_minutes, error_rate_percent, latency_threshold_result, latency_threshold, latency_histogram) "
+					+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	static final String INSERT_PERF_TEST_RESULT_CODE =
+			"INSERT INTO perf_test_result_code (result_id, error_code, sampler_name, thread_group, count) VALUES (?, ?, ?, ?, ?)";
+
+	static final String INSERT_PERF_TEST_RESULT_SERIES =
+			"INSERT INTO perf_test_result_series (result_id, sampler_name, thread_group, bucket_width_ms, series) VALUES (?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public PerfTestResultBatchWriter(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Inserts every row, parents before children so foreign keys are satisfied.
+	 */
+	public void insertAll(List<TestResult> testResults, List<PerfTestResult> perfTestResults,
+						  List<PerfTestResultCode> perfTestResultCodes, List<PerfTestResultSeries> perfTestResultSeries) {
+		jdbcTemplate.batchUpdate(INSERT_TEST_RESULT, testResults, BATCH_SIZE, (ps, r) -> {
+			ps.setObject(1, r.getId());
+			setInteger(ps, 2, r.getJobType());
+			ps.setObject(3, r.getTestRun().getRunId());
+		});
+
+		jdbcTemplate.batchUpdate(INSERT_PERF_TEST_RESULT, perfTestResults, BATCH_SIZE, (ps, r) -> {
+			ps.setObject(1, r.getId().getResultId());
+			ps.setString(2, r.getSamplerName());
+			ps.setString(3, r.getThreadGroup());
+			setInteger(ps, 4, r.getP50LatencyMs());
+			setInteger(ps, 5, r.getP95LatencyMs());
+			setInteger(ps, 6, r.getP99LatencyMs());
+			setInteger(ps, 7, r.getVolumeLastMinute());
+			setInteger(ps, 8, r.getVolumeLast5Minutes());
+			if (r.getErrorRatePercent() == null) {
+				ps.setNull(9, Types.DOUBLE);
+			} else {
+				ps.setDouble(9, r.getErrorRatePercent());
+			}
+			ps.setString(10, r.getLatencyThresholdResult());
+			setInteger(ps, 11, r.getLatencyThreshold());
+			ps.setBytes(12, r.getLatencyHistogram());
+		});
+
+		jdbcTemplate.batchUpdate(INSERT_PERF_TEST_RESULT_CODE, perfTestResultCodes, BATCH_SIZE, (ps, r) -> {
+			ps.setObject(1, r.getId().getResultId());
+			setInteger(ps, 2, r.getId().getErrorCode());
+			ps.setString(3, r.getId().getSamplerName());
+			ps.setString(4, r.getId().getThreadGroup());
+			setInteger(ps, 5, r.getCount());
+		});
+
+		jdbcTemplate.batchUpdate(INSERT_PERF_TEST_RESULT_SERIES, perfTestResultSeries, BATCH_SIZE, (ps, r) -> {
+			ps.setObject(1, r.getResultId());
+			ps.setString(2, r.getSamplerName());
+			ps.setString(3, r.getThreadGroup());
+			setInteger(ps, 4, r.getBucketWidthMs());
+			ps.setBytes(5, r.getSeries());
+		});
+	}
+
+	private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+		if (value == null) {
+			ps.setNull(index, Types.INTEGER);
+		} else {
+			ps.setInt(index, value);
+		}
+	}
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,6 +17,15 @@ public interface PerfTestResultRepository extends JpaRepository<PerfTestResult,
 
 	Optional<PerfTestResult> findById(UUID runId);
 
+	@Query("SELECT p FROM PerfTestResult p WHERE p.testResult.testRun.runId IN :runIds")
+	List<PerfTestResult> findAllByRunIds(@Param("runIds") Collection<UUID> runIds);
+
+	@Query("SELECT p FROM PerfTestResult p WHERE p.testResult.testRun.jobId IN :jobIds")
+	List<PerfTestResult> findAllByJobIds(@Param("jobIds") Collection<UUID> jobIds);
+
+	@Query("SELECT p FROM PerfTestResult p WHERE p.testResult.testRun.batchId IN :batchIds")
+	List<PerfTestResult> findAllByBatchIds(@Param("batchIds") Collection<UUID> batchIds);
+
 	@Modifying
 	@Query("DELETE FROM PerfTestResult p WHERE p.testResult.testRun.runId IN :runIds")
 	void deleteByRunIds(@Param("runIds") List<UUID> runIds);
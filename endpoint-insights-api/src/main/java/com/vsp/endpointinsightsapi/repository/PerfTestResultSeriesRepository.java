@@ -0,0 +1,18 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResultSeries;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PerfTestResultSeriesRepository extends JpaRepository<PerfTestResultSeries, UUID> {
+
+	@Query("SELECT s FROM PerfTestResultSeries s WHERE s.testResult.testRun.runId = :runId")
+	List<PerfTestResultSeries> findAllByRunId(@Param("runId") UUID runId);
+
+}
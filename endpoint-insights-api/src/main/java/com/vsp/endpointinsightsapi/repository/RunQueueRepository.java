@@ -0,0 +1,200 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Durable queue of runs in {@code run_queue}, shared by every instance of the API.
+ *
+ * <p>A run is queued when it's requested and claimed by whichever instance has room for it. Claiming stamps the row
+ * with a fresh claim token, so only the claim that is still current can finish the run, and a heartbeat the
+ * claiming instance keeps refreshing. Rows whose heartbeat has gone stale belong to an instance that stopped; they are
+ * queued again or given up on. The row is deleted once the run finishes. A waiting run is cancelled by deleting its row,
+ * a claimed one by flagging the row for the instance running it.</p>
+ */
+@Repository
+public class RunQueueRepository {
+
+	static final String ENQUEUE =
+			"INSERT INTO run_queue (run_id, job_id, batch_id, priority, state, enqueued_at) VALUES (?, ?, ?, ?, 'QUEUED', now())";
+
+	// run_queue_batch_idx allows one row per batch, so of two requests racing to queue a batch only one inserts
+	static final String ENQUEUE_BATCH =
+			"INSERT INTO run_queue (run_id, batch_id, priority, state, enqueued_at) VALUES (?, ?, ?, 'QUEUED', now()) "
+					+ "ON CONFLICT (batch_id) WHERE batch_id IS NOT NULL DO NOTHING";
+
+	// SKIP LOCKED lets instances claim at the same time without waiting on, or taking, each other's rows
+	static final String CLAIM_NEXT =
+			"UPDATE run_queue SET state = 'RUNNING', claim_token = ?, claimed_by = ?, heartbeat_at = now(), attempts = attempts + 1 "
+					+ "WHERE run_id = (SELECT run_id FROM run_queue WHERE state = 'QUEUED' "
+					+ "ORDER BY CASE priority WHEN 'MANUAL' THEN 0 ELSE 1 END, enqueued_at LIMIT 1 FOR UPDATE SKIP LOCKED) "
+					+ "RETURNING run_id, job_id, batch_id, priority, claim_token, attempts";
+
+	static final String HEARTBEAT =
+			"UPDATE run_queue SET heartbeat_at = now() WHERE state = 'RUNNING' AND claimed_by = ?";
+
+	static final String FINISH =
+			"DELETE FROM run_queue WHERE run_id = ? AND claim_token = ?";
+
+	// A cancelled run isn't started over, however few times it has been attempted
+	static final String REQUEUE_ORPHANS =
+			"UPDATE run_queue SET state = 'QUEUED', claim_token = NULL, claimed_by = NULL, heartbeat_at = NULL "
+					+ "WHERE state = 'RUNNING' AND (claimed_by = ? OR heartbeat_at < now() - ? * INTERVAL '1 second') AND attempts < ? AND NOT cancel_requested RETURNING run_id";
+
+	static final String REMOVE_EXHAUSTED_ORPHANS =
+			"DELETE FROM run_queue WHERE state = 'RUNNING' AND (claimed_by = ? OR heartbeat_at < now() - ? * INTERVAL '1 second') AND (attempts >= ? OR cancel_requested) RETURNING run_id, cancel_requested";
+
+	static final String CANCEL_QUEUED =
+			"DELETE FROM run_queue WHERE run_id = ? AND state = 'QUEUED'";
+
+	static final String REQUEST_CANCEL =
+			"UPDATE run_queue SET cancel_requested = true WHERE run_id = ? AND state = 'RUNNING'";
+
+	static final String CANCEL_REQUESTED =
+			"SELECT run_id FROM run_queue WHERE state = 'RUNNING' AND claimed_by = ? AND cancel_requested";
+
+	private static final RowMapper<QueuedRun> QUEUED_RUN = (rs, rowNum) -> new QueuedRun(
+			rs.getObject("run_id", UUID.class),
+			rs.getObject("job_id", UUID.class),
+			rs.getObject("batch_id", UUID.class),
+			RunPriority.valueOf(rs.getString("priority")),
+			rs.getObject("claim_token", UUID.class),
+			rs.getInt("attempts"));
+
+	private static final RowMapper<UUID> RUN_ID = (rs, rowNum) -> rs.getObject("run_id", UUID.class);
+
+	private static final RowMapper<RemovedOrphan> REMOVED_ORPHAN = (rs, rowNum) -> new RemovedOrphan(
+			rs.getObject("run_id", UUID.class),
+			rs.getBoolean("cancel_requested"));
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public RunQueueRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Queues a run of a job or a batch.
+	 */
+	public void enqueue(UUID runId, UUID jobId, UUID batchId, RunPriority priority) {
+		jdbcTemplate.update(ENQUEUE, runId, jobId, batchId, priority.name());
+	}
+
+	/**
+	 * Queues a run of a batch, unless the batch is already queued or running.
+	 *
+	 * @return false if the batch was already in the queue, in which case nothing was queued
+	 */
+	public boolean enqueueBatch(UUID runId, UUID batchId, RunPriority priority) {
+		return jdbcTemplate.update(ENQUEUE_BATCH, runId, batchId, priority.name()) == 1;
+	}
+
+	/**
+	 * Claims the run that has waited longest, manual runs first, for {@code instance}.
+	 *
+	 * @return the claimed run, or empty if nothing is waiting
+	 */
+	public Optional<QueuedRun> claimNext(String instance) {
+		List<QueuedRun> claimed = jdbcTemplate.query(CLAIM_NEXT, QUEUED_RUN, UUID.randomUUID(), instance);
+		return claimed.stream().findFirst();
+	}
+
+	/**
+	 * Keeps every run claimed by {@code instance} from being taken for an orphan.
+	 */
+	public int heartbeat(String instance) {
+		return jdbcTemplate.update(HEARTBEAT, instance);
+	}
+
+	/**
+	 * Removes a finished run from the queue.
+	 *
+	 * @return false if the claim was no longer current, because the run was taken for an orphan in the meantime
+	 */
+	public boolean finish(QueuedRun run) {
+		return jdbcTemplate.update(FINISH, run.runId(), run.claimToken()) == 1;
+	}
+
+	/**
+	 * Queues again the runs left behind by a stopped instance: those whose heartbeat is older than {@code lease},
+	 * and those claimed by {@code restartedInstance}, an instance starting up again under the same name. Runs already
+	 * attempted {@code maxAttempts} times are left for {@link #removeExhaustedOrphans}. Heartbeats are compared with the
+	 * database's clock, so instances' clocks don't have to agree.
+	 *
+	 * @param restartedInstance null unless called while starting up
+	 * @return the runs queued again
+	 */
+	public List<UUID> requeueOrphans(String restartedInstance, Duration lease, int maxAttempts) {
+		return jdbcTemplate.query(REQUEUE_ORPHANS, RUN_ID, instanceOrNone(restartedInstance), lease.toSeconds(), maxAttempts);
+	}
+
+	/**
+	 * Removes the orphaned runs, as picked out by {@link #requeueOrphans}, that have already been attempted
+	 * {@code maxAttempts} times or were cancelled.
+	 *
+	 * @return the runs removed, to be failed, or cancelled if that was asked for
+	 */
+	public List<RemovedOrphan> removeExhaustedOrphans(String restartedInstance, Duration lease, int maxAttempts) {
+		return jdbcTemplate.query(REMOVE_EXHAUSTED_ORPHANS, REMOVED_ORPHAN, instanceOrNone(restartedInstance), lease.toSeconds(), maxAttempts);
+	}
+
+	/**
+	 * Takes a run that hasn't been claimed yet off the queue.
+	 *
+	 * @return false if the run isn't waiting in the queue
+	 */
+	public boolean cancelQueued(UUID runId) {
+		return jdbcTemplate.update(CANCEL_QUEUED, runId) == 1;
+	}
+
+	/**
+	 * Asks whichever instance claimed a run to cancel it.
+	 *
+	 * @return false if the run isn't claimed by any instance
+	 */
+	public boolean requestCancel(UUID runId) {
+		return jdbcTemplate.update(REQUEST_CANCEL, runId) == 1;
+	}
+
+	/**
+	 * @return the runs claimed by {@code instance} that have been asked to cancel
+	 */
+	public List<UUID> findCancelRequested(String instance) {
+		return jdbcTemplate.query(CANCEL_REQUESTED, RUN_ID, instance);
+	}
+
+	// No row is claimed by an empty name, and unlike null it can be bound without a type
+	private static String instanceOrNone(String instance) {
+		return instance == null ? "" : instance;
+	}
+
+	/**
+	 * A run claimed from the queue.
+	 *
+	 * @param jobId      the job to run, or null for a batch run
+	 * @param batchId    the batch to run, or null for a job run
+	 * @param claimToken identifies this claim of the run
+	 * @param attempts   how many times the run has been claimed, this claim included
+	 */
+	public record QueuedRun(UUID runId, UUID jobId, UUID batchId, RunPriority priority, UUID claimToken, int attempts) {
+
+		public boolean isBatch() {
+			return batchId != null;
+		}
+	}
+
+	/**
+	 * An orphaned run taken off the queue for good.
+	 *
+	 * @param cancelRequested whether the run had been asked to cancel before its instance stopped
+	 */
+	public record RemovedOrphan(UUID runId, boolean cancelRequested) {
+	}
+}
@@ -0,0 +1,47 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Claims scheduled fire times in {@code schedule_run}, so a schedule only fires once however many instances of the
+ * API are running it.
+ *
+ * <p>Each schedule has one row holding the latest fire time claimed for it. Claiming is a single upsert that only
+ * moves that time forward, so when several instances try to claim the same fire time the database lets exactly one
+ * of them through.</p>
+ */
+@Repository
+public class ScheduleRunRepository {
+
+	static final String STATUS_CLAIMED = "CLAIMED";
+
+	static final String CLAIM_FIRE_TIME =
+			"INSERT INTO schedule_run (schedule_id, created_by, created_date, updated_by, updated_date, start_time, status) "
+					+ "VALUES (?, ?, now(), ?, now(), ?, ?) "
+					+ "ON CONFLICT (schedule_id) DO UPDATE SET updated_by = EXCLUDED.updated_by, updated_date = EXCLUDED.updated_date, "
+					+ "start_time = EXCLUDED.start_time, status = EXCLUDED.status "
+					+ "WHERE schedule_run.start_time IS NULL OR schedule_run.start_time < EXCLUDED.start_time";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public ScheduleRunRepository(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	/**
+	 * Claims {@code fireTime} of the schedule for {@code instance}.
+	 *
+	 * @return whether this call claimed it; false if it, or a later fire time, was claimed already
+	 */
+	public boolean claim(String scheduleId, Instant fireTime, String instance) {
+		// start_time has no time zone, so fire times are stored in UTC whatever the zone of each instance
+		Timestamp startTime = Timestamp.valueOf(LocalDateTime.ofInstant(fireTime, ZoneOffset.UTC));
+		return jdbcTemplate.update(CLAIM_FIRE_TIME, scheduleId, instance, instance, startTime, STATUS_CLAIMED) == 1;
+	}
+}
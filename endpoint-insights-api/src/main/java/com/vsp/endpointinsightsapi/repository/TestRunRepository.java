@@ -4,6 +4,10 @@ import com.vsp.endpointinsightsapi.model.entity.TestRun;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
@@ -18,4 +22,16 @@ public interface TestRunRepository extends JpaRepository<TestRun, UUID> {
 
     Page<TestRun> findByBatchIdOrderByFinishedAtDesc(UUID batchId, Pageable pageable);
 	List<TestRun> findTop10ByBatchIdOrderByStartedAtDesc(UUID batchId);
+
+	/**
+	 * Cancels a run unless it has finished, in one statement so a run finishing meanwhile keeps its outcome.
+	 *
+	 * @return 1 if the run was cancelled, 0 if it had already finished
+	 */
+	@Transactional
+	@Modifying(clearAutomatically = true)
+	@Query("UPDATE TestRun r SET r.status = com.vsp.endpointinsightsapi.model.enums.TestRunStatus.CANCELLED, r.finishedAt = :finishedAt "
+			+ "WHERE r.runId = :runId AND r.status IN (com.vsp.endpointinsightsapi.model.enums.TestRunStatus.PENDING, "
+			+ "com.vsp.endpointinsightsapi.model.enums.TestRunStatus.RUNNING)")
+	int cancelUnfinished(@Param("runId") UUID runId, @Param("finishedAt") Instant finishedAt);
 }
@@ -0,0 +1,175 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which waiting test starts next once one of a fixed number of slots is free.
+ *
+ * <p>Waiting tests are grouped by run. Higher priority tests always go first. Within a priority, runs take turns: each
+ * admission moves its run to the back of the line, so a batch with many jobs can't hold every slot while another
+ * batch waits. A run that already has as many tests running as its parallelism allows is skipped until one of them
+ * finishes.</p>
+ */
+final class AdmissionQueue {
+
+	private final int maxRunning;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// Waiting tests per priority, by run, in the order the runs take their turns
+	private final Map<RunPriority, LinkedHashMap<Object, ArrayDeque<Waiter>>> waiting = new EnumMap<>(RunPriority.class);
+	private final Map<Object, Integer> runningPerGroup = new HashMap<>();
+	private int running;
+	private int queued;
+
+	private long admitted;
+	private long totalWaitNanos;
+	private long maxWaitNanos;
+
+	AdmissionQueue(int maxRunning) {
+		this.maxRunning = maxRunning;
+		for (RunPriority priority : RunPriority.values()) {
+			waiting.put(priority, new LinkedHashMap<>());
+		}
+	}
+
+	/**
+	 * Blocks until {@code admission} is given a slot.
+	 */
+	void acquire(RunAdmission admission) throws InterruptedException {
+		lock.lock();
+		try {
+			Waiter waiter = new Waiter(admission, lock.newCondition());
+			waiting.get(admission.priority()).computeIfAbsent(admission.group(), g -> new ArrayDeque<>()).add(waiter);
+			queued++;
+			dispatch();
+
+			try {
+				while (!waiter.admitted) {
+					waiter.turn.await();
+				}
+			} catch (InterruptedException e) {
+				if (waiter.admitted) {
+					// Admitted just as we were interrupted, so give the slot to someone else
+					release(admission);
+				} else {
+					remove(waiter);
+				}
+				throw e;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void release(RunAdmission admission) {
+		lock.lock();
+		try {
+			running--;
+			runningPerGroup.computeIfPresent(admission.group(), (g, n) -> n == 1 ? null : n - 1);
+			dispatch();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	RunQueueDTO stats() {
+		lock.lock();
+		try {
+			Map<RunPriority, Integer> queuedByPriority = new EnumMap<>(RunPriority.class);
+			long oldestEnqueued = Long.MAX_VALUE;
+			for (Map.Entry<RunPriority, LinkedHashMap<Object, ArrayDeque<Waiter>>> entry : waiting.entrySet()) {
+				int count = 0;
+				for (ArrayDeque<Waiter> waiters : entry.getValue().values()) {
+					count += waiters.size();
+					oldestEnqueued = Math.min(oldestEnqueued, waiters.getFirst().enqueuedNanos);
+				}
+				queuedByPriority.put(entry.getKey(), count);
+			}
+			long longestWaitingNanos = oldestEnqueued == Long.MAX_VALUE ? 0 : System.nanoTime() - oldestEnqueued;
+			return new RunQueueDTO(running, maxRunning, queued, queuedByPriority, admitted,
+					admitted == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / admitted),
+					TimeUnit.NANOSECONDS.toMillis(maxWaitNanos),
+					TimeUnit.NANOSECONDS.toMillis(longestWaitingNanos));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Hands free slots to waiting tests. Call while holding the lock.
+	 */
+	private void dispatch() {
+		while (running < maxRunning) {
+			Waiter next = takeNext();
+			if (next == null) {
+				return;
+			}
+			running++;
+			queued--;
+			runningPerGroup.merge(next.admission.group(), 1, Integer::sum);
+
+			long waited = System.nanoTime() - next.enqueuedNanos;
+			admitted++;
+			totalWaitNanos += waited;
+			maxWaitNanos = Math.max(maxWaitNanos, waited);
+
+			next.admitted = true;
+			next.turn.signal();
+		}
+	}
+
+	private Waiter takeNext() {
+		for (LinkedHashMap<Object, ArrayDeque<Waiter>> groups : waiting.values()) {
+			Iterator<Map.Entry<Object, ArrayDeque<Waiter>>> it = groups.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<Object, ArrayDeque<Waiter>> entry = it.next();
+				ArrayDeque<Waiter> waiters = entry.getValue();
+				if (!waiters.getFirst().admission.allows(runningPerGroup.getOrDefault(entry.getKey(), 0))) {
+					continue;
+				}
+				Waiter next = waiters.removeFirst();
+				it.remove();
+				if (!waiters.isEmpty()) {
+					// Back of the line until every other run has had its turn
+					groups.put(entry.getKey(), waiters);
+				}
+				return next;
+			}
+		}
+		return null;
+	}
+
+	private void remove(Waiter waiter) {
+		LinkedHashMap<Object, ArrayDeque<Waiter>> groups = waiting.get(waiter.admission.priority());
+		ArrayDeque<Waiter> waiters = groups.get(waiter.admission.group());
+		if (waiters != null && waiters.remove(waiter)) {
+			queued--;
+			if (waiters.isEmpty()) {
+				groups.remove(waiter.admission.group());
+			}
+		}
+	}
+
+	private static final class Waiter {
+		private final RunAdmission admission;
+		private final Condition turn;
+		private final long enqueuedNanos = System.nanoTime();
+		private boolean admitted;
+
+		private Waiter(RunAdmission admission, Condition turn) {
+			this.admission = admission;
+			this.turn = turn;
+		}
+	}
+}
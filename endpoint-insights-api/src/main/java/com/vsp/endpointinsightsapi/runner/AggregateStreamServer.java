@@ -0,0 +1,288 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.runner.jtl.AggregateDeltas;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlTailer;
+import com.vsp.endpointinsightsapi.runner.jtl.ResultFollower;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receives the aggregates tests send when {@code jmeter.result-format} is {@code aggregate}, so long tests are followed
+ * without a result file that grows with every sample.
+ *
+ * <p>The listener added to such a test's plan aggregates its samples inside JMeter and connects to
+ * {@code jmeter.aggregate-stream.port} on loopback, naming its stream after the result file the test would otherwise
+ * have written. Every interval it sends an {@link AggregateDeltas} delta of what changed, and an empty one once the test
+ * has ended. Each connection is read on a virtual thread of its own and its deltas are queued for the run following
+ * that result file, which folds them into its aggregates when it polls, the same as a tailer folds in new rows.</p>
+ *
+ * <p>Every delta is acknowledged by echoing its sequence number once it has been queued. The listener sends a delta
+ * that wasn't acknowledged again after reconnecting, and a delta whose sequence number the stream has already seen is
+ * acknowledged but not queued again, so each delta is counted exactly once.</p>
+ *
+ * <p>A test whose plan couldn't be given the listener writes a CSV result file instead, so a run that never hears from
+ * its stream follows its result file as before.</p>
+ */
+@Component
+public class AggregateStreamServer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AggregateStreamServer.class);
+
+	// Larger than any delta a sane plan produces, so a corrupt length can't have a connection allocate gigabytes
+	static final int MAX_DELTA_BYTES = 64 * 1024 * 1024;
+	// How long a run whose JMeter has exited waits for the stream's last delta
+	private static final Duration END_TIMEOUT = Duration.ofSeconds(5);
+	// Streams no run is following are dropped once they've ended and are this old
+	private static final Duration UNFOLLOWED_TIMEOUT = Duration.ofMinutes(10);
+
+	private final JMeterCommandService jMeterCommandService;
+	private final Map<String, Receiver> receivers = new ConcurrentHashMap<>();
+	private ServerSocket serverSocket;
+
+	public AggregateStreamServer(JMeterCommandService jMeterCommandService) {
+		this.jMeterCommandService = jMeterCommandService;
+	}
+
+	public boolean isEnabled() {
+		return jMeterCommandService.getResultFormat() == JMeterCommandService.ResultFormat.AGGREGATE;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (!isEnabled() || serverSocket != null) {
+			return;
+		}
+		int port = jMeterCommandService.getAggregateStream().getPort();
+		try {
+			serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		} catch (IOException e) {
+			LOG.error("Could not listen for aggregate streams on port {}, tests will fall back to CSV results: {}", port, e.getMessage());
+			return;
+		}
+		LOG.info("Listening for aggregate streams on port {}", serverSocket.getLocalPort());
+		ServerSocket listening = serverSocket;
+		Thread.ofVirtual().name("aggregate-stream-acceptor").start(() -> accept(listening));
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		if (serverSocket == null) {
+			return;
+		}
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close aggregate stream socket: {}", e.getMessage());
+		}
+		serverSocket = null;
+	}
+
+	/**
+	 * @return the port streams are received on, or -1 if none are
+	 */
+	synchronized int getLocalPort() {
+		return serverSocket != null ? serverSocket.getLocalPort() : -1;
+	}
+
+	/**
+	 * Follows the results of a test that would write {@code resultFile}: from its aggregate stream when it sends one,
+	 * otherwise from the file.
+	 *
+	 * @return a follower to be closed once the run is done with it
+	 */
+	public ResultFollower follow(File resultFile) {
+		if (getLocalPort() < 0) {
+			return new JtlTailer(resultFile.toPath());
+		}
+		dropUnfollowed();
+		Receiver receiver = receivers.computeIfAbsent(resultFile.getAbsolutePath(), Receiver::new);
+		receiver.followed = true;
+		return receiver;
+	}
+
+	private void accept(ServerSocket listening) {
+		while (!listening.isClosed()) {
+			try {
+				Socket socket = listening.accept();
+				Thread.ofVirtual().name("aggregate-stream-" + socket.getPort()).start(() -> receive(socket));
+			} catch (IOException e) {
+				if (!listening.isClosed()) {
+					LOG.warn("Could not accept aggregate stream: {}", e.getMessage());
+				}
+			}
+		}
+	}
+
+	void receive(Socket socket) {
+		Receiver receiver = null;
+		try (socket; DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+			byte[] magic = in.readNBytes(AggregateDeltas.MAGIC.length);
+			if (!Arrays.equals(magic, AggregateDeltas.MAGIC)) {
+				LOG.warn("Dropped connection from port {} that isn't an aggregate stream", socket.getPort());
+				return;
+			}
+			receiver = receivers.computeIfAbsent(in.readUTF(), Receiver::new);
+			receiver.connected = true;
+			receiver.firstConnection.countDown();
+			while (true) {
+				int length = in.readInt();
+				if (length == 0) {
+					receiver.endOfStream.countDown();
+					return;
+				}
+				if (length < 0 || length > MAX_DELTA_BYTES) {
+					LOG.warn("Dropped aggregate stream {} sending a {} byte delta", receiver.stream, length);
+					return;
+				}
+				long sequence = in.readLong();
+				byte[] delta = new byte[length];
+				in.readFully(delta);
+				if (!receiver.add(sequence, delta)) {
+					LOG.debug("Dropped delta {} of aggregate stream {}, it was received before", sequence, receiver.stream);
+				}
+				out.writeLong(sequence);
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// JMeter sends what wasn't acknowledged again once it has reconnected
+			LOG.debug("Aggregate stream {} disconnected before it ended", receiver != null ? receiver.stream : "");
+		} catch (IOException e) {
+			LOG.warn("Could not read aggregate stream {}: {}", receiver != null ? receiver.stream : "", e.getMessage());
+		} finally {
+			if (receiver != null) {
+				receiver.lastConnectionClosed = System.nanoTime();
+			}
+		}
+	}
+
+	/**
+	 * Drops streams whose run had already stopped following them when they connected, such as a cancelled run's.
+	 */
+	private void dropUnfollowed() {
+		long now = System.nanoTime();
+		receivers.values().removeIf(receiver -> !receiver.followed && receiver.lastConnectionClosed != 0
+				&& now - receiver.lastConnectionClosed > UNFOLLOWED_TIMEOUT.toNanos());
+	}
+
+	/**
+	 * One test's stream. Deltas are queued by the connection's thread and folded in by the run's thread as it polls.
+	 */
+	private final class Receiver implements ResultFollower {
+
+		private final String stream;
+		private final Path resultFile;
+		private final JtlTailer file;
+		private final JtlAggregator aggregator = new JtlAggregator();
+
+		private final Queue<byte[]> deltas = new ConcurrentLinkedQueue<>();
+		// Highest sequence number queued; a reconnecting listener may send one again before it has a new connection's acks
+		private long lastSequence;
+		private final CountDownLatch firstConnection = new CountDownLatch(1);
+		private final CountDownLatch endOfStream = new CountDownLatch(1);
+		private volatile boolean connected;
+		private volatile boolean followed;
+		private volatile long lastConnectionClosed;
+
+		private Receiver(String stream) {
+			this.stream = stream;
+			this.resultFile = Path.of(stream);
+			this.file = new JtlTailer(resultFile);
+		}
+
+		/**
+		 * Queues a delta unless one with the same sequence number already was.
+		 *
+		 * @return whether the delta was queued
+		 */
+		private synchronized boolean add(long sequence, byte[] delta) {
+			if (sequence <= lastSequence) {
+				return false;
+			}
+			lastSequence = sequence;
+			deltas.add(delta);
+			return true;
+		}
+
+		@Override
+		public boolean poll() throws IOException {
+			boolean advanced = false;
+			for (byte[] delta = deltas.poll(); delta != null; delta = deltas.poll()) {
+				try {
+					AggregateDeltas.decodeInto(ByteBuffer.wrap(delta), aggregator);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Corrupt aggregate delta on stream " + stream, e);
+				}
+				advanced = true;
+			}
+			if (!connected) {
+				// The plan may not have been given the listener, and written a result file instead
+				advanced |= file.poll();
+			}
+			return advanced;
+		}
+
+		@Override
+		public JtlAggregator finish(boolean complete) throws IOException {
+			try {
+				if (!connected && !Files.exists(resultFile)) {
+					// Neither has been heard of yet, so give the stream as long to connect as it gets to end
+					firstConnection.await(END_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+				}
+				if (connected && !endOfStream.await(END_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+					LOG.warn("Aggregate stream {} didn't end, its last samples may be missing", stream);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (connected) {
+				poll();
+				return aggregator;
+			}
+			return file.finish(complete);
+		}
+
+		@Override
+		public boolean isStarted() {
+			return connected || file.isStarted();
+		}
+
+		@Override
+		public JtlAggregator getAggregator() {
+			return connected ? aggregator : file.getAggregator();
+		}
+
+		@Override
+		public void close() throws IOException {
+			receivers.remove(stream, this);
+			file.close();
+		}
+	}
+}
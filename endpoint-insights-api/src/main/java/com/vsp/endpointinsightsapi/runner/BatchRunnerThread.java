@@ -6,20 +6,18 @@ import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.TestBatch;
 import com.vsp.endpointinsightsapi.model.entity.TestResult;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
 import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class BatchRunnerThread implements Runnable {
@@ -28,30 +26,34 @@ public class BatchRunnerThread implements Runnable {
 
 	private TestBatch batch;
 	private TestRun testRun;
+	private final RunPriority priority;
 
 	private final Consumer<BatchRunnerThreadStatus> onComplete;
 
 	private final TestRunRepository testRunRepository;
 	private final TestBatchRepository testBatchRepository;
 	private final JobRunnerThreadFactory jobRunnerThreadFactory;
-	private final ThreadPoolTaskScheduler vspTaskScheduler;
+	private final RunExecutor runExecutor;
 
+	private final CompletableFuture<BatchRunnerThreadStatus> completion = new CompletableFuture<>();
 
 	public BatchRunnerThread(TestBatch batch,
 							 TestRun testRun,
+							 RunPriority priority,
 							 Consumer<BatchRunnerThreadStatus> onComplete,
 							 TestRunRepository testRunRepository,
 							 TestBatchRepository testBatchRepository,
 							 JobRunnerThreadFactory jobRunnerThreadFactory,
-							 ThreadPoolTaskScheduler vspTaskScheduler) {
+							 RunExecutor runExecutor) {
 		this.batch = batch;
 		this.testRun = testRun;
+		this.priority = priority;
 		this.onComplete = onComplete;
 
 		this.testRunRepository = testRunRepository;
 		this.testBatchRepository = testBatchRepository;
 		this.jobRunnerThreadFactory = jobRunnerThreadFactory;
-		this.vspTaskScheduler = vspTaskScheduler;
+		this.runExecutor = runExecutor;
 	}
 
 	@Override
@@ -67,10 +69,12 @@ public class BatchRunnerThread implements Runnable {
 
 		final Map<UUID, TestRunStatus> testRunMap = Collections.synchronizedMap(new HashMap<>());
 		final List<JobRunnerThread> jobTasks = new ArrayList<>();
+		// Shared by every job, so they count against the batch's parallelism together
+		final RunAdmission admission = RunAdmission.forBatch(testRun, batch, priority);
 
         List<TestResult> resultIds = Collections.synchronizedList(new ArrayList<>());
 		for (final Job job : batch.getJobs()) {
-			var jobRunnerThread = jobRunnerThreadFactory.create(job, testRun, true, (status) -> {
+			var jobRunnerThread = jobRunnerThreadFactory.create(job, testRun, true, admission, (status) -> {
 				if(status.testResults() != null && !status.testResults().isEmpty()) {
                     resultIds.addAll(status.testResults());
                 }
@@ -88,27 +92,44 @@ public class BatchRunnerThread implements Runnable {
 			jobTasks.add(jobRunnerThread);
 		}
 
-		List<Future<?>> futures = new ArrayList<>();
-		for (JobRunnerThread task : jobTasks) {
-			futures.add(vspTaskScheduler.submit(task));
-		}
+		// Chain the outcome onto the jobs rather than wait on them, so this thread is freed straight away and a burst
+		// of batches can't tie up every pool thread waiting on jobs that have nowhere left to run
+		CompletableFuture<?>[] jobs = jobTasks.stream()
+				.map(runExecutor::runJob)
+				.toArray(CompletableFuture[]::new);
+		CompletableFuture.allOf(jobs).whenComplete((ignored, error) -> finish(testRunMap, resultIds, error));
+	}
 
-		for (Future<?> future : futures) {
-			try {
-				future.get();
-			} catch (InterruptedException | ExecutionException e) {
-				LOG.error("Error waiting for job task to finish: {}", e.getMessage());
-				throw new RuntimeException(e);
-			}
-		}
+	/**
+	 * @return completed with the batch's final status once every job has finished
+	 */
+	public CompletableFuture<BatchRunnerThreadStatus> getCompletion() {
+		return completion;
+	}
 
-		if (testRunMap.values().stream().anyMatch(status -> status != TestRunStatus.COMPLETED)) {
+	private void finish(Map<UUID, TestRunStatus> testRunMap, List<TestResult> resultIds, Throwable error) {
+		BatchRunnerThreadStatus status;
+		if (error != null) {
+			LOG.error("Batch run (id={}) failed. A job task threw: {}", batch.getBatchId(), error.getMessage());
+			status = new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.FAILED, resultIds);
+		} else if (testRunMap.containsValue(TestRunStatus.CANCELLED)) {
+			// Cancelling the batch's run cancels all its jobs, though some may have finished first
+			LOG.info("Batch run (id={}) was cancelled. Test run status: {}", batch.getBatchId(), testRunMap);
+			status = new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.CANCELLED, resultIds);
+		} else if (testRunMap.values().stream().anyMatch(s -> s != TestRunStatus.COMPLETED)) {
 			LOG.error("Batch run (id={}) failed. Test run status: {}", batch.getBatchId(), testRunMap);
-			onComplete.accept(new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.FAILED, resultIds));
-			return;
+			status = new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.FAILED, resultIds);
+		} else {
+			LOG.info("Batch run (id={}) completed successfully.", batch.getBatchId());
+			status = new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.COMPLETED, resultIds);
 		}
 
-		LOG.info("Batch run (id={}) completed successfully.", batch.getBatchId());
-		onComplete.accept(new BatchRunnerThreadStatus(batch, testRun, TestRunStatus.COMPLETED, resultIds));
+		try {
+			onComplete.accept(status);
+		} catch (RuntimeException e) {
+			LOG.error("Batch run (id={}) completion handler failed: {}", batch.getBatchId(), e.getMessage());
+		} finally {
+			completion.complete(status);
+		}
 	}
 }
@@ -0,0 +1,144 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * A directory of cache entries, each one a subdirectory, held under a disk budget.
+ *
+ * <p>Every use of an entry stamps a marker file inside it. Once the entries take up more than the budget, the least
+ * recently used ones are deleted. Entries are locked while they are written or read, and locked entries are never
+ * evicted. Subdirectories whose names start with a dot are not entries and are left alone.</p>
+ */
+final class CacheDirectory {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CacheDirectory.class);
+	private static final String LAST_USED_MARKER = "last-used";
+
+	private final Path root;
+	private final long maxSizeBytes;
+
+	private final Map<Path, ReentrantLock> locks = new ConcurrentHashMap<>();
+	private final Map<Path, Long> sizes = new ConcurrentHashMap<>();
+
+	CacheDirectory(Path root, long maxSizeBytes) {
+		this.root = root.toAbsolutePath().normalize();
+		this.maxSizeBytes = maxSizeBytes;
+	}
+
+	Path root() {
+		return root;
+	}
+
+	/**
+	 * @return whether a disk budget is configured; a budget of 0 turns the cache off
+	 */
+	boolean isEnabled() {
+		return maxSizeBytes > 0;
+	}
+
+	Path entry(String name) {
+		return root.resolve(name);
+	}
+
+	ReentrantLock lockFor(Path entry) {
+		return locks.computeIfAbsent(entry, e -> new ReentrantLock());
+	}
+
+	/**
+	 * Records that {@code entry} was just used and refreshes its size. Call while holding its lock.
+	 */
+	void markUsed(Path entry) throws IOException {
+		Files.writeString(entry.resolve(LAST_USED_MARKER), Instant.now().toString(), StandardCharsets.UTF_8);
+		sizes.put(entry, sizeOf(entry));
+	}
+
+	/**
+	 * Deletes entries, oldest use first, until the rest fit in the disk budget. Entries in use are skipped.
+	 */
+	void evictLeastRecentlyUsed() {
+		List<Path> entries;
+		try (Stream<Path> children = Files.list(root)) {
+			// Dot-prefixed directories are entries still being written
+			entries = new ArrayList<>(children
+					.filter(Files::isDirectory)
+					.filter(child -> !child.getFileName().toString().startsWith("."))
+					.toList());
+		} catch (IOException e) {
+			LOG.warn("Could not list cache entries in {} - {}", root, e.getMessage());
+			return;
+		}
+
+		long total = 0;
+		for (Path entry : entries) {
+			total += sizes.computeIfAbsent(entry, CacheDirectory::sizeOf);
+		}
+		if (total <= maxSizeBytes) {
+			return;
+		}
+
+		entries.sort(Comparator.comparing(CacheDirectory::lastUsed));
+		for (Path entry : entries) {
+			if (total <= maxSizeBytes) {
+				break;
+			}
+			ReentrantLock lock = lockFor(entry);
+			if (!lock.tryLock()) {
+				continue;
+			}
+			try {
+				deleteRecursively(entry);
+				total -= sizes.getOrDefault(entry, 0L);
+				sizes.remove(entry);
+				LOG.info("Evicted cache entry {}", entry);
+			} catch (IOException e) {
+				LOG.warn("Could not evict cache entry {} - {}", entry, e.getMessage());
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	static long sizeOf(Path directory) {
+		try (Stream<Path> files = Files.walk(directory)) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+		} catch (IOException | RuntimeException e) {
+			return 0;
+		}
+	}
+
+	static void deleteRecursively(Path directory) throws IOException {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+				path.toFile().setWritable(true);
+				Files.delete(path);
+			}
+		}
+	}
+
+	private static FileTime lastUsed(Path entry) {
+		try {
+			Path marker = entry.resolve(LAST_USED_MARKER);
+			return Files.getLastModifiedTime(Files.exists(marker) ? marker : entry);
+		} catch (IOException e) {
+			return FileTime.fromMillis(0);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Remembers what a job's compile command produced, so a run of the same commit with the same command can skip it.
+ *
+ * <p>Entries are keyed by the checked-out commit, the compile command, the repository URL and the job's config less
+ * its stage timeouts. Nothing else of the job is in the key: the compile command runs at the root of the checkout and
+ * is given nothing from the job but its own arguments, so a job's name, test plan and thresholds can't change what it
+ * produces. Config is in the key whole, so a setting a build comes to depend on can't share output. After a successful
+ * compile, every file the command created or modified in the workspace is copied into the entry; on a later hit those
+ * files are copied back instead of compiling. Workspaces with uncommitted changes are never cached. Entries live under
+ * {@code compile-cache.dir} and the least recently used ones are deleted once they exceed
+ * {@code compile-cache.max-size-mb}.</p>
+ */
+@Component
+public class CompileOutputCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CompileOutputCache.class);
+	private static final String GIT_DIRECTORY = ".git";
+	private static final String FILES = "files";
+	// Only bound how long a stage may take, never what it produces
+	private static final Set<String> NON_BUILD_CONFIG_KEYS = Set.of("cloneTimeoutSeconds", "compileTimeoutSeconds", "executeTimeoutSeconds");
+
+	private final CacheDirectory entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final ProcessSupervisor processSupervisor;
+
+	public CompileOutputCache(@Value("${compile-cache.dir:${temp.dir}/compile-cache}") String cacheDir,
+							  @Value("${compile-cache.max-size-mb:4096}") long maxSizeMb,
+							  ProcessSupervisor processSupervisor) {
+		this(Paths.get(cacheDir), maxSizeMb * 1024 * 1024, processSupervisor);
+	}
+
+	CompileOutputCache(Path cacheRoot, long maxSizeBytes, ProcessSupervisor processSupervisor) {
+		this.entries = new CacheDirectory(cacheRoot, maxSizeBytes);
+		this.processSupervisor = processSupervisor;
+	}
+
+	/**
+	 * @return the cache key for compiling {@code job} in {@code workingDirectory}, or empty if the cache is off, the
+	 * directory isn't a git checkout, or it has uncommitted changes
+	 */
+	public Optional<String> keyFor(File workingDirectory, Job job) {
+		if (!entries.isEnabled() || workingDirectory == null) {
+			return Optional.empty();
+		}
+		// Held to the compile stage's limit, which it's part of
+		Duration timeout = processSupervisor.timeout(job, RunStage.COMPILE);
+		try {
+			String head = GitMirrorCache.git(processSupervisor, workingDirectory, timeout, "git", "rev-parse", "HEAD").strip();
+			if (!GitMirrorCache.git(processSupervisor, workingDirectory, timeout, "git", "status", "--porcelain").isBlank()) {
+				return Optional.empty();
+			}
+			return Optional.of(sha256(head + '\0' + job.getCompileCommand().strip() + '\0' + job.getGitUrl() + '\0' + buildConfig(job)));
+		} catch (IOException e) {
+			LOG.debug("Not caching compile output for {} - {}", workingDirectory, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Copies the cached compile output for {@code key} into {@code workingDirectory}.
+	 *
+	 * @return whether there was an entry to restore; if not, the caller has to compile
+	 */
+	public boolean restore(String key, File workingDirectory) {
+		Path entry = entries.entry(key);
+		ReentrantLock lock = entries.lockFor(entry);
+		lock.lock();
+		try {
+			Path files = entry.resolve(FILES);
+			if (!Files.isDirectory(files)) {
+				misses.incrementAndGet();
+				return false;
+			}
+			copyTree(files, workingDirectory.toPath(), relativeFiles(files));
+			entries.markUsed(entry);
+			hits.incrementAndGet();
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Could not restore compile output {} - {}", key, e.getMessage());
+			misses.incrementAndGet();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records the size and modification time of every file in the workspace, to compare against after compiling.
+	 *
+	 * @return the snapshot, or {@code null} if the workspace couldn't be read and the output shouldn't be cached
+	 */
+	public Snapshot snapshot(File workingDirectory) {
+		Path root = workingDirectory.toPath();
+		Map<Path, FileStamp> stamps = new HashMap<>();
+		try {
+			for (Path file : relativeFiles(root)) {
+				stamps.put(file, FileStamp.of(root.resolve(file)));
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not snapshot {} before compiling - {}", workingDirectory, e.getMessage());
+			return null;
+		}
+		return new Snapshot(stamps);
+	}
+
+	/**
+	 * Stores every file that changed in {@code workingDirectory} since {@code before} as the output for {@code key}.
+	 */
+	public void store(String key, File workingDirectory, Snapshot before) {
+		Path root = workingDirectory.toPath();
+		Path entry = entries.entry(key);
+		// Dot-prefixed so eviction leaves it alone while it's being filled
+		Path staging = entries.entry(".staging-" + UUID.randomUUID());
+		try {
+			List<Path> changed = new ArrayList<>();
+			for (Path file : relativeFiles(root)) {
+				if (!FileStamp.of(root.resolve(file)).equals(before.stamps().get(file))) {
+					changed.add(file);
+				}
+			}
+			Files.createDirectories(staging.resolve(FILES));
+			copyTree(root, staging.resolve(FILES), changed);
+
+			ReentrantLock lock = entries.lockFor(entry);
+			lock.lock();
+			try {
+				if (!Files.exists(entry)) {
+					Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+					entries.markUsed(entry);
+					LOG.info("Cached {} compiled files as {}", changed.size(), key);
+				}
+			} finally {
+				lock.unlock();
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not cache compile output {} - {}", key, e.getMessage());
+		} finally {
+			try {
+				CacheDirectory.deleteRecursively(staging);
+			} catch (IOException e) {
+				LOG.warn("Could not delete {} - {}", staging, e.getMessage());
+			}
+		}
+		entries.evictLeastRecentlyUsed();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return every regular file under {@code root}, relative to it, leaving out git's own directory
+	 */
+	private static List<Path> relativeFiles(Path root) throws IOException {
+		try (Stream<Path> files = Files.walk(root)) {
+			return files.filter(Files::isRegularFile)
+					.map(root::relativize)
+					.filter(file -> !file.startsWith(GIT_DIRECTORY))
+					.toList();
+		}
+	}
+
+	private static void copyTree(Path from, Path to, List<Path> files) throws IOException {
+		for (Path file : files) {
+			Path target = to.resolve(file);
+			Files.createDirectories(target.getParent());
+			Files.copy(from.resolve(file), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+	}
+
+	/**
+	 * @return the job's config without the settings that can't affect a build, in the same form however its maps are
+	 * ordered
+	 */
+	static String buildConfig(Job job) {
+		if (job.getConfig() == null) {
+			return "";
+		}
+		Map<String, Object> config = new TreeMap<>(job.getConfig());
+		config.keySet().removeAll(NON_BUILD_CONFIG_KEYS);
+		return canonical(config);
+	}
+
+	private static String canonical(Object value) {
+		if (value instanceof Map<?, ?> map) {
+			Map<String, String> sorted = new TreeMap<>();
+			map.forEach((k, v) -> sorted.put(String.valueOf(k), canonical(v)));
+			return sorted.toString();
+		}
+		if (value instanceof List<?> list) {
+			return list.stream().map(CompileOutputCache::canonical).toList().toString();
+		}
+		return String.valueOf(value);
+	}
+
+	private static String sha256(String value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The state of a workspace before compiling.
+	 */
+	public record Snapshot(Map<Path, FileStamp> stamps) {}
+
+	public record FileStamp(long size, long modifiedMillis) {
+		static FileStamp of(Path file) throws IOException {
+			return new FileStamp(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+		}
+	}
+}
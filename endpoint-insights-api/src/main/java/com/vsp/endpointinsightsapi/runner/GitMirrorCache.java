@@ -0,0 +1,167 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps a bare mirror of every repository jobs run from, so a run only has to fetch what changed since the last one.
+ *
+ * <p>Mirrors live under {@code git.mirror-cache.dir}, one per repository URL. Checking out a run fetches into the
+ * mirror and then clones from it locally, which hard-links the object files instead of downloading them; the run
+ * directory is a complete, independent repository that can be deleted without affecting the mirror. Once the mirrors
+ * take up more than {@code git.mirror-cache.max-size-mb}, the least recently used ones are deleted.</p>
+ *
+ * <p>Every git process of a checkout runs under the {@link ProcessSupervisor}, sharing the run's clone time limit, so a
+ * fetch that hangs is killed at the deadline or as soon as the run is cancelled.</p>
+ */
+@Component
+public class GitMirrorCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(GitMirrorCache.class);
+
+	private final CacheDirectory mirrors;
+	private final ProcessSupervisor processSupervisor;
+
+	public GitMirrorCache(@Value("${git.mirror-cache.dir:${temp.dir}/git-mirrors}") String mirrorDir,
+						  @Value("${git.mirror-cache.max-size-mb:2048}") long maxSizeMb,
+						  ProcessSupervisor processSupervisor) {
+		this(Paths.get(mirrorDir), maxSizeMb * 1024 * 1024, processSupervisor);
+	}
+
+	GitMirrorCache(Path mirrorRoot, long maxSizeBytes, ProcessSupervisor processSupervisor) {
+		this.mirrors = new CacheDirectory(mirrorRoot, maxSizeBytes);
+		this.processSupervisor = processSupervisor;
+	}
+
+	/**
+	 * @return whether a disk budget is configured; a budget of 0 turns the cache off
+	 */
+	public boolean isEnabled() {
+		return mirrors.isEnabled();
+	}
+
+	/**
+	 * Brings the mirror of {@code gitUrl} up to date, cloning it first if needed, and clones it into
+	 * {@code targetDirectory/<repository name>} the same way {@code git clone <url>} would.
+	 *
+	 * @param timeout how long the whole checkout may take, including waiting for another run using the same mirror
+	 * @throws IOException if git fails
+	 * @throws TimeoutException if the checkout ran too long; the git process running at the time has been killed
+	 * @throws InterruptedException if interrupted, e.g. by the run being cancelled; git has been killed
+	 */
+	public void checkout(String gitUrl, File targetDirectory, Duration timeout) throws IOException, InterruptedException, TimeoutException {
+		Path mirror = mirrors.entry(mirrorName(gitUrl));
+		ReentrantLock lock = mirrors.lockFor(mirror);
+
+		long start = System.nanoTime();
+		long deadline = start + timeout.toNanos();
+		if (!lock.tryLock(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+			throw new TimeoutException("Mirror of " + gitUrl + " was still in use by another run after " + timeout.toSeconds() + " s");
+		}
+		try {
+			if (Files.isRegularFile(mirror.resolve("HEAD"))) {
+				git(mirror.toFile(), deadline, "git", "remote", "update", "--prune");
+			} else {
+				Files.createDirectories(mirrors.root());
+				CacheDirectory.deleteRecursively(mirror);
+				git(mirrors.root().toFile(), deadline, "git", "clone", "--mirror", gitUrl, mirror.toString());
+			}
+			// A plain path makes git hard-link the objects, falling back to copying across file systems
+			git(targetDirectory, deadline, "git", "clone", "--quiet", mirror.toString(), repositoryName(gitUrl));
+			mirrors.markUsed(mirror);
+		} finally {
+			lock.unlock();
+		}
+		LOG.info("Checked out {} from mirror in {} ms", gitUrl, (System.nanoTime() - start) / 1_000_000);
+
+		mirrors.evictLeastRecentlyUsed();
+	}
+
+	void evictLeastRecentlyUsed() {
+		mirrors.evictLeastRecentlyUsed();
+	}
+
+	static String mirrorName(String gitUrl) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(gitUrl.trim().getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(digest, 0, 16) + ".git";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return the directory name {@code git clone} picks for {@code gitUrl}, e.g. {@code tests} for
+	 * {@code https://host/org/tests.git}
+	 */
+	static String repositoryName(String gitUrl) {
+		String path = gitUrl.trim().replaceAll("[/\\\\]+$", "");
+		int slash = Math.max(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')), path.lastIndexOf(':'));
+		String name = path.substring(slash + 1);
+		if (name.endsWith(".git")) {
+			name = name.substring(0, name.length() - 4);
+		}
+		return name.isEmpty() ? "repository" : name;
+	}
+
+	/**
+	 * Runs a git command of a checkout under the supervisor, killing it if it's still running at {@code deadline}.
+	 *
+	 * @throws IOException if git exits with an error
+	 */
+	private void git(File directory, long deadline, String... command) throws IOException, InterruptedException, TimeoutException {
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.directory(directory);
+		// Never block on a credentials prompt
+		processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+
+		Duration remaining = Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+		int exitCode = processSupervisor.run(processBuilder, "git-" + command[1], remaining);
+		if (exitCode != 0) {
+			throw new IOException(String.join(" ", command[0], command[1]) + " failed with exit code " + exitCode);
+		}
+	}
+
+	/**
+	 * Runs a quick local git command, such as {@code rev-parse}, under the supervisor and returns its combined output.
+	 *
+	 * @param timeout how long it may run before it's killed
+	 * @throws IOException if git exits with an error, runs too long or is interrupted
+	 */
+	static String git(ProcessSupervisor processSupervisor, File directory, Duration timeout, String... command) throws IOException {
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.directory(directory);
+		// Never block on a credentials prompt
+		processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+
+		SupervisedProcess process = processSupervisor.start(processBuilder, "git-" + command[1]);
+		try {
+			int exitCode = process.await(timeout);
+			if (exitCode != 0) {
+				throw new IOException(String.join(" ", command[0], command[1]) + " failed with exit code " + exitCode + ": " + process.output().strip());
+			}
+			return process.output();
+		} catch (TimeoutException e) {
+			throw new IOException(e.getMessage(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while running " + String.join(" ", command[0], command[1]), e);
+		}
+	}
+}
@@ -1,23 +1,41 @@
 package com.vsp.endpointinsightsapi.runner;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class GitService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GitService.class);
+
     private final String tempDirectory;
+    private final GitMirrorCache gitMirrorCache;
+    private final ProcessSupervisor processSupervisor;
 
-    public GitService(@Value("${temp.dir}") String tempDirectory) {
+    public GitService(@Value("${temp.dir}") String tempDirectory, GitMirrorCache gitMirrorCache, ProcessSupervisor processSupervisor) {
         this.tempDirectory = tempDirectory;
+        this.gitMirrorCache = gitMirrorCache;
+        this.processSupervisor = processSupervisor;
     }
 
     public File cloneRepository(String gitUrl, String jobId, String jobName) throws IOException {
+        return cloneRepository(gitUrl, jobId, jobName, processSupervisor.timeout(null, RunStage.CLONE));
+    }
+
+    /**
+     * @param timeout how long the checkout, from the mirror cache or a direct clone, may take before it's killed and
+     *                the clone fails
+     */
+    public File cloneRepository(String gitUrl, String jobId, String jobName, Duration timeout) throws IOException {
         if (gitUrl == null || gitUrl.trim().isEmpty()) {
             throw new IllegalArgumentException("No git URL provided for job: " + jobName);
         }
@@ -36,20 +54,62 @@ public class GitService {
             throw new IOException("Could not create temporary job directory: " + tempDir.getAbsolutePath());
         }
 
+        if (gitMirrorCache.isEnabled()) {
+            try {
+                gitMirrorCache.checkout(gitUrl, tempDir, timeout);
+                return tempDir;
+            } catch (TimeoutException e) {
+                // Falling back to a direct clone would let the run take twice its limit
+                deleteContents(tempDir);
+                if (!tempDir.delete()) {
+                    LOG.warn("Could not delete {}", tempDir.getAbsolutePath());
+                }
+                throw new IOException("Git clone timed out for job: " + jobName + ": " + e.getMessage(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                deleteContents(tempDir);
+                throw new IOException("Git clone interrupted for job: " + jobName, e);
+            } catch (IOException e) {
+                LOG.warn("Could not check out {} from the mirror cache for job: {} - cloning directly. {}", gitUrl, jobName, e.getMessage());
+                deleteContents(tempDir);
+            }
+        }
+
         ProcessBuilder processBuilder = new ProcessBuilder("git", "clone", gitUrl);
         processBuilder.directory(tempDir);
 
+        // Never block on a credentials prompt
+        processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+
         try {
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
+            int exitCode = processSupervisor.run(processBuilder, "git-clone-" + jobId, timeout);
             if (exitCode != 0) {
-                System.err.println("Git clone failed with exit code: " + exitCode + " for job: " + jobName);
+                LOG.error("Git clone failed with exit code: {} for job: {}", exitCode, jobName);
             }
+        } catch (TimeoutException e) {
+            deleteContents(tempDir);
+            if (!tempDir.delete()) {
+                LOG.warn("Could not delete {}", tempDir.getAbsolutePath());
+            }
+            throw new IOException("Git clone timed out for job: " + jobName + ": " + e.getMessage(), e);
         } catch (IOException | InterruptedException e) {
             Thread.currentThread().interrupt();
-            System.err.println("Git clone interrupted for job: " + jobName + ": " + e.getMessage());
+            LOG.error("Git clone interrupted for job: {}: {}", jobName, e.getMessage());
         }
 
         return tempDir;
     }
+
+    private void deleteContents(File directory) {
+        File[] children = directory.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            deleteContents(child);
+            if (!child.delete()) {
+                LOG.warn("Could not delete {}", child.getAbsolutePath());
+            }
+        }
+    }
 }
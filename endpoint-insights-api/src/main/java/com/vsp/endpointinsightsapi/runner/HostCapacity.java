@@ -0,0 +1,189 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Holds back JMeter launches while the host is too busy for another load generator to measure anything meaningful.
+ *
+ * <p>Before a test starts, the host's CPU load and available memory are compared against
+ * {@code execution.host-capacity.max-cpu-load} and the JMeter heap plus {@code execution.host-capacity.memory-headroom-mb}.
+ * If either is short, the launch waits and checks again, for at most {@code execution.host-capacity.max-launch-delay-seconds}
+ * after which it goes ahead and is flagged as oversubscribed. A freshly started JVM hasn't touched its heap yet, so
+ * each launch's heap is counted against available memory until {@code execution.host-capacity.settle-seconds} have
+ * passed or its test ends.</p>
+ */
+@Component
+public class HostCapacity {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HostCapacity.class);
+
+	// What bin/jmeter uses when HEAP isn't set
+	static final long DEFAULT_JMETER_HEAP_BYTES = 1024L * 1024 * 1024;
+	private static final Pattern MAX_HEAP = Pattern.compile("-Xmx(\\d+)([kKmMgGtT]?)");
+	private static final Path MEMINFO = Path.of("/proc/meminfo");
+
+	private final Probe probe;
+	private final boolean enabled;
+	private final double maxCpuLoad;
+	private final long memoryHeadroomBytes;
+	private final long maxLaunchDelayNanos;
+	private final long pollIntervalMillis;
+	private final long settleNanos;
+
+	private final List<Reservation> reservations = new ArrayList<>();
+
+	public HostCapacity(@Value("${execution.host-capacity.enabled:true}") boolean enabled,
+						@Value("${execution.host-capacity.max-cpu-load:0.75}") double maxCpuLoad,
+						@Value("${execution.host-capacity.memory-headroom-mb:512}") long memoryHeadroomMb,
+						@Value("${execution.host-capacity.max-launch-delay-seconds:300}") long maxLaunchDelaySeconds,
+						@Value("${execution.host-capacity.settle-seconds:30}") long settleSeconds) {
+		this(HostCapacity::readHostLoad, enabled, maxCpuLoad, memoryHeadroomMb * 1024 * 1024,
+				Duration.ofSeconds(maxLaunchDelaySeconds), Duration.ofSeconds(2), Duration.ofSeconds(settleSeconds));
+	}
+
+	HostCapacity(Probe probe, boolean enabled, double maxCpuLoad, long memoryHeadroomBytes,
+				 Duration maxLaunchDelay, Duration pollInterval, Duration settle) {
+		this.probe = probe;
+		this.enabled = enabled;
+		this.maxCpuLoad = maxCpuLoad;
+		this.memoryHeadroomBytes = memoryHeadroomBytes;
+		this.maxLaunchDelayNanos = maxLaunchDelay.toNanos();
+		this.pollIntervalMillis = Math.max(1, pollInterval.toMillis());
+		this.settleNanos = settle.toNanos();
+	}
+
+	/**
+	 * Waits until the host can take a JMeter process with a heap of {@code heapBytes}, or until the longest allowed
+	 * delay has passed.
+	 *
+	 * @return the reservation, to be closed once the process has exited; its decision records what the launch saw
+	 */
+	public Reservation awaitCapacity(long heapBytes) throws InterruptedException {
+		long start = System.nanoTime();
+		while (true) {
+			long waitedNanos = System.nanoTime() - start;
+			synchronized (reservations) {
+				long now = System.nanoTime();
+				reservations.removeIf(r -> r.released || now - r.reservedAtNanos >= settleNanos);
+
+				HostLoad load = probe.read();
+				long reserved = reservations.stream().mapToLong(r -> r.heapBytes).sum();
+				long available = Math.max(0, load.availableMemoryBytes() - reserved);
+				boolean cpuBusy = load.cpuLoad() > maxCpuLoad;
+				boolean memoryShort = load.availableMemoryBytes() >= 0 && available < heapBytes + memoryHeadroomBytes;
+
+				boolean timedOut = waitedNanos >= maxLaunchDelayNanos;
+				if (!enabled || (!cpuBusy && !memoryShort) || timedOut) {
+					boolean oversubscribed = enabled && (cpuBusy || memoryShort);
+					if (oversubscribed) {
+						LOG.warn("Launching JMeter on a busy host after {} s - CPU load {}, {} MB available for a {} MB heap",
+								waitedNanos / 1_000_000_000, load.cpuLoad(), available / (1024 * 1024), heapBytes / (1024 * 1024));
+					}
+					LaunchDecision decision = new LaunchDecision(load.cpuLoad(), available, heapBytes,
+							waitedNanos / 1_000_000, oversubscribed);
+					Reservation reservation = new Reservation(heapBytes, now, decision);
+					reservations.add(reservation);
+					return reservation;
+				}
+			}
+			Thread.sleep(pollIntervalMillis);
+		}
+	}
+
+	/**
+	 * @return the largest heap the {@code bin/jmeter} script will start JMeter with, given its environment: the last
+	 * {@code -Xmx} in {@code HEAP} and then {@code JVM_ARGS}, which the script passes in that order
+	 */
+	static long jmeterHeapBytes(Map<String, String> environment) {
+		long heap = DEFAULT_JMETER_HEAP_BYTES;
+		for (String variable : new String[]{"HEAP", "JVM_ARGS"}) {
+			String value = environment.get(variable);
+			if (value == null) {
+				continue;
+			}
+			Matcher matcher = MAX_HEAP.matcher(value);
+			while (matcher.find()) {
+				heap = Long.parseLong(matcher.group(1)) * switch (matcher.group(2).toLowerCase()) {
+					case "k" -> 1024L;
+					case "m" -> 1024L * 1024;
+					case "g" -> 1024L * 1024 * 1024;
+					case "t" -> 1024L * 1024 * 1024 * 1024;
+					default -> 1L;
+				};
+			}
+		}
+		return heap;
+	}
+
+	private static HostLoad readHostLoad() {
+		double cpuLoad = -1;
+		long available = -1;
+		if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+			cpuLoad = os.getCpuLoad();
+			available = os.getFreeMemorySize();
+		}
+		// Free memory leaves out the page cache the kernel would give up, so prefer its own estimate where there is one
+		try {
+			if (Files.isReadable(MEMINFO)) {
+				for (String line : Files.readAllLines(MEMINFO)) {
+					if (line.startsWith("MemAvailable:")) {
+						available = Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+						break;
+					}
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			LOG.debug("Could not read available memory from {} - {}", MEMINFO, e.getMessage());
+		}
+		return new HostLoad(cpuLoad, available);
+	}
+
+	/**
+	 * @param cpuLoad              recent CPU load of the whole host between 0 and 1, or negative if unknown
+	 * @param availableMemoryBytes memory available to new processes, or negative if unknown
+	 */
+	record HostLoad(double cpuLoad, long availableMemoryBytes) {}
+
+	interface Probe {
+		HostLoad read();
+	}
+
+	/**
+	 * Memory set aside for a JMeter process that has just been launched.
+	 */
+	public final class Reservation implements AutoCloseable {
+		private final long heapBytes;
+		private final long reservedAtNanos;
+		private final LaunchDecision decision;
+		private volatile boolean released;
+
+		private Reservation(long heapBytes, long reservedAtNanos, LaunchDecision decision) {
+			this.heapBytes = heapBytes;
+			this.reservedAtNanos = reservedAtNanos;
+			this.decision = decision;
+		}
+
+		public LaunchDecision decision() {
+			return decision;
+		}
+
+		@Override
+		public void close() {
+			released = true;
+		}
+	}
+}
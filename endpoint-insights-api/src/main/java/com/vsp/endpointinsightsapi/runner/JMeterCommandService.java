@@ -8,9 +8,9 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 @Service
 @ConfigurationProperties(prefix = "jmeter")
@@ -18,6 +18,8 @@ public class JMeterCommandService {
 
     private static final Logger LOG = LoggerFactory.getLogger(JMeterCommandService.class);
 
+    static final String LOCAL_WORKER = "local";
+
     @Getter @Setter
     private String home;
 
@@ -33,6 +35,62 @@ public class JMeterCommandService {
             {"jmeter.save.saveservice.latency", "true"},
     };
 
+    /**
+     * Where tests run: {@code local} for an engine on this host, or the {@code host[:port]} of a running
+     * {@code jmeter-server}. With more than one, plans with several thread groups are split across them.
+     */
+    @Getter @Setter
+    private List<String> workers = new ArrayList<>(List.of(LOCAL_WORKER));
+
+    /**
+     * Directories, by name, not searched for test plans, such as dependencies and build output.
+     */
+    @Getter @Setter
+    private List<String> skipDirectories = new ArrayList<>(List.of(".git", "node_modules", "target"));
+
+    /**
+     * How tests running on this host write their results: {@code csv}; {@code binary} through the listener in
+     * {@code endpoint-insights-jmeter-listener}, which has to be installed in JMeter's {@code lib/ext}; or
+     * {@code aggregate}, aggregated inside JMeter by another listener there and sent to the {@link AggregateStreamServer}
+     * without writing a file per sample. Tests on remote workers always write CSV, since their samples are streamed back
+     * here as rows.
+     */
+    @Getter @Setter
+    private ResultFormat resultFormat = ResultFormat.CSV;
+
+    public enum ResultFormat {
+        CSV,
+        BINARY,
+        AGGREGATE
+    }
+
+    @Getter @Setter
+    private AggregateStream aggregateStream = new AggregateStream();
+
+    /**
+     * Where tests with {@link ResultFormat#AGGREGATE aggregate} results send them, and how often.
+     */
+    @Getter @Setter
+    public static class AggregateStream {
+        // Loopback port the API listens on for aggregates
+        private int port = 23999;
+        private long intervalMs = 1000;
+    }
+
+    // Test plans of the last checkouts, by commit and compile command
+    private final JmxIndex jmxIndex;
+
+    public JMeterCommandService(ProcessSupervisor processSupervisor) {
+        this.jmxIndex = new JmxIndex(256, processSupervisor);
+    }
+
+    /**
+     * @return whether more than one worker is configured, so test plans may be split across them
+     */
+    public boolean isDistributed() {
+        return workers != null && workers.size() > 1;
+    }
+
     /**
      *
      * @throws IllegalStateException on unset JMETER_HOME environment variable
@@ -41,6 +99,80 @@ public class JMeterCommandService {
      * @return
      */
     public String[] getRunCommand(File workingDirectory, String testName, String resultFileName) throws IllegalArgumentException {
+        return getRunCommand(workingDirectory, testName, resultFileName, null);
+    }
+
+    /**
+     * Same as {@link #getRunCommand(File, String, String)}, for a checkout compiled with {@code compileCommand}, which
+     * may have generated the test plan; null if it wasn't compiled.
+     */
+    public String[] getRunCommand(File workingDirectory, String testName, String resultFileName, String compileCommand) throws IllegalArgumentException {
+        String jmeterExecutable = jmeterExecutable();
+        File foundTestFile = findTestFile(workingDirectory, testName, compileCommand);
+        return buildLocalCommand(jmeterExecutable, foundTestFile, new File(workingDirectory, resultFileName));
+    }
+
+    /**
+     * Builds one command per configured worker, each running a share of the test plan's thread groups and writing
+     * its own result file. A plan with fewer thread groups than workers is split across as many workers as it has
+     * thread groups; with a single worker, or a single thread group, this is the plain {@link #getRunCommand}.
+     *
+     * @throws IllegalArgumentException if no matching test plan is found
+     * @throws IOException if the test plan can't be read or its shards written
+     */
+    public List<JMeterShard> getShardedRunCommands(File workingDirectory, String testName, String resultFileName) throws IOException {
+        return getShardedRunCommands(workingDirectory, testName, resultFileName, null);
+    }
+
+    /**
+     * Same as {@link #getShardedRunCommands(File, String, String)}, for a checkout compiled with
+     * {@code compileCommand}, which may have generated the test plan; null if it wasn't compiled.
+     */
+    public List<JMeterShard> getShardedRunCommands(File workingDirectory, String testName, String resultFileName, String compileCommand) throws IOException {
+        String jmeterExecutable = jmeterExecutable();
+        File foundTestFile = findTestFile(workingDirectory, testName, compileCommand);
+        List<String> targets = workers == null || workers.isEmpty() ? List.of(LOCAL_WORKER) : workers;
+
+        int shards = Math.min(targets.size(), targets.size() > 1 ? JmxSharder.shardableThreadGroups(foundTestFile) : 1);
+        if (shards <= 1) {
+            File resultFile = new File(workingDirectory, resultFileName);
+            String worker = targets.getFirst();
+            String[] command = LOCAL_WORKER.equals(worker)
+                    ? buildLocalCommand(jmeterExecutable, foundTestFile, resultFile)
+                    : buildCommand(jmeterExecutable, foundTestFile, resultFile.getAbsolutePath(), worker);
+            return List.of(new JMeterShard(worker, command, resultFile));
+        }
+
+        List<File> plans = JmxSharder.writeShards(foundTestFile, shards);
+        String baseName = resultFileName.replaceFirst("\\.jtl$", "");
+        List<JMeterShard> commands = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            File resultFile = new File(workingDirectory, baseName + ".shard-" + shard + ".jtl");
+            String worker = targets.get(shard);
+            commands.add(new JMeterShard(worker, buildCommand(jmeterExecutable, plans.get(shard), resultFile.getAbsolutePath(), worker), resultFile));
+        }
+        LOG.info("Split {} across {} workers: {}", foundTestFile.getName(), shards, targets.subList(0, shards));
+        return commands;
+    }
+
+    private File findTestFile(File workingDirectory, String testName, String compileCommand) {
+        // confirm working directory exists
+        if (workingDirectory == null || !workingDirectory.exists() || !workingDirectory.isDirectory()) {
+            throw new IllegalArgumentException("Working directory does not exist or is not a directory: " + (workingDirectory != null ? workingDirectory.getAbsolutePath() : "null"));
+        }
+
+        List<String> skipped = skipDirectories == null ? List.of() : skipDirectories;
+        File foundTestFile = jmxIndex.find(workingDirectory, testName, skipped, compileCommand);
+
+        if (foundTestFile == null) {
+            throw new IllegalArgumentException("No JMeter test file (.jmx) matching pattern '" + testName + "' was found under directory: " + workingDirectory.getAbsolutePath());
+        }
+
+        LOG.info("test file found={}", foundTestFile.getAbsolutePath());
+        return foundTestFile;
+    }
+
+    private String jmeterExecutable() {
         // 1. Get jmeter executable
         String jmeterHome = this.home;
         if (jmeterHome == null || jmeterHome.trim().isEmpty()) {
@@ -55,25 +187,34 @@ public class JMeterCommandService {
             jmeterExecutable += ".bat";
         }
 
-        // confirm working directory exists
-        if (workingDirectory == null || !workingDirectory.exists() || !workingDirectory.isDirectory()) {
-            throw new IllegalArgumentException("Working directory does not exist or is not a directory: " + (workingDirectory != null ? workingDirectory.getAbsolutePath() : "null"));
-        }
-        // Recursively search for a file that matches the given test pattern
-
-        // Recursively search for a .jmx file that matches the given test pattern
-        Pattern testPattern = Pattern.compile(testName);
-        File foundTestFile = findJmxFileMatchingPattern(workingDirectory, testPattern);
+        return jmeterExecutable;
+    }
 
-        if (foundTestFile == null) {
-            throw new IllegalArgumentException("No JMeter test file (.jmx) matching pattern '" + testName + "' was found under directory: " + workingDirectory.getAbsolutePath());
+    /**
+     * Same as {@link #buildCommand}, for a test whose samples are written on this host, so they can be written in the
+     * configured {@link #resultFormat}. Falls back to CSV if the plan can't be given the result listener.
+     */
+    private String[] buildLocalCommand(String jmeterExecutable, File testFile, File resultFile) {
+        if (resultFormat != ResultFormat.BINARY && resultFormat != ResultFormat.AGGREGATE) {
+            return buildCommand(jmeterExecutable, testFile, resultFile.getAbsolutePath(), LOCAL_WORKER);
+        }
+        File plan;
+        try {
+            plan = resultFormat == ResultFormat.BINARY
+                    ? JmxResultListener.withBinaryResults(testFile, resultFile)
+                    // The stream is told apart from other runs' by the result file it stands in for
+                    : JmxResultListener.withAggregateStream(testFile, aggregateStream.getPort(), resultFile.getAbsolutePath(), aggregateStream.getIntervalMs());
+        } catch (IOException e) {
+            LOG.warn("Writing CSV results for {}, could not add the {} result listener: {}", testFile.getName(),
+                    resultFormat.name().toLowerCase(), e.getMessage());
+            return buildCommand(jmeterExecutable, testFile, resultFile.getAbsolutePath(), LOCAL_WORKER);
         }
 
-        LOG.info("test file found={}", foundTestFile.getAbsolutePath());
-
-        // Get the relative path to the test file (relative to workingDirectory)
-//        String relativeTestPath = workingDirectory.toPath().relativize(foundTestFile.toPath()).toString();
+        // The listener in the plan writes or sends the results, so there's no result file for JMeter to write as well
+        return new String[]{jmeterExecutable, "-n", "-t", plan.getAbsolutePath()};
+    }
 
+    private static String[] buildCommand(String jmeterExecutable, File testFile, String resultFileNameWithPath, String worker) {
         // Build arguments
         List<String> userArgs = new ArrayList<>();
 
@@ -82,14 +223,17 @@ public class JMeterCommandService {
         userArgs.add("-n");
 
         userArgs.add("-t");
-        userArgs.add(foundTestFile.getAbsolutePath());
+        userArgs.add(testFile.getAbsolutePath());
 
         userArgs.add("-l");
-
-        String resultFileNameWithPath = workingDirectory.getAbsolutePath() + File.separator + resultFileName;
-
         userArgs.add(resultFileNameWithPath);
 
+        // Run on a remote engine; its samples are streamed back and written to the result file here
+        if (!LOCAL_WORKER.equals(worker)) {
+            userArgs.add("-R");
+            userArgs.add(worker);
+        }
+
         // Ensure CSV output, and add required columns for parsing
         for (String[] flag : REQUIRED_SAVE_SERVICE_FLAGS) {
             userArgs.add("-J" + flag[0] + "=" + flag[1]);
@@ -97,25 +241,4 @@ public class JMeterCommandService {
 
         return userArgs.toArray(String[]::new);
     }
-
-    /**
-     * Recursively searches for a .jmx file in the given directory whose name matches the pattern.
-     * Returns the first match found, or null if none.
-     */
-    private static File findJmxFileMatchingPattern(File dir, Pattern pattern) {
-        File[] files = dir.listFiles();
-        if (files == null) return null;
-
-        for (File f : files) {
-            if (f.isDirectory()) {
-                File found = findJmxFileMatchingPattern(f, pattern);
-                if (found != null) return found;
-            } else {
-                if (f.getName().endsWith(".jmx") && pattern.matcher(f.getName()).find()) {
-                    return f;
-                }
-            }
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
@@ -5,49 +5,40 @@ import com.vsp.endpointinsightsapi.model.TestRunResult;
 import com.vsp.endpointinsightsapi.model.entity.*;
 import com.vsp.endpointinsightsapi.model.enums.JobStatus;
 import com.vsp.endpointinsightsapi.model.enums.TestType;
-import com.vsp.endpointinsightsapi.repository.JobRepository;
-import com.vsp.endpointinsightsapi.repository.PerfTestResultCodeRepository;
-import com.vsp.endpointinsightsapi.repository.PerfTestResultRepository;
-import com.vsp.endpointinsightsapi.repository.TestResultRepository;
+import com.vsp.endpointinsightsapi.repository.PerfTestResultBatchWriter;
+import com.vsp.endpointinsightsapi.runner.jtl.BinarySampleFile;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlFile;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlParallelAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlStreamReader;
+import com.vsp.endpointinsightsapi.runner.jtl.LatencyHistogram;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerAggregate;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerTimeSeries;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 @Service
 public class JMeterInterpreterService implements TestInterpreter {
 
-	private final PerfTestResultRepository perfTestResultRepository;
-	private final PerfTestResultCodeRepository perfTestResultCodeRepository;
-	private final TestResultRepository testResultRepository;
+	private final PerfTestResultBatchWriter perfTestResultBatchWriter;
 
-    // Used for interpreting test results
-	private record SampleRecord(long elapsed, int responseCodeInt, String responseCode, long timeStamp, boolean success) {}
+	// Width of the stored time series buckets; series of long runs are widened further to stay within MAX_BUCKETS
+	@Value("${test-runs.series-bucket-seconds:1}")
+	private int seriesBucketSeconds = 1;
 
 	@Autowired
-	public JMeterInterpreterService(PerfTestResultRepository perfTestResultRepository, PerfTestResultCodeRepository perfTestResultCodeRepository, TestResultRepository testResultRepository) {
-		this.perfTestResultRepository = perfTestResultRepository;
-		this.perfTestResultCodeRepository = perfTestResultCodeRepository;
-		this.testResultRepository = testResultRepository;
+	public JMeterInterpreterService(PerfTestResultBatchWriter perfTestResultBatchWriter) {
+		this.perfTestResultBatchWriter = perfTestResultBatchWriter;
     }
 
-	private int calculatePercentile(List<Long> sortedLatencies, double percentile) {
-		if (sortedLatencies == null || sortedLatencies.isEmpty()) {
-			return 0;
-		}
-		int n = sortedLatencies.size();
-		double rank = percentile / 100.0 * n;
-		int index = (int) Math.ceil(rank) - 1;
-		if (index < 0) index = 0;
-		if (index >= n) index = n - 1;
-		return sortedLatencies.get(index).intValue();
-	}
-
 	@Override
 	@Transactional
 	public TestRunResult processResults(File file, TestRun testRun, Job job) throws IOException {
@@ -55,101 +46,80 @@ public class JMeterInterpreterService implements TestInterpreter {
             throw new RuntimeException("Job threshold not found");
         }
 
-        // Maps groupKey -> List of SampleRecord
-		Map<String, List<SampleRecord>> grouped = new HashMap<>();
-		// Maps groupKey+code -> count
-		Map<String, Integer> errorCodeCount = new HashMap<>();
-
-		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-			String headerLine = br.readLine();
-			if (headerLine == null) {
-				throw new IOException("CSV file is empty");
-			}
-			String[] headers = headerLine.split(",", -1);
-			Map<String, Integer> headerIndex = new HashMap<>();
-			for (int i = 0; i < headers.length; i++) headerIndex.put(headers[i], i);
-
-			String line;
-			while ((line = br.readLine()) != null) {
-				if (line.isEmpty()) continue;
-				String[] cols = line.split(",", -1);
-
-				String threadName = cols[headerIndex.get("threadName")];
-				String threadGroup = threadName.contains("-") ? threadName.substring(0, threadName.lastIndexOf('-')) : threadName;
-				String samplerNameRaw = cols[headerIndex.get("label")];
-				String samplerName = samplerNameRaw.contains("-") ? samplerNameRaw.substring(0, samplerNameRaw.lastIndexOf('-')) : samplerNameRaw;
-				String responseCode = cols[headerIndex.get("responseCode")];
-				long elapsed, timeStamp;
-				boolean success;
-				try {
-					elapsed = Long.parseLong(cols[headerIndex.get("elapsed")]);
-				} catch (Exception e) { elapsed = 0; }
-				try {
-					timeStamp = Long.parseLong(cols[headerIndex.get("timeStamp")]);
-				} catch (Exception e) { timeStamp = 0; }
-				int responseCodeInt;
-				try {
-					responseCodeInt = Integer.parseInt(responseCode.trim());
-				} catch (Exception e) {
-					responseCodeInt = -1; // fallback
-				}
-				success = "true".equalsIgnoreCase(cols[headerIndex.get("success")]);
-
-				final String groupKey = threadGroup + "|" + samplerName;
-
-				SampleRecord rec = new SampleRecord(elapsed, responseCodeInt, responseCode, timeStamp, success);
-
-				grouped.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(rec);
-
-				String codeKey = groupKey + "|" + responseCodeInt;
-				errorCodeCount.put(codeKey, errorCodeCount.getOrDefault(codeKey, 0) + 1);
+		if (BinarySampleFile.isBinary(file.toPath())) {
+			try (BinarySampleFile samples = BinarySampleFile.open(file.toPath())) {
+				JtlAggregator aggregator = new JtlAggregator();
+				samples.read(aggregator);
+				return createResults(testRun, aggregator, job);
+			} catch (IOException e) {
+				throw new IOException("Failed to process JMeter results: " + e.getMessage(), e);
 			}
+		}
+
+		// Each row is folded into its (threadGroup, sampler) aggregate as it is read, so memory stays flat
+		// no matter how many samples the file holds. Large files are split across the common pool's workers.
+		try (JtlFile jtl = JtlFile.open(file.toPath())) {
+			JtlAggregator aggregator = JtlParallelAggregator.aggregate(jtl, ForkJoinPool.commonPool());
 
 			// Create results
 
-            return createResults(testRun, grouped, errorCodeCount, job);
+            return createResults(testRun, aggregator, job);
+		} catch (IOException e) {
+			throw new IOException("Failed to process JMeter results: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Stores results that have already been aggregated, e.g. by tailing the result file while the test was running, or
+	 * from the deltas JMeter sent the {@link AggregateStreamServer}, in which case there is no result file at all.
+	 */
+	@Transactional
+	public TestRunResult processResults(JtlAggregator aggregator, TestRun testRun, Job job) {
+		if (job == null) {
+			throw new RuntimeException("Job threshold not found");
+		}
+		return createResults(testRun, aggregator, job);
+	}
+
+	/**
+	 * Interprets a result file read as a stream, such as one decompressed from the {@link ResultArchive} as it's read.
+	 *
+	 * @param threadGroupPrefix dropped from the start of thread group names that have it; {@code null} if none
+	 */
+	@Transactional
+	public TestRunResult processResults(InputStream results, String threadGroupPrefix, TestRun testRun, Job job) throws IOException {
+		if (job == null) {
+			throw new RuntimeException("Job threshold not found");
+		}
+		JtlAggregator aggregator;
+		try {
+			aggregator = JtlStreamReader.aggregate(results);
 		} catch (IOException e) {
 			throw new IOException("Failed to process JMeter results: " + e.getMessage(), e);
 		}
+		if (threadGroupPrefix != null) {
+			JtlAggregator unprefixed = new JtlAggregator();
+			unprefixed.merge(aggregator, threadGroupPrefix);
+			aggregator = unprefixed;
+		}
+		return createResults(testRun, aggregator, job);
 	}
 
-	private TestRunResult createResults(TestRun testRun, Map<String, List<SampleRecord>> grouped, Map<String, Integer> errorCodeCount, Job job) throws IOException {
+	private TestRunResult createResults(TestRun testRun, JtlAggregator aggregator, Job job) {
 		// Results will be made here
 		List<TestResult> testResults = new ArrayList<>();
 		List<PerfTestResult> perfTestResults = new ArrayList<>();
 		List<PerfTestResultCode> perfTestResultCodes = new ArrayList<>();
+		List<PerfTestResultSeries> perfTestResultSeries = new ArrayList<>();
 
-		for (Map.Entry<String, List<SampleRecord>> groupEntry : grouped.entrySet()) {
-			String groupKey = groupEntry.getKey();
-			String[] parts = groupKey.split("\\|");
-			String threadGroup = parts[0];
-			String samplerName = parts[1];
-			List<SampleRecord> samples = groupEntry.getValue();
+		for (SamplerAggregate aggregate : aggregator.getAggregates()) {
+			String threadGroup = aggregate.getThreadGroup();
+			String samplerName = aggregate.getSamplerName();
+			LatencyHistogram latencies = aggregate.getLatencies();
 
-			List<Long> latencies = new ArrayList<>();
-			int total = samples.size();
-			int errorCount = 0;
-
-			int volumeLastMinute = 0;
-			int volumeLast5Minutes = 0;
-			long maxTimeStamp = samples.stream().mapToLong(r -> r.timeStamp).max().orElse(0);
-
-			for (SampleRecord r : samples) {
-				latencies.add(r.elapsed);
-				if (!r.success) errorCount++;
-			}
-
-			long oneMinuteAgo = maxTimeStamp - 60_000;
-			long fiveMinutesAgo = maxTimeStamp - 5 * 60_000;
-			for (SampleRecord r : samples) {
-				if (r.timeStamp >= oneMinuteAgo) volumeLastMinute++;
-				if (r.timeStamp >= fiveMinutesAgo) volumeLast5Minutes++;
-			}
-
-			Collections.sort(latencies);
-			int p50 = !latencies.isEmpty() ? calculatePercentile(latencies, 50) : 0;
-			int p95 = !latencies.isEmpty() ? calculatePercentile(latencies, 95) : 0;
-			int p99 = !latencies.isEmpty() ? calculatePercentile(latencies, 99) : 0;
+			int p50 = (int) latencies.percentile(50);
+			int p95 = (int) latencies.percentile(95);
+			int p99 = (int) latencies.percentile(99);
 
             String latencyPerformanceStatus = JobStatus.PASS.name();
             Integer threshold = job.getThreshold();
@@ -161,8 +131,6 @@ public class JMeterInterpreterService implements TestInterpreter {
                 latencyPerformanceStatus = JobStatus.FAIL.name();
             }
 
-			double errorRate = total > 0 ? (double)errorCount * 100.0 / total : 0.0;
-
 			// Create test result
 			TestResult testResult = new TestResult();
 			testResult.setId(UUID.randomUUID());
@@ -185,39 +153,52 @@ public class JMeterInterpreterService implements TestInterpreter {
 			res.setP50LatencyMs(p50);
 			res.setP95LatencyMs(p95);
 			res.setP99LatencyMs(p99);
-			res.setVolumeLastMinute(volumeLastMinute);
-			res.setVolumeLast5Minutes(volumeLast5Minutes);
-			res.setErrorRatePercent(errorRate);
+			res.setVolumeLastMinute(toInt(aggregate.getVolumeLastMinute()));
+			res.setVolumeLast5Minutes(toInt(aggregate.getVolumeLast5Minutes()));
+			res.setErrorRatePercent(aggregate.getErrorRatePercent());
             res.setLatencyThresholdResult(latencyPerformanceStatus);
             res.setLatencyThreshold(threshold);
+			res.setLatencyHistogram(latencies.encode());
 			perfTestResults.add(res);
 
 			// Now, PerfTestResultCode per error code
-			Set<Integer> seenCodes = new HashSet<>();
-			for (SampleRecord r : samples) seenCodes.add(r.responseCodeInt);
-
-			for (int errorCode : seenCodes) {
+			for (Map.Entry<Integer, Long> codeCount : aggregate.getResponseCodeCounts().entrySet()) {
 				PerfTestResultCodeId codeId = new PerfTestResultCodeId();
 				codeId.setResultId(testResult.getId());
-				codeId.setErrorCode(errorCode);
+				codeId.setErrorCode(codeCount.getKey());
 				codeId.setSamplerName(samplerName);
 				codeId.setThreadGroup(threadGroup);
 
 				PerfTestResultCode prc = new PerfTestResultCode();
 				prc.setId(codeId);
-				String countKey = groupKey + "|" + errorCode;
-				prc.setCount(errorCodeCount.getOrDefault(countKey, 0));
+				prc.setCount(toInt(codeCount.getValue()));
 				perfTestResultCodes.add(prc);
 			}
+
+			// Time series of the sampler over the run
+			SamplerTimeSeries timeSeries = aggregate.getTimeSeries();
+			timeSeries.coarsenTo(seriesBucketSeconds * 1000L);
+
+			PerfTestResultSeries series = new PerfTestResultSeries();
+			series.setResultId(testResult.getId());
+			series.setSamplerName(samplerName);
+			series.setThreadGroup(threadGroup);
+			series.setBucketWidthMs(toInt(timeSeries.getBucketWidthMs()));
+			series.setSeries(timeSeries.encode());
+			perfTestResultSeries.add(series);
 		}
 
 
 		boolean passed = perfTestResults.stream().noneMatch(r -> r.getErrorRatePercent() > 0.5);
 
-		testResultRepository.saveAll(testResults);
-		perfTestResultRepository.saveAll(perfTestResults);
-		perfTestResultCodeRepository.saveAll(perfTestResultCodes);
+		// Every row is new, so skip the entity manager and write them in JDBC batches
+		perfTestResultBatchWriter.insertAll(testResults, perfTestResults, perfTestResultCodes, perfTestResultSeries);
 
 		return new TestRunResult(passed, null, testResults);
 	}
+
+	// Result columns are INTEGER; a counter that overflows them is reported as the largest value they can hold
+	private static int toInt(long value) {
+		return (int) Math.min(value, Integer.MAX_VALUE);
+	}
 }
@@ -0,0 +1,17 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import java.io.File;
+
+/**
+ * One JMeter process of a test run, running all or part of its test plan.
+ *
+ * @param worker     where the test runs: {@code local}, or the remote engine given to {@code -R}
+ * @param command    the command to start it with
+ * @param resultFile where its samples are written
+ */
+public record JMeterShard(String worker, String[] command, File resultFile) {
+
+	public boolean isRemote() {
+		return !JMeterCommandService.LOCAL_WORKER.equals(worker);
+	}
+}
@@ -0,0 +1,176 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the test plans in checked-out repositories, so finding a job's plan doesn't walk the whole tree on every run.
+ *
+ * <p>A checkout's {@code .jmx} files are listed once per commit and compile command, skipping directories such as
+ * {@code node_modules}, and kept for later runs of the same commit and command along with each test name they resolved;
+ * a checkout of another commit, or compiled with another command, is listed again. Plans are listed after compiling,
+ * which may generate some, so jobs compiling the same commit differently don't share a listing. Directories that
+ * aren't git checkouts are listed every time. A test name matching more than one plan
+ * resolves to the one nearest the top of the tree, then the first by path, and the others are logged, so the choice
+ * doesn't depend on the order the filesystem lists files in.</p>
+ */
+final class JmxIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JmxIndex.class);
+
+	private static final String GIT_DIRECTORY = ".git";
+	private static final Comparator<Path> SHALLOWEST_FIRST =
+			Comparator.comparingInt(Path::getNameCount).thenComparing(Path::toString);
+
+	private final Map<String, Listing> listings;
+	private final ProcessSupervisor processSupervisor;
+
+	/**
+	 * @param processSupervisor runs the git command finding a checkout's commit, within the clone stage's default limit
+	 */
+	JmxIndex(int maxListings, ProcessSupervisor processSupervisor) {
+		this.processSupervisor = processSupervisor;
+		this.listings = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+				return size() > maxListings;
+			}
+		};
+	}
+
+	/**
+	 * @param testName       a regular expression found in the plan's file name
+	 * @param compileCommand what the checkout was compiled with, or null if it wasn't
+	 * @return the matching plan under {@code workingDirectory}, or null if there is none
+	 */
+	File find(File workingDirectory, String testName, Collection<String> skipDirectories, String compileCommand) {
+		return find(workingDirectory, testName, skipDirectories, compileCommand, commitOf(workingDirectory).orElse(null));
+	}
+
+	/**
+	 * Same as {@link #find(File, String, Collection, String)}, for a checkout of {@code commit}, or of nothing in
+	 * particular if it's null.
+	 */
+	File find(File workingDirectory, String testName, Collection<String> skipDirectories, String compileCommand, String commit) {
+		String key = commit == null ? null : commit + '\0' + (compileCommand == null ? "" : compileCommand.strip());
+		Listing listing = listingOf(workingDirectory, skipDirectories, key);
+		Optional<Path> plan = listing.resolved.computeIfAbsent(testName, listing::match);
+		if (plan.isEmpty()) {
+			return null;
+		}
+		File file = workingDirectory.toPath().resolve(plan.get()).toFile();
+		if (key != null && !file.isFile()) {
+			// Not what the commit holds after all, so don't trust the rest of the listing either
+			forget(key);
+			return find(workingDirectory, testName, skipDirectories, compileCommand, null);
+		}
+		return file;
+	}
+
+	private Listing listingOf(File workingDirectory, Collection<String> skipDirectories, String key) {
+		Listing listing = key == null ? null : cached(key);
+		if (listing == null) {
+			listing = list(workingDirectory.toPath(), Set.copyOf(skipDirectories));
+			if (key != null) {
+				remember(key, listing);
+			}
+		}
+		return listing;
+	}
+
+	private synchronized Listing cached(String key) {
+		return listings.get(key);
+	}
+
+	private synchronized void remember(String key, Listing listing) {
+		listings.put(key, listing);
+	}
+
+	private synchronized void forget(String key) {
+		listings.remove(key);
+	}
+
+	private Optional<String> commitOf(File workingDirectory) {
+		if (!new File(workingDirectory, GIT_DIRECTORY).exists()) {
+			return Optional.empty();
+		}
+		try {
+			Duration timeout = processSupervisor.timeout(null, RunStage.CLONE);
+			return Optional.of(GitMirrorCache.git(processSupervisor, workingDirectory, timeout, "git", "rev-parse", "HEAD").strip());
+		} catch (IOException e) {
+			LOG.debug("Not indexing test plans of {} - {}", workingDirectory, e.getMessage());
+			return Optional.empty();
+		}
+	}
+
+	private static Listing list(Path root, Set<String> skipDirectories) {
+		List<Path> plans = new ArrayList<>();
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					boolean skipped = !dir.equals(root) && skipDirectories.contains(dir.getFileName().toString());
+					return skipped ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					if (attrs.isRegularFile() && file.getFileName().toString().endsWith(".jmx")) {
+						plans.add(root.relativize(file));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					LOG.debug("Could not read {} while looking for test plans - {}", file, e.getMessage());
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOG.warn("Could not list the test plans under {} - {}", root, e.getMessage());
+		}
+		plans.sort(SHALLOWEST_FIRST);
+		return new Listing(plans);
+	}
+
+	private static final class Listing {
+		private final List<Path> plans;
+		private final Map<String, Optional<Path>> resolved = new ConcurrentHashMap<>();
+
+		private Listing(List<Path> plans) {
+			this.plans = plans;
+		}
+
+		private Optional<Path> match(String testName) {
+			Pattern pattern = Pattern.compile(testName);
+			List<Path> matches = plans.stream()
+					.filter(plan -> pattern.matcher(plan.getFileName().toString()).find())
+					.toList();
+			if (matches.size() > 1) {
+				LOG.warn("Test name '{}' matches {} test plans, using {} - also matched: {}", testName, matches.size(),
+						matches.getFirst(), matches.subList(1, matches.size()));
+			}
+			return matches.stream().findFirst();
+		}
+	}
+}
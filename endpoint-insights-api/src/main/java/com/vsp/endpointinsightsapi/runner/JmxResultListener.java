@@ -0,0 +1,133 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Adds the listener that sends a test's results to this host to a copy of a JMeter test plan: {@link #LISTENER_CLASS}
+ * to write binary results, or {@link #AGGREGATE_LISTENER_CLASS} to stream aggregates.
+ *
+ * <p>The listeners are backend listeners from {@code endpoint-insights-jmeter-listener}, which has to be installed in
+ * JMeter's {@code lib/ext}. One is added at the top of the plan so it hears every thread group's samples, and handles
+ * them on the backend listener's own thread, off the threads generating load. The copy is written next to the plan so
+ * relative paths in it resolve the same way.</p>
+ */
+final class JmxResultListener {
+
+	static final String LISTENER_CLASS = "com.vsp.endpointinsightsjmeter.BinaryResultListener";
+	static final String FILE_PARAMETER = "file";
+
+	static final String AGGREGATE_LISTENER_CLASS = "com.vsp.endpointinsightsjmeter.AggregateStreamListener";
+	static final String HOST_PARAMETER = "host";
+	static final String PORT_PARAMETER = "port";
+	static final String STREAM_PARAMETER = "stream";
+	static final String INTERVAL_PARAMETER = "interval_ms";
+
+	// Samples the backend listener holds for its writer before threads generating load have to wait
+	private static final int QUEUE_SIZE = 20000;
+
+	private JmxResultListener() {
+	}
+
+	/**
+	 * Writes a copy of {@code plan}, named {@code <plan>.results.jmx}, whose samples are written to {@code resultFile}.
+	 *
+	 * @return the copy
+	 * @throws IOException if the plan can't be read, has no test plan element, or the copy can't be written
+	 */
+	static File withBinaryResults(File plan, File resultFile) throws IOException {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put(FILE_PARAMETER, resultFile.getAbsolutePath());
+		return withListener(plan, LISTENER_CLASS, parameters);
+	}
+
+	/**
+	 * Writes a copy of {@code plan}, named {@code <plan>.results.jmx}, whose samples are aggregated inside JMeter and
+	 * sent to the aggregate stream on loopback {@code port} every {@code intervalMs}, tagged with {@code stream}.
+	 *
+	 * @return the copy
+	 * @throws IOException if the plan can't be read, has no test plan element, or the copy can't be written
+	 */
+	static File withAggregateStream(File plan, int port, String stream, long intervalMs) throws IOException {
+		Map<String, String> parameters = new LinkedHashMap<>();
+		parameters.put(HOST_PARAMETER, "127.0.0.1");
+		parameters.put(PORT_PARAMETER, String.valueOf(port));
+		parameters.put(STREAM_PARAMETER, stream);
+		parameters.put(INTERVAL_PARAMETER, String.valueOf(intervalMs));
+		return withListener(plan, AGGREGATE_LISTENER_CLASS, parameters);
+	}
+
+	private static File withListener(File plan, String listenerClass, Map<String, String> parameters) throws IOException {
+		Document document = JmxSharder.parse(plan);
+		Element testPlanTree = childTree(document, "TestPlan");
+		if (testPlanTree == null) {
+			throw new IOException("Test plan " + plan.getName() + " has no TestPlan element");
+		}
+
+		testPlanTree.appendChild(listener(document, listenerClass, parameters));
+		testPlanTree.appendChild(document.createElement("hashTree"));
+
+		File copy = new File(plan.getParentFile(), plan.getName().replaceFirst("\\.jmx$", "") + ".results.jmx");
+		JmxSharder.write(document, copy);
+		return copy;
+	}
+
+	private static Element listener(Document document, String listenerClass, Map<String, String> parameters) {
+		Element arguments = document.createElement("collectionProp");
+		arguments.setAttribute("name", "Arguments.arguments");
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			Element argument = document.createElement("elementProp");
+			argument.setAttribute("name", parameter.getKey());
+			argument.setAttribute("elementType", "Argument");
+			argument.appendChild(stringProp(document, "Argument.name", parameter.getKey()));
+			argument.appendChild(stringProp(document, "Argument.value", parameter.getValue()));
+			argument.appendChild(stringProp(document, "Argument.metadata", "="));
+			arguments.appendChild(argument);
+		}
+
+		Element argumentsProp = document.createElement("elementProp");
+		argumentsProp.setAttribute("name", "arguments");
+		argumentsProp.setAttribute("elementType", "Arguments");
+		argumentsProp.setAttribute("guiclass", "ArgumentsPanel");
+		argumentsProp.setAttribute("testclass", "Arguments");
+		argumentsProp.appendChild(arguments);
+
+		Element listener = document.createElement("BackendListener");
+		listener.setAttribute("guiclass", "BackendListenerGui");
+		listener.setAttribute("testclass", "BackendListener");
+		listener.setAttribute("testname", "Endpoint Insights results");
+		listener.setAttribute("enabled", "true");
+		listener.appendChild(argumentsProp);
+		listener.appendChild(stringProp(document, "classname", listenerClass));
+		listener.appendChild(stringProp(document, "QUEUE_SIZE", String.valueOf(QUEUE_SIZE)));
+		return listener;
+	}
+
+	private static Element stringProp(Document document, String name, String value) {
+		Element prop = document.createElement("stringProp");
+		prop.setAttribute("name", name);
+		prop.setTextContent(value);
+		return prop;
+	}
+
+	/**
+	 * @return the {@code hashTree} holding the children of the first {@code tagName} element, or null if there is none
+	 */
+	private static Element childTree(Document document, String tagName) {
+		Node element = document.getElementsByTagName(tagName).item(0);
+		if (element == null) {
+			return null;
+		}
+		Node next = element.getNextSibling();
+		while (next != null && next.getNodeType() != Node.ELEMENT_NODE) {
+			next = next.getNextSibling();
+		}
+		return next != null && "hashTree".equals(next.getNodeName()) ? (Element) next : null;
+	}
+}
@@ -0,0 +1,125 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits a JMeter test plan into shards that each run a share of its thread groups.
+ *
+ * <p>Enabled thread groups are dealt out round-robin in plan order; every shard is a copy of the plan with the other
+ * shards' thread groups disabled. setUp and tearDown thread groups stay enabled in every shard, the same as when
+ * JMeter runs a whole plan on several remote engines. Shards are written next to the plan so relative paths in it,
+ * such as CSV data sets, resolve the same way.</p>
+ */
+final class JmxSharder {
+
+	// Run once per engine rather than sharded
+	private static final Set<String> PER_ENGINE_THREAD_GROUPS = Set.of("SetupThreadGroup", "PostThreadGroup");
+
+	private JmxSharder() {
+	}
+
+	/**
+	 * @return how many shards {@code plan} can be split into: one per enabled thread group
+	 */
+	static int shardableThreadGroups(File plan) throws IOException {
+		return threadGroups(parse(plan)).size();
+	}
+
+	/**
+	 * Writes {@code shards} copies of {@code plan}, named {@code <plan>.shard-<n>.jmx}.
+	 *
+	 * @return the shard files, in shard order
+	 * @throws IllegalArgumentException if the plan has fewer enabled thread groups than {@code shards}
+	 */
+	static List<File> writeShards(File plan, int shards) throws IOException {
+		String name = plan.getName().replaceFirst("\\.jmx$", "");
+		List<File> files = new ArrayList<>();
+		for (int shard = 0; shard < shards; shard++) {
+			Document document = parse(plan);
+			List<Element> threadGroups = threadGroups(document);
+			if (threadGroups.size() < shards) {
+				throw new IllegalArgumentException("Cannot split " + threadGroups.size() + " thread groups of " + plan.getName() + " into " + shards + " shards");
+			}
+			for (int i = 0; i < threadGroups.size(); i++) {
+				if (i % shards != shard) {
+					threadGroups.get(i).setAttribute("enabled", "false");
+				}
+			}
+			File file = new File(plan.getParentFile(), name + ".shard-" + shard + ".jmx");
+			write(document, file);
+			files.add(file);
+		}
+		return files;
+	}
+
+	private static List<Element> threadGroups(Document document) {
+		List<Element> threadGroups = new ArrayList<>();
+		NodeList elements = document.getElementsByTagName("*");
+		for (int i = 0; i < elements.getLength(); i++) {
+			Element element = (Element) elements.item(i);
+			String type = element.getTagName();
+			String simpleName = type.substring(type.lastIndexOf('.') + 1);
+			if (simpleName.endsWith("ThreadGroup")
+					&& !PER_ENGINE_THREAD_GROUPS.contains(simpleName)
+					&& !"false".equals(element.getAttribute("enabled"))
+					&& isTestElement(element)) {
+				threadGroups.add(element);
+			}
+		}
+		return threadGroups;
+	}
+
+	/**
+	 * @return whether {@code element} is an element of the plan tree rather than a property of one, i.e. it's followed
+	 * by the {@code hashTree} holding its children
+	 */
+	private static boolean isTestElement(Element element) {
+		Node next = element.getNextSibling();
+		while (next != null && next.getNodeType() != Node.ELEMENT_NODE) {
+			next = next.getNextSibling();
+		}
+		return next != null && "hashTree".equals(next.getNodeName());
+	}
+
+	static Document parse(File plan) throws IOException {
+		try {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+			factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+			DocumentBuilder builder = factory.newDocumentBuilder();
+			return builder.parse(plan);
+		} catch (ParserConfigurationException | SAXException e) {
+			throw new IOException("Could not read test plan " + plan.getName() + ": " + e.getMessage(), e);
+		}
+	}
+
+	static void write(Document document, File file) throws IOException {
+		try {
+			Transformer transformer = TransformerFactory.newInstance().newTransformer();
+			transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+			transformer.transform(new DOMSource(document), new StreamResult(file));
+		} catch (TransformerException e) {
+			throw new IOException("Could not write test plan " + file.getName() + ": " + e.getMessage(), e);
+		}
+	}
+}
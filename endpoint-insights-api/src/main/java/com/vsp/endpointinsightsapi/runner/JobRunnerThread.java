@@ -10,17 +10,26 @@ import com.vsp.endpointinsightsapi.model.entity.TestRun;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlFile;
+import com.vsp.endpointinsightsapi.runner.jtl.ResultFollower;
+import com.vsp.endpointinsightsapi.service.LiveResultsService;
 import com.vsp.endpointinsightsapi.service.NotificationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 public class JobRunnerThread implements Runnable {
@@ -32,9 +41,18 @@ public class JobRunnerThread implements Runnable {
 	private TestRun testRun;
 	private final TestRunRepository testRunRepository;
 	private final TestInterpreter testInterpreter;
+	private final JMeterInterpreterService jMeterInterpreterService;
+	private final LiveResultsService liveResultsService;
 	private final NotificationService notificationService;
     private final GitService gitService;
     private final JMeterCommandService jMeterCommandEnhancer;
+	private final CompileOutputCache compileOutputCache;
+	private final RunExecutor runExecutor;
+	private final RunAdmission admission;
+	private final HostCapacity hostCapacity;
+	private final ProcessSupervisor processSupervisor;
+	private final AggregateStreamServer aggregateStream;
+	private final ResultArchive resultArchive;
 
 	// Completed callback
 	private final Consumer<JobRunnerThreadStatus> onComplete;
@@ -43,11 +61,30 @@ public class JobRunnerThread implements Runnable {
 
     private File jobProjectRepoDirectory = null;
 
+	// Aggregates collected by following the result file while JMeter ran; null if they couldn't be collected
+	private JtlAggregator liveAggregator = null;
+	// The JMeter process of a test that wasn't split across shards, whose result file is archived once interpreted
+	private JMeterShard singleShard = null;
+
+	// JMeter processes of the run, killed straight away if it's cancelled
+	private final List<SupervisedProcess> processes = new CopyOnWriteArrayList<>();
+	private volatile boolean cancelled = false;
+	// The thread while it's blocked in a stage that a cancel interrupts, otherwise null
+	private Thread interruptible = null;
+
 
 	public JobRunnerThread(Job job, TestRun testRun, TestRunRepository testRunRepository,
                            JMeterInterpreterService jMeterInterpreterService,
                            NotificationService notificationService,
                            GitService gitService, JMeterCommandService jMeterCommandEnhancer,
+                           LiveResultsService liveResultsService,
+                           CompileOutputCache compileOutputCache,
+                           RunExecutor runExecutor,
+                           RunAdmission admission,
+                           HostCapacity hostCapacity,
+                           ProcessSupervisor processSupervisor,
+                           AggregateStreamServer aggregateStream,
+                           ResultArchive resultArchive,
                            Consumer<JobRunnerThreadStatus> onComplete, boolean isBatchRun) {
 		this.job = job;
 		this.testRun = testRun;
@@ -55,6 +92,15 @@ public class JobRunnerThread implements Runnable {
 		this.notificationService = notificationService;
         this.gitService = gitService;
         this.jMeterCommandEnhancer = jMeterCommandEnhancer;
+		this.jMeterInterpreterService = jMeterInterpreterService;
+		this.liveResultsService = liveResultsService;
+		this.compileOutputCache = compileOutputCache;
+		this.runExecutor = runExecutor;
+		this.admission = admission;
+		this.hostCapacity = hostCapacity;
+		this.processSupervisor = processSupervisor;
+		this.aggregateStream = aggregateStream;
+		this.resultArchive = resultArchive;
         this.onComplete = onComplete;
 		this.isBatchRun = isBatchRun;
 
@@ -68,10 +114,34 @@ public class JobRunnerThread implements Runnable {
 	@Override
 	public void run() {
 		try {
-            jobProjectRepoDirectory = gitService.cloneRepository(job.getGitUrl(), job.getJobId().toString(), job.getName());
+			if (stopIfCancelled()) {
+				return;
+			}
+            long stageStart = System.nanoTime();
+            enterInterruptible();
+            try {
+                jobProjectRepoDirectory = gitService.cloneRepository(job.getGitUrl(), job.getJobId().toString(), job.getName(),
+                        processSupervisor.timeout(job, RunStage.CLONE));
+            } finally {
+                leaveInterruptible();
+            }
+            RunStage.CLONE.record(testRun, Duration.ofNanos(System.nanoTime() - stageStart));
+			if (stopIfCancelled()) {
+				return;
+			}
 
             File workingDirectory = resolveWorkingDir();
-			compileTest(workingDirectory);
+            stageStart = System.nanoTime();
+            enterInterruptible();
+            try {
+                compileTest(workingDirectory);
+            } finally {
+                leaveInterruptible();
+            }
+            RunStage.COMPILE.record(testRun, Duration.ofNanos(System.nanoTime() - stageStart));
+			if (stopIfCancelled()) {
+				return;
+			}
 
 			// Only concerned with updating test run status if it's a single-job run
 			if (!isBatchRun) {
@@ -82,11 +152,14 @@ public class JobRunnerThread implements Runnable {
 			// step 3 - execute test
 			Optional<File> testResultFile;
 
+			stageStart = System.nanoTime();
 			try {
 				testResultFile = executeTest(workingDirectory);
 			} catch (JobSetupException e) {
-				onComplete.accept(new JobRunnerThreadStatus(testRun, TestRunStatus.FAILED, null));
+				onComplete.accept(new JobRunnerThreadStatus(testRun, failedOrCancelled(), null));
 				return;
+			} finally {
+				RunStage.EXECUTE.record(testRun, Duration.ofNanos(System.nanoTime() - stageStart));
 			}
 
 
@@ -95,24 +168,78 @@ public class JobRunnerThread implements Runnable {
                 LOG.info("No test results file available for interpretation");
 
 
-				onComplete.accept(new JobRunnerThreadStatus(testRun, TestRunStatus.FAILED, null));
+				onComplete.accept(new JobRunnerThreadStatus(testRun, failedOrCancelled(), null));
             } else {
                 LOG.info("Test results available in: {}", testResultFile.get().getAbsolutePath());
 
-            	TestRunResult pass = testInterpreter.processResults(testResultFile.get(), testRun, job);
-
-				onComplete.accept(new JobRunnerThreadStatus(testRun, pass.passed() ? TestRunStatus.COMPLETED : TestRunStatus.FAILED, pass.testResults()));
+            	// The live aggregates already cover every row, so the file only has to be read again if following it failed
+				stageStart = System.nanoTime();
+            	TestRunResult pass = liveAggregator != null
+						? jMeterInterpreterService.processResults(liveAggregator, testRun, job)
+						: testInterpreter.processResults(testResultFile.get(), testRun, job);
+				RunStage.INTERPRET.record(testRun, Duration.ofNanos(System.nanoTime() - stageStart));
+				archiveResults(testResultFile.get());
+
+				// A cancelled run keeps the results of the part that ran, but doesn't pass or fail on them
+				TestRunStatus status = cancelled ? TestRunStatus.CANCELLED
+						: pass.passed() ? TestRunStatus.COMPLETED : TestRunStatus.FAILED;
+				onComplete.accept(new JobRunnerThreadStatus(testRun, status, pass.testResults()));
             }
 
 		} catch (IOException e) {
             LOG.error("Running job failed with exception: {}", e.getMessage());
-            onComplete.accept(new JobRunnerThreadStatus(testRun, TestRunStatus.FAILED, null));
+            onComplete.accept(new JobRunnerThreadStatus(testRun, failedOrCancelled(), null));
         } finally {
-
+			if (testRun.getRunId() != null) {
+				liveResultsService.remove(testRun.getRunId());
+				runExecutor.untrack(testRun.getRunId(), this);
+			}
             cleanupTempDir();
 		}
 	}
 
+	/**
+	 * Stops the run as soon as it can. A git, compile or JMeter process it's running is killed, and a wait for a test
+	 * slot or for host capacity ends. Results JMeter already wrote are still interpreted, and the run completes as
+	 * {@link TestRunStatus#CANCELLED}. Does nothing once the run has finished.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+		if (interruptible != null) {
+			interruptible.interrupt();
+		}
+		processes.forEach(SupervisedProcess::destroyTree);
+	}
+
+	// Processes started by the supervisor are killed when the thread waiting on them is interrupted
+	private synchronized void enterInterruptible() {
+		interruptible = Thread.currentThread();
+		if (cancelled) {
+			interruptible.interrupt();
+		}
+	}
+
+	private synchronized void leaveInterruptible() {
+		interruptible = null;
+		if (cancelled) {
+			// The interrupt was the cancel's, and mustn't carry over into what the thread does next
+			Thread.interrupted();
+		}
+	}
+
+	private boolean stopIfCancelled() {
+		if (!cancelled) {
+			return false;
+		}
+		LOG.info("Run of job: {} was cancelled", job.getName());
+		onComplete.accept(new JobRunnerThreadStatus(testRun, TestRunStatus.CANCELLED, null));
+		return true;
+	}
+
+	private TestRunStatus failedOrCancelled() {
+		return cancelled ? TestRunStatus.CANCELLED : TestRunStatus.FAILED;
+	}
+
 	private void compileTest(File workingDirectory){
 		try {
 			String compileCommand = job.getCompileCommand();
@@ -121,19 +248,30 @@ public class JobRunnerThread implements Runnable {
                 return;
             }
 
+            Optional<String> cacheKey = compileOutputCache.keyFor(workingDirectory, job);
+            if (cacheKey.isPresent() && compileOutputCache.restore(cacheKey.get(), workingDirectory)) {
+                LOG.info("Restored cached compile output for job: {} - skipping compilation (cache hits: {}, misses: {})",
+                        job.getName(), compileOutputCache.getHits(), compileOutputCache.getMisses());
+                return;
+            }
+            CompileOutputCache.Snapshot beforeCompile = cacheKey.isPresent() ? compileOutputCache.snapshot(workingDirectory) : null;
+
             String[] commandArray = compileCommand.split("\\s+");
 
             ProcessBuilder processBuilder = new ProcessBuilder(commandArray);
             processBuilder.directory(workingDirectory);
 
-            Process process = processBuilder.start();
-
-            int exitCode = process.waitFor();
+            int exitCode = processSupervisor.run(processBuilder, "compile-" + job.getJobId(), processSupervisor.timeout(job, RunStage.COMPILE));
             if (exitCode == 0) {
                 LOG.info("Compilation completed successfully for job: {}", job.getName());
+                if (beforeCompile != null) {
+                    compileOutputCache.store(cacheKey.get(), workingDirectory, beforeCompile);
+                }
             } else {
                 LOG.error("Compilation failed with exit code: {} for job: {}", exitCode, job.getName());
             }
+		} catch (TimeoutException e) {
+            LOG.error("Compilation timed out for job: {} - {}", job.getName(), e.getMessage());
 		} catch (IOException | InterruptedException e) {
             LOG.error("Error executing compile command for job: {} - {}", job.getName(), e.getMessage());
 			Thread.currentThread().interrupt();
@@ -170,40 +308,206 @@ public class JobRunnerThread implements Runnable {
 
             String resultFileName = generateResultFileName();
 
-            File resultFile = new File(workingDirectory, resultFileName);
-            String[] command;
+            List<JMeterShard> shards;
 
 			try {
-				command = jMeterCommandEnhancer.getRunCommand(workingDirectory, jmeterTestName, resultFileName);
-			} catch (IllegalArgumentException e) {
+				if (jMeterCommandEnhancer.isDistributed()) {
+					shards = jMeterCommandEnhancer.getShardedRunCommands(workingDirectory, jmeterTestName, resultFileName, job.getCompileCommand());
+				} else {
+					String[] command = jMeterCommandEnhancer.getRunCommand(workingDirectory, jmeterTestName, resultFileName, job.getCompileCommand());
+					shards = List.of(new JMeterShard(JMeterCommandService.LOCAL_WORKER, command, new File(workingDirectory, resultFileName)));
+				}
+			} catch (IllegalArgumentException | IOException e) {
 				throw new JobSetupException("Could not create run command!", e);
 			}
 
-            ProcessBuilder processBuilder;
-            processBuilder = new ProcessBuilder(command);
-
-            LOG.info("Executing enhanced command for job: {}", job.getName());
-            LOG.info("Command: {}", Arrays.stream(command).reduce("", String::concat));
-
-            Process process = processBuilder.start();
-
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
+            int exitCode;
+            // Every shard runs a JMeter JVM here, even when its engine is remote
+            long heapBytes = HostCapacity.jmeterHeapBytes(new ProcessBuilder().environment()) * shards.size();
+            enterInterruptible();
+            try (RunExecutor.TestSlot ignored = runExecutor.acquireTestSlot(admission);
+                 HostCapacity.Reservation reservation = hostCapacity.awaitCapacity(heapBytes)) {
+                // From here a cancel kills JMeter instead, so the results it wrote can still be collected
+                leaveInterruptible();
+                reservation.decision().applyTo(testRun);
+                try {
+                    singleShard = shards.size() == 1 ? shards.getFirst() : null;
+                    for (JMeterShard shard : shards) {
+                        if (cancelled) {
+                            return Optional.empty();
+                        }
+                        LOG.info("Executing enhanced command for job: {} on {}", job.getName(), shard.worker());
+                        LOG.info("Command: {}", Arrays.stream(shard.command()).reduce("", String::concat));
+                        processes.add(processSupervisor.start(new ProcessBuilder(shard.command()), "jmeter-" + job.getJobId() + "-" + shard.worker()));
+                    }
+                    exitCode = awaitAndFollowResults(processes, shards, processSupervisor.timeout(job, RunStage.EXECUTE));
+                } finally {
+                    processes.forEach(SupervisedProcess::destroyTree);
+                }
+            } catch (TimeoutException e) {
+                LOG.error("Test execution timed out for job: {} - {}", job.getName(), e.getMessage());
+                return Optional.empty();
+            } finally {
+                leaveInterruptible();
+            }
+            if (cancelled) {
+                LOG.info("Test execution cancelled for job: {} - keeping the results written so far", job.getName());
+            } else if (exitCode == 0) {
                 LOG.info("Test execution completed successfully for job: {}", job.getName());
             } else {
-                LOG.error(process.errorReader().lines().reduce("", String::concat));
+                for (SupervisedProcess process : processes) {
+                    LOG.error(process.output());
+                }
                 LOG.error("Test execution failed with exit code: {} for job: {}", exitCode, job.getName());
             }
 
+            if (shards.size() > 1 && liveAggregator == null) {
+                // Re-reading a single file is left to the interpreter, but shards have to be merged here
+                LOG.error("Could not merge the results of the {} shards of job: {}", shards.size(), job.getName());
+                return Optional.empty();
+            }
+            File resultFile = shards.getFirst().resultFile();
+            if (liveAggregator == null && (cancelled || exitCode != 0)) {
+                if (!resultFile.isFile()) {
+                    return Optional.empty();
+                }
+                // Following would have dropped the row JMeter was killed partway through; the interpreter reads the file
+                try {
+                    JtlFile.truncateIncompleteRow(resultFile.toPath());
+                } catch (IOException e) {
+                    LOG.error("Could not drop the last, incomplete result of job: {} - {}", job.getName(), e.getMessage());
+                    return Optional.empty();
+                }
+            }
             return Optional.of(resultFile);
 
 		} catch (IOException | InterruptedException e) {
+			if (cancelled) {
+				LOG.info("Test execution cancelled for job: {} before it started", job.getName());
+				return Optional.empty();
+			}
             LOG.error("Error executing test for job: {} - {}", job.getName(), e.getMessage());
 			Thread.currentThread().interrupt();
 			return Optional.empty();
 		}
 	}
 
+	/**
+	 * Waits for every JMeter process to exit while folding each new row of their result files, or each delta of their
+	 * aggregate streams, into the run's aggregates, publishing an interim snapshot every poll interval. Shards'
+	 * aggregates are merged into one set.
+	 *
+	 * @return the first non-zero exit code, or 0 if all of them succeeded
+	 * @throws TimeoutException if they were still running after {@code timeout}
+	 */
+	private int awaitAndFollowResults(List<SupervisedProcess> processes, List<JMeterShard> shards, Duration timeout)
+			throws InterruptedException, TimeoutException {
+		long pollIntervalMs = liveResultsService.getPublishInterval().toMillis();
+		long deadline = System.nanoTime() + timeout.toNanos();
+
+		List<ResultFollower> followers = shards.stream().map(shard -> aggregateStream.follow(shard.resultFile())).toList();
+		try {
+			boolean following = true;
+			while (!allExited(processes, pollIntervalMs)) {
+				if (cancelled) {
+					// A shard started just as the run was cancelled may have been missed
+					processes.forEach(SupervisedProcess::destroyTree);
+				}
+				if (System.nanoTime() - deadline > 0) {
+					throw new TimeoutException("JMeter was still running after " + timeout.toSeconds() + " s");
+				}
+				if (following) {
+					following = pollResults(followers, shards);
+				}
+			}
+			if (following) {
+				for (int i = 0; i < followers.size(); i++) {
+					// A JMeter that was killed or failed may have been cut off partway through a result
+					boolean complete = !cancelled && i < processes.size() && processes.get(i).exitValue() == 0;
+					followers.get(i).finish(complete);
+				}
+				if (followers.stream().anyMatch(ResultFollower::isStarted)) {
+					liveAggregator = merged(followers, shards);
+				}
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not finish following results for job: {} - {}", job.getName(), e.getMessage());
+			liveAggregator = null;
+		} finally {
+			for (ResultFollower follower : followers) {
+				try {
+					follower.close();
+				} catch (IOException e) {
+					LOG.debug("Could not close results of job: {} - {}", job.getName(), e.getMessage());
+				}
+			}
+		}
+
+		int exitCode = 0;
+		for (SupervisedProcess process : processes) {
+			if (exitCode == 0) {
+				exitCode = process.exitValue();
+			}
+		}
+		return exitCode;
+	}
+
+	private static boolean allExited(List<SupervisedProcess> processes, long timeoutMs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		for (SupervisedProcess process : processes) {
+			long remaining = deadline - System.nanoTime();
+			if (!process.waitFor(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the aggregates of every shard in one set; a single local shard's are used as they are
+	 */
+	private static JtlAggregator merged(List<ResultFollower> followers, List<JMeterShard> shards) {
+		if (followers.size() == 1 && !shards.getFirst().isRemote()) {
+			return followers.getFirst().getAggregator();
+		}
+		JtlAggregator merged = new JtlAggregator();
+		for (int i = 0; i < followers.size(); i++) {
+			JMeterShard shard = shards.get(i);
+			// Remote engines prefix thread names with the host they were given as
+			merged.merge(followers.get(i).getAggregator(), shard.isRemote() ? shard.worker() + "-" : null);
+		}
+		return merged;
+	}
+
+	private boolean pollResults(List<ResultFollower> followers, List<JMeterShard> shards) {
+		try {
+			boolean advanced = false;
+			for (ResultFollower follower : followers) {
+				advanced |= follower.poll();
+			}
+			if (advanced && testRun.getRunId() != null) {
+				liveResultsService.publish(testRun.getRunId(), merged(followers, shards));
+			}
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Stopped following results for job: {} - {}", job.getName(), e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Keeps the result file for re-analysis before the working directory is deleted. Only a test that ran as one shard
+	 * has a result file holding all of its samples.
+	 */
+	private void archiveResults(File resultFile) {
+		if (singleShard == null || testRun.getRunId() == null || !resultFile.equals(singleShard.resultFile())) {
+			return;
+		}
+		// Remote engines prefix thread names with the host they were given as
+		String threadGroupPrefix = singleShard.isRemote() ? singleShard.worker() + "-" : null;
+		resultArchive.archive(testRun.getRunId(), job.getJobId(), resultFile, threadGroupPrefix);
+	}
+
 	private void cleanupTempDir() {
         if (jobProjectRepoDirectory == null || !jobProjectRepoDirectory.exists()) {
             return;
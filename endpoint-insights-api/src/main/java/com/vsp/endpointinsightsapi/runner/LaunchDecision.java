@@ -0,0 +1,43 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+
+/**
+ * What the host looked like when a JMeter process was launched.
+ *
+ * @param cpuLoad              CPU load of the host between 0 and 1, or negative if unknown
+ * @param availableMemoryBytes memory available to the process, less what other recent launches set aside
+ * @param heapBytes            maximum heap of the JMeter process
+ * @param waitedMillis         how long the launch was held back for capacity
+ * @param oversubscribed       whether it was launched anyway, without enough capacity, after waiting as long as allowed
+ */
+public record LaunchDecision(double cpuLoad, long availableMemoryBytes, long heapBytes, long waitedMillis,
+							 boolean oversubscribed) {
+
+	private static final long MB = 1024 * 1024;
+
+	/**
+	 * Records this launch on {@code testRun}. A batch run launches once per job, so it keeps the busiest reading of all
+	 * of them.
+	 */
+	public void applyTo(TestRun testRun) {
+		synchronized (testRun) {
+			if (testRun.getHostCpuLoad() == null || cpuLoad > testRun.getHostCpuLoad()) {
+				testRun.setHostCpuLoad(cpuLoad);
+			}
+			long availableMb = availableMemoryBytes / MB;
+			if (availableMemoryBytes >= 0
+					&& (testRun.getHostAvailableMemoryMb() == null || availableMb < testRun.getHostAvailableMemoryMb())) {
+				testRun.setHostAvailableMemoryMb(availableMb);
+			}
+			long heapMb = heapBytes / MB;
+			if (testRun.getJmeterHeapMb() == null || heapMb > testRun.getJmeterHeapMb()) {
+				testRun.setJmeterHeapMb(heapMb);
+			}
+			if (testRun.getLaunchDelayMs() == null || waitedMillis > testRun.getLaunchDelayMs()) {
+				testRun.setLaunchDelayMs(waitedMillis);
+			}
+			testRun.setHostOversubscribed(oversubscribed || Boolean.TRUE.equals(testRun.getHostOversubscribed()));
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The last {@code capacity} bytes written to it. Holds on to the end of a process's output, where the errors are,
+ * without letting a chatty process grow it without bound.
+ */
+final class OutputTail {
+
+	private final byte[] buffer;
+	private int end;
+	private long written;
+
+	OutputTail(int capacity) {
+		this.buffer = new byte[Math.max(1, capacity)];
+	}
+
+	synchronized void write(byte[] bytes, int offset, int length) {
+		// Only the last buffer's worth of a large write can survive
+		if (length > buffer.length) {
+			offset += length - buffer.length;
+			written += length - buffer.length;
+			length = buffer.length;
+		}
+		int first = Math.min(length, buffer.length - end);
+		System.arraycopy(bytes, offset, buffer, end, first);
+		System.arraycopy(bytes, offset + first, buffer, 0, length - first);
+		end = (end + length) % buffer.length;
+		written += length;
+	}
+
+	/**
+	 * @return how many bytes have been written in all, including those no longer held
+	 */
+	synchronized long written() {
+		return written;
+	}
+
+	@Override
+	public synchronized String toString() {
+		if (written < buffer.length) {
+			return new String(buffer, 0, end, StandardCharsets.UTF_8);
+		}
+		byte[] ordered = new byte[buffer.length];
+		System.arraycopy(buffer, end, ordered, 0, buffer.length - end);
+		System.arraycopy(buffer, 0, ordered, buffer.length - end, end);
+		return new String(ordered, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,90 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the git, compile and JMeter processes of job runs and holds each stage to a time limit.
+ *
+ * <p>Limits default to {@code execution.timeouts.*} and can be set per job in its config with
+ * {@code cloneTimeoutSeconds}, {@code compileTimeoutSeconds} and {@code executeTimeoutSeconds}. Every process's
+ * output is drained as it's written, keeping the last {@code execution.process-output-kb} for the log.</p>
+ */
+@Component
+public class ProcessSupervisor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+	private static final Map<RunStage, String> TIMEOUT_CONFIG_KEYS = Map.of(
+			RunStage.CLONE, "cloneTimeoutSeconds",
+			RunStage.COMPILE, "compileTimeoutSeconds",
+			RunStage.EXECUTE, "executeTimeoutSeconds");
+
+	private final Map<RunStage, Duration> defaultTimeouts;
+	private final int outputLimitBytes;
+
+	public ProcessSupervisor(@Value("${execution.timeouts.clone-seconds:600}") long cloneSeconds,
+							 @Value("${execution.timeouts.compile-seconds:1800}") long compileSeconds,
+							 @Value("${execution.timeouts.execute-seconds:14400}") long executeSeconds,
+							 @Value("${execution.process-output-kb:64}") int outputKb) {
+		this(Map.of(RunStage.CLONE, Duration.ofSeconds(cloneSeconds),
+				RunStage.COMPILE, Duration.ofSeconds(compileSeconds),
+				RunStage.EXECUTE, Duration.ofSeconds(executeSeconds)), outputKb * 1024);
+	}
+
+	ProcessSupervisor(Map<RunStage, Duration> defaultTimeouts, int outputLimitBytes) {
+		this.defaultTimeouts = new EnumMap<>(defaultTimeouts);
+		this.outputLimitBytes = outputLimitBytes;
+	}
+
+	/**
+	 * @return how long {@code stage} of {@code job} may run: its own limit if its config sets a valid one, otherwise
+	 * the default
+	 */
+	public Duration timeout(Job job, RunStage stage) {
+		Duration defaultTimeout = defaultTimeouts.getOrDefault(stage, Duration.ofDays(1));
+		String key = TIMEOUT_CONFIG_KEYS.get(stage);
+		Object configured = job == null || job.getConfig() == null || key == null ? null : job.getConfig().get(key);
+		if (configured == null) {
+			return defaultTimeout;
+		}
+		try {
+			long seconds = configured instanceof Number number ? number.longValue() : Long.parseLong(configured.toString().trim());
+			if (seconds > 0) {
+				return Duration.ofSeconds(seconds);
+			}
+		} catch (NumberFormatException e) {
+			// fall through to the default
+		}
+		LOG.warn("Ignoring invalid {} '{}' for job: {}", key, configured, job.getName());
+		return defaultTimeout;
+	}
+
+	public SupervisedProcess start(ProcessBuilder processBuilder, String name) throws IOException {
+		return SupervisedProcess.start(processBuilder, name, outputLimitBytes);
+	}
+
+	/**
+	 * Runs a process to completion within {@code timeout}.
+	 *
+	 * @return its exit code
+	 * @throws TimeoutException if it ran too long; it and everything it started have been killed
+	 */
+	public int run(ProcessBuilder processBuilder, String name, Duration timeout) throws IOException, InterruptedException, TimeoutException {
+		SupervisedProcess process = start(processBuilder, name);
+		int exitCode = process.await(timeout);
+		if (exitCode != 0) {
+			LOG.error("{} exited with code {}:\n{}", name, exitCode, process.output());
+		}
+		return exitCode;
+	}
+}
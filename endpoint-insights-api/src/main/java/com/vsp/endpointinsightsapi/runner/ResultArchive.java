@@ -0,0 +1,190 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps each job's raw result file after its run, compressed, so the run can be interpreted again later without
+ * running the test again.
+ *
+ * <p>Result files are gzipped as they are copied into {@code test-runs.archive.dir}, one directory per run holding a
+ * {@code <jobId>.jtl.gz} per job. Archives are deleted along with their run, including when runs older than
+ * {@code test-runs.max-age} are purged. Archiving never fails a run: a result file that can't be archived is logged and
+ * left out.</p>
+ */
+@Component
+public class ResultArchive {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ResultArchive.class);
+	private static final String RESULTS_SUFFIX = ".jtl.gz";
+	private static final String PROPERTIES_SUFFIX = ".properties";
+	private static final String THREAD_GROUP_PREFIX = "threadGroupPrefix";
+
+	// Null when archiving is off
+	private final Path root;
+
+	public ResultArchive(@Value("${test-runs.archive.enabled:true}") boolean enabled,
+						 @Value("${test-runs.archive.dir:${temp.dir}/result-archive}") String archiveDir) {
+		this(enabled ? Paths.get(archiveDir) : null);
+	}
+
+	ResultArchive(Path root) {
+		this.root = root != null ? root.toAbsolutePath().normalize() : null;
+	}
+
+	public boolean isEnabled() {
+		return root != null;
+	}
+
+	/**
+	 * Compresses {@code resultFile} into the archive of {@code runId}, replacing whatever was archived for the job.
+	 *
+	 * @param threadGroupPrefix what the engine that ran the test prefixed its thread names with, dropped again when the
+	 *                          archive is read; {@code null} if none
+	 */
+	public void archive(UUID runId, UUID jobId, File resultFile, String threadGroupPrefix) {
+		if (!isEnabled() || resultFile == null || !resultFile.isFile()) {
+			return;
+		}
+		Path runDirectory = root.resolve(runId.toString());
+		// Written beside the entry and moved into place, so a half-written archive is never read
+		Path partial = runDirectory.resolve("." + jobId + RESULTS_SUFFIX);
+		try {
+			Files.createDirectories(runDirectory);
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 64 * 1024)) {
+				Files.copy(resultFile.toPath(), out);
+			}
+			Properties properties = new Properties();
+			if (threadGroupPrefix != null) {
+				properties.setProperty(THREAD_GROUP_PREFIX, threadGroupPrefix);
+			}
+			try (Writer writer = Files.newBufferedWriter(runDirectory.resolve(jobId + PROPERTIES_SUFFIX), StandardCharsets.UTF_8)) {
+				properties.store(writer, null);
+			}
+			Files.move(partial, runDirectory.resolve(jobId + RESULTS_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			LOG.info("Archived results of job {} in run {} ({} bytes compressed from {})", jobId, runId,
+					Files.size(runDirectory.resolve(jobId + RESULTS_SUFFIX)), resultFile.length());
+		} catch (IOException e) {
+			LOG.error("Could not archive results of job {} in run {} - {}", jobId, runId, e.getMessage());
+			try {
+				Files.deleteIfExists(partial);
+			} catch (IOException ignored) {
+				// Left for the run's deletion to clean up
+			}
+		}
+	}
+
+	public boolean contains(UUID runId, UUID jobId) {
+		return isEnabled() && Files.isRegularFile(root.resolve(runId.toString()).resolve(jobId + RESULTS_SUFFIX));
+	}
+
+	/**
+	 * Opens the archived results of a job in a run, decompressed as they are read.
+	 *
+	 * @return the results, or empty if none were archived; the caller closes them
+	 */
+	public Optional<Entry> open(UUID runId, UUID jobId) throws IOException {
+		if (!contains(runId, jobId)) {
+			return Optional.empty();
+		}
+		Path runDirectory = root.resolve(runId.toString());
+		Properties properties = new Properties();
+		Path propertiesFile = runDirectory.resolve(jobId + PROPERTIES_SUFFIX);
+		if (Files.isRegularFile(propertiesFile)) {
+			try (Reader reader = Files.newBufferedReader(propertiesFile, StandardCharsets.UTF_8)) {
+				properties.load(reader);
+			}
+		}
+		InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(runDirectory.resolve(jobId + RESULTS_SUFFIX))), 64 * 1024);
+		return Optional.of(new Entry(in, properties.getProperty(THREAD_GROUP_PREFIX)));
+	}
+
+	/**
+	 * Deletes everything archived for a run.
+	 */
+	public void delete(UUID runId) {
+		if (isEnabled()) {
+			deleteRecursively(root.resolve(runId.toString()));
+		}
+	}
+
+	/**
+	 * Deletes the archives of runs last written to before {@code cutoff}, including those of runs that no longer exist.
+	 *
+	 * @return how many runs' archives were deleted
+	 */
+	public int deleteBefore(Instant cutoff) {
+		if (!isEnabled() || !Files.isDirectory(root)) {
+			return 0;
+		}
+		List<Path> expired;
+		try (Stream<Path> runs = Files.list(root)) {
+			expired = runs.filter(Files::isDirectory).filter(run -> lastModified(run).isBefore(cutoff)).toList();
+		} catch (IOException e) {
+			LOG.warn("Could not list result archive {} - {}", root, e.getMessage());
+			return 0;
+		}
+		expired.forEach(ResultArchive::deleteRecursively);
+		return expired.size();
+	}
+
+	private static Instant lastModified(Path path) {
+		try {
+			return Files.getLastModifiedTime(path).toInstant();
+		} catch (IOException e) {
+			return Instant.MAX;
+		}
+	}
+
+	private static void deleteRecursively(Path directory) {
+		if (!Files.exists(directory)) {
+			return;
+		}
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(path);
+			}
+		} catch (IOException e) {
+			LOG.warn("Could not delete archived results {} - {}", directory, e.getMessage());
+		}
+	}
+
+	/**
+	 * Archived results of one job.
+	 *
+	 * @param results           the result file's bytes, as JMeter wrote them
+	 * @param threadGroupPrefix prefix to drop from thread group names, or {@code null}
+	 */
+	public record Entry(InputStream results, String threadGroupPrefix) implements AutoCloseable {
+
+		@Override
+		public void close() throws IOException {
+			results.close();
+		}
+	}
+}
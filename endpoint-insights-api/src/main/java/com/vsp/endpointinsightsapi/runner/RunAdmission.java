@@ -0,0 +1,45 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+
+import java.util.UUID;
+
+/**
+ * How a test waits for its turn to run: which run it belongs to, how many tests of that run may execute at once, and
+ * its priority.
+ *
+ * @param group       the test run the test belongs to; tests of different runs are started round-robin
+ * @param parallelism how many tests of {@code group} may run at once, or 0 for no limit beyond the global one
+ * @param priority    tests of a higher priority run are always started first
+ */
+public record RunAdmission(UUID group, int parallelism, RunPriority priority) {
+
+	public RunAdmission {
+		if (group == null || priority == null) {
+			throw new IllegalArgumentException("Run admission needs a group and a priority");
+		}
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("Parallelism cannot be negative: " + parallelism);
+		}
+	}
+
+	public static RunAdmission forJob(TestRun testRun, RunPriority priority) {
+		return new RunAdmission(groupOf(testRun), 0, priority);
+	}
+
+	public static RunAdmission forBatch(TestRun testRun, TestBatch batch, RunPriority priority) {
+		Integer parallelism = batch.getParallelism();
+		return new RunAdmission(groupOf(testRun), parallelism == null ? 0 : parallelism, priority);
+	}
+
+	private static UUID groupOf(TestRun testRun) {
+		// A run that hasn't been saved yet still gets a group of its own
+		return testRun.getRunId() != null ? testRun.getRunId() : UUID.randomUUID();
+	}
+
+	boolean allows(int running) {
+		return parallelism == 0 || running < parallelism;
+	}
+}
@@ -0,0 +1,167 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs job and batch orchestration, and limits how many tests execute at once.
+ *
+ * <p>Runners spend nearly all their time blocked on git, compile and JMeter processes, so by default each one gets its
+ * own virtual thread instead of holding a thread of {@code vspTaskScheduler}. That pool is then left to cron triggers
+ * and housekeeping, and a backlog of runs can't starve it. Setting {@code execution.virtual-threads} to false runs
+ * batch runners on the scheduler pool as before, and job runners on a dedicated pool of
+ * {@code execution.max-concurrent-tests} platform threads.</p>
+ *
+ * <p>Batches never block a thread waiting for their jobs: {@link #runJob} hands back a future that the batch chains
+ * its completion onto. How many JMeter processes run concurrently is governed separately by
+ * {@code execution.max-concurrent-tests}; runners wait in an {@link AdmissionQueue} for a free slot before starting
+ * one, manual runs ahead of scheduled ones and batches taking turns.</p>
+ *
+ * <p>Job runners are tracked by the run they belong to until they return, so a run can be cancelled: a batch's jobs
+ * all share the batch's run, and are cancelled together.</p>
+ */
+@Component
+public class RunExecutor implements DisposableBean {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RunExecutor.class);
+
+	private final ExecutorService runExecutor;
+	private final ExecutorService jobExecutor;
+	// The scheduler pool, when borrowed, is shut down by its own bean
+	private final boolean ownsRunExecutor;
+	private final AdmissionQueue testSlots;
+	private final Map<UUID, Set<JobRunnerThread>> runners = new ConcurrentHashMap<>();
+
+	public RunExecutor(@Value("${execution.virtual-threads:true}") boolean virtualThreads,
+					   @Value("${execution.max-concurrent-tests:4}") int maxConcurrentTests,
+					   ThreadPoolTaskScheduler vspTaskScheduler) {
+		this(virtualThreads ? newVirtualThreadExecutor("run-") : vspTaskScheduler.getScheduledExecutor(),
+				virtualThreads ? newVirtualThreadExecutor("job-") : newJobPool(maxConcurrentTests),
+				virtualThreads,
+				maxConcurrentTests);
+		LOG.info("Running jobs on {} with at most {} concurrent tests",
+				virtualThreads ? "virtual threads" : "platform thread pools", maxConcurrentTests);
+	}
+
+	RunExecutor(ExecutorService runExecutor, ExecutorService jobExecutor, boolean ownsRunExecutor, int maxConcurrentTests) {
+		if (maxConcurrentTests < 1) {
+			throw new IllegalArgumentException("execution.max-concurrent-tests must be at least 1: " + maxConcurrentTests);
+		}
+		this.runExecutor = runExecutor;
+		this.jobExecutor = jobExecutor;
+		this.ownsRunExecutor = ownsRunExecutor;
+		this.testSlots = new AdmissionQueue(maxConcurrentTests);
+	}
+
+	/**
+	 * Starts a batch runner.
+	 */
+	public void execute(Runnable task) {
+		runExecutor.execute(task);
+	}
+
+	/**
+	 * Starts a job runner on the job executor.
+	 *
+	 * @return a future completed once the runner returns, or completed exceptionally if it threw
+	 */
+	public CompletableFuture<Void> runJob(Runnable task) {
+		return CompletableFuture.runAsync(task, jobExecutor);
+	}
+
+	/**
+	 * Tracks {@code runner} as running part of {@code runId} until it's {@link #untrack untracked}.
+	 */
+	public void track(UUID runId, JobRunnerThread runner) {
+		runners.computeIfAbsent(runId, id -> ConcurrentHashMap.newKeySet()).add(runner);
+	}
+
+	public void untrack(UUID runId, JobRunnerThread runner) {
+		runners.computeIfPresent(runId, (id, tracked) -> {
+			tracked.remove(runner);
+			return tracked.isEmpty() ? null : tracked;
+		});
+	}
+
+	/**
+	 * Cancels every job runner of {@code runId} on this host.
+	 *
+	 * @return false if none of them is running here
+	 */
+	public boolean cancel(UUID runId) {
+		Set<JobRunnerThread> tracked = runners.get(runId);
+		if (tracked == null) {
+			return false;
+		}
+		LOG.info("Cancelling {} job runners of run {}", tracked.size(), runId);
+		tracked.forEach(JobRunnerThread::cancel);
+		return true;
+	}
+
+	/**
+	 * Blocks until a test slot is free and it's {@code admission}'s turn.
+	 *
+	 * @return the slot, to be closed once the test process has exited
+	 */
+	public TestSlot acquireTestSlot(RunAdmission admission) throws InterruptedException {
+		testSlots.acquire(admission);
+		return new TestSlot(admission);
+	}
+
+	public int getRunningTests() {
+		return testSlots.stats().running();
+	}
+
+	public RunQueueDTO getQueueStats() {
+		return testSlots.stats();
+	}
+
+	@Override
+	public void destroy() {
+		jobExecutor.shutdownNow();
+		if (ownsRunExecutor) {
+			runExecutor.shutdownNow();
+		}
+	}
+
+	private static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+	}
+
+	private static ExecutorService newJobPool(int size) {
+		return Executors.newFixedThreadPool(size, Thread.ofPlatform().name("job-", 0).factory());
+	}
+
+	/**
+	 * Permission to run one test process.
+	 */
+	public final class TestSlot implements AutoCloseable {
+		private final RunAdmission admission;
+		private boolean released;
+
+		private TestSlot(RunAdmission admission) {
+			this.admission = admission;
+		}
+
+		@Override
+		public void close() {
+			if (!released) {
+				released = true;
+				testSlots.release(admission);
+			}
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The stages of a job run, timed on its test run.
+ */
+public enum RunStage {
+	CLONE(TestRun::getCloneMs, TestRun::setCloneMs),
+	COMPILE(TestRun::getCompileMs, TestRun::setCompileMs),
+	EXECUTE(TestRun::getExecuteMs, TestRun::setExecuteMs),
+	INTERPRET(TestRun::getInterpretMs, TestRun::setInterpretMs);
+
+	private final Function<TestRun, Long> getter;
+	private final BiConsumer<TestRun, Long> setter;
+
+	RunStage(Function<TestRun, Long> getter, BiConsumer<TestRun, Long> setter) {
+		this.getter = getter;
+		this.setter = setter;
+	}
+
+	/**
+	 * Records how long this stage took on {@code testRun}. The jobs of a batch share its test run, so it keeps the
+	 * longest of them.
+	 */
+	public void record(TestRun testRun, Duration elapsed) {
+		synchronized (testRun) {
+			Long previous = getter.apply(testRun);
+			if (previous == null || elapsed.toMillis() > previous) {
+				setter.accept(testRun, elapsed.toMillis());
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A process whose output is drained as it's written, so it can never block on a full pipe, and whose whole process
+ * tree is killed if it runs too long or whoever is waiting on it is interrupted.
+ */
+public final class SupervisedProcess {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SupervisedProcess.class);
+
+	private final String name;
+	private final Process process;
+	private final OutputTail output;
+	private final Thread drainer;
+
+	private SupervisedProcess(String name, Process process, OutputTail output) {
+		this.name = name;
+		this.process = process;
+		this.output = output;
+		this.drainer = Thread.ofVirtual().name("drain-" + name).start(this::drain);
+	}
+
+	/**
+	 * Starts {@code processBuilder} with its error stream merged into its output, keeping the last
+	 * {@code outputLimitBytes} of it.
+	 */
+	static SupervisedProcess start(ProcessBuilder processBuilder, String name, int outputLimitBytes) throws IOException {
+		processBuilder.redirectErrorStream(true);
+		return new SupervisedProcess(name, processBuilder.start(), new OutputTail(outputLimitBytes));
+	}
+
+	/**
+	 * Waits for the process to exit, for at most {@code timeout}.
+	 *
+	 * @return its exit code
+	 * @throws TimeoutException if it was still running after {@code timeout}; it has been killed
+	 * @throws InterruptedException if interrupted while waiting; it has been killed
+	 */
+	public int await(Duration timeout) throws InterruptedException, TimeoutException {
+		try {
+			if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+				destroyTree();
+				throw new TimeoutException(name + " was still running after " + timeout.toSeconds() + " s and was killed");
+			}
+		} catch (InterruptedException e) {
+			destroyTree();
+			throw e;
+		}
+		// Output written just before exiting may still be on its way through the pipe
+		drainer.join(Duration.ofSeconds(1));
+		return process.exitValue();
+	}
+
+	public boolean waitFor(long timeout, TimeUnit unit) throws InterruptedException {
+		return process.waitFor(timeout, unit);
+	}
+
+	public int exitValue() {
+		return process.exitValue();
+	}
+
+	/**
+	 * Kills the process and everything it started. A no-op once they've all exited.
+	 */
+	public void destroyTree() {
+		process.descendants().forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
+	}
+
+	/**
+	 * @return the end of the process's combined output
+	 */
+	public String output() {
+		return output.toString();
+	}
+
+	private void drain() {
+		byte[] chunk = new byte[8192];
+		try (InputStream in = process.getInputStream()) {
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				output.write(chunk, 0, read);
+			}
+		} catch (IOException e) {
+			// The stream is closed under us when the process is killed
+			LOG.debug("Stopped reading output of {}: {}", name, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encoding of the aggregates a JMeter engine has gathered since it last sent any, so the API can follow a run from
+ * what was aggregated inside JMeter instead of from a row per sample.
+ *
+ * <p>A stream of deltas starts with {@link #MAGIC}, followed by the stream's id as written by
+ * {@link java.io.DataOutput#writeUTF(String)}. Each delta after that is its length as a big-endian int, its sequence
+ * number as a big-endian long counting up from 1, then the number of aggregates and, for each one, its thread group and
+ * sampler names and the aggregate itself, numbers as {@link VarInts varints}. The length doesn't include the sequence
+ * number. The receiver answers every delta with its sequence number as a big-endian long. A length of zero ends the
+ * stream. Adding deltas up in any order gives the same aggregates reading every sample would have.</p>
+ */
+public final class AggregateDeltas {
+
+	public static final byte[] MAGIC = {0, 'E', 'I', 'A', 'G', 'G', 2};
+
+	private AggregateDeltas() {
+	}
+
+	/**
+	 * @return every aggregate of {@code aggregator}, names included
+	 */
+	public static byte[] encode(JtlAggregator aggregator) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(256 + aggregator.getAggregates().size() * 512);
+		VarInts.write(out, aggregator.getAggregates().size());
+		for (SamplerAggregate aggregate : aggregator.getAggregates()) {
+			writeName(out, aggregate.getThreadGroup());
+			writeName(out, aggregate.getSamplerName());
+			aggregate.encodeTo(out);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Adds a delta written by {@link #encode(JtlAggregator)} to {@code aggregator}.
+	 *
+	 * @throws IllegalArgumentException if the bytes are not a valid delta
+	 */
+	public static void decodeInto(ByteBuffer in, JtlAggregator aggregator) {
+		try {
+			long count = VarInts.read(in);
+			for (long i = 0; i < count; i++) {
+				String threadGroup = readName(in);
+				String samplerName = readName(in);
+				aggregator.merge(SamplerAggregate.decodeFrom(threadGroup, samplerName, in));
+			}
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Malformed aggregate delta", e);
+		}
+	}
+
+	private static void writeName(ByteArrayOutputStream out, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		VarInts.write(out, bytes.length);
+		out.writeBytes(bytes);
+	}
+
+	private static String readName(ByteBuffer in) {
+		long length = VarInts.read(in);
+		if (length > in.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[(int) length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,270 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped view of a result file written by {@link BinarySampleWriter}.
+ *
+ * <p>Names are decoded once, when their record is read, and mapped to the aggregator's thread group and sampler ids
+ * the first time a sample uses them; after that a sample is folded into its aggregate straight from a handful of
+ * varints. Samples are read in order, since each one's time stamp is relative to the one before, and a file that is
+ * still being written can be read again as it grows: a record cut short is left for the next read.</p>
+ *
+ * <p>Not thread-safe.</p>
+ */
+public final class BinarySampleFile implements Closeable {
+
+	private static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+	private final FileChannel channel;
+	private final long windowSize;
+
+	private final List<String> names = new ArrayList<>();
+	private long position = BinarySampleWriter.MAGIC.length;
+	private long lastTimeStamp;
+
+	// Aggregator ids of each name, as a thread name and as a sampler label, or -1 if not mapped yet
+	private JtlAggregator mappedFor;
+	private int[] threadGroupIds = new int[0];
+	private int[] samplerIds = new int[0];
+
+	private BinarySampleFile(FileChannel channel, long windowSize) {
+		this.channel = channel;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * @return a reader for records handed to it with {@link #read(ByteBuffer, JtlAggregator)} rather than mapped from a
+	 * file, such as a result file being decompressed; the header is expected to have been checked already
+	 */
+	static BinarySampleFile forStream() {
+		return new BinarySampleFile(null, 0);
+	}
+
+	/**
+	 * @return whether {@code path} holds binary samples rather than CSV rows, judging by its first byte; false if it
+	 * doesn't exist or is still empty
+	 */
+	public static boolean isBinary(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return false;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer first = ByteBuffer.allocate(1);
+			return channel.read(first, 0) == 1 && first.get(0) == BinarySampleWriter.MAGIC[0];
+		}
+	}
+
+	/**
+	 * @throws IOException if the file doesn't start with the binary result header
+	 */
+	public static BinarySampleFile open(Path path) throws IOException {
+		return open(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	static BinarySampleFile open(Path path, long windowSize) throws IOException {
+		BinarySampleFile file = openWhenHeaderComplete(path, windowSize);
+		if (file == null) {
+			throw new IOException("Binary result file is missing its header");
+		}
+		return file;
+	}
+
+	/**
+	 * Opens a result file that may still be being written, once its header is complete.
+	 *
+	 * @return the opened file, or {@code null} if the file doesn't exist yet or its header hasn't been finished
+	 * @throws IOException if the file isn't a binary result file, or is of a later version
+	 */
+	public static BinarySampleFile openWhenHeaderComplete(Path path) throws IOException {
+		return openWhenHeaderComplete(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	private static BinarySampleFile openWhenHeaderComplete(Path path, long windowSize) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			byte[] magic = BinarySampleWriter.MAGIC;
+			ByteBuffer header = ByteBuffer.allocate(magic.length);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+				// keep reading until the header is complete or the file ends
+			}
+			if (header.hasRemaining()) {
+				channel.close();
+				return null;
+			}
+			if (!Arrays.equals(header.array(), 0, magic.length - 1, magic, 0, magic.length - 1)) {
+				throw new IOException("Not a binary result file");
+			}
+			if (header.get(magic.length - 1) != magic[magic.length - 1]) {
+				throw new IOException("Binary result file is of unsupported version " + header.get(magic.length - 1));
+			}
+			return new BinarySampleFile(channel, windowSize);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Folds every complete sample written since the last read into {@code aggregator}. A file is expected to be read
+	 * into the same aggregator throughout.
+	 *
+	 * @return whether any records were read
+	 * @throws IOException if the file can't be read or holds a record it doesn't recognise
+	 */
+	public boolean read(JtlAggregator aggregator) throws IOException {
+		mapFor(aggregator);
+
+		long start = position;
+		long end = channel.size();
+		while (position < end) {
+			long length = Math.min(windowSize, end - position);
+			ByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+			int consumed = readRecords(window, aggregator);
+			if (consumed == 0) {
+				if (position + length < end) {
+					throw new IOException("Result record at offset " + position + " is longer than the " + windowSize + " byte read window");
+				}
+				// The rest of the record hasn't been written yet
+				break;
+			}
+			position += consumed;
+		}
+		return position > start;
+	}
+
+	/**
+	 * Folds the complete records at the start of {@code records} into {@code aggregator}, for a reader from
+	 * {@link #forStream()}. Records are expected in order, the rest of a record cut short coming first in the next call.
+	 *
+	 * @return how many bytes of {@code records} were whole records
+	 * @throws IOException if it holds a record this reader doesn't recognise
+	 */
+	int read(ByteBuffer records, JtlAggregator aggregator) throws IOException {
+		mapFor(aggregator);
+		int consumed = readRecords(records.slice(), aggregator);
+		position += consumed;
+		return consumed;
+	}
+
+	/**
+	 * @return the offset just past the last record read
+	 */
+	public long position() {
+		return position;
+	}
+
+	/**
+	 * @return the current size of the file, which grows while JMeter is still writing it
+	 */
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	/**
+	 * @return how many bytes of {@code window} were whole records
+	 */
+	private int readRecords(ByteBuffer window, JtlAggregator aggregator) throws IOException {
+		int consumed = 0;
+		try {
+			while (window.hasRemaining()) {
+				int tag = window.get();
+				if (tag == BinarySampleWriter.SAMPLE) {
+					readSample(window, aggregator);
+				} else if (tag == BinarySampleWriter.NAME) {
+					readName(window);
+				} else {
+					throw new IOException("Unknown result record type " + tag + " at offset " + (position + consumed));
+				}
+				consumed = window.position();
+			}
+		} catch (BufferUnderflowException e) {
+			// Cut off by the end of the window; read again from its start
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Corrupt result record at offset " + (position + consumed) + ": " + e.getMessage(), e);
+		}
+		return consumed;
+	}
+
+	private void readSample(ByteBuffer window, JtlAggregator aggregator) throws IOException {
+		int threadNameId = nameId(window);
+		int labelId = nameId(window);
+		long timeStamp = lastTimeStamp + BinarySampleWriter.unZigZag(VarInts.read(window));
+		long elapsed = VarInts.read(window);
+		long codeAndSuccess = VarInts.read(window);
+
+		int threadGroup = threadGroupIds[threadNameId];
+		if (threadGroup < 0) {
+			threadGroup = threadGroupIds[threadNameId] = aggregator.threadGroupId(names.get(threadNameId));
+		}
+		int sampler = samplerIds[labelId];
+		if (sampler < 0) {
+			sampler = samplerIds[labelId] = aggregator.samplerId(names.get(labelId));
+		}
+		aggregator.record(threadGroup, sampler, elapsed, timeStamp, (int) (codeAndSuccess >>> 1) - 1, (codeAndSuccess & 1) != 0);
+		lastTimeStamp = timeStamp;
+	}
+
+	private void readName(ByteBuffer window) throws IOException {
+		long id = VarInts.read(window);
+		long length = VarInts.read(window);
+		if (id != names.size()) {
+			throw new IOException("Result name " + id + " is out of order, expected " + names.size());
+		}
+		if (length > window.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[(int) length];
+		window.get(bytes);
+
+		names.add(new String(bytes, StandardCharsets.UTF_8));
+		if (names.size() > threadGroupIds.length) {
+			int capacity = Math.max(16, threadGroupIds.length * 2);
+			threadGroupIds = grow(threadGroupIds, capacity);
+			samplerIds = grow(samplerIds, capacity);
+		}
+	}
+
+	private int nameId(ByteBuffer window) throws IOException {
+		long id = VarInts.read(window);
+		if (id >= names.size()) {
+			throw new IOException("Result sample refers to unknown name " + id);
+		}
+		return (int) id;
+	}
+
+	private void mapFor(JtlAggregator aggregator) {
+		if (aggregator != mappedFor) {
+			mappedFor = aggregator;
+			Arrays.fill(threadGroupIds, -1);
+			Arrays.fill(samplerIds, -1);
+		}
+	}
+
+	private static int[] grow(int[] ids, int capacity) {
+		int[] grown = Arrays.copyOf(ids, capacity);
+		Arrays.fill(grown, ids.length, capacity, -1);
+		return grown;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes JMeter samples in the compact result format read by {@link BinarySampleFile}, instead of a CSV row per sample.
+ *
+ * <p>The file starts with {@link #MAGIC}, whose leading zero byte no CSV result file starts with. Every record after it
+ * starts with a tag byte:</p>
+ * <ul>
+ *     <li>{@link #NAME}: the id of a thread name or sampler label, then its length and UTF-8 bytes. Each name is written
+ *     once, before the first sample using it; ids count up from 0.</li>
+ *     <li>{@link #SAMPLE}: the ids of the sample's thread name and label, its time stamp as the zigzag-encoded
+ *     difference from the previous sample's, its elapsed time, and its response code plus one (0 for a code that isn't
+ *     a number) shifted left by one, with the success flag in the low bit.</li>
+ * </ul>
+ * <p>Every number is a {@link VarInts varint}, so a typical sample takes under ten bytes, against well over a hundred
+ * as a CSV row.</p>
+ *
+ * <p>Records are buffered and written out whole. Not thread safe.</p>
+ */
+public final class BinarySampleWriter implements Closeable {
+
+	static final byte[] MAGIC = {0, 'E', 'I', 'S', 'M', 'P', 1};
+	static final int NAME = 1;
+	static final int SAMPLE = 2;
+
+	private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+	private final OutputStream out;
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_THRESHOLD * 2);
+	private final Map<String, Integer> ids = new HashMap<>();
+	private long lastTimeStamp;
+
+	public BinarySampleWriter(OutputStream out) throws IOException {
+		this.out = out;
+		out.write(MAGIC);
+		out.flush();
+	}
+
+	/**
+	 * Adds a sample, written out once enough samples have been buffered or on {@link #flush()}.
+	 *
+	 * @param responseCode the numeric response code, or {@code -1} if it isn't a number
+	 */
+	public void write(String threadName, String label, long timeStamp, long elapsed, int responseCode, boolean success) throws IOException {
+		int threadNameId = id(threadName);
+		int labelId = id(label);
+
+		buffer.write(SAMPLE);
+		VarInts.write(buffer, threadNameId);
+		VarInts.write(buffer, labelId);
+		VarInts.write(buffer, zigZag(timeStamp - lastTimeStamp));
+		VarInts.write(buffer, Math.max(elapsed, 0));
+		VarInts.write(buffer, (long) (Math.max(responseCode, -1) + 1) << 1 | (success ? 1 : 0));
+		lastTimeStamp = timeStamp;
+
+		if (buffer.size() >= FLUSH_THRESHOLD) {
+			flush();
+		}
+	}
+
+	/**
+	 * Writes out the buffered samples, so a reader following the file sees them.
+	 */
+	public void flush() throws IOException {
+		if (buffer.size() > 0) {
+			buffer.writeTo(out);
+			buffer.reset();
+		}
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private int id(String name) {
+		String key = name == null ? "" : name;
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		int newId = ids.size();
+		ids.put(key, newId);
+
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		buffer.write(NAME);
+		VarInts.write(buffer, newId);
+		VarInts.write(buffer, bytes.length);
+		buffer.writeBytes(bytes);
+		return newId;
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
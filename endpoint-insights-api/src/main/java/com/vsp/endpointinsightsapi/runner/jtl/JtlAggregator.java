@@ -0,0 +1,172 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Folds JMeter samples into one {@link SamplerAggregate} per (thread group, sampler) pair.
+ *
+ * <p>Thread group and sampler names are derived the same way JMeter numbers them: {@code "Users 1-7"} belongs to
+ * thread group {@code "Users 1"}, and a sampler label's trailing {@code -N} suffix is dropped as well. Aggregates are
+ * kept in first-seen order.</p>
+ *
+ * <p>Both names are interned into int ids straight from the row bytes, and the pair of ids is looked up in a
+ * primitive open-addressing table, so a row for a pair that has been seen before is aggregated without allocating.</p>
+ */
+public final class JtlAggregator {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final LabelDictionary threadGroups = new LabelDictionary();
+	private final LabelDictionary samplers = new LabelDictionary();
+
+	// Open-addressing index from (thread group id, sampler id) to position + 1 in aggregates, or 0 for an empty slot
+	private long[] slotKeys = new long[INITIAL_CAPACITY];
+	private int[] slots = new int[INITIAL_CAPACITY];
+	private final List<SamplerAggregate> aggregates = new ArrayList<>();
+
+	public void record(JtlRecord record) {
+		int threadGroup = internStripped(threadGroups, record.buffer, record.threadNameStart, record.threadNameEnd, record.threadNameQuoted);
+		int sampler = internStripped(samplers, record.buffer, record.labelStart, record.labelEnd, record.labelQuoted);
+		aggregate(threadGroup, sampler).record(record.elapsed, record.timeStamp, record.responseCode, record.success);
+	}
+
+	public void record(String threadName, String label, long elapsed, long timeStamp, int responseCode, boolean success) {
+		int threadGroup = threadGroups.intern(stripNumberSuffix(threadName));
+		int sampler = samplers.intern(stripNumberSuffix(label));
+		aggregate(threadGroup, sampler).record(elapsed, timeStamp, responseCode, success);
+	}
+
+	/**
+	 * @return the id a thread named {@code threadName} records its samples under, for {@link #record(int, int, long, long, int, boolean)}
+	 */
+	int threadGroupId(String threadName) {
+		return threadGroups.intern(stripNumberSuffix(threadName));
+	}
+
+	/**
+	 * @return the id samples labelled {@code label} are recorded under, for {@link #record(int, int, long, long, int, boolean)}
+	 */
+	int samplerId(String label) {
+		return samplers.intern(stripNumberSuffix(label));
+	}
+
+	void record(int threadGroup, int sampler, long elapsed, long timeStamp, int responseCode, boolean success) {
+		aggregate(threadGroup, sampler).record(elapsed, timeStamp, responseCode, success);
+	}
+
+	/**
+	 * Adds every aggregate of {@code other} into this one. Pairs only present in {@code other} are appended after the
+	 * ones already held here.
+	 */
+	public void merge(JtlAggregator other) {
+		merge(other, null);
+	}
+
+	/**
+	 * Same as {@link #merge(JtlAggregator)}, dropping {@code threadGroupPrefix} from the start of thread group names
+	 * that have it, such as the host a remote JMeter engine prefixes its thread names with.
+	 */
+	public void merge(JtlAggregator other, String threadGroupPrefix) {
+		for (SamplerAggregate aggregate : other.aggregates) {
+			String threadGroup = aggregate.getThreadGroup();
+			if (threadGroupPrefix != null && threadGroup.startsWith(threadGroupPrefix)) {
+				threadGroup = threadGroup.substring(threadGroupPrefix.length());
+			}
+			aggregate(threadGroups.intern(threadGroup), samplers.intern(aggregate.getSamplerName()))
+					.merge(aggregate);
+		}
+	}
+
+	/**
+	 * Adds a single aggregate, such as one decoded by {@link AggregateDeltas}, under its own names.
+	 */
+	void merge(SamplerAggregate aggregate) {
+		aggregate(threadGroups.intern(aggregate.getThreadGroup()), samplers.intern(aggregate.getSamplerName()))
+				.merge(aggregate);
+	}
+
+	public Collection<SamplerAggregate> getAggregates() {
+		return Collections.unmodifiableList(aggregates);
+	}
+
+	public boolean isEmpty() {
+		return aggregates.isEmpty();
+	}
+
+	private SamplerAggregate aggregate(int threadGroup, int sampler) {
+		long key = (long) threadGroup << 32 | sampler;
+		int mask = slots.length - 1;
+		for (int slot = spread(key) & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) {
+				SamplerAggregate aggregate = new SamplerAggregate(threadGroups.name(threadGroup), samplers.name(sampler));
+				aggregates.add(aggregate);
+				slotKeys[slot] = key;
+				slots[slot] = aggregates.size();
+				if (aggregates.size() * 2 > slots.length) {
+					rehash(slots.length * 2);
+				}
+				return aggregate;
+			}
+			if (slotKeys[slot] == key) {
+				return aggregates.get(entry - 1);
+			}
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] keys = new long[capacity];
+		int[] table = new int[capacity];
+		int mask = capacity - 1;
+		for (int slot = 0; slot < slots.length; slot++) {
+			if (slots[slot] == 0) {
+				continue;
+			}
+			int s = spread(slotKeys[slot]) & mask;
+			while (table[s] != 0) {
+				s = (s + 1) & mask;
+			}
+			keys[s] = slotKeys[slot];
+			table[s] = slots[slot];
+		}
+		slotKeys = keys;
+		slots = table;
+	}
+
+	private static int spread(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static int internStripped(LabelDictionary dictionary, ByteBuffer buf, int start, int end, boolean quoted) {
+		if (quoted && containsQuote(buf, start, end)) {
+			// Escaped quotes have to be undone before the name can be compared
+			return dictionary.intern(stripNumberSuffix(JtlRecord.decode(buf, start, end, true)));
+		}
+		for (int i = end - 1; i >= start; i--) {
+			// '-' never occurs inside a multi-byte UTF-8 sequence, so this matches String.lastIndexOf
+			if (buf.get(i) == '-') {
+				return dictionary.intern(buf, start, i);
+			}
+		}
+		return dictionary.intern(buf, start, end);
+	}
+
+	private static boolean containsQuote(ByteBuffer buf, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (buf.get(i) == '"') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String stripNumberSuffix(String name) {
+		int dash = name.lastIndexOf('-');
+		return dash >= 0 ? name.substring(0, dash) : name;
+	}
+}
@@ -0,0 +1,260 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only, memory-mapped view of a JMeter CSV result file.
+ *
+ * <p>The header is read once when the file is opened. Rows are then scanned straight out of mapped windows of the
+ * file, so no per-line {@code String} or {@code String[]} is created.</p>
+ */
+public final class JtlFile implements Closeable {
+
+	private static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+	private static final int MAX_HEADER_LENGTH = 64 * 1024;
+
+	private final FileChannel channel;
+	private final JtlTokenizer tokenizer;
+	private final long dataStart;
+	private final long windowSize;
+
+	private JtlFile(FileChannel channel, JtlTokenizer tokenizer, long dataStart, long windowSize) {
+		this.channel = channel;
+		this.tokenizer = tokenizer;
+		this.dataStart = dataStart;
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Opens a result file and resolves its columns from the header.
+	 *
+	 * @throws IOException if the file is empty, or its header lacks a column the interpreter needs
+	 */
+	public static JtlFile open(Path path) throws IOException {
+		return open(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	static JtlFile open(Path path, long windowSize) throws IOException {
+		return open(path, windowSize, false);
+	}
+
+	/**
+	 * Opens a result file that may still be being written, once its header line is complete.
+	 *
+	 * @return the opened file, or {@code null} if the file doesn't exist yet or its header line hasn't been finished
+	 * @throws IOException if the header lacks a column the interpreter needs
+	 */
+	public static JtlFile openWhenHeaderComplete(Path path) throws IOException {
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		return open(path, DEFAULT_WINDOW_SIZE, true);
+	}
+
+	private static JtlFile open(Path path, long windowSize, boolean waitForHeader) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size == 0) {
+				if (waitForHeader) {
+					channel.close();
+					return null;
+				}
+				throw new IOException("CSV file is empty");
+			}
+
+			ByteBuffer head = ByteBuffer.allocate((int) Math.min(MAX_HEADER_LENGTH, size));
+			while (head.hasRemaining() && channel.read(head, head.position()) >= 0) {
+				// keep reading until the buffer is full or the file ends
+			}
+
+			int headerEnd = -1;
+			for (int i = 0; i < head.position(); i++) {
+				if (head.get(i) == '\n') {
+					headerEnd = i;
+					break;
+				}
+			}
+			if (headerEnd < 0 && size > MAX_HEADER_LENGTH) {
+				throw new IOException("CSV header is longer than " + MAX_HEADER_LENGTH + " bytes");
+			}
+			if (headerEnd < 0 && waitForHeader) {
+				channel.close();
+				return null;
+			}
+
+			int headerLength = headerEnd < 0 ? head.position() : headerEnd;
+			String header = new String(head.array(), 0, headerLength, StandardCharsets.UTF_8);
+			long dataStart = headerEnd < 0 ? size : headerEnd + 1;
+
+			return new JtlFile(channel, JtlTokenizer.forHeader(header), dataStart, windowSize);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Cuts a last row without its line break off the end of a result file, as left by a JMeter that was killed partway
+	 * through writing it. Such a row has columns missing or cut short, e.g. a timeStamp of {@code 1697}.
+	 *
+	 * @return whether a row was cut off
+	 */
+	public static boolean truncateIncompleteRow(Path path) throws IOException {
+		if (!Files.isRegularFile(path) || BinarySampleFile.isBinary(path)) {
+			return false;
+		}
+		long end;
+		try (JtlFile jtl = openWhenHeaderComplete(path)) {
+			if (jtl == null) {
+				return false;
+			}
+			end = jtl.scanCompleteRows(jtl.dataStart(), jtl.size(), record -> {
+			});
+			if (end == jtl.size()) {
+				return false;
+			}
+		}
+		truncate(path, end);
+		return true;
+	}
+
+	static void truncate(Path path, long size) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+	}
+
+	/**
+	 * @return offset of the first byte after the header line
+	 */
+	public long dataStart() {
+		return dataStart;
+	}
+
+	/**
+	 * @return the current size of the file, which grows while JMeter is still writing it
+	 */
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	/**
+	 * Tokenizes every row in {@code [from, to)} and hands it to {@code visitor}.
+	 *
+	 * <p>Both offsets must sit on row boundaries (the start of a row, or the end of the file). Blank lines are
+	 * skipped. This method may be called concurrently for disjoint ranges.</p>
+	 */
+	public void scan(long from, long to, JtlRecordVisitor visitor) throws IOException {
+		scan(from, to, true, visitor);
+	}
+
+	/**
+	 * Tokenizes the complete rows in {@code [from, to)}, for a file that is still being appended to. A trailing row
+	 * without its line break is left for the next call.
+	 *
+	 * @return the offset just past the last complete row, where the next call should start
+	 */
+	public long scanCompleteRows(long from, long to, JtlRecordVisitor visitor) throws IOException {
+		return scan(from, to, false, visitor);
+	}
+
+	private long scan(long from, long to, boolean endOfInput, JtlRecordVisitor visitor) throws IOException {
+		JtlTokenizer rowTokenizer = tokenizer.copy();
+		JtlRecord record = new JtlRecord();
+
+		long position = from;
+		while (position < to) {
+			long length = Math.min(windowSize, to - position);
+			boolean lastWindow = endOfInput && position + length == to;
+			MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+			int limit = (int) length;
+			int pos = 0;
+			while (pos < limit) {
+				int next = rowTokenizer.next(window, pos, limit, lastWindow, record);
+				if (next < 0) {
+					// Row runs past the end of this window; map the next window from its start
+					break;
+				}
+				if (record.buffer != null) {
+					visitor.visit(record);
+				}
+				pos = next;
+			}
+
+			if (pos == 0) {
+				if (!endOfInput && position + length == to) {
+					// The rest of the row hasn't been written yet
+					break;
+				}
+				throw new IOException("Result row at offset " + position + " is longer than the " + windowSize + " byte read window");
+			}
+			position += pos;
+		}
+		return position;
+	}
+
+	/**
+	 * Finds the start of the first row beginning after {@code offset}, for splitting the file into ranges that can be
+	 * scanned independently.
+	 *
+	 * <p>Line breaks inside quoted fields can't be told apart from row ends without reading from the top of the file,
+	 * so a line break is only taken as a row boundary when the next line starts the way JMeter's rows do (with the
+	 * digits of the leading timeStamp column) and reads as a whole row of the header's layout: as many columns as the
+	 * header and a numeric timeStamp. Otherwise the next line break is tried. JMeter only quotes line breaks inside
+	 * response and failure messages, and the rest of a row after one rarely has the header's column count, so a wrong
+	 * split is very unlikely.</p>
+	 *
+	 * @return the offset of that row, or the file size if there is none
+	 */
+	long nextRowStart(long offset) throws IOException {
+		long size = channel.size();
+		ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+		long position = offset;
+		boolean afterLineBreak = false;
+		JtlTokenizer rowTokenizer = tokenizer.copy();
+		JtlRecord record = new JtlRecord();
+
+		while (position < size) {
+			buf.clear();
+			int read = channel.read(buf, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buf.get(i);
+				if (afterLineBreak && (!tokenizer.startsWithTimeStamp() || (b >= '0' && b <= '9')) && isRowStart(position + i, rowTokenizer, record)) {
+					return position + i;
+				}
+				afterLineBreak = b == '\n';
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * @return whether a complete row of the header's layout starts at {@code offset}
+	 */
+	private boolean isRowStart(long offset, JtlTokenizer rowTokenizer, JtlRecord record) throws IOException {
+		long length = Math.min(windowSize, channel.size() - offset);
+		boolean endOfInput = offset + length == channel.size();
+		MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+		int next = rowTokenizer.next(window, 0, (int) length, endOfInput, record);
+		return next > 0 && record.buffer != null && rowTokenizer.lastRowMatchesHeader(window);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,93 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Aggregates a result file on several cores at once.
+ *
+ * <p>The data section is cut into row-aligned byte ranges, each range is scanned into its own {@link JtlAggregator}
+ * by a fork-join worker, and the partial aggregates are merged in file order. Because histograms, counters and volume
+ * windows all merge exactly, the outcome is the same as a single-threaded scan, including the order aggregates are
+ * reported in.</p>
+ */
+public final class JtlParallelAggregator {
+
+	/** Files smaller than this are not worth splitting. */
+	static final long DEFAULT_MIN_CHUNK_SIZE = 8L << 20;
+
+	private JtlParallelAggregator() {
+	}
+
+	public static JtlAggregator aggregate(JtlFile jtl, ForkJoinPool pool) throws IOException {
+		return aggregate(jtl, pool, DEFAULT_MIN_CHUNK_SIZE);
+	}
+
+	static JtlAggregator aggregate(JtlFile jtl, ForkJoinPool pool, long minChunkSize) throws IOException {
+		long start = jtl.dataStart();
+		long end = jtl.size();
+
+		List<long[]> ranges = split(jtl, start, end, pool.getParallelism(), minChunkSize);
+		if (ranges.size() == 1) {
+			JtlAggregator aggregator = new JtlAggregator();
+			jtl.scan(start, end, aggregator::record);
+			return aggregator;
+		}
+
+		List<ForkJoinTask<JtlAggregator>> tasks = new ArrayList<>(ranges.size());
+		for (long[] range : ranges) {
+			tasks.add(pool.submit(() -> {
+				JtlAggregator partial = new JtlAggregator();
+				try {
+					jtl.scan(range[0], range[1], partial::record);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return partial;
+			}));
+		}
+
+		JtlAggregator result = null;
+		try {
+			for (ForkJoinTask<JtlAggregator> task : tasks) {
+				JtlAggregator partial = task.join();
+				if (result == null) {
+					result = partial;
+				} else {
+					result.merge(partial);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			tasks.forEach(task -> task.cancel(true));
+			throw e.getCause();
+		}
+		return result;
+	}
+
+	private static List<long[]> split(JtlFile jtl, long start, long end, int parallelism, long minChunkSize) throws IOException {
+		long length = end - start;
+		// A few more chunks than workers so that one slow chunk doesn't leave the others idle
+		int chunks = (int) Math.max(1, Math.min((long) parallelism * 4, length / Math.max(1, minChunkSize)));
+
+		List<long[]> ranges = new ArrayList<>(chunks);
+		long from = start;
+		for (int i = 1; i < chunks && from < end; i++) {
+			long target = start + length * i / chunks;
+			if (target <= from) {
+				continue;
+			}
+			long boundary = jtl.nextRowStart(target);
+			if (boundary >= end) {
+				break;
+			}
+			ranges.add(new long[]{from, boundary});
+			from = boundary;
+		}
+		ranges.add(new long[]{from, end});
+		return ranges;
+	}
+}
@@ -0,0 +1,71 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One row of a JMeter CSV result file, as seen by a {@link JtlRecordVisitor}.
+ *
+ * <p>This is a flyweight: the tokenizer refills the same instance for every row, numeric columns are parsed straight
+ * from the file bytes, and the text columns are only decoded into {@link String}s when asked for. Visitors must not
+ * hold on to the instance after {@code visit} returns.</p>
+ */
+public final class JtlRecord {
+
+	ByteBuffer buffer;
+
+	long timeStamp;
+	long elapsed;
+	int responseCode;
+	boolean success;
+
+	int threadNameStart;
+	int threadNameEnd;
+	boolean threadNameQuoted;
+
+	int labelStart;
+	int labelEnd;
+	boolean labelQuoted;
+
+	JtlRecord() {
+	}
+
+	public long timeStamp() {
+		return timeStamp;
+	}
+
+	public long elapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * @return the numeric response code, or {@code -1} when JMeter wrote a non-numeric one
+	 */
+	public int responseCode() {
+		return responseCode;
+	}
+
+	public boolean success() {
+		return success;
+	}
+
+	public String threadName() {
+		return decode(threadNameStart, threadNameEnd, threadNameQuoted);
+	}
+
+	public String label() {
+		return decode(labelStart, labelEnd, labelQuoted);
+	}
+
+	private String decode(int start, int end, boolean quoted) {
+		return decode(buffer, start, end, quoted);
+	}
+
+	static String decode(ByteBuffer buffer, int start, int end, boolean quoted) {
+		byte[] bytes = new byte[end - start];
+		buffer.get(start, bytes);
+		String value = new String(bytes, StandardCharsets.UTF_8);
+		// Inside a quoted CSV field a literal quote is written twice
+		return quoted ? value.replace("\"\"", "\"") : value;
+	}
+}
@@ -0,0 +1,6 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+@FunctionalInterface
+public interface JtlRecordVisitor {
+	void visit(JtlRecord record);
+}
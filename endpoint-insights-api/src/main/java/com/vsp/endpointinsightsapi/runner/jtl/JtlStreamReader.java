@@ -0,0 +1,177 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Aggregates a result file read as a stream, such as one being decompressed from the result archive, without it ever
+ * being written out whole.
+ *
+ * <p>The stream is read a chunk at a time into one buffer. Complete CSV rows are tokenized straight out of it, the
+ * same as {@link JtlFile} tokenizes them out of a mapped window, and binary records are decoded the same as
+ * {@link BinarySampleFile} decodes them; a row or record cut off by the end of a chunk is moved to the front and
+ * finished by the next one. Memory is one chunk, however large the file.</p>
+ */
+public final class JtlStreamReader {
+
+	private static final int CHUNK_SIZE = 1 << 20;
+	// A row that doesn't fit in this much is taken to mean the stream isn't a result file
+	private static final int MAX_ROW_LENGTH = 64 * 1024 * 1024;
+
+	private JtlStreamReader() {
+	}
+
+	/**
+	 * Reads the stream to its end; the caller closes it.
+	 *
+	 * @return the aggregates of every sample in it
+	 * @throws IOException if the stream can't be read, is empty, or isn't a CSV or binary result file
+	 */
+	public static JtlAggregator aggregate(InputStream in) throws IOException {
+		return aggregate(in, CHUNK_SIZE);
+	}
+
+	static JtlAggregator aggregate(InputStream in, int chunkSize) throws IOException {
+		JtlAggregator aggregator = new JtlAggregator();
+		Chunks chunks = new Chunks(in, chunkSize);
+		chunks.fill(1);
+		if (!chunks.buffer.hasRemaining()) {
+			throw new IOException("Result file is empty");
+		}
+
+		if (chunks.buffer.get(0) == BinarySampleWriter.MAGIC[0]) {
+			readBinary(chunks, aggregator);
+		} else {
+			readCsv(chunks, aggregator);
+		}
+		return aggregator;
+	}
+
+	private static void readCsv(Chunks chunks, JtlAggregator aggregator) throws IOException {
+		int headerEnd = chunks.indexOf((byte) '\n');
+		while (headerEnd < 0 && !chunks.ended) {
+			chunks.fill(chunks.buffer.remaining() + 1);
+			headerEnd = chunks.indexOf((byte) '\n');
+		}
+		ByteBuffer buffer = chunks.buffer;
+		int headerLength = headerEnd < 0 ? buffer.remaining() : headerEnd - buffer.position();
+		byte[] header = new byte[headerLength];
+		buffer.get(header);
+		if (headerEnd >= 0) {
+			buffer.get();
+		}
+		JtlTokenizer tokenizer = JtlTokenizer.forHeader(new String(header, StandardCharsets.UTF_8));
+
+		JtlRecord record = new JtlRecord();
+		while (true) {
+			// A row longer than the buffer has it replaced by a larger one
+			buffer = chunks.buffer;
+			int limit = buffer.limit();
+			int pos = buffer.position();
+			while (pos < limit) {
+				int next = tokenizer.next(buffer, pos, limit, chunks.ended, record);
+				if (next < 0) {
+					// Row runs past the end of the chunk
+					break;
+				}
+				if (record.buffer != null) {
+					aggregator.record(record);
+				}
+				pos = next;
+			}
+			buffer.position(pos);
+			if (chunks.ended) {
+				// Read as the end of the input, so a last row without its line break has been read as well
+				return;
+			}
+			chunks.fill(buffer.remaining() + 1);
+		}
+	}
+
+	private static void readBinary(Chunks chunks, JtlAggregator aggregator) throws IOException {
+		ByteBuffer buffer = chunks.buffer;
+		byte[] magic = BinarySampleWriter.MAGIC;
+		if (buffer.remaining() < magic.length) {
+			throw new IOException("Binary result file is missing its header");
+		}
+		byte[] header = new byte[magic.length];
+		buffer.get(header);
+		if (!Arrays.equals(header, 0, magic.length - 1, magic, 0, magic.length - 1)) {
+			throw new IOException("Not a result file");
+		}
+		if (header[magic.length - 1] != magic[magic.length - 1]) {
+			throw new IOException("Binary result file is of unsupported version " + header[magic.length - 1]);
+		}
+
+		BinarySampleFile records = BinarySampleFile.forStream();
+		while (true) {
+			buffer = chunks.buffer;
+			buffer.position(buffer.position() + records.read(buffer, aggregator));
+			if (chunks.ended) {
+				// Whatever is left is a record cut short when JMeter stopped, which can't be read
+				return;
+			}
+			chunks.fill(buffer.remaining() + 1);
+		}
+	}
+
+	/**
+	 * The stream's bytes not yet read, between the buffer's position and limit.
+	 */
+	private static final class Chunks {
+
+		private final InputStream in;
+		private ByteBuffer buffer;
+		private boolean ended;
+
+		private Chunks(InputStream in, int chunkSize) {
+			this.in = in;
+			this.buffer = ByteBuffer.allocate(chunkSize).flip();
+		}
+
+		/**
+		 * Moves the unread bytes to the front and reads more after them, until the buffer is full or the stream ends.
+		 * The buffer grows first if it's too small to hold {@code wanted} bytes.
+		 */
+		void fill(int wanted) throws IOException {
+			if (ended) {
+				return;
+			}
+			if (wanted > buffer.capacity()) {
+				if (wanted > MAX_ROW_LENGTH) {
+					throw new IOException("Result row is longer than " + MAX_ROW_LENGTH + " bytes");
+				}
+				ByteBuffer grown = ByteBuffer.allocate(Math.min(MAX_ROW_LENGTH, Math.max(wanted, buffer.capacity() * 2)));
+				grown.put(buffer);
+				buffer = grown;
+			} else {
+				buffer.compact();
+			}
+
+			while (buffer.hasRemaining()) {
+				int read = in.read(buffer.array(), buffer.position(), buffer.remaining());
+				if (read < 0) {
+					ended = true;
+					break;
+				}
+				buffer.position(buffer.position() + read);
+			}
+			buffer.flip();
+		}
+
+		/**
+		 * @return the absolute index of the first unread {@code b}, or -1 if there is none
+		 */
+		int indexOf(byte b) {
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				if (buffer.get(i) == b) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+}
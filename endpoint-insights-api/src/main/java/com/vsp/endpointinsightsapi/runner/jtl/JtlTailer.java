@@ -0,0 +1,114 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Follows a result file while JMeter is still appending to it.
+ *
+ * <p>Each {@link #poll()} folds the rows written since the previous call into one {@link JtlAggregator}, so by the
+ * time the run ends every sample has already been aggregated and {@link #finish()} only has to pick up the last few
+ * rows. A row is only read once its line break has been written; a partly written row is left for the next poll.
+ * Binary result files, as written by {@link BinarySampleWriter}, are followed the same way.</p>
+ *
+ * <p>Not thread-safe: polls are expected to come from the thread that owns the run.</p>
+ */
+public final class JtlTailer implements ResultFollower {
+
+	private final Path path;
+	private final JtlAggregator aggregator = new JtlAggregator();
+
+	private JtlFile jtl;
+	private BinarySampleFile binary;
+	private long position;
+
+	public JtlTailer(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Reads any complete rows appended since the last poll.
+	 *
+	 * @return whether new rows were read
+	 * @throws IOException if the file can't be read, or its header lacks a column the interpreter needs
+	 */
+	@Override
+	public boolean poll() throws IOException {
+		if (jtl == null && binary == null) {
+			if (BinarySampleFile.isBinary(path)) {
+				binary = BinarySampleFile.openWhenHeaderComplete(path);
+				if (binary == null) {
+					return false;
+				}
+			} else {
+				jtl = JtlFile.openWhenHeaderComplete(path);
+				if (jtl == null) {
+					return false;
+				}
+				position = jtl.dataStart();
+			}
+		}
+		if (binary != null) {
+			return binary.read(aggregator);
+		}
+
+		long end = jtl.size();
+		if (end <= position) {
+			return false;
+		}
+		long next = jtl.scanCompleteRows(position, end, aggregator::record);
+		boolean advanced = next > position;
+		position = next;
+		return advanced;
+	}
+
+	/**
+	 * Reads whatever is left once the writer has exited. A last CSV row without a trailing line break is read if the
+	 * writer exited cleanly; otherwise it was cut off partway through, and is dropped from the file as well so nothing
+	 * reading the file later reads it either. A binary record cut short can't be read, and is left out.
+	 *
+	 * @return the aggregates for the whole file
+	 */
+	@Override
+	public JtlAggregator finish(boolean complete) throws IOException {
+		poll();
+		if (jtl != null) {
+			long end = jtl.size();
+			if (end > position) {
+				if (complete) {
+					jtl.scan(position, end, aggregator::record);
+				} else {
+					JtlFile.truncate(path, position);
+				}
+				position = end;
+			}
+		}
+		return aggregator;
+	}
+
+	/**
+	 * @return whether the header has been read, i.e. the aggregates reflect the file
+	 */
+	@Override
+	public boolean isStarted() {
+		return jtl != null || binary != null;
+	}
+
+	/**
+	 * @return the aggregates read so far; only to be read from the polling thread
+	 */
+	@Override
+	public JtlAggregator getAggregator() {
+		return aggregator;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (jtl != null) {
+			jtl.close();
+		}
+		if (binary != null) {
+			binary.close();
+		}
+	}
+}
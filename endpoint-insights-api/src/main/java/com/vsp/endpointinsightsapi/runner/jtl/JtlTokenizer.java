@@ -0,0 +1,224 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte-level CSV tokenizer for JMeter result rows.
+ *
+ * <p>Column positions are resolved once from the header. Each row is then scanned byte by byte: the columns the
+ * interpreter needs are recorded as offsets into the buffer (numeric ones are parsed in place) and everything else is
+ * skipped. Fields wrapped in double quotes may contain commas, doubled quotes and line breaks, as written by JMeter's
+ * CSV save service.</p>
+ */
+final class JtlTokenizer {
+
+	private static final String[] REQUIRED_COLUMNS = {"timeStamp", "elapsed", "label", "responseCode", "threadName", "success"};
+	private static final int TIME_STAMP = 0;
+	private static final int ELAPSED = 1;
+	private static final int LABEL = 2;
+	private static final int RESPONSE_CODE = 3;
+	private static final int THREAD_NAME = 4;
+	private static final int SUCCESS = 5;
+	private static final int NONE = -1;
+
+	private static final byte COMMA = ',';
+	private static final byte QUOTE = '"';
+	private static final byte LF = '\n';
+	private static final byte CR = '\r';
+
+	// Maps a column index to one of the constants above, or NONE for columns the interpreter ignores
+	private final int[] roleByColumn;
+
+	private final int[] fieldStart = new int[REQUIRED_COLUMNS.length];
+	private final int[] fieldEnd = new int[REQUIRED_COLUMNS.length];
+	private final boolean[] fieldQuoted = new boolean[REQUIRED_COLUMNS.length];
+	private int columns;
+
+	private JtlTokenizer(int[] roleByColumn) {
+		this.roleByColumn = roleByColumn;
+	}
+
+	static JtlTokenizer forHeader(String headerLine) throws IOException {
+		String[] headers = headerLine.strip().split(",", -1);
+		int[] roleByColumn = new int[headers.length];
+		Arrays.fill(roleByColumn, NONE);
+
+		for (int role = 0; role < REQUIRED_COLUMNS.length; role++) {
+			int column = Arrays.asList(headers).indexOf(REQUIRED_COLUMNS[role]);
+			if (column < 0) {
+				throw new IOException("Result file is missing required column: " + REQUIRED_COLUMNS[role]);
+			}
+			roleByColumn[column] = role;
+		}
+		return new JtlTokenizer(roleByColumn);
+	}
+
+	/**
+	 * @return whether timeStamp is the first column, as it is in JMeter's default CSV layout
+	 */
+	boolean startsWithTimeStamp() {
+		return roleByColumn[0] == TIME_STAMP;
+	}
+
+	/**
+	 * @return a tokenizer for the same header with its own scratch state, for scanning on another thread
+	 */
+	JtlTokenizer copy() {
+		return new JtlTokenizer(roleByColumn);
+	}
+
+	/**
+	 * Tokenizes the row starting at {@code pos} into {@code record}.
+	 *
+	 * @param endOfInput whether {@code limit} is the end of the data; if not, a row that runs into {@code limit}
+	 *                   is treated as incomplete
+	 * @return the position just past the row's line break, {@code -1} if the row is incomplete, or {@code pos}
+	 * unchanged when there is nothing left to read
+	 */
+	int next(ByteBuffer buf, int pos, int limit, boolean endOfInput, JtlRecord record) {
+		if (pos >= limit) {
+			return pos;
+		}
+		Arrays.fill(fieldStart, 0);
+		Arrays.fill(fieldEnd, 0);
+		Arrays.fill(fieldQuoted, false);
+
+		int column = 0;
+		int start = pos;
+		boolean quoted = false;
+		boolean inQuotes = false;
+		int i = pos;
+
+		while (true) {
+			if (i >= limit) {
+				if (!endOfInput) {
+					return -1;
+				}
+				// Last row without a trailing line break
+				endField(buf, column, start, i, quoted);
+				break;
+			}
+			byte b = buf.get(i);
+			if (inQuotes) {
+				if (b == QUOTE) {
+					if (i + 1 < limit && buf.get(i + 1) == QUOTE) {
+						i += 2;
+						continue;
+					}
+					if (i + 1 >= limit && !endOfInput) {
+						return -1;
+					}
+					inQuotes = false;
+				}
+				i++;
+				continue;
+			}
+			if (b == QUOTE && i == start) {
+				inQuotes = true;
+				quoted = true;
+			} else if (b == COMMA) {
+				endField(buf, column, start, i, quoted);
+				column++;
+				start = i + 1;
+				quoted = false;
+			} else if (b == LF) {
+				endField(buf, column, start, i, quoted);
+				i++;
+				break;
+			}
+			i++;
+		}
+
+		columns = column + 1;
+		if (column == 0 && isBlank(buf, pos, i)) {
+			record.buffer = null;
+			return i;
+		}
+
+		record.buffer = buf;
+		record.timeStamp = parseLong(buf, fieldStart[TIME_STAMP], fieldEnd[TIME_STAMP], 0);
+		record.elapsed = parseLong(buf, fieldStart[ELAPSED], fieldEnd[ELAPSED], 0);
+		record.responseCode = parseResponseCode(buf, fieldStart[RESPONSE_CODE], fieldEnd[RESPONSE_CODE]);
+		record.success = isTrue(buf, fieldStart[SUCCESS], fieldEnd[SUCCESS]);
+		record.threadNameStart = fieldStart[THREAD_NAME];
+		record.threadNameEnd = fieldEnd[THREAD_NAME];
+		record.threadNameQuoted = fieldQuoted[THREAD_NAME];
+		record.labelStart = fieldStart[LABEL];
+		record.labelEnd = fieldEnd[LABEL];
+		record.labelQuoted = fieldQuoted[LABEL];
+		return i;
+	}
+
+	/**
+	 * @return whether the row last tokenized by {@link #next} had as many columns as the header and a numeric
+	 * timeStamp, as every row JMeter writes does
+	 */
+	boolean lastRowMatchesHeader(ByteBuffer buf) {
+		return columns == roleByColumn.length && parseLong(buf, fieldStart[TIME_STAMP], fieldEnd[TIME_STAMP], -1) >= 0;
+	}
+
+	private void endField(ByteBuffer buf, int column, int start, int end, boolean quoted) {
+		if (column >= roleByColumn.length || roleByColumn[column] == NONE) {
+			return;
+		}
+		int role = roleByColumn[column];
+		if (end > start && buf.get(end - 1) == CR) {
+			end--;
+		}
+		if (quoted) {
+			// Drop the surrounding quotes
+			start++;
+			end = Math.max(start, end - 1);
+		}
+		fieldStart[role] = start;
+		fieldEnd[role] = end;
+		fieldQuoted[role] = quoted;
+	}
+
+	private static boolean isBlank(ByteBuffer buf, int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = buf.get(i);
+			if (b != LF && b != CR) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static long parseLong(ByteBuffer buf, int start, int end, long fallback) {
+		if (start >= end) {
+			return fallback;
+		}
+		boolean negative = buf.get(start) == '-';
+		int i = negative ? start + 1 : start;
+		if (i >= end || end - i > 18) {
+			return fallback;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buf.get(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return fallback;
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	static int parseResponseCode(ByteBuffer buf, int start, int end) {
+		while (start < end && (buf.get(start) & 0xFF) <= ' ') start++;
+		while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') end--;
+		long code = parseLong(buf, start, end, Long.MIN_VALUE);
+		return code < Integer.MIN_VALUE || code > Integer.MAX_VALUE ? -1 : (int) code;
+	}
+
+	private static boolean isTrue(ByteBuffer buf, int start, int end) {
+		return end - start == 4
+				&& (buf.get(start) | 0x20) == 't'
+				&& (buf.get(start + 1) | 0x20) == 'r'
+				&& (buf.get(start + 2) | 0x20) == 'u'
+				&& (buf.get(start + 3) | 0x20) == 'e';
+	}
+}
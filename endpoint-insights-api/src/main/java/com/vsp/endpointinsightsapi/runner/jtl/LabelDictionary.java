@@ -0,0 +1,124 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Interns thread group and sampler names into dense int ids, starting at 0 in first-seen order.
+ *
+ * <p>Names are looked up by their UTF-8 bytes, straight out of the mapped result file, in an open-addressing table.
+ * A name that has been seen before is therefore resolved without allocating; only the first occurrence of a name
+ * copies its bytes and decodes the {@link String}.</p>
+ *
+ * <p>Not thread safe.</p>
+ */
+final class LabelDictionary {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	// Open-addressing index: id + 1 of the name hashed to that slot, or 0 for an empty slot
+	private int[] slots = new int[INITIAL_CAPACITY];
+	private int[] hashes = new int[INITIAL_CAPACITY / 2];
+	private byte[][] bytes = new byte[INITIAL_CAPACITY / 2][];
+	private String[] names = new String[INITIAL_CAPACITY / 2];
+	private int size;
+
+	/**
+	 * @return the id of the name held in {@code buf[start, end)}, adding it if it hasn't been seen yet
+	 */
+	int intern(ByteBuffer buf, int start, int end) {
+		int hash = hash(buf, start, end);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) {
+				byte[] copy = new byte[end - start];
+				buf.get(start, copy);
+				return add(slot, hash, copy, new String(copy, StandardCharsets.UTF_8));
+			}
+			int id = entry - 1;
+			if (hashes[id] == hash && equals(bytes[id], buf, start, end)) {
+				return id;
+			}
+		}
+	}
+
+	int intern(String name) {
+		byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buf = ByteBuffer.wrap(encoded);
+		int hash = hash(buf, 0, encoded.length);
+		int mask = slots.length - 1;
+		for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) {
+				return add(slot, hash, encoded, name);
+			}
+			int id = entry - 1;
+			if (hashes[id] == hash && Arrays.equals(bytes[id], encoded)) {
+				return id;
+			}
+		}
+	}
+
+	String name(int id) {
+		return names[id];
+	}
+
+	int size() {
+		return size;
+	}
+
+	private int add(int slot, int hash, byte[] nameBytes, String name) {
+		int id = size++;
+		if (id == names.length) {
+			hashes = Arrays.copyOf(hashes, id * 2);
+			bytes = Arrays.copyOf(bytes, id * 2);
+			names = Arrays.copyOf(names, id * 2);
+		}
+		hashes[id] = hash;
+		bytes[id] = nameBytes;
+		names[id] = name;
+		slots[slot] = id + 1;
+
+		// Keep the table at most half full so probe chains stay short
+		if (size * 2 > slots.length) {
+			rehash(slots.length * 2);
+		}
+		return id;
+	}
+
+	private void rehash(int capacity) {
+		int[] table = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+		slots = table;
+	}
+
+	private static boolean equals(byte[] name, ByteBuffer buf, int start, int end) {
+		if (name.length != end - start) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (name[i] != buf.get(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(ByteBuffer buf, int start, int end) {
+		int h = 1;
+		for (int i = start; i < end; i++) {
+			h = 31 * h + buf.get(i);
+		}
+		// Spread the bits, since only the low ones pick the slot
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,315 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fixed-size, log-linear latency histogram in the spirit of HdrHistogram.
+ *
+ * <p>Values below {@code 2 * subBucketCount} are recorded exactly. Above that, every power-of-two range is split
+ * into {@code subBucketCount} linear sub-buckets, so any value reported back is within {@code 1 / subBucketCount}
+ * of a recorded sample. Memory use is constant no matter how many samples are recorded, and two histograms of the
+ * same precision can be merged by adding their bucket counts.</p>
+ *
+ * <p>A {@link #sparse(int) sparse} histogram keeps only its non-empty buckets, in a sorted array that grows as they
+ * are filled. It is meant for the many small histograms of a time series, where a second's samples touch a handful of
+ * buckets and a dense array would be almost all zeros.</p>
+ *
+ * <p>Not thread safe.</p>
+ */
+public final class LatencyHistogram {
+
+	/** Precision of {@link #LatencyHistogram()}: 128 sub-buckets, i.e. values within 1%. */
+	public static final int DEFAULT_SUB_BUCKET_BITS = 7;
+
+	/** Roughly 70 minutes in milliseconds. Slower samples are clamped into the last bucket but still update the max. */
+	public static final long HIGHEST_TRACKABLE_VALUE = (1L << 22) - 1;
+
+	// A sparse histogram's entries pack the bucket index above the count
+	private static final int COUNT_BITS = 40;
+	private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+	private final int subBucketBits;
+	// Dense counts, or null for a sparse histogram
+	private final long[] counts;
+	// Non-empty buckets of a sparse histogram, sorted by index; null for a dense one
+	private long[] entries;
+	private int entryCount;
+	private long totalCount;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	public LatencyHistogram() {
+		this(DEFAULT_SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * @param subBucketBits log2 of the number of linear sub-buckets per power of two, from 1 to
+	 *                      {@link #DEFAULT_SUB_BUCKET_BITS}; each bit halves the relative error and doubles the memory
+	 */
+	public LatencyHistogram(int subBucketBits) {
+		this(subBucketBits, false);
+	}
+
+	private LatencyHistogram(int subBucketBits, boolean sparse) {
+		if (subBucketBits < 1 || subBucketBits > DEFAULT_SUB_BUCKET_BITS) {
+			throw new IllegalArgumentException("subBucketBits must be between 1 and " + DEFAULT_SUB_BUCKET_BITS + ": " + subBucketBits);
+		}
+		this.subBucketBits = subBucketBits;
+		if (sparse) {
+			this.counts = null;
+			this.entries = new long[4];
+		} else {
+			this.counts = new long[indexFor(HIGHEST_TRACKABLE_VALUE, subBucketBits) + 1];
+		}
+	}
+
+	/**
+	 * @return an empty histogram holding only its non-empty buckets, for histograms that stay mostly empty; a bucket's
+	 * count must stay below 2^40
+	 */
+	static LatencyHistogram sparse(int subBucketBits) {
+		return new LatencyHistogram(subBucketBits, true);
+	}
+
+	public void record(long value) {
+		long v = Math.max(0, value);
+		add(indexFor(Math.min(v, HIGHEST_TRACKABLE_VALUE), subBucketBits), 1);
+		totalCount++;
+		if (v < min) min = v;
+		if (v > max) max = v;
+	}
+
+	public void merge(LatencyHistogram other) {
+		if (other.subBucketBits != subBucketBits) {
+			throw new IllegalArgumentException("Cannot merge histograms of different precision: " + subBucketBits + " and " + other.subBucketBits);
+		}
+		if (other.totalCount == 0) {
+			return;
+		}
+		if (counts != null && other.counts != null) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += other.counts[i];
+			}
+		} else if (other.counts != null) {
+			for (int i = 0; i < other.counts.length; i++) {
+				if (other.counts[i] != 0) {
+					add(i, other.counts[i]);
+				}
+			}
+		} else {
+			for (int i = 0; i < other.entryCount; i++) {
+				add((int) (other.entries[i] >>> COUNT_BITS), other.entries[i] & COUNT_MASK);
+			}
+		}
+		totalCount += other.totalCount;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public int getSubBucketBits() {
+		return subBucketBits;
+	}
+
+	public long getTotalCount() {
+		return totalCount;
+	}
+
+	public long getMin() {
+		return totalCount == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the nearest-rank percentile, i.e. the value a sorted list of every sample would hold at index
+	 * {@code ceil(percentile / 100 * n) - 1}, subject to the histogram's bucket resolution.
+	 *
+	 * @param percentile the percentile to compute, between 0 and 100
+	 * @return the percentile value, or 0 when nothing has been recorded
+	 */
+	public long percentile(double percentile) {
+		if (totalCount == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+		rank = Math.clamp(rank, 1, totalCount);
+
+		long seen = 0;
+		if (counts == null) {
+			for (int i = 0; i < entryCount; i++) {
+				seen += entries[i] & COUNT_MASK;
+				if (seen >= rank) {
+					return Math.min(highestEquivalentValue((int) (entries[i] >>> COUNT_BITS), subBucketBits), max);
+				}
+			}
+			return max;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestEquivalentValue(i, subBucketBits), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Appends this histogram in a compact form: the precision, min and max, then only the non-empty buckets as
+	 * (gap since the previous one, count) pairs, all as unsigned varints. A run with a few hundred distinct latencies
+	 * takes well under a kilobyte.
+	 */
+	public void encodeTo(ByteArrayOutputStream out) {
+		VarInts.write(out, subBucketBits);
+		VarInts.write(out, getMin());
+		VarInts.write(out, max);
+		int previous = -1;
+		if (counts == null) {
+			VarInts.write(out, entryCount);
+			for (int i = 0; i < entryCount; i++) {
+				int index = (int) (entries[i] >>> COUNT_BITS);
+				VarInts.write(out, index - previous - 1);
+				VarInts.write(out, entries[i] & COUNT_MASK);
+				previous = index;
+			}
+			return;
+		}
+
+		int nonEmpty = 0;
+		for (long count : counts) {
+			if (count != 0) {
+				nonEmpty++;
+			}
+		}
+		VarInts.write(out, nonEmpty);
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				VarInts.write(out, i - previous - 1);
+				VarInts.write(out, counts[i]);
+				previous = i;
+			}
+		}
+	}
+
+	public byte[] encode() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+		encodeTo(out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Reads a histogram written by {@link #encodeTo(ByteArrayOutputStream)}, advancing {@code in} past it.
+	 *
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	public static LatencyHistogram decodeFrom(ByteBuffer in) {
+		return decodeFrom(in, false);
+	}
+
+	/**
+	 * Same as {@link #decodeFrom(ByteBuffer)}, into a {@link #sparse(int) sparse} histogram.
+	 */
+	static LatencyHistogram decodeSparseFrom(ByteBuffer in) {
+		return decodeFrom(in, true);
+	}
+
+	private static LatencyHistogram decodeFrom(ByteBuffer in, boolean sparse) {
+		try {
+			LatencyHistogram histogram = new LatencyHistogram((int) VarInts.read(in), sparse);
+			int length = indexFor(HIGHEST_TRACKABLE_VALUE, histogram.subBucketBits) + 1;
+			long min = VarInts.read(in);
+			long max = VarInts.read(in);
+			long nonEmpty = VarInts.read(in);
+
+			int index = -1;
+			for (long i = 0; i < nonEmpty; i++) {
+				index += (int) VarInts.read(in) + 1;
+				long count = VarInts.read(in);
+				if (index < 0 || index >= length) {
+					throw new IllegalArgumentException("Malformed latency histogram: bucket " + index + " out of range");
+				}
+				histogram.add(index, count);
+				histogram.totalCount += count;
+			}
+			if (histogram.totalCount > 0) {
+				histogram.min = min;
+				histogram.max = max;
+			}
+			return histogram;
+		} catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+			throw new IllegalArgumentException("Malformed latency histogram", e);
+		}
+	}
+
+	public static LatencyHistogram decode(byte[] bytes) {
+		return decodeFrom(ByteBuffer.wrap(bytes));
+	}
+
+	private void add(int index, long count) {
+		if (counts != null) {
+			counts[index] += count;
+			return;
+		}
+		int low = 0;
+		int high = entryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleIndex = (int) (entries[middle] >>> COUNT_BITS);
+			if (middleIndex < index) {
+				low = middle + 1;
+			} else if (middleIndex > index) {
+				high = middle - 1;
+			} else {
+				entries[middle] += count;
+				return;
+			}
+		}
+		if (entryCount == entries.length) {
+			entries = Arrays.copyOf(entries, entries.length * 2);
+		}
+		System.arraycopy(entries, low, entries, low + 1, entryCount - low);
+		entries[low] = (long) index << COUNT_BITS | count;
+		entryCount++;
+	}
+
+	static int indexFor(long value) {
+		return indexFor(value, DEFAULT_SUB_BUCKET_BITS);
+	}
+
+	static long lowestEquivalentValue(int index) {
+		return lowestEquivalentValue(index, DEFAULT_SUB_BUCKET_BITS);
+	}
+
+	static long highestEquivalentValue(int index) {
+		return highestEquivalentValue(index, DEFAULT_SUB_BUCKET_BITS);
+	}
+
+	private static int indexFor(long value, int subBucketBits) {
+		if (value < (1L << subBucketBits)) {
+			return (int) value;
+		}
+		int shift = (63 - Long.numberOfLeadingZeros(value)) - subBucketBits;
+		return (shift << subBucketBits) + (int) (value >>> shift);
+	}
+
+	private static long lowestEquivalentValue(int index, int subBucketBits) {
+		if (index < 2 << subBucketBits) {
+			return index;
+		}
+		int shift = (index >> subBucketBits) - 1;
+		long mantissa = index - ((long) shift << subBucketBits);
+		return mantissa << shift;
+	}
+
+	private static long highestEquivalentValue(int index, int subBucketBits) {
+		if (index < 2 << subBucketBits) {
+			return index;
+		}
+		int shift = (index >> subBucketBits) - 1;
+		return lowestEquivalentValue(index, subBucketBits) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,109 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Sample count per response code, kept in primitive arrays so counting a sample neither boxes nor allocates.
+ *
+ * <p>Codes are stored densely in first-seen order, with an open-addressing index on top. A sampler rarely sees more
+ * than a handful of distinct codes, so the table stays tiny.</p>
+ *
+ * <p>Not thread safe.</p>
+ */
+final class ResponseCodeCounts {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	// Open-addressing index: position + 1 of the code hashed to that slot, or 0 for an empty slot
+	private int[] slots = new int[INITIAL_CAPACITY * 2];
+	private int[] codes = new int[INITIAL_CAPACITY];
+	private long[] counts = new long[INITIAL_CAPACITY];
+	private int size;
+
+	void add(int code, long count) {
+		int mask = slots.length - 1;
+		for (int slot = spread(code) & mask; ; slot = (slot + 1) & mask) {
+			int entry = slots[slot];
+			if (entry == 0) {
+				append(slot, code, count);
+				return;
+			}
+			if (codes[entry - 1] == code) {
+				counts[entry - 1] += count;
+				return;
+			}
+		}
+	}
+
+	void addAll(ResponseCodeCounts other) {
+		for (int i = 0; i < other.size; i++) {
+			add(other.codes[i], other.counts[i]);
+		}
+	}
+
+	/**
+	 * Appends the number of codes, then each zigzag-encoded code and its count, all as varints.
+	 */
+	void encodeTo(ByteArrayOutputStream out) {
+		VarInts.write(out, size);
+		for (int i = 0; i < size; i++) {
+			VarInts.write(out, BinarySampleWriter.zigZag(codes[i]));
+			VarInts.write(out, counts[i]);
+		}
+	}
+
+	/**
+	 * Reads counts written by {@link #encodeTo(ByteArrayOutputStream)}, advancing {@code in} past them.
+	 */
+	static ResponseCodeCounts decodeFrom(ByteBuffer in) {
+		ResponseCodeCounts counts = new ResponseCodeCounts();
+		long size = VarInts.read(in);
+		for (long i = 0; i < size; i++) {
+			counts.add((int) BinarySampleWriter.unZigZag(VarInts.read(in)), VarInts.read(in));
+		}
+		return counts;
+	}
+
+	/**
+	 * @return the counts keyed by code, in first-seen order
+	 */
+	Map<Integer, Long> toMap() {
+		Map<Integer, Long> map = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			map.put(codes[i], counts[i]);
+		}
+		return map;
+	}
+
+	private void append(int slot, int code, long count) {
+		if (size == codes.length) {
+			codes = Arrays.copyOf(codes, size * 2);
+			counts = Arrays.copyOf(counts, size * 2);
+		}
+		codes[size] = code;
+		counts[size] = count;
+		slots[slot] = ++size;
+
+		if (size * 2 > slots.length) {
+			int[] table = new int[slots.length * 2];
+			int mask = table.length - 1;
+			for (int i = 0; i < size; i++) {
+				int s = spread(codes[i]) & mask;
+				while (table[s] != 0) {
+					s = (s + 1) & mask;
+				}
+				table[s] = i + 1;
+			}
+			slots = table;
+		}
+	}
+
+	private static int spread(int code) {
+		int h = code * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
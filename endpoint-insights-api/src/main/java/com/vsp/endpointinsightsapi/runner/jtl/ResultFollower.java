@@ -0,0 +1,48 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Follows the results of a running JMeter engine, folding them into a {@link JtlAggregator} as they arrive.
+ *
+ * <p>{@link JtlTailer} follows a result file; the API's aggregate stream follows deltas JMeter aggregated itself.
+ * Both are polled from the thread that owns the run.</p>
+ */
+public interface ResultFollower extends Closeable {
+
+	/**
+	 * Folds in any results that arrived since the last poll.
+	 *
+	 * @return whether new results were folded in
+	 */
+	boolean poll() throws IOException;
+
+	/**
+	 * Folds in whatever is left once the engine has exited cleanly.
+	 *
+	 * @return the aggregates for the whole run
+	 */
+	default JtlAggregator finish() throws IOException {
+		return finish(true);
+	}
+
+	/**
+	 * Folds in whatever is left once the engine has exited.
+	 *
+	 * @param complete whether the engine exited cleanly; if it was killed or failed, a last result it was partway
+	 *                 through writing is left out
+	 * @return the aggregates for the whole run
+	 */
+	JtlAggregator finish(boolean complete) throws IOException;
+
+	/**
+	 * @return whether any results have started arriving, i.e. the aggregates reflect the run
+	 */
+	boolean isStarted();
+
+	/**
+	 * @return the aggregates folded in so far; only to be read from the polling thread
+	 */
+	JtlAggregator getAggregator();
+}
@@ -0,0 +1,144 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Running totals for one (thread group, sampler) pair of a JMeter result file.
+ *
+ * <p>Every sample is folded in as it is read, so the memory held per pair is constant regardless of run length.</p>
+ */
+public final class SamplerAggregate {
+
+	private final String threadGroup;
+	private final String samplerName;
+
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final TrailingVolumeWindow volume = new TrailingVolumeWindow();
+	private final SamplerTimeSeries timeSeries = new SamplerTimeSeries();
+	private final ResponseCodeCounts responseCodeCounts = new ResponseCodeCounts();
+	private long errorCount;
+	private long firstTimeStamp = Long.MAX_VALUE;
+	private long lastEndTime = Long.MIN_VALUE;
+
+	public SamplerAggregate(String threadGroup, String samplerName) {
+		this.threadGroup = threadGroup;
+		this.samplerName = samplerName;
+	}
+
+	public void record(long elapsed, long timeStamp, int responseCode, boolean success) {
+		latencies.record(elapsed);
+		volume.record(timeStamp);
+		timeSeries.record(timeStamp, elapsed, success);
+		responseCodeCounts.add(responseCode, 1);
+		if (!success) {
+			errorCount++;
+		}
+		firstTimeStamp = Math.min(firstTimeStamp, timeStamp);
+		lastEndTime = Math.max(lastEndTime, timeStamp + elapsed);
+	}
+
+	public void merge(SamplerAggregate other) {
+		latencies.merge(other.latencies);
+		volume.merge(other.volume);
+		timeSeries.merge(other.timeSeries);
+		responseCodeCounts.addAll(other.responseCodeCounts);
+		errorCount += other.errorCount;
+		firstTimeStamp = Math.min(firstTimeStamp, other.firstTimeStamp);
+		lastEndTime = Math.max(lastEndTime, other.lastEndTime);
+	}
+
+	/**
+	 * Appends everything but the names: the latency histogram, trailing volume, time series and response code counts,
+	 * then the error count, first time stamp and the span to the last end time.
+	 */
+	void encodeTo(ByteArrayOutputStream out) {
+		latencies.encodeTo(out);
+		volume.encodeTo(out);
+		timeSeries.encodeTo(out);
+		responseCodeCounts.encodeTo(out);
+		VarInts.write(out, errorCount);
+		if (getSampleCount() > 0) {
+			VarInts.write(out, BinarySampleWriter.zigZag(firstTimeStamp));
+			VarInts.write(out, BinarySampleWriter.zigZag(lastEndTime - firstTimeStamp));
+		}
+	}
+
+	/**
+	 * Reads an aggregate written by {@link #encodeTo(ByteArrayOutputStream)}, advancing {@code in} past it.
+	 *
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	static SamplerAggregate decodeFrom(String threadGroup, String samplerName, ByteBuffer in) {
+		SamplerAggregate aggregate = new SamplerAggregate(threadGroup, samplerName);
+		aggregate.latencies.merge(LatencyHistogram.decodeFrom(in));
+		aggregate.volume.merge(TrailingVolumeWindow.decodeFrom(in));
+		aggregate.timeSeries.merge(SamplerTimeSeries.decodeFrom(in));
+		aggregate.responseCodeCounts.addAll(ResponseCodeCounts.decodeFrom(in));
+		aggregate.errorCount = VarInts.read(in);
+		if (aggregate.getSampleCount() > 0) {
+			aggregate.firstTimeStamp = BinarySampleWriter.unZigZag(VarInts.read(in));
+			aggregate.lastEndTime = aggregate.firstTimeStamp + BinarySampleWriter.unZigZag(VarInts.read(in));
+		}
+		return aggregate;
+	}
+
+	public String getThreadGroup() {
+		return threadGroup;
+	}
+
+	public String getSamplerName() {
+		return samplerName;
+	}
+
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	public SamplerTimeSeries getTimeSeries() {
+		return timeSeries;
+	}
+
+	public long getSampleCount() {
+		return latencies.getTotalCount();
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public double getErrorRatePercent() {
+		long total = getSampleCount();
+		return total > 0 ? (double) errorCount * 100.0 / total : 0.0;
+	}
+
+	/**
+	 * @return samples per second between the first sample starting and the last one finishing, as JMeter's aggregate
+	 * report computes it
+	 */
+	public double getThroughputPerSecond() {
+		long total = getSampleCount();
+		if (total == 0) {
+			return 0.0;
+		}
+		long spanMs = Math.max(1, lastEndTime - firstTimeStamp);
+		return total * 1000.0 / spanMs;
+	}
+
+	public long getVolumeLastMinute() {
+		return volume.countSince(60);
+	}
+
+	public long getVolumeLast5Minutes() {
+		return volume.countSince(5 * 60);
+	}
+
+	/**
+	 * @return a copy of the sample count per response code in first-seen order, with non-numeric codes reported as
+	 * {@code -1}
+	 */
+	public Map<Integer, Long> getResponseCodeCounts() {
+		return responseCodeCounts.toMap();
+	}
+}
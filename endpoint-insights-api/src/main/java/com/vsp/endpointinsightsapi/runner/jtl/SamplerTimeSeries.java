@@ -0,0 +1,222 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Request count, error count and latency distribution of one sampler over fixed-width slices of wall-clock time.
+ *
+ * <p>Samples are bucketed by start time, one second per bucket by default. To keep memory bounded on long runs the
+ * bucket width doubles whenever more than {@link #MAX_BUCKETS} buckets would be needed, so an hour-long run ends up
+ * with 8-second buckets. Bucket boundaries are always multiples of the width since the epoch, which keeps coarsening
+ * and merging exact: two series of the same run merge into the series a single pass would have produced.</p>
+ *
+ * <p>Each bucket holds a low-precision {@link LatencyHistogram} (within about 12%), which is plenty for spotting
+ * warm-up, saturation or stalls on a chart. The histograms are sparse: a second's samples usually fall into a few dozen
+ * of their 160 buckets, so a bucket takes a few hundred bytes rather than the 1.25 KB a dense one would, and a full
+ * series of a sampler stays in the low hundreds of kilobytes at most.</p>
+ */
+public final class SamplerTimeSeries {
+
+	public static final long DEFAULT_BUCKET_WIDTH_MS = 1000;
+	public static final int MAX_BUCKETS = 600;
+
+	static final int LATENCY_SUB_BUCKET_BITS = 3;
+
+	private static final int ENCODING_VERSION = 1;
+
+	private long bucketWidthMs;
+	// Keyed by bucket number, i.e. start time / width
+	private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+	// Samples mostly arrive in time order, so the last bucket touched is usually the next one needed
+	private long lastKey = Long.MIN_VALUE;
+	private Bucket lastBucket;
+
+	public SamplerTimeSeries() {
+		this(DEFAULT_BUCKET_WIDTH_MS);
+	}
+
+	public SamplerTimeSeries(long bucketWidthMs) {
+		if (bucketWidthMs <= 0) {
+			throw new IllegalArgumentException("Bucket width must be positive: " + bucketWidthMs);
+		}
+		this.bucketWidthMs = bucketWidthMs;
+	}
+
+	public void record(long timeStamp, long elapsed, boolean success) {
+		long key = Math.max(0, timeStamp) / bucketWidthMs;
+		Bucket bucket;
+		if (key == lastKey) {
+			bucket = lastBucket;
+		} else {
+			bucket = buckets.computeIfAbsent(key, k -> new Bucket());
+			lastKey = key;
+			lastBucket = bucket;
+		}
+		bucket.count++;
+		if (!success) {
+			bucket.errorCount++;
+		}
+		bucket.latencies.record(elapsed);
+
+		if (buckets.size() > MAX_BUCKETS) {
+			coarsenTo(bucketWidthMs * 2);
+		}
+	}
+
+	/**
+	 * Adds every bucket of {@code other} into this series, first widening whichever has the narrower buckets.
+	 *
+	 * @throws IllegalArgumentException if neither bucket width is a multiple of the other
+	 */
+	public void merge(SamplerTimeSeries other) {
+		long width = Math.max(bucketWidthMs, other.bucketWidthMs);
+		if (width % bucketWidthMs != 0 || width % other.bucketWidthMs != 0) {
+			throw new IllegalArgumentException("Cannot merge series with bucket widths " + bucketWidthMs + " and " + other.bucketWidthMs);
+		}
+		coarsenTo(width);
+		for (Map.Entry<Long, Bucket> entry : other.buckets.entrySet()) {
+			long key = Math.floorDiv(entry.getKey() * other.bucketWidthMs, bucketWidthMs);
+			buckets.computeIfAbsent(key, k -> new Bucket()).add(entry.getValue());
+		}
+		lastKey = Long.MIN_VALUE;
+		lastBucket = null;
+		while (buckets.size() > MAX_BUCKETS) {
+			coarsenTo(bucketWidthMs * 2);
+		}
+	}
+
+	/**
+	 * Widens the buckets to {@code widthMs}, or to the nearest multiple of the current width above it.
+	 * Narrower widths are ignored.
+	 */
+	public void coarsenTo(long widthMs) {
+		if (widthMs <= bucketWidthMs) {
+			return;
+		}
+		long width = Math.ceilDiv(widthMs, bucketWidthMs) * bucketWidthMs;
+
+		TreeMap<Long, Bucket> coarse = new TreeMap<>();
+		for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+			long key = Math.floorDiv(entry.getKey() * bucketWidthMs, width);
+			Bucket existing = coarse.putIfAbsent(key, entry.getValue());
+			if (existing != null) {
+				existing.add(entry.getValue());
+			}
+		}
+		buckets.clear();
+		buckets.putAll(coarse);
+		bucketWidthMs = width;
+		lastKey = Long.MIN_VALUE;
+		lastBucket = null;
+	}
+
+	public long getBucketWidthMs() {
+		return bucketWidthMs;
+	}
+
+	/**
+	 * @return the non-empty buckets in time order
+	 */
+	public List<Point> getPoints() {
+		List<Point> points = new ArrayList<>(buckets.size());
+		for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+			Bucket bucket = entry.getValue();
+			points.add(new Point(entry.getKey() * bucketWidthMs, bucket.count, bucket.errorCount, bucket.latencies));
+		}
+		return Collections.unmodifiableList(points);
+	}
+
+	public byte[] encode() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(64 + buckets.size() * 16);
+		encodeTo(out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Appends this series in the form {@link #encode()} returns it.
+	 */
+	public void encodeTo(ByteArrayOutputStream out) {
+		VarInts.write(out, ENCODING_VERSION);
+		VarInts.write(out, bucketWidthMs);
+		VarInts.write(out, buckets.size());
+		long previousKey = 0;
+		for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+			// The first key is absolute, later ones are the gap since the previous bucket
+			VarInts.write(out, entry.getKey() - previousKey);
+			previousKey = entry.getKey();
+			Bucket bucket = entry.getValue();
+			VarInts.write(out, bucket.count);
+			VarInts.write(out, bucket.errorCount);
+			bucket.latencies.encodeTo(out);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the bytes are not a series written by {@link #encode()}
+	 */
+	public static SamplerTimeSeries decode(byte[] bytes) {
+		return decodeFrom(ByteBuffer.wrap(bytes));
+	}
+
+	/**
+	 * Reads a series written by {@link #encodeTo(ByteArrayOutputStream)}, advancing {@code in} past it.
+	 *
+	 * @throws IllegalArgumentException if the bytes are not a valid encoding
+	 */
+	public static SamplerTimeSeries decodeFrom(ByteBuffer in) {
+		try {
+			long version = VarInts.read(in);
+			if (version != ENCODING_VERSION) {
+				throw new IllegalArgumentException("Unsupported time series encoding version: " + version);
+			}
+			SamplerTimeSeries series = new SamplerTimeSeries(VarInts.read(in));
+			long size = VarInts.read(in);
+			long key = 0;
+			for (long i = 0; i < size; i++) {
+				key += VarInts.read(in);
+				Bucket bucket = new Bucket(VarInts.read(in), VarInts.read(in), LatencyHistogram.decodeSparseFrom(in));
+				series.buckets.put(key, bucket);
+			}
+			return series;
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Malformed time series", e);
+		}
+	}
+
+	/**
+	 * One bucket of the series.
+	 *
+	 * @param startTime start of the bucket in epoch milliseconds
+	 */
+	public record Point(long startTime, long count, long errorCount, LatencyHistogram latencies) {}
+
+	private static final class Bucket {
+		private long count;
+		private long errorCount;
+		private final LatencyHistogram latencies;
+
+		private Bucket() {
+			this(0, 0, LatencyHistogram.sparse(LATENCY_SUB_BUCKET_BITS));
+		}
+
+		private Bucket(long count, long errorCount, LatencyHistogram latencies) {
+			this.count = count;
+			this.errorCount = errorCount;
+			this.latencies = latencies;
+		}
+
+		private void add(Bucket other) {
+			count += other.count;
+			errorCount += other.errorCount;
+			latencies.merge(other.latencies);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Per-second sample counts for the five minutes leading up to the newest timestamp seen so far.
+ *
+ * <p>Used to answer "how many samples started in the last minute / five minutes of the run" without keeping every
+ * timestamp around. The window is anchored on the latest second observed and slides forward as newer samples arrive;
+ * samples older than the window are dropped. Volumes are therefore counted at one-second resolution.</p>
+ */
+final class TrailingVolumeWindow {
+
+	static final int WINDOW_SECONDS = 5 * 60;
+
+	// One extra slot so that "the last N seconds" includes both the head second and the second N seconds before it
+	private final long[] counts = new long[WINDOW_SECONDS + 1];
+	private long headSecond = Long.MIN_VALUE;
+
+	void record(long timeStampMs) {
+		add(Math.floorDiv(timeStampMs, 1000L), 1);
+	}
+
+	/**
+	 * @param seconds how far back from the newest second to count, at most {@link #WINDOW_SECONDS}
+	 * @return number of samples whose start second is within {@code seconds} of the newest one
+	 */
+	long countSince(int seconds) {
+		if (headSecond == Long.MIN_VALUE) {
+			return 0;
+		}
+		int span = Math.min(seconds, WINDOW_SECONDS);
+		long total = 0;
+		for (long s = headSecond - span; s <= headSecond; s++) {
+			total += counts[slot(s)];
+		}
+		return total;
+	}
+
+	void merge(TrailingVolumeWindow other) {
+		if (other.headSecond == Long.MIN_VALUE) {
+			return;
+		}
+		for (long s = other.headSecond - WINDOW_SECONDS; s <= other.headSecond; s++) {
+			long count = other.counts[slot(s)];
+			if (count > 0) {
+				add(s, count);
+			}
+		}
+	}
+
+	/**
+	 * Appends the window as the zigzag-encoded head second, then the non-empty seconds before it as (gap, count)
+	 * pairs, all as varints. An empty window is just a zero.
+	 */
+	void encodeTo(ByteArrayOutputStream out) {
+		if (headSecond == Long.MIN_VALUE) {
+			VarInts.write(out, 0);
+			return;
+		}
+		int nonEmpty = 0;
+		for (long count : counts) {
+			if (count != 0) {
+				nonEmpty++;
+			}
+		}
+		VarInts.write(out, nonEmpty);
+		VarInts.write(out, BinarySampleWriter.zigZag(headSecond));
+		long previous = headSecond + 1;
+		for (long s = headSecond; s >= headSecond - WINDOW_SECONDS; s--) {
+			long count = counts[slot(s)];
+			if (count != 0) {
+				VarInts.write(out, previous - s - 1);
+				VarInts.write(out, count);
+				previous = s;
+			}
+		}
+	}
+
+	/**
+	 * Reads a window written by {@link #encodeTo(ByteArrayOutputStream)}, advancing {@code in} past it.
+	 */
+	static TrailingVolumeWindow decodeFrom(ByteBuffer in) {
+		TrailingVolumeWindow window = new TrailingVolumeWindow();
+		long nonEmpty = VarInts.read(in);
+		if (nonEmpty == 0) {
+			return window;
+		}
+		long second = BinarySampleWriter.unZigZag(VarInts.read(in)) + 1;
+		for (long i = 0; i < nonEmpty; i++) {
+			second -= VarInts.read(in) + 1;
+			window.add(second, VarInts.read(in));
+		}
+		return window;
+	}
+
+	private void add(long second, long count) {
+		if (headSecond == Long.MIN_VALUE) {
+			headSecond = second;
+		} else if (second > headSecond) {
+			advanceTo(second);
+		} else if (second < headSecond - WINDOW_SECONDS) {
+			return;
+		}
+		counts[slot(second)] += count;
+	}
+
+	private void advanceTo(long second) {
+		long steps = Math.min(second - headSecond, counts.length);
+		for (long s = 1; s <= steps; s++) {
+			counts[slot(headSecond + s)] = 0;
+		}
+		headSecond = second;
+	}
+
+	private int slot(long second) {
+		return (int) Math.floorMod(second, (long) counts.length);
+	}
+}
@@ -0,0 +1,37 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unsigned LEB128 varints: seven bits per byte, low bits first, high bit set on every byte but the last. Small
+ * numbers, which is what bucket gaps and most counts are, take a single byte.
+ */
+final class VarInts {
+
+	private VarInts() {
+	}
+
+	static void write(ByteArrayOutputStream out, long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value can't be written as an unsigned varint: " + value);
+		}
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	static long read(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Varint is longer than 10 bytes");
+	}
+}
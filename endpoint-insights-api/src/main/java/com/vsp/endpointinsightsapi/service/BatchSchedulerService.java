@@ -2,54 +2,107 @@ package com.vsp.endpointinsightsapi.service;
 
 import com.vsp.endpointinsightsapi.event.RunBatchEvent;
 import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.repository.ScheduleRunRepository;
 import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.TriggerContext;
 import org.springframework.scheduling.support.CronExpression;
 import org.springframework.scheduling.support.CronTrigger;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.concurrent.ScheduledFuture;
-
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fires batches on their cron schedules.
+ *
+ * <p>Every instance of the API schedules every batch, and each fire time is claimed in the database before the batch
+ * is started, so only one instance runs it. Instances wait a random {@code batches.schedule-claim-jitter-ms} before
+ * claiming, which spreads the batches across them instead of the quickest instance taking every one.</p>
+ *
+ * <p>Schedules are read again from the database every {@code batches.schedule-reconcile-seconds}, so a batch created,
+ * changed or deleted through another instance is picked up here without waiting for one of its fire times.</p>
+ */
 @Service
 public class BatchSchedulerService {
 
 	private final Logger LOG = LoggerFactory.getLogger(BatchSchedulerService.class);
 
-	private final Map<UUID, ScheduledFuture<?>> scheduledBatches = Collections.synchronizedMap(new HashMap<>());
+	// The cron expression each batch was last scheduled with, guarded by this
+	private final Map<UUID, ScheduledBatch> scheduledBatches = new HashMap<>();
 	private final TestBatchRepository testBatchRepository;
 	private final TaskScheduler taskScheduler;
 	private final ApplicationEventPublisher applicationEventPublisher;
+	private final ScheduleRunRepository scheduleRunRepository;
+	private final long claimJitterMillis;
+	private final Duration reconcileInterval;
+	private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
 
 	public BatchSchedulerService(TestBatchRepository testBatchRepository,
 								 TaskScheduler taskScheduler,
-								 ApplicationEventPublisher applicationEventPublisher) {
+								 ApplicationEventPublisher applicationEventPublisher,
+								 ScheduleRunRepository scheduleRunRepository,
+								 @Value("${batches.schedule-claim-jitter-ms:500}") long claimJitterMillis,
+								 @Value("${batches.schedule-reconcile-seconds:60}") long reconcileSeconds) {
 		this.testBatchRepository = testBatchRepository;
 		this.taskScheduler = taskScheduler;
 		this.applicationEventPublisher = applicationEventPublisher;
+		this.scheduleRunRepository = scheduleRunRepository;
+		this.claimJitterMillis = claimJitterMillis;
+		this.reconcileInterval = Duration.ofSeconds(reconcileSeconds);
 	}
 
 	@PostConstruct
 	public void scheduleBatches() {
-		List<TestBatch> batches = testBatchRepository.findAll();
-		for (TestBatch batch : batches) {
-			scheduleBatch(batch);
-		}
+		reconcileSchedules();
+		taskScheduler.scheduleWithFixedDelay(this::reconcileSchedules, Instant.now().plus(reconcileInterval), reconcileInterval);
 	}
 
-	public void scheduleBatch(TestBatch batch) {
-		ScheduledFuture<?> prevFuture = scheduledBatches.get(batch.getBatchId());
-		if (prevFuture != null) {
-			if (!prevFuture.cancel(false)) {
-				LOG.warn("Failed to cancel previous scheduled batch {}", batch.getBatchId());
+	/**
+	 * Schedules the batches whose cron expression in the database differs from the one they were scheduled with here,
+	 * and unschedules those that have been deleted.
+	 */
+	public synchronized void reconcileSchedules() {
+		List<TestBatch> batches;
+		try {
+			batches = testBatchRepository.findAll();
+		} catch (DataAccessException e) {
+			LOG.error("Could not read batch schedules, keeping the current ones: {}", e.getMessage());
+			return;
+		}
+
+		Set<UUID> deleted = new HashSet<>(scheduledBatches.keySet());
+		for (TestBatch batch : batches) {
+			deleted.remove(batch.getBatchId());
+			ScheduledBatch scheduled = scheduledBatches.get(batch.getBatchId());
+			String cronExpression = ObjectUtils.isEmpty(batch.getCronExpression()) ? null : batch.getCronExpression();
+			if (scheduled == null ? cronExpression != null : !Objects.equals(scheduled.cronExpression(), cronExpression)) {
+				scheduleBatch(batch);
 			}
 		}
+		for (UUID batchId : deleted) {
+			LOG.info("Unscheduling batch {} as it has been deleted", batchId);
+			cancel(scheduledBatches.remove(batchId), batchId);
+		}
+	}
+
+	public synchronized void scheduleBatch(TestBatch batch) {
+		cancel(scheduledBatches.remove(batch.getBatchId()), batch.getBatchId());
 
 		if (ObjectUtils.isEmpty(batch.getCronExpression())) {
 			LOG.info("Skipping batch {} as it has no schedule", batch.getBatchId());
@@ -57,16 +110,25 @@ public class BatchSchedulerService {
 		}
 		try {
 			LocalDateTime next = getNextRunTime(batch);
-			ScheduledFuture<?> scheduled = taskScheduler.schedule(() -> startBatch(batch.getBatchId()),
-					new CronTrigger(batch.getCronExpression()));
-			scheduledBatches.put(batch.getBatchId(), scheduled);
+			FireTimeTrigger trigger = new FireTimeTrigger(new CronTrigger(batch.getCronExpression()));
+			ScheduledFuture<?> scheduled = taskScheduler.schedule(() -> startBatch(batch.getBatchId(), trigger.getFireTime()),
+					trigger);
+			scheduledBatches.put(batch.getBatchId(), new ScheduledBatch(batch.getCronExpression(), scheduled));
 			LOG.info("Scheduled batch {} for {} (cron='{}')", batch.getBatchId(), next, batch.getCronExpression());
 		} catch (IllegalArgumentException e) {
 			LOG.error("Invalid cron expression for batch {}: {}", batch.getBatchId(), batch.getCronExpression());
+			// Remembered so it isn't reported again on every reconcile, only once it has been changed
+			scheduledBatches.put(batch.getBatchId(), new ScheduledBatch(batch.getCronExpression(), null));
 		}
 	}
 
-	private void startBatch(UUID batchId) {
+	private void cancel(ScheduledBatch scheduled, UUID batchId) {
+		if (scheduled != null && scheduled.future() != null && !scheduled.future().cancel(false)) {
+			LOG.warn("Failed to cancel previous scheduled batch {}", batchId);
+		}
+	}
+
+	private void startBatch(UUID batchId, Instant fireTime) {
 		TestBatch batch = testBatchRepository.findById(batchId).orElse(null);
 
 		if (batch == null) {
@@ -74,6 +136,28 @@ public class BatchSchedulerService {
 			return;
 		}
 
+		// The schedule may have been changed through another instance since this one scheduled it
+		if (!firesAt(batch, fireTime)) {
+			LOG.info("Batch {} is no longer scheduled for {}, rescheduling it", batchId, fireTime);
+			scheduleBatch(batch);
+			return;
+		}
+
+		if (claimJitterMillis > 0) {
+			// Claimed later on the scheduler instead of holding one of its threads while waiting
+			Instant claimAt = Instant.now().plusMillis(ThreadLocalRandom.current().nextLong(claimJitterMillis + 1));
+			taskScheduler.schedule(() -> claimAndStart(batch, fireTime), claimAt);
+		} else {
+			claimAndStart(batch, fireTime);
+		}
+	}
+
+	private void claimAndStart(TestBatch batch, Instant fireTime) {
+		UUID batchId = batch.getBatchId();
+		if (!claim(batchId, fireTime)) {
+			return;
+		}
+
 		LOG.info("Starting batch {}", batch.getBatchId());
 
 		if (batch.getActive() != null && batch.getActive()) {
@@ -85,9 +169,63 @@ public class BatchSchedulerService {
 		LOG.info("Next run for batch {} will be at {}", batch.getBatchId(), getNextRunTime(batch));
 	}
 
+	/**
+	 * @return whether this instance is the one to start the batch at {@code fireTime}
+	 */
+	private boolean claim(UUID batchId, Instant fireTime) {
+		try {
+			if (!scheduleRunRepository.claim(batchId.toString(), fireTime, instanceId)) {
+				LOG.debug("Batch {} run at {} was claimed by another instance", batchId, fireTime);
+				return false;
+			}
+			return true;
+		} catch (DataAccessException e) {
+			// Skipping a run is safer than risking every instance starting it
+			LOG.error("Could not claim batch {} run at {}, skipping it: {}", batchId, fireTime, e.getMessage());
+			return false;
+		}
+	}
+
+	private static boolean firesAt(TestBatch batch, Instant fireTime) {
+		if (ObjectUtils.isEmpty(batch.getCronExpression()) || !CronExpression.isValidExpression(batch.getCronExpression())) {
+			return false;
+		}
+		// Same zone CronTrigger schedules in
+		ZonedDateTime next = CronExpression.parse(batch.getCronExpression()).next(fireTime.minusSeconds(1).atZone(ZoneId.systemDefault()));
+		return next != null && next.toInstant().equals(fireTime);
+	}
+
 	private LocalDateTime getNextRunTime(TestBatch batch) throws IllegalArgumentException {
 		CronExpression cronExpression = CronExpression.parse(batch.getCronExpression());
 		return cronExpression.next(LocalDateTime.now());
 	}
 
+	/**
+	 * @param future null if the cron expression is invalid and nothing was scheduled
+	 */
+	private record ScheduledBatch(String cronExpression, ScheduledFuture<?> future) {
+	}
+
+	/**
+	 * Cron trigger that remembers the time it last scheduled, so the task knows which fire time it's running for
+	 * rather than when it happened to start.
+	 */
+	private static final class FireTimeTrigger implements Trigger {
+		private final CronTrigger cronTrigger;
+		private volatile Instant fireTime;
+
+		private FireTimeTrigger(CronTrigger cronTrigger) {
+			this.cronTrigger = cronTrigger;
+		}
+
+		@Override
+		public Instant nextExecution(TriggerContext triggerContext) {
+			fireTime = cronTrigger.nextExecution(triggerContext);
+			return fireTime;
+		}
+
+		private Instant getFireTime() {
+			return fireTime;
+		}
+	}
 }
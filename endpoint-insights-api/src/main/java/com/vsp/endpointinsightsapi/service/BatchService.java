@@ -3,6 +3,7 @@ package com.vsp.endpointinsightsapi.service;
 import com.vsp.endpointinsightsapi.dto.BatchRequestDTO;
 import com.vsp.endpointinsightsapi.dto.BatchResponseDTO;
 import com.vsp.endpointinsightsapi.event.RunBatchEvent;
+import com.vsp.endpointinsightsapi.event.RunQueuedEvent;
 import com.vsp.endpointinsightsapi.exception.BatchNotFoundException;
 import com.vsp.endpointinsightsapi.exception.CustomExceptionBuilder;
 import com.vsp.endpointinsightsapi.factory.BatchRunnerThreadFactory;
@@ -11,24 +12,27 @@ import com.vsp.endpointinsightsapi.mapper.BatchMapper;
 import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.TestBatch;
 import com.vsp.endpointinsightsapi.model.entity.*;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.*;
 import com.vsp.endpointinsightsapi.runner.BatchRunnerThread;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
 import jakarta.transaction.Transactional;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpStatus;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
 import org.springframework.util.ObjectUtils;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -45,8 +49,10 @@ public class BatchService {
     private final TestRunRepository testRunRepository;
     private final BatchRunPersistenceService batchRunPersistenceService;
     private final NotificationService notificationService;
-    private final ThreadPoolTaskScheduler vspTaskScheduler;
+    private final RunExecutor runExecutor;
     private final BatchSchedulerService batchSchedulerService;
+    private final RunQueueRepository runQueueRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Setter
     private int staleBatchThresholdSeconds = 60;
@@ -61,8 +67,10 @@ public class BatchService {
                         TestRunRepository testRunRepository,
                         BatchRunPersistenceService batchRunPersistenceService,
                         NotificationService notificationService,
-                        ThreadPoolTaskScheduler vspTaskScheduler,
-                        BatchSchedulerService batchSchedulerService) {
+                        RunExecutor runExecutor,
+                        BatchSchedulerService batchSchedulerService,
+                        RunQueueRepository runQueueRepository,
+                        ApplicationEventPublisher applicationEventPublisher) {
 		this.testBatchRepository = testBatchRepository;
 		this.batchMapper = batchMapper;
 		this.jobRepository = jobRepository;
@@ -72,8 +80,10 @@ public class BatchService {
 		this.testRunRepository = testRunRepository;
 		this.batchRunPersistenceService = batchRunPersistenceService;
 		this.notificationService = notificationService;
-		this.vspTaskScheduler = vspTaskScheduler;
+		this.runExecutor = runExecutor;
 		this.batchSchedulerService = batchSchedulerService;
+		this.runQueueRepository = runQueueRepository;
+		this.applicationEventPublisher = applicationEventPublisher;
     }
 
 
@@ -112,6 +122,7 @@ public class BatchService {
         batch.setScheduleId(request.getScheduleId());
         batch.setStartTime(request.getStartTime());
         batch.setActive(request.getActive());
+        batch.setParallelism(validParallelism(request.getParallelism()));
 
         if (request.getJobs() != null && !request.getJobs().isEmpty()) {
             List<Job> jobs = jobRepository.findAllById(request.getJobs());
@@ -153,6 +164,10 @@ public class BatchService {
             batch.setBatchName(request.getBatchName());
         }
 
+        if (request.getParallelism() != null) {
+            batch.setParallelism(validParallelism(request.getParallelism()));
+        }
+
         if (request.getJobs() != null) {
 
             List<Job> jobs = jobRepository.findAllById(request.getJobs());
@@ -224,6 +239,13 @@ public class BatchService {
         updateEmailsForBatch(batchId, emails, null);
     }
 
+    private static Integer validParallelism(Integer parallelism) {
+        if (parallelism != null && parallelism < 1) {
+            throw new CustomExceptionBuilder(HttpStatus.BAD_REQUEST, "parallelism must be at least 1").build();
+        }
+        return parallelism;
+    }
+
 
     /**
      * This is called when a TestBatch is already in an active state.
@@ -240,7 +262,7 @@ public class BatchService {
         }
 
         var inProgressRuns = batches.stream()
-                .filter(run -> ObjectUtils.isEmpty(run.getFinishedAt()) || !List.of(TestRunStatus.COMPLETED, TestRunStatus.FAILED).contains(run.getStatus())).toList();
+                .filter(run -> ObjectUtils.isEmpty(run.getFinishedAt()) || !List.of(TestRunStatus.COMPLETED, TestRunStatus.FAILED, TestRunStatus.CANCELLED).contains(run.getStatus())).toList();
 
         // All Test Runs must be in a valid state, so definitely stale
         if (inProgressRuns.isEmpty()) {
@@ -273,6 +295,10 @@ public class BatchService {
     }
 
     public TestRun runBatch(TestBatch batch) {
+        return runBatch(batch, RunPriority.MANUAL);
+    }
+
+    public TestRun runBatch(TestBatch batch, RunPriority priority) {
         if (batch.getActive() != null && batch.getActive()) {
             if (isBatchStale(batch)) {
                 LOG.info("Batch {} is stale, proceeding anyways", batch.getBatchId());
@@ -282,8 +308,23 @@ public class BatchService {
         }
 
         TestRun testRun = testRunFactory.createForBatch(batch);
+        // The active flag is only set once the run starts, so a run still waiting in the queue is caught here
+        if (!runQueueRepository.enqueueBatch(testRun.getRunId(), batch.getBatchId(), priority)) {
+            testRunRepository.deleteById(testRun.getRunId());
+            throw new CustomExceptionBuilder(HttpStatus.CONFLICT, "Batch is already queued or running").build();
+        }
+        applicationEventPublisher.publishEvent(new RunQueuedEvent(this));
 
-		BatchRunnerThread batchRunnerThread = batchRunnerThreadFactory.create(batch, testRun, (status) -> {
+        return testRun;
+    }
+
+    /**
+     * Starts a batch run claimed from the run queue.
+     *
+     * @return completed once every job of the batch has finished and the outcome has been saved
+     */
+    public CompletableFuture<?> startRun(TestBatch batch, TestRun testRun, RunPriority priority) {
+		BatchRunnerThread batchRunnerThread = batchRunnerThreadFactory.create(batch, testRun, priority, (status) -> {
             TestBatch returnedBatch = status.batch();
             TestRun run = status.run();
             TestRunStatus s = status.status();
@@ -307,15 +348,23 @@ public class BatchService {
             // Notify now that batch is completed
             notificationService.sendTestCompletionNotifications(returnedBatch.getBatchName(), run.getBatchId(), run, loaded);
         });
-        vspTaskScheduler.execute(batchRunnerThread);
-
-        return testRun;
+        CompletableFuture<?> completion = batchRunnerThread.getCompletion();
+        runExecutor.execute(() -> {
+            try {
+                batchRunnerThread.run();
+            } catch (RuntimeException e) {
+                // Otherwise nothing would ever complete it, and the run would hold its place in the queue for good
+                completion.completeExceptionally(e);
+                throw e;
+            }
+        });
+        return completion;
     }
 
     @EventListener
     public void handleRunBatchEvent(RunBatchEvent event) {
         LOG.info("Received RunBatchEvent for batch from scheduler {}", event.getBatch().getBatchId());
-        runBatch(event.getBatch());
+        runBatch(event.getBatch(), RunPriority.SCHEDULED);
     }
 
 }
@@ -1,18 +1,22 @@
 package com.vsp.endpointinsightsapi.service;
 
+import com.vsp.endpointinsightsapi.event.RunQueuedEvent;
 import com.vsp.endpointinsightsapi.exception.JobNotFoundException;
 import com.vsp.endpointinsightsapi.factory.JobRunnerThreadFactory;
 import com.vsp.endpointinsightsapi.factory.TestRunFactory;
 import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.JobCreateRequest;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.JobRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
 import com.vsp.endpointinsightsapi.runner.JobRunnerThread;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +25,7 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class JobService {
@@ -31,7 +36,9 @@ public class JobService {
     private final TestRunRepository testRunRepository;
     private final JobRunnerThreadFactory jobRunnerThreadFactory;
     private final TestRunFactory testRunFactory;
-    private final ThreadPoolTaskScheduler vspTaskScheduler;
+    private final RunExecutor runExecutor;
+    private final RunQueueRepository runQueueRepository;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
 
     public JobService(JobRepository jobRepository,
@@ -39,13 +46,17 @@ public class JobService {
                       TestRunRepository testRunRepository,
                       JobRunnerThreadFactory jobRunnerThreadFactory,
                       TestRunFactory testRunFactory,
-                      ThreadPoolTaskScheduler vspTaskScheduler) {
+                      RunExecutor runExecutor,
+                      RunQueueRepository runQueueRepository,
+                      ApplicationEventPublisher applicationEventPublisher) {
         this.jobRepository = jobRepository;
         this.gitRepositoryService = gitRepositoryService;
 		this.testRunRepository = testRunRepository;
         this.jobRunnerThreadFactory = jobRunnerThreadFactory;
         this.testRunFactory = testRunFactory;
-        this.vspTaskScheduler = vspTaskScheduler;
+        this.runExecutor = runExecutor;
+        this.runQueueRepository = runQueueRepository;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
     public Job createJob(JobCreateRequest jobRequest) {
@@ -113,17 +124,27 @@ public class JobService {
     }
 
     /**
-     * Initiates the execution of the specified job by creating a new test run, persisting its initial metadata,
-     * and starting a background process to execute the job. The method also ensures that the test run status and
-     * completion time are updated appropriately once the job completes through a callback.
+     * Requests a run of the specified job by creating a new pending test run and adding it to the run queue, from
+     * which an instance with room for it starts it.
      *
      * @param job the job to be executed
-     * @return the TestRun entity representing the initiated run
+     * @return the TestRun entity representing the requested run
      */
     public TestRun runJob(Job job) {
         TestRun testRun = testRunFactory.createForJob(job);
+        runQueueRepository.enqueue(testRun.getRunId(), job.getJobId(), null, RunPriority.MANUAL);
+        applicationEventPublisher.publishEvent(new RunQueuedEvent(this));
 
-        // ignoring returned thread
+        return testRun;
+    }
+
+    /**
+     * Starts a background process to execute a run claimed from the run queue. The test run status and completion
+     * time are updated once the job completes through a callback.
+     *
+     * @return completed once the run has finished and its outcome has been saved
+     */
+    public CompletableFuture<Void> startRun(Job job, TestRun testRun) {
 		JobRunnerThread jobRunnerThread = jobRunnerThreadFactory.create(job, testRun, false, (status) -> {
             // Only setting final status here because in a batch I'll need to wait for all jobs to finish
             TestRun run = status.run();
@@ -133,9 +154,7 @@ public class JobService {
             run.setFinishedAt(Instant.now());
             testRunRepository.save(run);
         });
-        vspTaskScheduler.execute(jobRunnerThread);
-
-        return testRun;
+        return runExecutor.runJob(jobRunnerThread);
     }
 
     @Transactional
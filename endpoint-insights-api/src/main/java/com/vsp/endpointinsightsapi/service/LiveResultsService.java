@@ -0,0 +1,73 @@
+package com.vsp.endpointinsightsapi.service;
+
+import com.vsp.endpointinsightsapi.dto.LiveRunSnapshotDTO;
+import com.vsp.endpointinsightsapi.exception.CustomExceptionBuilder;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.LatencyHistogram;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerAggregate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the latest interim snapshot of every test run that is currently executing.
+ *
+ * <p>Runner threads publish a fresh, immutable snapshot each time they catch up with their result file, so readers
+ * never see the aggregates while they're being updated. A run's snapshot is dropped once its final results have been
+ * stored.</p>
+ */
+@Service
+public class LiveResultsService {
+
+	private final Map<UUID, LiveRunSnapshotDTO> snapshots = new ConcurrentHashMap<>();
+	private final Duration publishInterval;
+
+	public LiveResultsService(@Value("${test-runs.live-snapshot-interval-seconds:5}") int publishIntervalSeconds) {
+		this.publishInterval = Duration.ofSeconds(Math.max(1, publishIntervalSeconds));
+	}
+
+	/**
+	 * @return how often a running test should poll its result file and publish a snapshot
+	 */
+	public Duration getPublishInterval() {
+		return publishInterval;
+	}
+
+	public void publish(UUID runId, JtlAggregator aggregator) {
+		List<LiveRunSnapshotDTO.Sampler> samplers = new ArrayList<>();
+		for (SamplerAggregate aggregate : aggregator.getAggregates()) {
+			LatencyHistogram latencies = aggregate.getLatencies();
+			samplers.add(new LiveRunSnapshotDTO.Sampler(
+					aggregate.getThreadGroup(),
+					aggregate.getSamplerName(),
+					aggregate.getSampleCount(),
+					aggregate.getErrorCount(),
+					aggregate.getErrorRatePercent(),
+					latencies.percentile(50),
+					latencies.percentile(95),
+					latencies.percentile(99),
+					aggregate.getThroughputPerSecond()));
+		}
+		snapshots.put(runId, new LiveRunSnapshotDTO(runId, Instant.now(), List.copyOf(samplers)));
+	}
+
+	public LiveRunSnapshotDTO getSnapshot(UUID runId) {
+		LiveRunSnapshotDTO snapshot = snapshots.get(runId);
+		if (snapshot == null) {
+			throw new CustomExceptionBuilder(HttpStatus.NOT_FOUND, "No live results for test run with id=" + runId).build();
+		}
+		return snapshot;
+	}
+
+	public void remove(UUID runId) {
+		snapshots.remove(runId);
+	}
+}
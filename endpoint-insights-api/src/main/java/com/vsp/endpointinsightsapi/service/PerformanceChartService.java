@@ -4,7 +4,10 @@ import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartPointDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartResponseDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartSeriesDTO;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResultSeries;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.repository.PerfTestResultSeriesRepository;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerTimeSeries;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
@@ -17,9 +20,11 @@ import java.util.UUID;
 public class PerformanceChartService {
 
     private final TestRunService testRunService;
+    private final PerfTestResultSeriesRepository perfTestResultSeriesRepository;
 
-    public PerformanceChartService(TestRunService testRunService) {
+    public PerformanceChartService(TestRunService testRunService, PerfTestResultSeriesRepository perfTestResultSeriesRepository) {
         this.testRunService = testRunService;
+        this.perfTestResultSeriesRepository = perfTestResultSeriesRepository;
     }
 
     public ChartResponseDTO getApiPerformanceChart(UUID jobId, UUID batchId, int limit) {
@@ -55,4 +60,44 @@ public class PerformanceChartService {
                 List.of(new ChartSeriesDTO("Run Duration (ms)", durationPoints))
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Charts how each sampler behaved over the course of a single run: requests, errors and p95 latency per time
+     * bucket, labelled with the bucket's offset in seconds from the start of the run.
+     */
+    public ChartResponseDTO getRunTimelineChart(UUID runId) {
+        TestRun run = testRunService.getTestRunById(runId);
+
+        List<PerfTestResultSeries> stored = perfTestResultSeriesRepository.findAllByRunId(runId);
+        List<SamplerTimeSeries> decoded = stored.stream()
+                .map(s -> SamplerTimeSeries.decode(s.getSeries()))
+                .toList();
+
+        long runStart = decoded.stream()
+                .flatMap(s -> s.getPoints().stream())
+                .mapToLong(SamplerTimeSeries.Point::startTime)
+                .min()
+                .orElse(0);
+
+        List<ChartSeriesDTO> series = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            String name = stored.get(i).getThreadGroup() + " / " + stored.get(i).getSamplerName();
+            List<ChartPointDTO> requests = new ArrayList<>();
+            List<ChartPointDTO> errors = new ArrayList<>();
+            List<ChartPointDTO> p95 = new ArrayList<>();
+
+            for (SamplerTimeSeries.Point point : decoded.get(i).getPoints()) {
+                String label = String.valueOf(Duration.ofMillis(point.startTime() - runStart).toSeconds());
+                requests.add(new ChartPointDTO(label, point.count(), null));
+                errors.add(new ChartPointDTO(label, point.errorCount(), null));
+                p95.add(new ChartPointDTO(label, point.latencies().percentile(95), null));
+            }
+
+            series.add(new ChartSeriesDTO(name + " requests", requests));
+            series.add(new ChartSeriesDTO(name + " errors", errors));
+            series.add(new ChartSeriesDTO(name + " p95 (ms)", p95));
+        }
+
+        return new ChartResponseDTO("Run " + run.getRunId() + " Timeline", "secondsSinceStart", series);
+    }
+}
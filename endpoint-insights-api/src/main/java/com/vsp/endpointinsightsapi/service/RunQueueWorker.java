@@ -0,0 +1,291 @@
+package com.vsp.endpointinsightsapi.service;
+
+import com.vsp.endpointinsightsapi.event.RunQueuedEvent;
+import com.vsp.endpointinsightsapi.model.Job;
+import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
+import com.vsp.endpointinsightsapi.repository.JobRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository.QueuedRun;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository.RemovedOrphan;
+import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
+import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.util.ObjectUtils;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Starts runs from the run queue.
+ *
+ * <p>Requested runs are only queued; every instance of the API polls the queue every
+ * {@code run-queue.poll-interval-ms} and claims runs while it has fewer than {@code run-queue.max-runs} of its own in
+ * progress, so how much work there is doesn't depend on what any one instance holds in memory. A run queued on this
+ * instance is claimed straight away, without waiting for the next poll.</p>
+ *
+ * <p>While a run is in progress its heartbeat is refreshed. A run whose heartbeat is older than
+ * {@code run-queue.lease-seconds} was left behind by an instance that stopped, and is queued again to start over, or
+ * failed once it has been attempted {@code run-queue.max-attempts} times. An instance given a stable
+ * {@code run-queue.instance-id} takes back the runs it left behind as soon as it starts again.</p>
+ *
+ * <p>Runs of this instance that were cancelled on another one are cancelled on the next poll.</p>
+ */
+@Service
+public class RunQueueWorker {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RunQueueWorker.class);
+
+	private final RunQueueRepository runQueueRepository;
+	private final TestRunRepository testRunRepository;
+	private final JobRepository jobRepository;
+	private final TestBatchRepository testBatchRepository;
+	private final JobService jobService;
+	private final BatchService batchService;
+	private final TaskScheduler taskScheduler;
+	private final RunExecutor runExecutor;
+
+	private final int maxRuns;
+	private final Duration pollInterval;
+	private final Duration lease;
+	private final int maxAttempts;
+	private final String instanceId;
+
+	private final Set<UUID> inProgress = ConcurrentHashMap.newKeySet();
+	private final Set<UUID> cancelling = ConcurrentHashMap.newKeySet();
+	// Polls and queued-run events can arrive together; one claiming loop at a time keeps max-runs exact
+	private final ReentrantLock claiming = new ReentrantLock();
+	private final List<ScheduledFuture<?>> scheduled = new ArrayList<>();
+
+	public RunQueueWorker(RunQueueRepository runQueueRepository,
+						  TestRunRepository testRunRepository,
+						  JobRepository jobRepository,
+						  TestBatchRepository testBatchRepository,
+						  JobService jobService,
+						  BatchService batchService,
+						  TaskScheduler taskScheduler,
+						  RunExecutor runExecutor,
+						  @Value("${run-queue.max-runs:8}") int maxRuns,
+						  @Value("${run-queue.poll-interval-ms:1000}") long pollIntervalMillis,
+						  @Value("${run-queue.lease-seconds:60}") long leaseSeconds,
+						  @Value("${run-queue.max-attempts:2}") int maxAttempts,
+						  @Value("${run-queue.instance-id:}") String instanceId) {
+		this.runQueueRepository = runQueueRepository;
+		this.testRunRepository = testRunRepository;
+		this.jobRepository = jobRepository;
+		this.testBatchRepository = testBatchRepository;
+		this.jobService = jobService;
+		this.batchService = batchService;
+		this.taskScheduler = taskScheduler;
+		this.runExecutor = runExecutor;
+		this.maxRuns = maxRuns;
+		this.pollInterval = Duration.ofMillis(pollIntervalMillis);
+		this.lease = Duration.ofSeconds(leaseSeconds);
+		this.maxAttempts = maxAttempts;
+		this.instanceId = ObjectUtils.isEmpty(instanceId) ? ManagementFactory.getRuntimeMXBean().getName() : instanceId;
+	}
+
+	/**
+	 * Recovers the runs this instance left behind when it last stopped, then starts polling the queue.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		LOG.info("Taking runs from the run queue as {}, at most {} at a time", instanceId, maxRuns);
+		recoverOrphans(instanceId);
+		// Heartbeats well inside the lease, so one that's late or lost doesn't cost a run
+		scheduled.add(taskScheduler.scheduleAtFixedRate(this::heartbeat, lease.dividedBy(3)));
+		scheduled.add(taskScheduler.scheduleWithFixedDelay(this::poll, pollInterval));
+	}
+
+	@PreDestroy
+	public void stop() {
+		scheduled.forEach(task -> task.cancel(false));
+		scheduled.clear();
+	}
+
+	@EventListener
+	public void handleRunQueuedEvent(RunQueuedEvent event) {
+		claimRuns();
+	}
+
+	public int getRunsInProgress() {
+		return inProgress.size();
+	}
+
+	void poll() {
+		recoverOrphans(null);
+		cancelRequestedRuns();
+		claimRuns();
+	}
+
+	void heartbeat() {
+		if (inProgress.isEmpty()) {
+			return;
+		}
+		try {
+			runQueueRepository.heartbeat(instanceId);
+		} catch (DataAccessException e) {
+			LOG.warn("Could not refresh the heartbeat of {} runs: {}", inProgress.size(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Cancels the runs in progress here that were asked to cancel. A run whose runners haven't started yet is tried
+	 * again on the next poll.
+	 */
+	void cancelRequestedRuns() {
+		if (inProgress.isEmpty()) {
+			return;
+		}
+		try {
+			for (UUID runId : runQueueRepository.findCancelRequested(instanceId)) {
+				if (!cancelling.contains(runId) && runExecutor.cancel(runId)) {
+					cancelling.add(runId);
+				}
+			}
+		} catch (DataAccessException e) {
+			LOG.warn("Could not check for cancelled runs: {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Claims and starts queued runs until this instance is full or the queue is empty.
+	 */
+	void claimRuns() {
+		if (!claiming.tryLock()) {
+			return;
+		}
+		try {
+			while (inProgress.size() < maxRuns) {
+				Optional<QueuedRun> next = runQueueRepository.claimNext(instanceId);
+				if (next.isEmpty()) {
+					break;
+				}
+				start(next.get());
+			}
+		} catch (DataAccessException e) {
+			LOG.warn("Could not claim runs from the run queue: {}", e.getMessage());
+		} finally {
+			claiming.unlock();
+		}
+	}
+
+	private void start(QueuedRun run) {
+		inProgress.add(run.runId());
+		LOG.info("Starting queued run {} (attempt {})", run.runId(), run.attempts());
+
+		CompletableFuture<?> finished;
+		try {
+			finished = startRun(run);
+		} catch (RuntimeException e) {
+			LOG.error("Could not start queued run {}: {}", run.runId(), e.getMessage());
+			failRuns(List.of(run.runId()));
+			finished = CompletableFuture.completedFuture(null);
+		}
+
+		finished.whenComplete((ignored, error) -> {
+			if (error != null) {
+				LOG.error("Queued run {} failed: {}", run.runId(), error.getMessage());
+			}
+			try {
+				if (!runQueueRepository.finish(run)) {
+					LOG.warn("Queued run {} was taken over by another instance before it finished", run.runId());
+				}
+			} catch (DataAccessException e) {
+				LOG.error("Could not remove finished run {} from the run queue: {}", run.runId(), e.getMessage());
+			} finally {
+				cancelling.remove(run.runId());
+				inProgress.remove(run.runId());
+			}
+			claimRuns();
+		});
+	}
+
+	private CompletableFuture<?> startRun(QueuedRun run) {
+		TestRun testRun = testRunRepository.findById(run.runId()).orElse(null);
+		if (testRun == null) {
+			LOG.warn("Queued run {} no longer exists, skipping it", run.runId());
+			return CompletableFuture.completedFuture(null);
+		}
+
+		if (run.isBatch()) {
+			TestBatch batch = testBatchRepository.findById(run.batchId()).orElse(null);
+			if (batch != null) {
+				return batchService.startRun(batch, testRun, run.priority());
+			}
+			LOG.warn("Batch {} of queued run {} no longer exists", run.batchId(), run.runId());
+		} else {
+			Job job = jobRepository.findById(run.jobId()).orElse(null);
+			if (job != null) {
+				return jobService.startRun(job, testRun);
+			}
+			LOG.warn("Job {} of queued run {} no longer exists", run.jobId(), run.runId());
+		}
+		failRuns(List.of(run.runId()));
+		return CompletableFuture.completedFuture(null);
+	}
+
+	/**
+	 * Queues again, fails, or cancels the runs left behind by stopped instances.
+	 *
+	 * @param restartedInstance this instance's name while it starts up, to take back its own runs straight away
+	 */
+	private void recoverOrphans(String restartedInstance) {
+		try {
+			List<UUID> requeued = runQueueRepository.requeueOrphans(restartedInstance, lease, maxAttempts);
+			if (!requeued.isEmpty()) {
+				LOG.warn("Queued {} runs left behind by a stopped instance again: {}", requeued.size(), requeued);
+				List<TestRun> runs = testRunRepository.findAllById(requeued);
+				runs.forEach(run -> run.setStatus(TestRunStatus.PENDING));
+				testRunRepository.saveAll(runs);
+			}
+
+			List<RemovedOrphan> removed = runQueueRepository.removeExhaustedOrphans(restartedInstance, lease, maxAttempts);
+			List<UUID> cancelled = removed.stream().filter(RemovedOrphan::cancelRequested).map(RemovedOrphan::runId).toList();
+			List<UUID> exhausted = removed.stream().filter(orphan -> !orphan.cancelRequested()).map(RemovedOrphan::runId).toList();
+			if (!cancelled.isEmpty()) {
+				LOG.info("Cancelling {} runs left behind by a stopped instance, as was asked before it stopped: {}", cancelled.size(), cancelled);
+				finishRuns(cancelled, TestRunStatus.CANCELLED);
+			}
+			if (!exhausted.isEmpty()) {
+				LOG.error("Failing {} runs left behind by a stopped instance after {} attempts: {}", exhausted.size(), maxAttempts, exhausted);
+				failRuns(exhausted);
+			}
+		} catch (DataAccessException e) {
+			LOG.warn("Could not recover orphaned runs: {}", e.getMessage());
+		}
+	}
+
+	private void failRuns(List<UUID> runIds) {
+		finishRuns(runIds, TestRunStatus.FAILED);
+	}
+
+	private void finishRuns(List<UUID> runIds, TestRunStatus status) {
+		List<TestRun> runs = testRunRepository.findAllById(runIds);
+		runs.forEach(run -> {
+			run.setStatus(status);
+			run.setFinishedAt(Instant.now());
+		});
+		testRunRepository.saveAll(runs);
+	}
+}
@@ -1,21 +1,36 @@
 package com.vsp.endpointinsightsapi.service;
 
+import com.vsp.endpointinsightsapi.dto.CompileCacheStatsDTO;
+import com.vsp.endpointinsightsapi.dto.LatencyPercentilesDTO;
+import com.vsp.endpointinsightsapi.dto.LiveRunSnapshotDTO;
 import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
+import com.vsp.endpointinsightsapi.exception.CustomExceptionBuilder;
 import com.vsp.endpointinsightsapi.exception.JobNotFoundException;
 import com.vsp.endpointinsightsapi.exception.TestRunNotFoundException;
 import com.vsp.endpointinsightsapi.model.Job;
+import com.vsp.endpointinsightsapi.model.TestRunResult;
 import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResult;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.repository.*;
+import com.vsp.endpointinsightsapi.runner.CompileOutputCache;
+import com.vsp.endpointinsightsapi.runner.JMeterInterpreterService;
+import com.vsp.endpointinsightsapi.runner.ResultArchive;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
+import com.vsp.endpointinsightsapi.runner.jtl.LatencyHistogram;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
@@ -26,18 +41,32 @@ public class TestRunService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(TestRunService.class);
 
+	private static final List<Double> DEFAULT_PERCENTILES = List.of(50.0, 90.0, 95.0, 99.0, 99.9);
+
 	private final TestRunRepository testRunRepository;
 	private final JobRepository jobRepository;
 	private final TestBatchRepository testBatchRepository;
 	private final PerfTestResultRepository perfTestResultRepository;
 	private final TestResultRepository testResultRepository;
+	private final LiveResultsService liveResultsService;
+	private final RunExecutor runExecutor;
+	private final RunQueueRepository runQueueRepository;
+	private final ResultArchive resultArchive;
+	private final JMeterInterpreterService jMeterInterpreterService;
+	private final CompileOutputCache compileOutputCache;
 
-	public TestRunService(TestRunRepository testRunRepository, JobRepository jobRepository, TestBatchRepository testBatchRepository, PerfTestResultRepository perfTestResultRepository, TestResultRepository testResultRepository) {
+	public TestRunService(TestRunRepository testRunRepository, JobRepository jobRepository, TestBatchRepository testBatchRepository, PerfTestResultRepository perfTestResultRepository, TestResultRepository testResultRepository, LiveResultsService liveResultsService, RunExecutor runExecutor, RunQueueRepository runQueueRepository, ResultArchive resultArchive, JMeterInterpreterService jMeterInterpreterService, CompileOutputCache compileOutputCache) {
 		this.testRunRepository = testRunRepository;
 		this.jobRepository = jobRepository;
 		this.testBatchRepository = testBatchRepository;
 		this.perfTestResultRepository = perfTestResultRepository;
 		this.testResultRepository = testResultRepository;
+		this.liveResultsService = liveResultsService;
+		this.runExecutor = runExecutor;
+		this.runQueueRepository = runQueueRepository;
+		this.resultArchive = resultArchive;
+		this.jMeterInterpreterService = jMeterInterpreterService;
+		this.compileOutputCache = compileOutputCache;
 	}
 
 	public TestRun createTestRun(TestRun testRun) {
@@ -88,6 +117,177 @@ public class TestRunService {
 		return res;
 	}
 
+	/**
+	 * Returns the interim results of a run that is still executing.
+	 */
+	public LiveRunSnapshotDTO getLiveResults(UUID runId) {
+		if (!testRunRepository.existsById(runId)) {
+			throw new TestRunNotFoundException(runId.toString());
+		}
+		return liveResultsService.getSnapshot(runId);
+	}
+
+	/**
+	 * @return how many tests are running and queued on this host, and how long they have waited to start
+	 */
+	public RunQueueDTO getRunQueue() {
+		return runExecutor.getQueueStats();
+	}
+
+	/**
+	 * @return how many compiles on this host were served from, or missed, the compile output cache
+	 */
+	public CompileCacheStatsDTO getCompileCacheStats() {
+		return new CompileCacheStatsDTO(compileOutputCache.getHits(), compileOutputCache.getMisses());
+	}
+
+	/**
+	 * Cancels a run of a job or a batch. A run still waiting in the run queue is taken off it and cancelled straight
+	 * away. A run in progress is cancelled by the instance running it, which kills its processes, keeps whatever results
+	 * they had written, and marks it {@link TestRunStatus#CANCELLED} once it has stopped; every job of a batch run is
+	 * cancelled.
+	 *
+	 * @return the run, which may still be stopping
+	 */
+	public TestRun cancelTestRun(UUID runId) {
+		TestRun run = testRunRepository.findById(runId)
+				.orElseThrow(() -> new TestRunNotFoundException(runId.toString()));
+		if (List.of(TestRunStatus.COMPLETED, TestRunStatus.FAILED, TestRunStatus.CANCELLED).contains(run.getStatus())) {
+			throw new CustomExceptionBuilder(HttpStatus.CONFLICT, "Test run has already finished").build();
+		}
+
+		if (runQueueRepository.cancelQueued(runId)) {
+			LOG.info("Cancelled run {} before it started", runId);
+			return markCancelled(run);
+		}
+
+		// The instance running it picks up the request on its next poll; when that's this one, it's cancelled now
+		boolean claimed = runQueueRepository.requestCancel(runId);
+		boolean runningHere = runExecutor.cancel(runId);
+		if (!claimed && !runningHere) {
+			LOG.warn("Run {} isn't queued or running anywhere, marking it cancelled", runId);
+			return markCancelled(run);
+		}
+		LOG.info("Cancelling run {}", runId);
+		return run;
+	}
+
+	private TestRun markCancelled(TestRun run) {
+		Instant finishedAt = Instant.now();
+		if (testRunRepository.cancelUnfinished(run.getRunId(), finishedAt) == 1) {
+			run.setStatus(TestRunStatus.CANCELLED);
+			run.setFinishedAt(finishedAt);
+			return run;
+		}
+		// It finished between being looked up and now, and keeps the outcome it finished with
+		LOG.info("Run {} finished before it could be cancelled", run.getRunId());
+		return testRunRepository.findById(run.getRunId()).orElse(run);
+	}
+
+	/**
+	 * Interprets a finished run's results again from the result files archived when it ran, replacing the results stored
+	 * for it, e.g. after a job's threshold was changed or results were lost. Every job of a batch run is re-analysed. A
+	 * cancelled run stays cancelled; any other run passes or fails on the new results.
+	 *
+	 * @return the run with its new results
+	 */
+	@Transactional
+	public TestRun reanalyseTestRun(UUID runId) {
+		TestRun run = testRunRepository.findById(runId)
+				.orElseThrow(() -> new TestRunNotFoundException(runId.toString()));
+		if (!List.of(TestRunStatus.COMPLETED, TestRunStatus.FAILED, TestRunStatus.CANCELLED).contains(run.getStatus())) {
+			throw new CustomExceptionBuilder(HttpStatus.CONFLICT, "Test run hasn't finished yet").build();
+		}
+
+		UUID jobId = run.getJobId();
+		List<Job> jobs = run.getBatchId() != null
+				? testBatchRepository.findById(run.getBatchId()).map(TestBatch::getJobs).orElse(List.of())
+				: jobId != null ? jobRepository.findById(jobId).map(List::of).orElse(List.of()) : List.of();
+		List<String> missing = jobs.stream()
+				.filter(job -> !resultArchive.contains(runId, job.getJobId()))
+				.map(Job::getName)
+				.toList();
+		if (jobs.isEmpty() || !missing.isEmpty()) {
+			throw new CustomExceptionBuilder(HttpStatus.CONFLICT, "Results of test run aren't archived" +
+					(missing.isEmpty() ? "" : " for " + String.join(", ", missing))).build();
+		}
+
+		perfTestResultRepository.deleteByRunIds(List.of(runId));
+		testResultRepository.deleteByRunIds(List.of(runId));
+
+		boolean passed = true;
+		for (Job job : jobs) {
+			try (ResultArchive.Entry entry = resultArchive.open(runId, job.getJobId()).orElseThrow()) {
+				TestRunResult result = jMeterInterpreterService.processResults(entry.results(), entry.threadGroupPrefix(), run, job);
+				passed &= result.passed();
+			} catch (IOException e) {
+				LOG.error("Could not re-analyse results of job {} in run {} - {}", job.getJobId(), runId, e.getMessage());
+				throw new CustomExceptionBuilder(HttpStatus.INTERNAL_SERVER_ERROR, "Could not read archived results").build();
+			}
+		}
+		// Storing results points the run at the job they're for, which in a batch run is whichever came last
+		run.setJobId(jobId);
+		if (run.getStatus() != TestRunStatus.CANCELLED) {
+			run.setStatus(passed ? TestRunStatus.COMPLETED : TestRunStatus.FAILED);
+		}
+		LOG.info("Re-analysed run {} from its archived results", runId);
+		return testRunRepository.save(run);
+	}
+
+	/**
+	 * Computes latency percentiles on demand from the histograms stored with each result, merging them across every
+	 * run of the given runs, jobs or batches. Exactly one kind of id must be given.
+	 *
+	 * @param percentiles percentiles to compute, between 0 and 100; defaults to 50, 90, 95, 99 and 99.9
+	 */
+	public LatencyPercentilesDTO getLatencyPercentiles(List<UUID> runIds, List<UUID> jobIds, List<UUID> batchIds, List<Double> percentiles) {
+		boolean byRun = runIds != null && !runIds.isEmpty();
+		boolean byJob = jobIds != null && !jobIds.isEmpty();
+		boolean byBatch = batchIds != null && !batchIds.isEmpty();
+		if ((byRun ? 1 : 0) + (byJob ? 1 : 0) + (byBatch ? 1 : 0) != 1) {
+			throw new IllegalArgumentException("Provide exactly one of runId, jobId or batchId");
+		}
+
+		List<Double> requested = percentiles == null || percentiles.isEmpty() ? DEFAULT_PERCENTILES : percentiles;
+		for (Double p : requested) {
+			if (p == null || p < 0 || p > 100) {
+				throw new IllegalArgumentException("Percentiles must be between 0 and 100");
+			}
+		}
+
+		List<PerfTestResult> results = byRun ? perfTestResultRepository.findAllByRunIds(runIds)
+				: byJob ? perfTestResultRepository.findAllByJobIds(jobIds)
+				: perfTestResultRepository.findAllByBatchIds(batchIds);
+
+		LatencyHistogram overall = new LatencyHistogram();
+		Map<List<String>, LatencyHistogram> bySampler = new LinkedHashMap<>();
+		int withoutHistogram = 0;
+		for (PerfTestResult result : results) {
+			if (result.getLatencyHistogram() == null) {
+				withoutHistogram++;
+				continue;
+			}
+			LatencyHistogram histogram = LatencyHistogram.decode(result.getLatencyHistogram());
+			overall.merge(histogram);
+			bySampler.computeIfAbsent(List.of(result.getThreadGroup(), result.getSamplerName()), k -> new LatencyHistogram())
+					.merge(histogram);
+		}
+
+		List<LatencyPercentilesDTO.Distribution> samplers = new ArrayList<>();
+		bySampler.forEach((key, histogram) -> samplers.add(toDistribution(key.get(0), key.get(1), histogram, requested)));
+
+		return new LatencyPercentilesDTO(toDistribution(null, null, overall, requested), samplers, withoutHistogram);
+	}
+
+	private static LatencyPercentilesDTO.Distribution toDistribution(String threadGroup, String samplerName, LatencyHistogram histogram, List<Double> percentiles) {
+		Map<String, Long> values = new LinkedHashMap<>();
+		for (Double p : percentiles) {
+			values.put(BigDecimal.valueOf(p).stripTrailingZeros().toPlainString(), histogram.percentile(p));
+		}
+		return new LatencyPercentilesDTO.Distribution(threadGroup, samplerName, histogram.getTotalCount(),
+				histogram.getMin(), histogram.getMax(), values);
+	}
+
 	@Transactional
 	public ResponseEntity<Map<String, Object>> deleteTestRunById(UUID runId) {
 		if (!testRunRepository.existsById(runId)) {
@@ -97,6 +297,7 @@ public class TestRunService {
 		perfTestResultRepository.deleteByRunIds(List.of(runId));
 		testResultRepository.deleteByRunIds(List.of(runId));
 		testRunRepository.deleteById(runId);
+		resultArchive.delete(runId);
 
 		return ResponseEntity.ok(Map.of("status", String.format("Test run %s deleted successfully", runId)));
 	}
@@ -175,6 +376,9 @@ public class TestRunService {
 		perfTestResultRepository.deleteByRunIds(oldRuns);
 		testResultRepository.deleteByRunIds(oldRuns);
 		testRunRepository.deleteAllByIdInBatch(oldRuns);
+		// Archives of runs deleted by other means are swept up once they are as old
+		oldRuns.forEach(resultArchive::delete);
+		resultArchive.deleteBefore(purgeDate);
 
 		return ResponseEntity.ok(Map.of("deletedRuns", oldRuns.size()));
     }
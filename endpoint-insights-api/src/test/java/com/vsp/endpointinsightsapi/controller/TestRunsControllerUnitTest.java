@@ -1,16 +1,22 @@
 package com.vsp.endpointinsightsapi.controller;
 
+import com.vsp.endpointinsightsapi.dto.CompileCacheStatsDTO;
+import com.vsp.endpointinsightsapi.dto.LatencyPercentilesDTO;
 import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
+import com.vsp.endpointinsightsapi.exception.CustomExceptionBuilder;
 import com.vsp.endpointinsightsapi.exception.JobNotFoundException;
 import com.vsp.endpointinsightsapi.exception.TestRunNotFoundException;
 import com.vsp.endpointinsightsapi.model.TestRunCreateRequest;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.service.TestRunService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.TestPropertySource;
@@ -25,6 +31,7 @@ import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -162,6 +169,44 @@ class TestRunsControllerUnitTest {
                 .andExpect(status().isBadRequest());
     }
 
+	@Test
+	void getLatencyPercentiles_returnsDistribution() throws Exception {
+		UUID jobId = UUID.randomUUID();
+		LatencyPercentilesDTO.Distribution overall = new LatencyPercentilesDTO.Distribution(null, null, 200, 3, 950, Map.of("99.9", 940L));
+		when(testRunService.getLatencyPercentiles(isNull(), eq(List.of(jobId)), isNull(), eq(List.of(99.9))))
+				.thenReturn(new LatencyPercentilesDTO(overall, List.of(), 0));
+
+		mockMvc.perform(get("/api/test-runs/latency-percentiles")
+						.param("jobId", jobId.toString())
+						.param("percentiles", "99.9"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.overall.sampleCount").value(200))
+				.andExpect(jsonPath("$.overall.percentiles['99.9']").value(940));
+	}
+
+	@Test
+	void getRunQueue_returnsStats() throws Exception {
+		when(testRunService.getRunQueue())
+				.thenReturn(new RunQueueDTO(4, 4, 2, Map.of(RunPriority.MANUAL, 0, RunPriority.SCHEDULED, 2), 31, 1200, 5000, 800));
+
+		mockMvc.perform(get("/api/test-runs/queue"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.running").value(4))
+				.andExpect(jsonPath("$.queued").value(2))
+				.andExpect(jsonPath("$.queuedByPriority.SCHEDULED").value(2))
+				.andExpect(jsonPath("$.averageWaitMillis").value(1200));
+	}
+
+	@Test
+	void getCompileCacheStats_returnsStats() throws Exception {
+		when(testRunService.getCompileCacheStats()).thenReturn(new CompileCacheStatsDTO(12, 5));
+
+		mockMvc.perform(get("/api/test-runs/compile-cache"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.hits").value(12))
+				.andExpect(jsonPath("$.misses").value(5));
+	}
+
 	@Test
 	void getTestRunById_returnsRun() throws Exception {
 		UUID runId = UUID.randomUUID();
@@ -190,6 +235,55 @@ class TestRunsControllerUnitTest {
 				.andExpect(jsonPath("$.error").value("TEST_RUN_NOT_FOUND"));
 	}
 
+	@Test
+	void cancelTestRun_returnsAccepted() throws Exception {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.CANCELLED);
+
+		when(testRunService.cancelTestRun(runId)).thenReturn(run);
+
+		mockMvc.perform(post("/api/test-runs/{id}/cancel", runId))
+				.andExpect(status().isAccepted())
+				.andExpect(jsonPath("$.runId").value(runId.toString()))
+				.andExpect(jsonPath("$.status").value("CANCELLED"));
+	}
+
+	@Test
+	void cancelTestRun_missingRun_returnsNotFound() throws Exception {
+		UUID runId = UUID.randomUUID();
+		when(testRunService.cancelTestRun(runId)).thenThrow(new TestRunNotFoundException(runId.toString()));
+
+		mockMvc.perform(post("/api/test-runs/{id}/cancel", runId))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void reanalyseTestRun_returnsOk() throws Exception {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.FAILED);
+
+		when(testRunService.reanalyseTestRun(runId)).thenReturn(run);
+
+		mockMvc.perform(post("/api/test-runs/{id}/reanalyse", runId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.runId").value(runId.toString()))
+				.andExpect(jsonPath("$.status").value("FAILED"));
+	}
+
+	@Test
+	void reanalyseTestRun_notArchived_returnsConflict() throws Exception {
+		UUID runId = UUID.randomUUID();
+		when(testRunService.reanalyseTestRun(runId))
+				.thenThrow(new CustomExceptionBuilder(HttpStatus.CONFLICT, "Results of test run aren't archived").build());
+
+		mockMvc.perform(post("/api/test-runs/{id}/reanalyse", runId))
+				.andExpect(status().isConflict());
+	}
+
 	@Test
 	void deleteTestRun_returnsOk() throws Exception {
 		UUID runId = UUID.randomUUID();
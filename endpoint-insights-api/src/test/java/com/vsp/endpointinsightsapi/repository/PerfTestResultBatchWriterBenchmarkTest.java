@@ -0,0 +1,166 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import com.vsp.endpointinsightsapi.model.entity.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares rows/second of the batched writer against one SELECT plus one INSERT per row, which is what
+ * {@code saveAll} does for entities with assigned ids.
+ *
+ * <p>Needs a PostgreSQL database with the project schema, so it only runs when pointed at one:</p>
+ * <pre>
+ * mvn test -Dtest=PerfTestResultBatchWriterBenchmarkTest \
+ *     -Dbenchmark.jdbc.url="jdbc:postgresql://localhost:5432/endpoint_insights?reWriteBatchedInserts=true" \
+ *     -Dbenchmark.jdbc.user=postgres -Dbenchmark.jdbc.password=postgres
+ * </pre>
+ * Every write is rolled back at the end.
+ */
+@EnabledIfSystemProperty(named = "benchmark.jdbc.url", matches = ".+")
+class PerfTestResultBatchWriterBenchmarkTest {
+
+	private static final int SAMPLERS = 500;
+	private static final int CODES_PER_SAMPLER = 4;
+	private static final int ROUNDS = 5;
+
+	@Test
+	void compareRowAtATimeWithBatchedInserts() throws Exception {
+		SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+				System.getProperty("benchmark.jdbc.url"),
+				System.getProperty("benchmark.jdbc.user", "postgres"),
+				System.getProperty("benchmark.jdbc.password", ""),
+				true);
+		dataSource.setAutoCommit(false);
+
+		try (Connection connection = dataSource.getConnection()) {
+			JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+			PerfTestResultBatchWriter writer = new PerfTestResultBatchWriter(jdbcTemplate);
+			int rows = SAMPLERS * (3 + CODES_PER_SAMPLER);
+
+			// Warm up both paths once so connection setup and statement preparation aren't measured
+			rowAtATime(jdbcTemplate, new Rows());
+			writeBatched(writer, new Rows());
+
+			long rowAtATimeNanos = 0;
+			long batchedNanos = 0;
+			for (int round = 0; round < ROUNDS; round++) {
+				Rows before = new Rows();
+				long start = System.nanoTime();
+				rowAtATime(jdbcTemplate, before);
+				rowAtATimeNanos += System.nanoTime() - start;
+
+				Rows after = new Rows();
+				start = System.nanoTime();
+				writeBatched(writer, after);
+				batchedNanos += System.nanoTime() - start;
+			}
+
+			System.out.printf("row at a time: %,.0f rows/s%n", rowsPerSecond(rows * ROUNDS, rowAtATimeNanos));
+			System.out.printf("batched:       %,.0f rows/s%n", rowsPerSecond(rows * ROUNDS, batchedNanos));
+
+			connection.rollback();
+		} finally {
+			dataSource.destroy();
+		}
+	}
+
+	private static void writeBatched(PerfTestResultBatchWriter writer, Rows rows) {
+		writer.insertAll(rows.testResults, rows.perfTestResults, rows.codes, rows.series);
+	}
+
+	private static void rowAtATime(JdbcTemplate jdbcTemplate, Rows rows) {
+		for (TestResult r : rows.testResults) {
+			jdbcTemplate.queryForList("SELECT result_id FROM test_result WHERE result_id = ?", r.getId());
+			jdbcTemplate.update(PerfTestResultBatchWriter.INSERT_TEST_RESULT, r.getId(), r.getJobType(), r.getTestRun().getRunId());
+		}
+		for (PerfTestResult r : rows.perfTestResults) {
+			jdbcTemplate.queryForList("SELECT result_id FROM perf_test_result WHERE result_id = ?", r.getId().getResultId());
+			jdbcTemplate.update(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT, r.getId().getResultId(), r.getSamplerName(), r.getThreadGroup(),
+					r.getP50LatencyMs(), r.getP95LatencyMs(), r.getP99LatencyMs(), r.getVolumeLastMinute(), r.getVolumeLast5Minutes(),
+					r.getErrorRatePercent(), r.getLatencyThresholdResult(), r.getLatencyThreshold(), r.getLatencyHistogram());
+		}
+		for (PerfTestResultCode r : rows.codes) {
+			jdbcTemplate.queryForList("SELECT result_id FROM perf_test_result_code WHERE result_id = ? AND error_code = ?", r.getId().getResultId(), r.getId().getErrorCode());
+			jdbcTemplate.update(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT_CODE, r.getId().getResultId(), r.getId().getErrorCode(),
+					r.getId().getSamplerName(), r.getId().getThreadGroup(), r.getCount());
+		}
+		for (PerfTestResultSeries r : rows.series) {
+			jdbcTemplate.queryForList("SELECT result_id FROM perf_test_result_series WHERE result_id = ?", r.getResultId());
+			jdbcTemplate.update(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT_SERIES, r.getResultId(), r.getSamplerName(), r.getThreadGroup(),
+					r.getBucketWidthMs(), r.getSeries());
+		}
+	}
+
+	private static double rowsPerSecond(long rows, long nanos) {
+		return rows * 1_000_000_000.0 / nanos;
+	}
+
+	/** One run's worth of rows for {@link #SAMPLERS} samplers. */
+	private static final class Rows {
+		final List<TestResult> testResults = new ArrayList<>();
+		final List<PerfTestResult> perfTestResults = new ArrayList<>();
+		final List<PerfTestResultCode> codes = new ArrayList<>();
+		final List<PerfTestResultSeries> series = new ArrayList<>();
+
+		Rows() {
+			TestRun run = new TestRun();
+			run.setRunId(UUID.randomUUID());
+			for (int i = 0; i < SAMPLERS; i++) {
+				UUID resultId = UUID.randomUUID();
+				String sampler = "GET /endpoint/" + i;
+
+				TestResult testResult = new TestResult();
+				testResult.setId(resultId);
+				testResult.setJobType(1);
+				testResult.setTestRun(run);
+				testResults.add(testResult);
+
+				PerfTestResult perf = new PerfTestResult();
+				PerfTestResultId perfId = new PerfTestResultId();
+				perfId.setResultId(resultId);
+				perfId.setSamplerName(sampler);
+				perfId.setThreadGroup("Users");
+				perf.setId(perfId);
+				perf.setSamplerName(sampler);
+				perf.setThreadGroup("Users");
+				perf.setP50LatencyMs(20);
+				perf.setP95LatencyMs(80);
+				perf.setP99LatencyMs(150);
+				perf.setVolumeLastMinute(600);
+				perf.setVolumeLast5Minutes(3000);
+				perf.setErrorRatePercent(0.1);
+				perf.setLatencyThresholdResult("PASS");
+				perf.setLatencyThreshold(200);
+				perf.setLatencyHistogram(new byte[300]);
+				perfTestResults.add(perf);
+
+				for (int c = 0; c < CODES_PER_SAMPLER; c++) {
+					PerfTestResultCodeId codeId = new PerfTestResultCodeId();
+					codeId.setResultId(resultId);
+					codeId.setErrorCode(200 + c);
+					codeId.setSamplerName(sampler);
+					codeId.setThreadGroup("Users");
+					PerfTestResultCode code = new PerfTestResultCode();
+					code.setId(codeId);
+					code.setCount(100);
+					codes.add(code);
+				}
+
+				PerfTestResultSeries timeSeries = new PerfTestResultSeries();
+				timeSeries.setResultId(resultId);
+				timeSeries.setSamplerName(sampler);
+				timeSeries.setThreadGroup("Users");
+				timeSeries.setBucketWidthMs(1000);
+				timeSeries.setSeries(new byte[2000]);
+				series.add(timeSeries);
+			}
+		}
+	}
+}
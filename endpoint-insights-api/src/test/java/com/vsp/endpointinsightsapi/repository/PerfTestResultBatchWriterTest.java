@@ -0,0 +1,79 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import com.vsp.endpointinsightsapi.model.entity.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PerfTestResultBatchWriterTest {
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	@Mock
+	private PreparedStatement preparedStatement;
+
+	@InjectMocks
+	private PerfTestResultBatchWriter writer;
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void insertAll_writesEachTableInBatches() throws Exception {
+		UUID runId = UUID.randomUUID();
+		UUID resultId = UUID.randomUUID();
+
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		TestResult testResult = new TestResult();
+		testResult.setId(resultId);
+		testResult.setJobType(1);
+		testResult.setTestRun(run);
+
+		PerfTestResult perf = new PerfTestResult();
+		perf.setId(new PerfTestResultId(resultId, "GET /", "Users"));
+		perf.setSamplerName("GET /");
+		perf.setThreadGroup("Users");
+		perf.setP50LatencyMs(12);
+		perf.setErrorRatePercent(0.5);
+		perf.setLatencyHistogram(new byte[]{7, 0, 1});
+
+		writer.insertAll(List.of(testResult), List.of(perf), List.of(), List.of());
+
+		ArgumentCaptor<ParameterizedPreparedStatementSetter<TestResult>> testResultSetter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+		verify(jdbcTemplate).batchUpdate(eq(PerfTestResultBatchWriter.INSERT_TEST_RESULT), eq(List.of(testResult)),
+				eq(PerfTestResultBatchWriter.BATCH_SIZE), testResultSetter.capture());
+		testResultSetter.getValue().setValues(preparedStatement, testResult);
+		verify(preparedStatement).setObject(1, resultId);
+		verify(preparedStatement).setInt(2, 1);
+		verify(preparedStatement).setObject(3, runId);
+
+		ArgumentCaptor<ParameterizedPreparedStatementSetter<PerfTestResult>> perfSetter = ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+		verify(jdbcTemplate).batchUpdate(eq(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT), eq(List.of(perf)),
+				eq(PerfTestResultBatchWriter.BATCH_SIZE), perfSetter.capture());
+		clearInvocations(preparedStatement);
+		perfSetter.getValue().setValues(preparedStatement, perf);
+		verify(preparedStatement).setInt(4, 12);
+		verify(preparedStatement).setNull(5, Types.INTEGER);
+		verify(preparedStatement).setDouble(9, 0.5);
+		verify(preparedStatement).setBytes(12, new byte[]{7, 0, 1});
+
+		verify(jdbcTemplate).batchUpdate(eq(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT_CODE), eq(List.<PerfTestResultCode>of()), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+		verify(jdbcTemplate).batchUpdate(eq(PerfTestResultBatchWriter.INSERT_PERF_TEST_RESULT_SERIES), eq(List.<PerfTestResultSeries>of()), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+	}
+}
@@ -0,0 +1,44 @@
+package com.vsp.endpointinsightsapi.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ScheduleRunRepositoryTest {
+
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	@InjectMocks
+	private ScheduleRunRepository repository;
+
+	@Test
+	void claim_rowWritten_claimsFireTimeInUtc() {
+		when(jdbcTemplate.update(eq(ScheduleRunRepository.CLAIM_FIRE_TIME), any(Object[].class))).thenReturn(1);
+
+		assertTrue(repository.claim("batch-1", Instant.parse("2026-03-01T09:00:00Z"), "123@host-a"));
+
+		verify(jdbcTemplate).update(ScheduleRunRepository.CLAIM_FIRE_TIME, "batch-1", "123@host-a", "123@host-a",
+				Timestamp.valueOf(LocalDateTime.of(2026, 3, 1, 9, 0)), ScheduleRunRepository.STATUS_CLAIMED);
+	}
+
+	@Test
+	void claim_alreadyClaimed_returnsFalse() {
+		when(jdbcTemplate.update(eq(ScheduleRunRepository.CLAIM_FIRE_TIME), any(Object[].class))).thenReturn(0);
+
+		assertFalse(repository.claim("batch-1", Instant.parse("2026-03-01T09:00:00Z"), "456@host-b"));
+	}
+}
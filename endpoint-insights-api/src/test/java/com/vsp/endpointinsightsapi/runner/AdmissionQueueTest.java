@@ -0,0 +1,146 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionQueueTest {
+
+    @Test
+    void manualRuns_startBeforeScheduledRuns() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1);
+        RunAdmission holder = admission(0, RunPriority.MANUAL);
+        queue.acquire(holder);
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        waiters.add(enqueue(queue, admission(0, RunPriority.SCHEDULED), "scheduled", order));
+        waiters.add(enqueue(queue, admission(0, RunPriority.MANUAL), "manual", order));
+        queue.release(holder);
+
+        joinAll(waiters);
+        assertEquals(List.of("manual", "scheduled"), order);
+    }
+
+    @Test
+    void runsOfTheSamePriority_takeTurns() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1);
+        RunAdmission holder = admission(0, RunPriority.MANUAL);
+        queue.acquire(holder);
+
+        RunAdmission big = admission(0, RunPriority.MANUAL);
+        RunAdmission small = admission(0, RunPriority.MANUAL);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        waiters.add(enqueue(queue, big, "big", order));
+        waiters.add(enqueue(queue, big, "big", order));
+        waiters.add(enqueue(queue, big, "big", order));
+        waiters.add(enqueue(queue, small, "small", order));
+        queue.release(holder);
+
+        joinAll(waiters);
+        assertEquals(List.of("big", "small", "big", "big"), order);
+    }
+
+    @Test
+    void runAtItsParallelism_waitsWhileOthersStart() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(3);
+        RunAdmission limited = admission(1, RunPriority.MANUAL);
+        queue.acquire(limited);
+
+        Thread second = new Thread(() -> {
+            try {
+                queue.acquire(limited);
+                queue.release(limited);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        second.start();
+        awaitQueued(queue, 1);
+
+        // Another run still gets a free slot straight away
+        RunAdmission other = admission(0, RunPriority.SCHEDULED);
+        queue.acquire(other);
+        assertEquals(2, queue.stats().running());
+        assertEquals(1, queue.stats().queued());
+
+        queue.release(limited);
+        second.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(second.isAlive());
+        queue.release(other);
+        assertEquals(0, queue.stats().running());
+        assertEquals(3, queue.stats().admitted());
+    }
+
+    @Test
+    void interruptedWaiter_leavesTheQueue() throws Exception {
+        AdmissionQueue queue = new AdmissionQueue(1);
+        RunAdmission holder = admission(0, RunPriority.MANUAL);
+        queue.acquire(holder);
+
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        Thread waiter = new Thread(() -> {
+            try {
+                queue.acquire(admission(0, RunPriority.MANUAL));
+            } catch (InterruptedException e) {
+                errors.add(e);
+            }
+        });
+        waiter.start();
+        awaitQueued(queue, 1);
+        waiter.interrupt();
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals(1, errors.size());
+        assertEquals(0, queue.stats().queued());
+        queue.release(holder);
+        assertEquals(0, queue.stats().running());
+    }
+
+    private static RunAdmission admission(int parallelism, RunPriority priority) {
+        return new RunAdmission(UUID.randomUUID(), parallelism, priority);
+    }
+
+    /**
+     * Starts a thread that records {@code name} once admitted and gives the slot straight back, and waits until it
+     * is queued so waiters line up in the order they were started.
+     */
+    private static Thread enqueue(AdmissionQueue queue, RunAdmission admission, String name, List<String> order) throws InterruptedException {
+        int queued = queue.stats().queued();
+        Thread thread = new Thread(() -> {
+            try {
+                queue.acquire(admission);
+                order.add(name);
+                queue.release(admission);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        awaitQueued(queue, queued + 1);
+        return thread;
+    }
+
+    private static void awaitQueued(AdmissionQueue queue, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.stats().queued() < queued) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for " + queued + " queued tests");
+            Thread.sleep(1);
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(thread.isAlive());
+        }
+    }
+}
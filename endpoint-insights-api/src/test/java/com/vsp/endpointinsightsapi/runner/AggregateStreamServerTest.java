@@ -0,0 +1,159 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.runner.jtl.AggregateDeltas;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlTailer;
+import com.vsp.endpointinsightsapi.runner.jtl.ResultFollower;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerAggregate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateStreamServerTest {
+
+    @TempDir
+    private File workingDirectory;
+
+    private final JMeterCommandService jMeterCommandService = new JMeterCommandService(new ProcessSupervisor(Map.of(RunStage.CLONE, Duration.ofMinutes(1)), 4096));
+    private AggregateStreamServer server;
+
+    @BeforeEach
+    void setUp() {
+        jMeterCommandService.setResultFormat(JMeterCommandService.ResultFormat.AGGREGATE);
+        // Any free port
+        jMeterCommandService.getAggregateStream().setPort(0);
+        server = new AggregateStreamServer(jMeterCommandService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void TEST_Deltas_AreFoldedIntoFollower() throws Exception {
+        server.start();
+        File resultFile = new File(workingDirectory, "results.jtl");
+
+        try (ResultFollower follower = server.follow(resultFile);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.write(AggregateDeltas.MAGIC);
+            out.writeUTF(resultFile.getAbsolutePath());
+            sendDelta(out, 1, 12, 200);
+            sendDelta(out, 2, 30, 500);
+            out.writeInt(0);
+            out.flush();
+
+            SamplerAggregate aggregate = follower.finish().getAggregates().iterator().next();
+            assertTrue(follower.isStarted());
+            assertEquals("Users 1", aggregate.getThreadGroup());
+            assertEquals(2, aggregate.getSampleCount());
+            assertEquals(1, aggregate.getErrorCount());
+            assertEquals(30, aggregate.getLatencies().getMax());
+        }
+    }
+
+    @Test
+    void TEST_StreamConnectingFirst_IsKeptForItsRun() throws Exception {
+        server.start();
+        File resultFile = new File(workingDirectory, "early.jtl");
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.write(AggregateDeltas.MAGIC);
+            out.writeUTF(resultFile.getAbsolutePath());
+            sendDelta(out, 1, 12, 200);
+            out.writeInt(0);
+            out.flush();
+        }
+
+        try (ResultFollower follower = server.follow(resultFile)) {
+            assertEquals(1, follower.finish().getAggregates().iterator().next().getSampleCount());
+        }
+    }
+
+    @Test
+    void TEST_DeltaSentAgainAfterReconnect_IsCountedOnce() throws Exception {
+        server.start();
+        File resultFile = new File(workingDirectory, "reconnect.jtl");
+
+        try (ResultFollower follower = server.follow(resultFile)) {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.write(AggregateDeltas.MAGIC);
+                out.writeUTF(resultFile.getAbsolutePath());
+                sendDelta(out, 1, 12, 200);
+                out.flush();
+                assertEquals(1, new DataInputStream(socket.getInputStream()).readLong());
+            }
+            // As if the acknowledgement had been lost with the connection
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                out.write(AggregateDeltas.MAGIC);
+                out.writeUTF(resultFile.getAbsolutePath());
+                sendDelta(out, 1, 12, 200);
+                sendDelta(out, 2, 30, 500);
+                out.flush();
+                assertEquals(1, in.readLong());
+                assertEquals(2, in.readLong());
+                out.writeInt(0);
+                out.flush();
+
+                SamplerAggregate aggregate = follower.finish().getAggregates().iterator().next();
+                assertEquals(2, aggregate.getSampleCount());
+                assertEquals(1, aggregate.getErrorCount());
+            }
+        }
+    }
+
+    @Test
+    void TEST_NoStream_FollowsResultFile() throws IOException {
+        server.start();
+        File resultFile = new File(workingDirectory, "fallback.jtl");
+        Files.writeString(resultFile.toPath(), """
+                timeStamp,elapsed,label,responseCode,threadName,success
+                1700000000000,12,GET /,200,Users 1-1,true
+                """, StandardCharsets.UTF_8);
+
+        try (ResultFollower follower = server.follow(resultFile)) {
+            assertTrue(follower.poll());
+            assertTrue(follower.isStarted());
+            assertEquals(1, follower.finish().getAggregates().iterator().next().getSampleCount());
+        }
+    }
+
+    @Test
+    void TEST_OtherFormat_TailsResultFile() {
+        jMeterCommandService.setResultFormat(JMeterCommandService.ResultFormat.CSV);
+        server.start();
+
+        assertFalse(server.isEnabled());
+        assertEquals(-1, server.getLocalPort());
+        assertInstanceOf(JtlTailer.class, server.follow(new File(workingDirectory, "results.jtl")));
+    }
+
+    private static void sendDelta(DataOutputStream out, long sequence, long elapsed, int responseCode) throws IOException {
+        JtlAggregator delta = new JtlAggregator();
+        delta.record("Users 1-1", "GET /", elapsed, 1_700_000_000_000L, responseCode, responseCode == 200);
+        byte[] bytes = AggregateDeltas.encode(delta);
+        out.writeInt(bytes.length);
+        out.writeLong(sequence);
+        out.write(bytes);
+    }
+}
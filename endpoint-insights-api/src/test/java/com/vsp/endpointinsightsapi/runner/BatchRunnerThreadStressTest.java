@@ -0,0 +1,154 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.factory.JobRunnerThreadFactory;
+import com.vsp.endpointinsightsapi.model.BatchRunnerThreadStatus;
+import com.vsp.endpointinsightsapi.model.Job;
+import com.vsp.endpointinsightsapi.model.JobRunnerThreadStatus;
+import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
+import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
+import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BatchRunnerThreadStressTest {
+
+    private static final int BATCHES = 50;
+    private static final int JOBS_PER_BATCH = 3;
+    private static final int POOL_SIZE = 2;
+
+    @Mock
+    private TestRunRepository testRunRepository;
+
+    @Mock
+    private TestBatchRepository testBatchRepository;
+
+    @Mock
+    private JobRunnerThreadFactory jobRunnerThreadFactory;
+
+    private RunExecutor runExecutor;
+
+    @BeforeEach
+    void setUp() {
+        when(testRunRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(testBatchRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        // Far fewer threads than batches: a runner that blocked on its jobs would leave none for the jobs themselves
+        runExecutor = new RunExecutor(Executors.newFixedThreadPool(POOL_SIZE), Executors.newFixedThreadPool(POOL_SIZE), true, POOL_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        runExecutor.destroy();
+    }
+
+    @Test
+    void TEST_ManyBatches_SmallPool_AllComplete() throws Exception {
+        completeJobsWith(TestRunStatus.COMPLETED);
+
+        List<CompletableFuture<BatchRunnerThreadStatus>> completions = startBatches();
+
+        CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        for (CompletableFuture<BatchRunnerThreadStatus> completion : completions) {
+            BatchRunnerThreadStatus status = completion.get();
+            assertEquals(TestRunStatus.COMPLETED, status.status());
+            assertEquals(JOBS_PER_BATCH, status.testRuns().size());
+        }
+        verify(jobRunnerThreadFactory, times(BATCHES * JOBS_PER_BATCH)).create(any(), any(), eq(true), any(RunAdmission.class), any());
+    }
+
+    @Test
+    void TEST_ManyBatches_JobFails_BatchesFail() throws Exception {
+        completeJobsWith(TestRunStatus.FAILED);
+
+        List<CompletableFuture<BatchRunnerThreadStatus>> completions = startBatches();
+
+        CompletableFuture.allOf(completions.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        for (CompletableFuture<BatchRunnerThreadStatus> completion : completions) {
+            assertEquals(TestRunStatus.FAILED, completion.get().status());
+        }
+    }
+
+    @Test
+    void TEST_JobThrows_BatchFailsAndStillCompletes() throws Exception {
+        when(jobRunnerThreadFactory.create(any(), any(), eq(true), any(RunAdmission.class), any())).thenAnswer(inv -> {
+            JobRunnerThread job = mock(JobRunnerThread.class);
+            doThrow(new IllegalStateException("boom")).when(job).run();
+            return job;
+        });
+
+        List<BatchRunnerThreadStatus> notified = new ArrayList<>();
+        BatchRunnerThread batch = newBatch(notified::add);
+        runExecutor.execute(batch);
+
+        BatchRunnerThreadStatus status = batch.getCompletion().get(30, TimeUnit.SECONDS);
+        assertEquals(TestRunStatus.FAILED, status.status());
+        assertEquals(List.of(status), notified);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeJobsWith(TestRunStatus status) {
+        when(jobRunnerThreadFactory.create(any(), any(), eq(true), any(RunAdmission.class), any())).thenAnswer(inv -> {
+            TestRun run = inv.getArgument(1);
+            Consumer<JobRunnerThreadStatus> onComplete = inv.getArgument(4);
+            JobRunnerThread job = mock(JobRunnerThread.class);
+            doAnswer(ignored -> {
+                Thread.sleep(1);
+                onComplete.accept(new JobRunnerThreadStatus(run, status, null));
+                return null;
+            }).when(job).run();
+            return job;
+        });
+    }
+
+    private List<CompletableFuture<BatchRunnerThreadStatus>> startBatches() {
+        List<CompletableFuture<BatchRunnerThreadStatus>> completions = new ArrayList<>();
+        for (int i = 0; i < BATCHES; i++) {
+            BatchRunnerThread batch = newBatch(status -> {});
+            completions.add(batch.getCompletion());
+            runExecutor.execute(batch);
+        }
+        return completions;
+    }
+
+    private BatchRunnerThread newBatch(Consumer<BatchRunnerThreadStatus> onComplete) {
+        TestBatch batch = new TestBatch();
+        batch.setBatchId(UUID.randomUUID());
+        batch.setBatchName("Stress batch");
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS_PER_BATCH; i++) {
+            Job job = new Job();
+            job.setJobId(UUID.randomUUID());
+            jobs.add(job);
+        }
+        batch.setJobs(jobs);
+
+        TestRun testRun = new TestRun();
+        testRun.setRunId(UUID.randomUUID());
+
+        return new BatchRunnerThread(batch, testRun, RunPriority.MANUAL, onComplete, testRunRepository, testBatchRepository,
+                jobRunnerThreadFactory, runExecutor);
+    }
+}
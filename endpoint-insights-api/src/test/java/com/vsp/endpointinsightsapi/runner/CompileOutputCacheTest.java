@@ -0,0 +1,111 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.Job;
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompileOutputCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ProcessSupervisor supervisor = new ProcessSupervisor(Map.of(RunStage.COMPILE, Duration.ofMinutes(1)), 4096);
+    private Path source;
+    private Job job;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = Files.createDirectories(tempDir.resolve("source"));
+        Files.writeString(source.resolve("Plan.java"), "class Plan {}");
+        Files.writeString(source.resolve(".gitignore"), "target/\n");
+        try (Git git = Git.init().setDirectory(source.toFile()).call()) {
+            git.add().addFilepattern(".").call();
+            git.commit().setSign(false).setMessage("init").setAuthor("Test", "test@example.com")
+                    .setCommitter("Test", "test@example.com").call();
+        }
+
+        job = new Job();
+        job.setGitUrl(source.toString());
+        job.setCompileCommand("mvn -q package");
+    }
+
+    @Test
+    void storedOutput_isRestoredIntoAnotherCheckoutOfTheSameCommit() throws Exception {
+        CompileOutputCache cache = new CompileOutputCache(tempDir.resolve("cache"), Long.MAX_VALUE, supervisor);
+
+        Path first = checkout("run1");
+        Optional<String> key = cache.keyFor(first.toFile(), job);
+        assertTrue(key.isPresent());
+        assertFalse(cache.restore(key.get(), first.toFile()));
+
+        CompileOutputCache.Snapshot before = cache.snapshot(first.toFile());
+        Files.createDirectories(first.resolve("target"));
+        Files.writeString(first.resolve("target/Plan.class"), "bytecode");
+        cache.store(key.get(), first.toFile(), before);
+
+        Path second = checkout("run2");
+        assertEquals(key, cache.keyFor(second.toFile(), job));
+        assertTrue(cache.restore(key.get(), second.toFile()));
+        assertEquals("bytecode", Files.readString(second.resolve("target/Plan.class")));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void keyFor_changesWithCompileCommand() throws Exception {
+        CompileOutputCache cache = new CompileOutputCache(tempDir.resolve("cache"), Long.MAX_VALUE, supervisor);
+        Path checkout = checkout("run");
+
+        Optional<String> key = cache.keyFor(checkout.toFile(), job);
+        job.setCompileCommand("gradle build");
+
+        assertNotEquals(key, cache.keyFor(checkout.toFile(), job));
+    }
+
+    @Test
+    void keyFor_changesWithBuildConfigButNotTimeouts() throws Exception {
+        CompileOutputCache cache = new CompileOutputCache(tempDir.resolve("cache"), Long.MAX_VALUE, supervisor);
+        Path checkout = checkout("run");
+        job.setConfig(new HashMap<>(Map.of("profile", "perf")));
+
+        Optional<String> key = cache.keyFor(checkout.toFile(), job);
+        job.getConfig().put("compileTimeoutSeconds", 60);
+        assertEquals(key, cache.keyFor(checkout.toFile(), job));
+
+        job.getConfig().put("profile", "smoke");
+        assertNotEquals(key, cache.keyFor(checkout.toFile(), job));
+    }
+
+    @Test
+    void keyFor_uncommittedChangesOrDisabledCache_isEmpty() throws Exception {
+        Path checkout = checkout("run");
+        assertTrue(new CompileOutputCache(tempDir.resolve("cache"), 0, supervisor).keyFor(checkout.toFile(), job).isEmpty());
+
+        Files.writeString(checkout.resolve("Plan.java"), "class Plan { int changed; }");
+        assertTrue(new CompileOutputCache(tempDir.resolve("cache"), Long.MAX_VALUE, supervisor).keyFor(checkout.toFile(), job).isEmpty());
+    }
+
+    @Test
+    void keyFor_notAGitCheckout_isEmpty() throws Exception {
+        Path directory = Files.createDirectories(tempDir.resolve("plain"));
+
+        assertTrue(new CompileOutputCache(tempDir.resolve("cache"), Long.MAX_VALUE, supervisor).keyFor(directory.toFile(), job).isEmpty());
+    }
+
+    private Path checkout(String name) throws Exception {
+        Path directory = tempDir.resolve(name);
+        Git.cloneRepository().setURI(source.toUri().toString()).setDirectory(directory.toFile()).call().close();
+        return directory;
+    }
+}
@@ -0,0 +1,120 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GitMirrorCacheTest {
+
+    private static final Duration TIMEOUT = Duration.ofMinutes(1);
+
+    @TempDir
+    Path tempDir;
+
+    private final ProcessSupervisor supervisor = new ProcessSupervisor(Map.of(RunStage.CLONE, TIMEOUT), 4096);
+
+    @Test
+    void checkout_reusesMirrorAndPicksUpNewCommits() throws Exception {
+        Path source = createRepository("load-tests", "plan.jmx", "v1");
+        GitMirrorCache cache = new GitMirrorCache(tempDir.resolve("mirrors"), Long.MAX_VALUE, supervisor);
+
+        Path firstRun = Files.createDirectories(tempDir.resolve("run1"));
+        cache.checkout(source.toString(), firstRun.toFile(), TIMEOUT);
+        assertEquals("v1", Files.readString(firstRun.resolve("load-tests/plan.jmx")));
+
+        commit(source, "plan.jmx", "v2");
+        Path secondRun = Files.createDirectories(tempDir.resolve("run2"));
+        cache.checkout(source.toString(), secondRun.toFile(), TIMEOUT);
+        assertEquals("v2", Files.readString(secondRun.resolve("load-tests/plan.jmx")));
+
+        // Still one mirror, and the first run's directory is untouched
+        try (var mirrors = Files.list(tempDir.resolve("mirrors"))) {
+            assertEquals(1, mirrors.count());
+        }
+        assertEquals("v1", Files.readString(firstRun.resolve("load-tests/plan.jmx")));
+    }
+
+    @Test
+    void checkout_unknownRepository_throws() {
+        GitMirrorCache cache = new GitMirrorCache(tempDir.resolve("mirrors"), Long.MAX_VALUE, supervisor);
+
+        assertThrows(IOException.class, () -> cache.checkout(tempDir.resolve("missing").toString(), tempDir.toFile(), TIMEOUT));
+    }
+
+    @Test
+    void checkout_hungFetch_isKilledAtDeadline() throws Exception {
+        Path source = createRepository("hung", "plan.jmx", "v1");
+        GitMirrorCache cache = new GitMirrorCache(tempDir.resolve("mirrors"), Long.MAX_VALUE, supervisor);
+        cache.checkout(source.toString(), Files.createDirectories(tempDir.resolve("run1")).toFile(), TIMEOUT);
+
+        // The next fetch starts an upload-pack that never answers; the comment swallows the path git appends
+        Path mirror = tempDir.resolve("mirrors").resolve(GitMirrorCache.mirrorName(source.toString()));
+        GitMirrorCache.git(supervisor, mirror.toFile(), TIMEOUT, "git", "config", "remote.origin.uploadpack", "sleep 60 #");
+
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class,
+                () -> cache.checkout(source.toString(), Files.createDirectories(tempDir.resolve("run2")).toFile(), Duration.ofSeconds(1)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 30);
+    }
+
+    @Test
+    void git_runningTooLong_isKilled() {
+        long start = System.nanoTime();
+        assertThrows(IOException.class, () -> GitMirrorCache.git(supervisor, tempDir.toFile(), Duration.ofMillis(500), "sh", "-c", "sleep 60"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 30);
+    }
+
+    @Test
+    void evict_removesLeastRecentlyUsedMirrorsFirst() throws Exception {
+        Path older = createRepository("older", "plan.jmx", "a");
+        Path newer = createRepository("newer", "plan.jmx", "b");
+        Path mirrors = tempDir.resolve("mirrors");
+        GitMirrorCache unbounded = new GitMirrorCache(mirrors, Long.MAX_VALUE, supervisor);
+        unbounded.checkout(older.toString(), Files.createDirectories(tempDir.resolve("run1")).toFile(), TIMEOUT);
+        unbounded.checkout(newer.toString(), Files.createDirectories(tempDir.resolve("run2")).toFile(), TIMEOUT);
+
+        Path olderMirror = mirrors.resolve(GitMirrorCache.mirrorName(older.toString()));
+        Path newerMirror = mirrors.resolve(GitMirrorCache.mirrorName(newer.toString()));
+        Files.setLastModifiedTime(olderMirror.resolve("last-used"), FileTime.fromMillis(1_000));
+
+        // Room for exactly one of them
+        new GitMirrorCache(mirrors, CacheDirectory.sizeOf(newerMirror), supervisor).evictLeastRecentlyUsed();
+
+        assertFalse(Files.exists(olderMirror));
+        assertTrue(Files.exists(newerMirror));
+    }
+
+    @Test
+    void repositoryName_matchesGitClone() {
+        assertEquals("tests", GitMirrorCache.repositoryName("https://github.com/org/tests.git"));
+        assertEquals("tests", GitMirrorCache.repositoryName("https://github.com/org/tests/"));
+        assertEquals("tests", GitMirrorCache.repositoryName("git@github.com:tests.git"));
+    }
+
+    private Path createRepository(String name, String file, String content) throws IOException, GitAPIException {
+        Path repository = Files.createDirectories(tempDir.resolve("sources").resolve(name));
+        Git.init().setDirectory(repository.toFile()).setInitialBranch("main").call().close();
+        commit(repository, file, content);
+        return repository;
+    }
+
+    private static void commit(Path repository, String file, String content) throws IOException, GitAPIException {
+        Files.writeString(repository.resolve(file), content);
+        try (Git git = Git.open(repository.toFile())) {
+            git.add().addFilepattern(file).call();
+            git.commit().setMessage("Update " + file).setAuthor("Test", "test@example.com")
+                    .setCommitter("Test", "test@example.com").setSign(false).call();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HostCapacityTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    void awaitCapacity_idleHost_launchesRightAway() throws Exception {
+        HostCapacity capacity = capacity(() -> new HostCapacity.HostLoad(0.2, 8192 * MB), Duration.ofSeconds(5), Duration.ZERO);
+
+        try (HostCapacity.Reservation reservation = capacity.awaitCapacity(1024 * MB)) {
+            LaunchDecision decision = reservation.decision();
+            assertFalse(decision.oversubscribed());
+            assertEquals(0.2, decision.cpuLoad());
+            assertEquals(8192 * MB, decision.availableMemoryBytes());
+            assertEquals(1024 * MB, decision.heapBytes());
+        }
+    }
+
+    @Test
+    void awaitCapacity_busyCpu_waitsUntilItDrops() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        HostCapacity capacity = capacity(() -> new HostCapacity.HostLoad(reads.incrementAndGet() < 3 ? 0.95 : 0.4, 8192 * MB),
+                Duration.ofSeconds(5), Duration.ZERO);
+
+        try (HostCapacity.Reservation reservation = capacity.awaitCapacity(1024 * MB)) {
+            assertFalse(reservation.decision().oversubscribed());
+            assertEquals(0.4, reservation.decision().cpuLoad());
+            assertEquals(3, reads.get());
+        }
+    }
+
+    @Test
+    void awaitCapacity_neverEnoughMemory_launchesOversubscribedAfterMaxDelay() throws Exception {
+        HostCapacity capacity = capacity(() -> new HostCapacity.HostLoad(0.1, 512 * MB), Duration.ofMillis(20), Duration.ZERO);
+
+        try (HostCapacity.Reservation reservation = capacity.awaitCapacity(1024 * MB)) {
+            assertTrue(reservation.decision().oversubscribed());
+            assertTrue(reservation.decision().waitedMillis() >= 20);
+        }
+    }
+
+    @Test
+    void awaitCapacity_recentLaunchStillSettling_countsItsHeap() throws Exception {
+        HostCapacity capacity = capacity(() -> new HostCapacity.HostLoad(0.1, 1536 * MB), Duration.ofMillis(20), Duration.ofMinutes(1));
+
+        try (HostCapacity.Reservation first = capacity.awaitCapacity(1024 * MB)) {
+            assertFalse(first.decision().oversubscribed());
+            try (HostCapacity.Reservation second = capacity.awaitCapacity(1024 * MB)) {
+                assertTrue(second.decision().oversubscribed());
+                assertEquals(512 * MB, second.decision().availableMemoryBytes());
+            }
+        }
+
+        // Both have exited, so nothing is set aside any more
+        try (HostCapacity.Reservation third = capacity.awaitCapacity(1024 * MB)) {
+            assertFalse(third.decision().oversubscribed());
+        }
+    }
+
+    @Test
+    void awaitCapacity_disabled_neverWaits() throws Exception {
+        HostCapacity capacity = new HostCapacity(() -> new HostCapacity.HostLoad(1.0, 0), false, 0.75, 0,
+                Duration.ofMinutes(1), Duration.ofMillis(1), Duration.ZERO);
+
+        try (HostCapacity.Reservation reservation = capacity.awaitCapacity(1024 * MB)) {
+            assertFalse(reservation.decision().oversubscribed());
+            assertEquals(0, reservation.decision().waitedMillis());
+        }
+    }
+
+    @Test
+    void jmeterHeapBytes_readsLastMaxHeap() {
+        assertEquals(HostCapacity.DEFAULT_JMETER_HEAP_BYTES, HostCapacity.jmeterHeapBytes(Map.of()));
+        assertEquals(4096 * MB, HostCapacity.jmeterHeapBytes(Map.of("HEAP", "-Xms1g -Xmx4g -XX:MaxMetaspaceSize=256m")));
+        assertEquals(512 * MB, HostCapacity.jmeterHeapBytes(Map.of("HEAP", "-Xmx4g", "JVM_ARGS", "-Xmx512m")));
+        assertEquals(2048 * 1024, HostCapacity.jmeterHeapBytes(Map.of("JVM_ARGS", "-Xmx2048k")));
+    }
+
+    @Test
+    void applyTo_keepsTheBusiestLaunchOfABatch() {
+        TestRun run = new TestRun();
+
+        new LaunchDecision(0.3, 4096 * MB, 1024 * MB, 0, false).applyTo(run);
+        new LaunchDecision(0.8, 6144 * MB, 2048 * MB, 1500, true).applyTo(run);
+        new LaunchDecision(0.5, 2048 * MB, 1024 * MB, 200, false).applyTo(run);
+
+        assertEquals(0.8, run.getHostCpuLoad());
+        assertEquals(2048, run.getHostAvailableMemoryMb());
+        assertEquals(2048, run.getJmeterHeapMb());
+        assertEquals(1500, run.getLaunchDelayMs());
+        assertTrue(run.getHostOversubscribed());
+    }
+
+    private static HostCapacity capacity(HostCapacity.Probe probe, Duration maxDelay, Duration settle) {
+        return new HostCapacity(probe, true, 0.75, 0, maxDelay, Duration.ofMillis(1), settle);
+    }
+}
@@ -9,15 +9,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(value = MockitoExtension.class)
 class JMeterCommandServiceTest {
 
-    JMeterCommandService enhancer = new JMeterCommandService();
+    private static final ProcessSupervisor SUPERVISOR = new ProcessSupervisor(Map.of(RunStage.CLONE, Duration.ofMinutes(1)), 4096);
+
+    JMeterCommandService enhancer = new JMeterCommandService(SUPERVISOR);
 
     @TempDir
     private static File workingDirectory;
@@ -59,7 +65,7 @@ class JMeterCommandServiceTest {
 
     @Test
     void TEST_NullJmeterHome_ThrowsIllegalState() {
-        JMeterCommandService noHome = new JMeterCommandService();
+        JMeterCommandService noHome = new JMeterCommandService(SUPERVISOR);
         noHome.setHome(null);
 
         assertThrows(IllegalStateException.class,
@@ -68,7 +74,7 @@ class JMeterCommandServiceTest {
 
     @Test
     void TEST_BlankJmeterHome_ThrowsIllegalState() {
-        JMeterCommandService noHome = new JMeterCommandService();
+        JMeterCommandService noHome = new JMeterCommandService(SUPERVISOR);
         noHome.setHome("  ");
         assertThrows(IllegalStateException.class,
                 () -> noHome.getRunCommand(workingDirectory, "test.jmx", "out.jtl"));
@@ -126,4 +132,107 @@ class JMeterCommandServiceTest {
             assertTrue(args.contains(flag), "Missing required flag: " + flag);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void TEST_SingleWorker_IsNotDistributed() throws IOException {
+        assertFalse(enhancer.isDistributed());
+
+        List<JMeterShard> shards = enhancer.getShardedRunCommands(workingDirectory, "test.jmx", "results.jtl");
+
+        assertEquals(1, shards.size());
+        assertFalse(shards.getFirst().isRemote());
+        assertEquals(new File(workingDirectory, "results.jtl"), shards.getFirst().resultFile());
+        assertFalse(Arrays.asList(shards.getFirst().command()).contains("-R"));
+    }
+
+    @Test
+    void TEST_RemoteWorkers_SplitThreadGroupsAcrossShards(@TempDir File planDirectory) throws IOException {
+        writeTwoThreadGroupPlan(new File(planDirectory, "distributed.jmx"));
+        enhancer.setWorkers(List.of(JMeterCommandService.LOCAL_WORKER, "10.0.0.5:1099", "10.0.0.6:1099"));
+        assertTrue(enhancer.isDistributed());
+
+        List<JMeterShard> shards = enhancer.getShardedRunCommands(planDirectory, "distributed.jmx", "results.jtl");
+
+        // Two thread groups only go as far as two workers
+        assertEquals(2, shards.size());
+        assertEquals(new File(planDirectory, "results.shard-0.jtl"), shards.get(0).resultFile());
+        assertEquals(new File(planDirectory, "results.shard-1.jtl"), shards.get(1).resultFile());
+
+        List<String> local = Arrays.asList(shards.get(0).command());
+        assertFalse(local.contains("-R"));
+        assertTrue(local.stream().anyMatch(arg -> arg.endsWith("distributed.shard-0.jmx")));
+
+        List<String> remote = Arrays.asList(shards.get(1).command());
+        assertTrue(shards.get(1).isRemote());
+        assertEquals("10.0.0.5:1099", remote.get(remote.indexOf("-R") + 1));
+        assertTrue(remote.stream().anyMatch(arg -> arg.endsWith("distributed.shard-1.jmx")));
+        assertTrue(remote.contains("-Jjmeter.save.saveservice.output_format=csv"));
+    }
+
+    @Test
+    void TEST_BinaryResults_PlanWritesThemThroughListener(@TempDir File planDirectory) throws IOException {
+        writeTwoThreadGroupPlan(new File(planDirectory, "binary.jmx"));
+        enhancer.setResultFormat(JMeterCommandService.ResultFormat.BINARY);
+
+        List<String> args = Arrays.asList(enhancer.getRunCommand(planDirectory, "binary.jmx", "results.jtl"));
+
+        File plan = new File(planDirectory, "binary.results.jmx");
+        assertEquals(plan.getAbsolutePath(), args.get(args.indexOf("-t") + 1));
+        assertFalse(args.contains("-l"));
+        assertFalse(args.contains("-Jjmeter.save.saveservice.output_format=csv"));
+
+        String written = Files.readString(plan.toPath(), StandardCharsets.UTF_8);
+        assertTrue(written.contains(JmxResultListener.LISTENER_CLASS));
+        assertTrue(written.contains(new File(planDirectory, "results.jtl").getAbsolutePath()));
+        // Both thread groups are still there, and the listener sits beside them under the test plan
+        assertTrue(written.contains("testname=\"Browse\""));
+        assertTrue(written.indexOf("testname=\"Search\"") < written.indexOf("<BackendListener"));
+    }
+
+    @Test
+    void TEST_BinaryResults_UnreadablePlanFallsBackToCsv() {
+        enhancer.setResultFormat(JMeterCommandService.ResultFormat.BINARY);
+
+        // test.jmx is empty, so there's nothing to add the listener to
+        List<String> args = Arrays.asList(enhancer.getRunCommand(workingDirectory, "test.jmx", "results.jtl"));
+
+        assertTrue(args.contains("-l"));
+        assertTrue(args.contains("-Jjmeter.save.saveservice.output_format=csv"));
+    }
+
+    @Test
+    void TEST_AggregateResults_PlanStreamsThemToApi(@TempDir File planDirectory) throws IOException {
+        writeTwoThreadGroupPlan(new File(planDirectory, "soak.jmx"));
+        enhancer.setResultFormat(JMeterCommandService.ResultFormat.AGGREGATE);
+        enhancer.getAggregateStream().setPort(23123);
+
+        List<String> args = Arrays.asList(enhancer.getRunCommand(planDirectory, "soak.jmx", "results.jtl"));
+
+        File plan = new File(planDirectory, "soak.results.jmx");
+        assertEquals(plan.getAbsolutePath(), args.get(args.indexOf("-t") + 1));
+        assertFalse(args.contains("-l"));
+
+        String written = Files.readString(plan.toPath(), StandardCharsets.UTF_8);
+        assertTrue(written.contains(JmxResultListener.AGGREGATE_LISTENER_CLASS));
+        assertTrue(written.contains(">23123<"));
+        // The stream is named after the result file the run follows
+        assertTrue(written.contains(new File(planDirectory, "results.jtl").getAbsolutePath()));
+    }
+
+    private static void writeTwoThreadGroupPlan(File plan) throws IOException {
+        Files.writeString(plan.toPath(), """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <jmeterTestPlan version="1.2" properties="5.0" jmeter="5.6.3">
+                  <hashTree>
+                    <TestPlan guiclass="TestPlanGui" testclass="TestPlan" testname="Plan"/>
+                    <hashTree>
+                      <ThreadGroup guiclass="ThreadGroupGui" testclass="ThreadGroup" testname="Browse" enabled="true"/>
+                      <hashTree/>
+                      <ThreadGroup guiclass="ThreadGroupGui" testclass="ThreadGroup" testname="Search" enabled="true"/>
+                      <hashTree/>
+                    </hashTree>
+                  </hashTree>
+                </jmeterTestPlan>
+                """, StandardCharsets.UTF_8);
+    }
+}
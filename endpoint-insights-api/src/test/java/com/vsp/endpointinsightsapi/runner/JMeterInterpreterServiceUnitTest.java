@@ -5,9 +5,7 @@ import com.vsp.endpointinsightsapi.model.TestRunResult;
 import com.vsp.endpointinsightsapi.model.entity.TestResult;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
 import com.vsp.endpointinsightsapi.repository.JobRepository;
-import com.vsp.endpointinsightsapi.repository.PerfTestResultCodeRepository;
-import com.vsp.endpointinsightsapi.repository.PerfTestResultRepository;
-import com.vsp.endpointinsightsapi.repository.TestResultRepository;
+import com.vsp.endpointinsightsapi.repository.PerfTestResultBatchWriter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -24,14 +22,12 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class JMeterInterpreterServiceUnitTest {
-    @Mock PerfTestResultRepository perfTestResultRepository;
-    @Mock PerfTestResultCodeRepository perfTestResultCodeRepository;
-    @Mock TestResultRepository testResultRepository;
+    @Mock PerfTestResultBatchWriter perfTestResultBatchWriter;
     @Mock
     JobRepository jobRepository;
     @InjectMocks
@@ -39,8 +35,6 @@ class JMeterInterpreterServiceUnitTest {
 
     @BeforeEach
     void setUp() {
-        lenient().when(testResultRepository.saveAll(anyList()))
-                .thenAnswer(invocation -> invocation.getArgument(0));
         Job job = new Job();
         // set any needed fields on job, e.g. threshold
         job.setThreshold(50);
@@ -127,9 +121,12 @@ class JMeterInterpreterServiceUnitTest {
         File file = generateJtlFile(10, 0);
         service.processResults(file, new TestRun(), jobRepository.findById(UUID.randomUUID()).get());
 
-        verify(testResultRepository).saveAll(anyList());
-        verify(perfTestResultRepository).saveAll(anyList());
-        verify(perfTestResultCodeRepository).saveAll(anyList());
+        // one sampler with a single response code
+        verify(perfTestResultBatchWriter).insertAll(
+                argThat(rows -> rows.size() == 1),
+                argThat(rows -> rows.size() == 1),
+                argThat(rows -> rows.size() == 1),
+                argThat(rows -> rows.size() == 1));
     }
 
 
@@ -0,0 +1,86 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JmxIndexTest {
+
+    private static final List<String> SKIPPED = List.of(".git", "node_modules", "target");
+
+    @TempDir
+    private Path checkout;
+
+    private final JmxIndex index = new JmxIndex(2, new ProcessSupervisor(Map.of(RunStage.CLONE, Duration.ofMinutes(1)), 4096));
+
+    private File plan(String path) throws IOException {
+        Path file = checkout.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "<jmeterTestPlan/>");
+        return file.toFile();
+    }
+
+    @Test
+    void find_skipsConfiguredDirectories() throws IOException {
+        plan("node_modules/pkg/load.jmx");
+        plan("target/jmeter/load.jmx");
+        File expected = plan("tests/load.jmx");
+
+        assertEquals(expected, index.find(checkout.toFile(), "load", SKIPPED, null, null));
+        assertNull(index.find(checkout.toFile(), "missing", SKIPPED, null, null));
+    }
+
+    @Test
+    void find_ambiguousName_picksShallowestThenFirstByPath() throws IOException {
+        plan("b/deep/nested/load.jmx");
+        plan("b/load-b.jmx");
+        File expected = plan("a/load-a.jmx");
+
+        assertEquals(expected, index.find(checkout.toFile(), "load", SKIPPED, null, null));
+    }
+
+    @Test
+    void find_sameCommit_reusesListing() throws IOException {
+        File first = plan("tests/load.jmx");
+        assertEquals(first, index.find(checkout.toFile(), "load", SKIPPED, null, "abc123"));
+
+        // Not listed again for the same commit
+        plan("load-new.jmx");
+        assertEquals(first, index.find(checkout.toFile(), "load", SKIPPED, null, "abc123"));
+        assertNull(index.find(checkout.toFile(), "load-new", SKIPPED, null, "abc123"));
+
+        // A new commit is listed afresh
+        assertEquals(checkout.resolve("load-new.jmx").toFile(), index.find(checkout.toFile(), "load", SKIPPED, null, "def456"));
+    }
+
+    @Test
+    void find_cachedPlanGone_listsAgain() throws IOException {
+        File first = plan("tests/load.jmx");
+        assertEquals(first, index.find(checkout.toFile(), "load", SKIPPED, null, "abc123"));
+
+        Files.delete(first.toPath());
+        File moved = plan("other/load.jmx");
+
+        assertEquals(moved, index.find(checkout.toFile(), "load", SKIPPED, null, "abc123"));
+    }
+
+    @Test
+    void find_otherCompileCommand_listsAgain() throws IOException {
+        File first = plan("tests/load.jmx");
+        assertEquals(first, index.find(checkout.toFile(), "load", SKIPPED, "mvn package", "abc123"));
+
+        // As if another compile command had generated a plan
+        File generated = plan("generated/load-generated.jmx");
+        assertNull(index.find(checkout.toFile(), "load-generated", SKIPPED, "mvn package", "abc123"));
+        assertEquals(generated, index.find(checkout.toFile(), "load-generated", SKIPPED, "mvn -Pgenerate package", "abc123"));
+    }
+}
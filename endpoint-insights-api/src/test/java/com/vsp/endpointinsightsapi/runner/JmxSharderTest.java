@@ -0,0 +1,73 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JmxSharderTest {
+
+    private static final String PLAN = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <jmeterTestPlan version="1.2" properties="5.0" jmeter="5.6.3">
+              <hashTree>
+                <TestPlan guiclass="TestPlanGui" testclass="TestPlan" testname="Plan">
+                  <boolProp name="TestPlan.functional_mode">false</boolProp>
+                </TestPlan>
+                <hashTree>
+                  <SetupThreadGroup guiclass="SetupThreadGroupGui" testclass="SetupThreadGroup" testname="Setup" enabled="true"/>
+                  <hashTree/>
+                  <ThreadGroup guiclass="ThreadGroupGui" testclass="ThreadGroup" testname="Browse" enabled="true"/>
+                  <hashTree/>
+                  <ThreadGroup guiclass="ThreadGroupGui" testclass="ThreadGroup" testname="Search" enabled="true"/>
+                  <hashTree/>
+                  <ThreadGroup guiclass="ThreadGroupGui" testclass="ThreadGroup" testname="Disabled" enabled="false"/>
+                  <hashTree/>
+                  <kg.apc.jmeter.threads.UltimateThreadGroup guiclass="kg.apc.jmeter.threads.UltimateThreadGroupGui" testclass="kg.apc.jmeter.threads.UltimateThreadGroup" testname="Checkout" enabled="true"/>
+                  <hashTree/>
+                </hashTree>
+              </hashTree>
+            </jmeterTestPlan>
+            """;
+
+    @TempDir
+    private File workingDirectory;
+
+    @Test
+    void shardableThreadGroups_countsEnabledLoadThreadGroups() throws IOException {
+        assertEquals(3, JmxSharder.shardableThreadGroups(writePlan()));
+    }
+
+    @Test
+    void writeShards_dealsThreadGroupsRoundRobin() throws IOException {
+        List<File> shards = JmxSharder.writeShards(writePlan(), 2);
+
+        assertEquals(List.of("test.shard-0.jmx", "test.shard-1.jmx"), shards.stream().map(File::getName).toList());
+        String first = Files.readString(shards.get(0).toPath(), StandardCharsets.UTF_8);
+        String second = Files.readString(shards.get(1).toPath(), StandardCharsets.UTF_8);
+
+        assertEquals(2, JmxSharder.shardableThreadGroups(shards.get(0)));
+        assertEquals(1, JmxSharder.shardableThreadGroups(shards.get(1)));
+        // Only the other shard's thread groups are disabled, on top of the one that already was; setUp runs on both
+        assertEquals(2, first.split("enabled=\"false\"", -1).length - 1);
+        assertEquals(3, second.split("enabled=\"false\"", -1).length - 1);
+    }
+
+    @Test
+    void writeShards_moreShardsThanThreadGroups_throws() throws IOException {
+        File plan = writePlan();
+        assertThrows(IllegalArgumentException.class, () -> JmxSharder.writeShards(plan, 4));
+    }
+
+    private File writePlan() throws IOException {
+        File plan = new File(workingDirectory, "test.jmx");
+        Files.writeString(plan.toPath(), PLAN.strip(), StandardCharsets.UTF_8);
+        return plan;
+    }
+}
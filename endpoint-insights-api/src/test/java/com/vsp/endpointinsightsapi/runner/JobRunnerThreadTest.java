@@ -4,9 +4,12 @@ import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.TestRunResult;
 import com.vsp.endpointinsightsapi.model.entity.TestResult;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
 import com.vsp.endpointinsightsapi.model.enums.TestType;
 import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.service.LiveResultsService;
 import com.vsp.endpointinsightsapi.service.NotificationService;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
@@ -20,10 +23,14 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -48,6 +55,9 @@ class JobRunnerThreadTest {
     @Mock
     private JMeterCommandService jMeterCommandEnhancer;
 
+    @Mock
+    private CompileOutputCache compileOutputCache;
+
     private Job job;
     private TestRun testRun;
 
@@ -63,7 +73,7 @@ class JobRunnerThreadTest {
         testRun.setJobId(job.getJobId());
 
         when(testRunRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
-        doReturn(null).when(gitService).cloneRepository(any(), any(), any());
+        doReturn(null).when(gitService).cloneRepository(any(), any(), any(), any());
     }
 
     private JobRunnerThread newThread() {
@@ -75,6 +85,14 @@ class JobRunnerThreadTest {
                 notificationService,
                 gitService,
                 jMeterCommandEnhancer,
+                new LiveResultsService(1),
+                compileOutputCache,
+                new RunExecutor(Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true, 1),
+                RunAdmission.forJob(testRun, RunPriority.MANUAL),
+                new HostCapacity(() -> new HostCapacity.HostLoad(0.1, Long.MAX_VALUE), true, 0.75, 0, Duration.ZERO, Duration.ofMillis(1), Duration.ZERO),
+                new ProcessSupervisor(Map.of(RunStage.EXECUTE, Duration.ofSeconds(30)), 4096),
+                new AggregateStreamServer(jMeterCommandEnhancer),
+                new ResultArchive(null),
                 s -> {
                     testRun.setStatus(s.status());
                     testRun.setFinishedAt(Instant.now());
@@ -146,7 +164,7 @@ class JobRunnerThreadTest {
         job.setCompileCommand(null);
         job.setJmeterTestName("test.jmx");
 
-        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString()))
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
                 .thenReturn(new String[]{"this-command-does-not-exist-xyz123"});
 
         JobRunnerThread thread = newThread();
@@ -169,7 +187,7 @@ class JobRunnerThreadTest {
         );
 
         job.setJmeterTestName("test.jmx");
-        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString()))
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
                 .thenReturn(new String[]{"true"});
 
         UUID resultId = UUID.randomUUID();
@@ -198,7 +216,7 @@ class JobRunnerThreadTest {
         );
 
         job.setJmeterTestName("test.jmx");
-        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString()))
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
                 .thenReturn(new String[]{"true"});
 
         when(jMeterInterpreterService.processResults(nullable(File.class), any(TestRun.class), any()))
@@ -223,7 +241,7 @@ class JobRunnerThreadTest {
         );
 
         job.setJmeterTestName("test.jmx");
-        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString()))
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
                 .thenReturn(new String[]{"true"});
 
         when(jMeterInterpreterService.processResults(nullable(File.class), any(TestRun.class), any()))
@@ -233,6 +251,138 @@ class JobRunnerThreadTest {
         JobRunnerThread thread = newThread();
         thread.run();
 
-        verify(jMeterCommandEnhancer).getRunCommand(nullable(File.class), eq("test.jmx"), anyString());
+        verify(jMeterCommandEnhancer).getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class));
+    }
+
+    @Test
+    void run_successfulProcess_recordsStageDurations() throws IOException {
+        job.setGitUrl(null);
+        job.setCompileCommand(null);
+
+        Assumptions.assumeTrue(
+                !System.getProperty("os.name", "").toLowerCase().contains("win"),
+                "Skipped on Windows: test uses Unix 'true' command"
+        );
+
+        job.setJmeterTestName("test.jmx");
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
+                .thenReturn(new String[]{"true"});
+        when(jMeterInterpreterService.processResults(nullable(File.class), any(TestRun.class), any()))
+                .thenReturn(new TestRunResult(true, UUID.randomUUID(), new ArrayList<>()));
+
+        JobRunnerThread thread = newThread();
+        thread.run();
+
+        assertNotNull(testRun.getCloneMs());
+        assertNotNull(testRun.getCompileMs());
+        assertNotNull(testRun.getExecuteMs());
+        assertNotNull(testRun.getInterpretMs());
+    }
+
+    @Test
+    void run_testRunsPastTimeout_isKilledAndFails() {
+        job.setGitUrl(null);
+        job.setCompileCommand(null);
+        job.setConfig(Map.<String, Object>of("executeTimeoutSeconds", 1));
+
+        Assumptions.assumeTrue(
+                !System.getProperty("os.name", "").toLowerCase().contains("win"),
+                "Skipped on Windows: test uses Unix 'sleep' command"
+        );
+
+        job.setJmeterTestName("test.jmx");
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
+                .thenReturn(new String[]{"sleep", "30"});
+
+        long start = System.nanoTime();
+        JobRunnerThread thread = newThread();
+        thread.run();
+
+        assertEquals(TestRunStatus.FAILED, testRun.getStatus());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 20);
+        verifyNoInteractions(jMeterInterpreterService);
+    }
+
+    @Test
+    void run_cancelledWhileTestRuns_isKilledAndCancelled() throws Exception {
+        job.setGitUrl(null);
+        job.setCompileCommand(null);
+
+        Assumptions.assumeTrue(
+                !System.getProperty("os.name", "").toLowerCase().contains("win"),
+                "Skipped on Windows: test uses Unix 'sleep' command"
+        );
+
+        job.setJmeterTestName("test.jmx");
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
+                .thenReturn(new String[]{"sleep", "30"});
+
+        JobRunnerThread thread = newThread();
+        Thread runner = Thread.ofVirtual().start(thread);
+        List<?> processes = (List<?>) ReflectionTestUtils.getField(thread, "processes");
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (processes.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        thread.cancel();
+
+        assertTrue(runner.join(Duration.ofSeconds(10)));
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 10);
+        assertEquals(TestRunStatus.CANCELLED, testRun.getStatus());
+        // sleep writes no results, so there's nothing to interpret
+        verifyNoInteractions(jMeterInterpreterService);
+    }
+
+    @Test
+    void run_cancelledMidRow_interpretsCompleteRowsOnly() throws Exception {
+        job.setGitUrl(null);
+        job.setCompileCommand(null);
+
+        Assumptions.assumeTrue(
+                !System.getProperty("os.name", "").toLowerCase().contains("win"),
+                "Skipped on Windows: test uses Unix 'sh' command"
+        );
+
+        job.setJmeterTestName("test.jmx");
+        String header = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success";
+        String row = "1700000000000,12,GET /,200,OK,Users 1-1,text,true";
+        File[] resultFile = new File[1];
+        // One whole row, then one JMeter was killed partway through
+        when(jMeterCommandEnhancer.getRunCommand(nullable(File.class), eq("test.jmx"), anyString(), nullable(String.class)))
+                .thenAnswer(inv -> {
+                    resultFile[0] = new File(inv.<File>getArgument(0), inv.<String>getArgument(2));
+                    return new String[]{"sh", "-c", "printf '" + header + "\\n" + row + "\\n1697' > '" + resultFile[0] + "'; sleep 30"};
+                });
+        when(jMeterInterpreterService.processResults(any(JtlAggregator.class), any(TestRun.class), any(Job.class)))
+                .thenAnswer(inv -> {
+                    JtlAggregator aggregator = inv.getArgument(0);
+                    assertEquals(1, aggregator.getAggregates().iterator().next().getSampleCount());
+                    assertEquals(header + "\n" + row + "\n", Files.readString(resultFile[0].toPath()));
+                    return new TestRunResult(true, UUID.randomUUID(), new ArrayList<>());
+                });
+
+        JobRunnerThread thread = newThread();
+        Thread runner = Thread.ofVirtual().start(thread);
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while ((resultFile[0] == null || !resultFile[0].isFile() || resultFile[0].length() == 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        thread.cancel();
+
+        assertTrue(runner.join(Duration.ofSeconds(10)));
+        assertEquals(TestRunStatus.CANCELLED, testRun.getStatus());
+        verify(jMeterInterpreterService).processResults(any(JtlAggregator.class), any(TestRun.class), any(Job.class));
+    }
+
+    @Test
+    void run_cancelledBeforeItStarts_isCancelledWithoutCloning() throws IOException {
+        JobRunnerThread thread = newThread();
+        thread.cancel();
+        thread.run();
+
+        assertEquals(TestRunStatus.CANCELLED, testRun.getStatus());
+        verify(gitService, never()).cloneRepository(any(), any(), any(), any());
     }
 }
@@ -0,0 +1,83 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.Job;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "Uses Unix shell commands")
+class ProcessSupervisorTest {
+
+    private ProcessSupervisor supervisor;
+
+    @BeforeEach
+    void setUp() {
+        supervisor = new ProcessSupervisor(Map.of(RunStage.COMPILE, Duration.ofMinutes(30)), 1024);
+    }
+
+    @Test
+    void run_chattyProcess_doesNotBlockOnFullPipe() throws Exception {
+        // Far more than a pipe buffer, which the process would block on if nothing read it
+        ProcessBuilder chatty = new ProcessBuilder("sh", "-c", "head -c 5000000 /dev/zero | tr '\\0' x; echo; echo done");
+
+        assertEquals(0, supervisor.run(chatty, "chatty", Duration.ofSeconds(30)));
+    }
+
+    @Test
+    void output_keepsOnlyTheEnd() throws Exception {
+        SupervisedProcess process = supervisor.start(
+                new ProcessBuilder("sh", "-c", "head -c 100000 /dev/zero | tr '\\0' x; echo; echo failed >&2"), "tail");
+
+        assertEquals(0, process.await(Duration.ofSeconds(30)));
+        String output = process.output();
+        assertEquals(1024, output.length());
+        assertTrue(output.endsWith("failed\n"));
+    }
+
+    @Test
+    void await_pastTimeout_killsProcessTree() throws Exception {
+        SupervisedProcess process = supervisor.start(new ProcessBuilder("sh", "-c", "sleep 60 & echo $!; wait"), "slow");
+        // Let the shell start its child and report it
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (process.output().isBlank() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        long childPid = Long.parseLong(process.output().strip());
+
+        assertThrows(TimeoutException.class, () -> process.await(Duration.ofMillis(200)));
+
+        assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(ProcessHandle.of(childPid).map(ProcessHandle::isAlive).orElse(false));
+    }
+
+    @Test
+    void timeout_usesJobConfigOverDefault() {
+        Job job = new Job();
+        job.setName("job");
+        assertEquals(Duration.ofMinutes(30), supervisor.timeout(job, RunStage.COMPILE));
+
+        job.setConfig(Map.<String, Object>of("compileTimeoutSeconds", 90));
+        assertEquals(Duration.ofSeconds(90), supervisor.timeout(job, RunStage.COMPILE));
+
+        job.setConfig(Map.<String, Object>of("compileTimeoutSeconds", "120"));
+        assertEquals(Duration.ofSeconds(120), supervisor.timeout(job, RunStage.COMPILE));
+
+        for (Object invalid : List.of("soon", 0, -5)) {
+            job.setConfig(Map.<String, Object>of("compileTimeoutSeconds", invalid));
+            assertEquals(Duration.ofMinutes(30), supervisor.timeout(job, RunStage.COMPILE));
+        }
+    }
+}
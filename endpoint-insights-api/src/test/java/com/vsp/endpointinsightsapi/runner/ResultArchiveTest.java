@@ -0,0 +1,80 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlStreamReader;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerAggregate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void archivedResults_areReadBackAsWritten() throws Exception {
+        ResultArchive archive = new ResultArchive(tempDir.resolve("archive"));
+        UUID runId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        Path resultFile = Files.writeString(tempDir.resolve("results.jtl"), """
+                timeStamp,elapsed,label,responseCode,threadName,success
+                1700000000000,12,GET /,200,engine-1-Users 1-1,true
+                1700000000010,30,GET /,500,engine-1-Users 1-2,false
+                """, StandardCharsets.UTF_8);
+
+        archive.archive(runId, jobId, resultFile.toFile(), "engine-1-");
+
+        assertTrue(archive.contains(runId, jobId));
+        try (ResultArchive.Entry entry = archive.open(runId, jobId).orElseThrow()) {
+            assertEquals("engine-1-", entry.threadGroupPrefix());
+            JtlAggregator aggregator = JtlStreamReader.aggregate(entry.results());
+            SamplerAggregate aggregate = aggregator.getAggregates().iterator().next();
+            assertEquals(2, aggregate.getSampleCount());
+            assertEquals(1, aggregate.getErrorCount());
+        }
+    }
+
+    @Test
+    void deletedRuns_areNoLongerArchived() throws Exception {
+        ResultArchive archive = new ResultArchive(tempDir.resolve("archive"));
+        UUID deleted = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+        UUID kept = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        Path resultFile = Files.writeString(tempDir.resolve("results.jtl"), "timeStamp,elapsed\n", StandardCharsets.UTF_8);
+        for (UUID runId : new UUID[]{deleted, expired, kept}) {
+            archive.archive(runId, jobId, resultFile.toFile(), null);
+        }
+        Files.setLastModifiedTime(tempDir.resolve("archive").resolve(expired.toString()), FileTime.from(Instant.now().minusSeconds(3600)));
+
+        archive.delete(deleted);
+        assertEquals(1, archive.deleteBefore(Instant.now().minusSeconds(60)));
+
+        assertFalse(archive.contains(deleted, jobId));
+        assertFalse(archive.contains(expired, jobId));
+        assertTrue(archive.contains(kept, jobId));
+    }
+
+    @Test
+    void disabledArchive_keepsNothing() throws Exception {
+        ResultArchive archive = new ResultArchive(null);
+        UUID runId = UUID.randomUUID();
+        UUID jobId = UUID.randomUUID();
+        Path resultFile = Files.writeString(tempDir.resolve("results.jtl"), "timeStamp,elapsed\n", StandardCharsets.UTF_8);
+
+        archive.archive(runId, jobId, resultFile.toFile(), null);
+
+        assertFalse(archive.isEnabled());
+        assertFalse(archive.contains(runId, jobId));
+        assertTrue(archive.open(runId, jobId).isEmpty());
+    }
+}
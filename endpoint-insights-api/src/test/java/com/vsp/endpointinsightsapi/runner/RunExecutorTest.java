@@ -0,0 +1,83 @@
+package com.vsp.endpointinsightsapi.runner;
+
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunExecutorTest {
+
+    private static final RunAdmission ADMISSION = new RunAdmission(UUID.randomUUID(), 0, RunPriority.MANUAL);
+
+    @Test
+    void testSlots_limitConcurrentTestsButNotRuns() throws Exception {
+        RunExecutor executor = new RunExecutor(Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch allStarted = new CountDownLatch(20);
+
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            runs.add(executor.runJob(() -> {
+                allStarted.countDown();
+                try (RunExecutor.TestSlot ignored = executor.acquireTestSlot(ADMISSION)) {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        // Every run gets a thread straight away, only the tests queue up
+        assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+        for (CompletableFuture<Void> run : runs) {
+            run.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, executor.getRunningTests());
+        executor.destroy();
+    }
+
+    @Test
+    void runJob_taskThrows_completesExceptionally() {
+        RunExecutor executor = new RunExecutor(Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true, 1);
+
+        CompletableFuture<Void> job = executor.runJob(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> job.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        executor.destroy();
+    }
+
+    @Test
+    void testSlot_closedTwice_releasesOnce() throws Exception {
+        RunExecutor executor = new RunExecutor(Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true, 1);
+
+        RunExecutor.TestSlot slot = executor.acquireTestSlot(ADMISSION);
+        assertEquals(1, executor.getRunningTests());
+        slot.close();
+        slot.close();
+
+        assertEquals(0, executor.getRunningTests());
+        executor.destroy();
+    }
+
+    @Test
+    void constructor_withoutTestSlots_throws() {
+        assertThrows(IllegalArgumentException.class, () -> new RunExecutor(Executors.newVirtualThreadPerTaskExecutor(), Executors.newVirtualThreadPerTaskExecutor(), true, 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregateDeltasTest {
+
+    private static final long START = 1_772_159_606_000L;
+
+    @Test
+    void TEST_Deltas_AddUpToSingleAggregate() {
+        JtlAggregator expected = new JtlAggregator();
+        JtlAggregator received = new JtlAggregator();
+        JtlAggregator delta = new JtlAggregator();
+        for (int i = 0; i < 3_000; i++) {
+            String thread = "Users " + (i % 2) + "-" + i % 9;
+            String label = "GET /items/" + (i % 7);
+            long timeStamp = START + i * 150L;
+            int code = i % 13 == 0 ? 503 : 200;
+            expected.record(thread, label, i % 400, timeStamp, code, code == 200);
+            delta.record(thread, label, i % 400, timeStamp, code, code == 200);
+            // Send a delta every 500 samples, as the listener would every interval
+            if (i % 500 == 499) {
+                AggregateDeltas.decodeInto(ByteBuffer.wrap(AggregateDeltas.encode(delta)), received);
+                delta = new JtlAggregator();
+            }
+        }
+
+        assertEquals(expected.getAggregates().size(), received.getAggregates().size());
+        Iterator<SamplerAggregate> actualAggregates = received.getAggregates().iterator();
+        for (SamplerAggregate e : expected.getAggregates()) {
+            SamplerAggregate a = actualAggregates.next();
+            assertEquals(e.getThreadGroup(), a.getThreadGroup());
+            assertEquals(e.getSamplerName(), a.getSamplerName());
+            assertEquals(e.getSampleCount(), a.getSampleCount());
+            assertEquals(e.getErrorCount(), a.getErrorCount());
+            assertEquals(e.getResponseCodeCounts(), a.getResponseCodeCounts());
+            assertEquals(e.getLatencies().percentile(99), a.getLatencies().percentile(99));
+            assertEquals(e.getThroughputPerSecond(), a.getThroughputPerSecond());
+            assertEquals(e.getVolumeLastMinute(), a.getVolumeLastMinute());
+            assertEquals(e.getVolumeLast5Minutes(), a.getVolumeLast5Minutes());
+            assertEquals(e.getTimeSeries().getPoints().size(), a.getTimeSeries().getPoints().size());
+        }
+    }
+
+    @Test
+    void TEST_EmptyDelta_AddsNothing() {
+        JtlAggregator received = new JtlAggregator();
+        AggregateDeltas.decodeInto(ByteBuffer.wrap(AggregateDeltas.encode(new JtlAggregator())), received);
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void TEST_TruncatedDelta_IsRejected() {
+        JtlAggregator delta = new JtlAggregator();
+        delta.record("Users 1-1", "GET /", 12, START, 200, true);
+        byte[] bytes = AggregateDeltas.encode(delta);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> AggregateDeltas.decodeInto(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 3)), new JtlAggregator()));
+    }
+}
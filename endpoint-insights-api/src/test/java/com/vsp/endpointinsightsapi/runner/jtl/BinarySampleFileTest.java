@@ -0,0 +1,143 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySampleFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void TEST_WrittenSamples_AggregateLikeCsvRows() throws IOException {
+        Path file = tempDir.resolve("results.jtl");
+        try (BinarySampleWriter writer = new BinarySampleWriter(Files.newOutputStream(file))) {
+            writer.write("Users 1-1", "GET /health", 1_700_000_001_000L, 12, 200, true);
+            // Out of order time stamps, as samples of different threads finish
+            writer.write("Users 1-2", "GET /health", 1_700_000_000_500L, 30, 500, false);
+            writer.write("Users 1-1", "GET /orders-1", 1_700_000_002_000L, 7, -1, false);
+        }
+
+        JtlAggregator expected = new JtlAggregator();
+        expected.record("Users 1-1", "GET /health", 12, 1_700_000_001_000L, 200, true);
+        expected.record("Users 1-2", "GET /health", 30, 1_700_000_000_500L, 500, false);
+        expected.record("Users 1-1", "GET /orders-1", 7, 1_700_000_002_000L, -1, false);
+
+        assertTrue(BinarySampleFile.isBinary(file));
+        JtlAggregator actual = new JtlAggregator();
+        try (BinarySampleFile samples = BinarySampleFile.open(file)) {
+            assertTrue(samples.read(actual));
+            assertEquals(samples.size(), samples.position());
+        }
+        assertSameAggregates(expected, actual);
+    }
+
+    @Test
+    void TEST_GrowingFile_LeavesCutRecordForNextRead() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (BinarySampleWriter writer = new BinarySampleWriter(bytes)) {
+            writer.write("Users 1-1", "GET /", 1000, 12, 200, true);
+            writer.write("Users 1-2", "GET /", 2000, 30, 500, false);
+        }
+        byte[] all = bytes.toByteArray();
+        Path file = tempDir.resolve("growing.jtl");
+
+        // Header only partly written
+        append(file, Arrays.copyOfRange(all, 0, 3));
+        assertNull(BinarySampleFile.openWhenHeaderComplete(file));
+
+        append(file, Arrays.copyOfRange(all, 3, all.length - 2));
+        JtlAggregator aggregator = new JtlAggregator();
+        try (BinarySampleFile samples = BinarySampleFile.openWhenHeaderComplete(file)) {
+            assertNotNull(samples);
+            assertTrue(samples.read(aggregator));
+            assertEquals(1, aggregator.getAggregates().iterator().next().getSampleCount());
+            assertFalse(samples.read(aggregator));
+
+            append(file, Arrays.copyOfRange(all, all.length - 2, all.length));
+            assertTrue(samples.read(aggregator));
+            SamplerAggregate aggregate = aggregator.getAggregates().iterator().next();
+            assertEquals(2, aggregate.getSampleCount());
+            assertEquals(1, aggregate.getErrorCount());
+        }
+    }
+
+    @Test
+    void TEST_SmallWindows_ReadSameSamples() throws IOException {
+        Path file = tempDir.resolve("many.jtl");
+        JtlAggregator expected = new JtlAggregator();
+        try (BinarySampleWriter writer = new BinarySampleWriter(Files.newOutputStream(file))) {
+            for (int i = 0; i < 5000; i++) {
+                String thread = "Users " + (i % 3) + "-" + i % 17;
+                String label = "GET /items/" + (i % 40);
+                writer.write(thread, label, 1000L + i * 3L, i % 250, i % 11 == 0 ? 503 : 200, i % 11 != 0);
+                expected.record(thread, label, i % 250, 1000L + i * 3L, i % 11 == 0 ? 503 : 200, i % 11 != 0);
+            }
+        }
+
+        JtlAggregator actual = new JtlAggregator();
+        try (BinarySampleFile samples = BinarySampleFile.open(file, 64)) {
+            samples.read(actual);
+        }
+        assertSameAggregates(expected, actual);
+    }
+
+    @Test
+    void TEST_CsvFile_IsNotBinary() throws IOException {
+        Path file = tempDir.resolve("results.csv");
+        Files.writeString(file, "timeStamp,elapsed,label\n");
+
+        assertFalse(BinarySampleFile.isBinary(file));
+        assertFalse(BinarySampleFile.isBinary(tempDir.resolve("missing.jtl")));
+        assertThrows(IOException.class, () -> BinarySampleFile.open(file));
+    }
+
+    @Test
+    void TEST_BinaryFile_IsFollowedByTailer() throws IOException {
+        Path file = tempDir.resolve("tailed.jtl");
+        try (JtlTailer tailer = new JtlTailer(file)) {
+            assertFalse(tailer.poll());
+
+            OutputStream out = Files.newOutputStream(file);
+            BinarySampleWriter writer = new BinarySampleWriter(out);
+            writer.write("Users 1-1", "GET /", 1000, 12, 200, true);
+            writer.flush();
+            assertTrue(tailer.poll());
+            assertTrue(tailer.isStarted());
+
+            writer.write("Users 1-1", "GET /", 2000, 20, 200, true);
+            writer.close();
+            assertEquals(2, tailer.finish().getAggregates().iterator().next().getSampleCount());
+        }
+    }
+
+    private static void assertSameAggregates(JtlAggregator expected, JtlAggregator actual) {
+        assertEquals(expected.getAggregates().size(), actual.getAggregates().size());
+        Iterator<SamplerAggregate> actualAggregates = actual.getAggregates().iterator();
+        for (SamplerAggregate e : expected.getAggregates()) {
+            SamplerAggregate a = actualAggregates.next();
+            assertEquals(e.getThreadGroup(), a.getThreadGroup());
+            assertEquals(e.getSamplerName(), a.getSamplerName());
+            assertEquals(e.getSampleCount(), a.getSampleCount());
+            assertEquals(e.getErrorCount(), a.getErrorCount());
+            assertEquals(e.getResponseCodeCounts(), a.getResponseCodeCounts());
+            assertEquals(e.getLatencies().getMax(), a.getLatencies().getMax());
+            assertEquals(e.getLatencies().percentile(50), a.getLatencies().percentile(50));
+        }
+    }
+
+    private static void append(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
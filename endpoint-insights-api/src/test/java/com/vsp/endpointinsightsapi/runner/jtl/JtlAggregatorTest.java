@@ -0,0 +1,132 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JtlAggregatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void TEST_ThreadAndLabelSuffixes_AreGroupedTogether() {
+        JtlAggregator aggregator = new JtlAggregator();
+        aggregator.record("Users 1-1", "GET /health", 10, 1_000, 200, true);
+        aggregator.record("Users 1-2", "GET /health", 20, 2_000, 500, false);
+        aggregator.record("Admins 1-1", "GET /health", 30, 3_000, 200, true);
+
+        List<SamplerAggregate> aggregates = List.copyOf(aggregator.getAggregates());
+        assertEquals(2, aggregates.size());
+
+        SamplerAggregate users = aggregates.get(0);
+        assertEquals("Users 1", users.getThreadGroup());
+        assertEquals("GET /health", users.getSamplerName());
+        assertEquals(2, users.getSampleCount());
+        assertEquals(1, users.getErrorCount());
+        assertEquals(50.0, users.getErrorRatePercent(), 0.0001);
+        assertEquals(1L, users.getResponseCodeCounts().get(200));
+        assertEquals(1L, users.getResponseCodeCounts().get(500));
+    }
+
+    @Test
+    void TEST_Volumes_CountTrailingWindowFromLatestSample() {
+        JtlAggregator aggregator = new JtlAggregator();
+        long start = 1_772_159_606_000L;
+        // one sample per second for ten minutes
+        for (int i = 0; i < 600; i++) {
+            aggregator.record("Users-1", "GET /", 5, start + i * 1_000L, 200, true);
+        }
+
+        SamplerAggregate aggregate = aggregator.getAggregates().iterator().next();
+        assertEquals(61, aggregate.getVolumeLastMinute());
+        assertEquals(301, aggregate.getVolumeLast5Minutes());
+    }
+
+    @Test
+    void TEST_Merge_MatchesSingleAggregator() {
+        JtlAggregator whole = new JtlAggregator();
+        JtlAggregator first = new JtlAggregator();
+        JtlAggregator second = new JtlAggregator();
+        long start = 1_772_159_606_000L;
+        for (int i = 0; i < 1_000; i++) {
+            String thread = (i % 2 == 0 ? "A-" : "B-") + i;
+            long ts = start + i * 500L;
+            boolean success = i % 17 != 0;
+            whole.record(thread, "GET /", i % 300, ts, success ? 200 : 503, success);
+            (i < 400 ? first : second).record(thread, "GET /", i % 300, ts, success ? 200 : 503, success);
+        }
+
+        first.merge(second);
+
+        List<SamplerAggregate> expected = List.copyOf(whole.getAggregates());
+        List<SamplerAggregate> actual = List.copyOf(first.getAggregates());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getThreadGroup(), actual.get(i).getThreadGroup());
+            assertEquals(expected.get(i).getSampleCount(), actual.get(i).getSampleCount());
+            assertEquals(expected.get(i).getErrorCount(), actual.get(i).getErrorCount());
+            assertEquals(expected.get(i).getVolumeLastMinute(), actual.get(i).getVolumeLastMinute());
+            assertEquals(expected.get(i).getVolumeLast5Minutes(), actual.get(i).getVolumeLast5Minutes());
+            assertEquals(expected.get(i).getLatencies().percentile(99), actual.get(i).getLatencies().percentile(99));
+            assertEquals(expected.get(i).getResponseCodeCounts(), actual.get(i).getResponseCodeCounts());
+        }
+    }
+
+    @Test
+    void TEST_MergeWithPrefix_JoinsRemoteThreadGroups() {
+        JtlAggregator local = new JtlAggregator();
+        local.record("Users 1-1", "GET /", 10, 1000, 200, true);
+        JtlAggregator remote = new JtlAggregator();
+        remote.record("10.0.0.5:1099-Users 1-1", "GET /", 20, 2000, 200, true);
+        remote.record("10.0.0.5:1099-Admins 2-1", "GET /", 30, 3000, 200, true);
+
+        JtlAggregator merged = new JtlAggregator();
+        merged.merge(local);
+        merged.merge(remote, "10.0.0.5:1099-");
+
+        List<SamplerAggregate> aggregates = List.copyOf(merged.getAggregates());
+        assertEquals(2, aggregates.size());
+        assertEquals("Users 1", aggregates.get(0).getThreadGroup());
+        assertEquals(2, aggregates.get(0).getSampleCount());
+        assertEquals("Admins 2", aggregates.get(1).getThreadGroup());
+    }
+
+    @Test
+    void TEST_FileRows_GroupLikeDecodedNames() throws IOException {
+        Path file = tempDir.resolve("results.jtl");
+        Files.writeString(file, "timeStamp,elapsed,label,responseCode,threadName,success\n"
+                + "1000,10,GET /a-1,200,Users 1-1,true\n"
+                + "2000,20,GET /a-2,200,Users 1-2,true\n"
+                + "3000,30,\"GET \"\"b\"\"-1\",404,\"Users 1-3\",false\n"
+                + "4000,40,GET /café,200,Users 1-1,true\n", StandardCharsets.UTF_8);
+
+        JtlAggregator fromBytes = new JtlAggregator();
+        try (JtlFile jtl = JtlFile.open(file)) {
+            jtl.scan(jtl.dataStart(), jtl.size(), fromBytes::record);
+        }
+        JtlAggregator fromStrings = new JtlAggregator();
+        fromStrings.record("Users 1-1", "GET /a-1", 10, 1000, 200, true);
+        fromStrings.record("Users 1-2", "GET /a-2", 20, 2000, 200, true);
+        fromStrings.record("Users 1-3", "GET \"b\"-1", 30, 3000, 404, false);
+        fromStrings.record("Users 1-1", "GET /café", 40, 4000, 200, true);
+
+        List<SamplerAggregate> actual = List.copyOf(fromBytes.getAggregates());
+        List<SamplerAggregate> expected = List.copyOf(fromStrings.getAggregates());
+        assertEquals(3, actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getThreadGroup(), actual.get(i).getThreadGroup());
+            assertEquals(expected.get(i).getSamplerName(), actual.get(i).getSamplerName());
+            assertEquals(expected.get(i).getSampleCount(), actual.get(i).getSampleCount());
+            assertEquals(expected.get(i).getResponseCodeCounts(), actual.get(i).getResponseCodeCounts());
+        }
+        assertEquals("GET \"b\"", actual.get(1).getSamplerName());
+    }
+}
@@ -0,0 +1,131 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JtlFileTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    @TempDir
+    Path tempDir;
+
+    private record Row(long timeStamp, long elapsed, String label, int responseCode, String threadName, boolean success) {}
+
+    @Test
+    void TEST_PlainRows_AreParsed() throws IOException {
+        Path file = write(HEADER + "\n"
+                + "1000,12,GET /health,200,OK,Users 1-1,text,true,,100,50,1,1,http://localhost/health,4,0,1\n"
+                + "2000,40,GET /orders,500,Server Error,Users 1-2,text,false,boom,100,50,1,1,http://localhost/orders,4,0,1\n");
+
+        List<Row> rows = readAll(file, 1L << 20);
+
+        assertEquals(2, rows.size());
+        assertEquals(new Row(1000, 12, "GET /health", 200, "Users 1-1", true), rows.get(0));
+        assertEquals(new Row(2000, 40, "GET /orders", 500, "Users 1-2", false), rows.get(1));
+    }
+
+    @Test
+    void TEST_QuotedFields_WithCommasQuotesAndNewlines() throws IOException {
+        Path file = write(HEADER + "\n"
+                + "1000,12,\"GET /search?q=a,b\",200,\"multi\nline, message\",\"Users, \"\"east\"\" 1-1\",text,true,,100,50,1,1,x,4,0,1\n"
+                + "2000,7,plain,200,OK,Users 1-2,text,TRUE,,100,50,1,1,x,4,0,1\n");
+
+        List<Row> rows = readAll(file, 1L << 20);
+
+        assertEquals(2, rows.size());
+        assertEquals("GET /search?q=a,b", rows.get(0).label());
+        assertEquals("Users, \"east\" 1-1", rows.get(0).threadName());
+        assertTrue(rows.get(0).success());
+        assertEquals(new Row(2000, 7, "plain", 200, "Users 1-2", true), rows.get(1));
+    }
+
+    @Test
+    void TEST_CrLfLineEndings_AndBlankLines() throws IOException {
+        Path file = write(HEADER + "\r\n"
+                + "1000,12,GET /,200,OK,Users 1-1,text,true,,100,50,1,1,x,4,0,1\r\n"
+                + "\r\n"
+                + "2000,13,GET /,404,Not Found,Users 1-1,text,false,,100,50,1,1,x,4,0,1");
+
+        List<Row> rows = readAll(file, 1L << 20);
+
+        assertEquals(2, rows.size());
+        assertEquals(404, rows.get(1).responseCode());
+        assertFalse(rows.get(1).success());
+    }
+
+    @Test
+    void TEST_NonNumericValues_FallBack() throws IOException {
+        Path file = write(HEADER + "\n"
+                + "oops,,GET /,Non HTTP response code: java.net.ConnectException,msg,Users 1-1,text,false,,0,0,1,1,x,0,0,0\n"
+                + "1000,5,GET /, 201 ,msg,Users 1-1,text,true,,0,0,1,1,x,0,0,0\n");
+
+        List<Row> rows = readAll(file, 1L << 20);
+
+        assertEquals(new Row(0, 0, "GET /", -1, "Users 1-1", false), rows.get(0));
+        assertEquals(201, rows.get(1).responseCode());
+    }
+
+    @Test
+    void TEST_SmallWindows_ProduceSameRows() throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 500; i++) {
+            sb.append(1_000_000L + i).append(',').append(i % 97)
+                    .append(",\"GET /item/").append(i).append(",detail\",200,OK,Users 1-").append(i % 5)
+                    .append(",text,true,,100,50,1,1,x,4,0,1\n");
+        }
+        Path file = write(sb.toString());
+
+        assertEquals(readAll(file, 1L << 20), readAll(file, 512));
+    }
+
+    @Test
+    void TEST_TruncateIncompleteRow_CutsOnlyTheRowCutShort() throws IOException {
+        // The cut row's line break so far is inside a quoted message, so it mustn't be taken for the row's end
+        String whole = HEADER + "\n1000,12,GET /,200,OK,Users 1-1,text,true,,100,50,1,1,x,4,0,1\n";
+        Path file = write(whole + "1697,3,GET /,500,\"multi\nli");
+
+        assertTrue(JtlFile.truncateIncompleteRow(file));
+        assertEquals(whole, Files.readString(file));
+        assertFalse(JtlFile.truncateIncompleteRow(file));
+        assertEquals(1, readAll(file, 1L << 20).size());
+    }
+
+    @Test
+    void TEST_EmptyFile_Throws() throws IOException {
+        Path file = write("");
+
+        assertThrows(IOException.class, () -> JtlFile.open(file));
+    }
+
+    @Test
+    void TEST_MissingColumn_Throws() throws IOException {
+        Path file = write("timeStamp,elapsed,label\n1,2,x\n");
+
+        IOException e = assertThrows(IOException.class, () -> JtlFile.open(file));
+        assertTrue(e.getMessage().contains("responseCode"));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "results", ".jtl");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private static List<Row> readAll(Path file, long windowSize) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (JtlFile jtl = JtlFile.open(file, windowSize)) {
+            jtl.scan(jtl.dataStart(), jtl.size(), r -> rows.add(new Row(r.timeStamp(), r.elapsed(), r.label(), r.responseCode(), r.threadName(), r.success())));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,111 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JtlParallelAggregatorTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void TEST_SmallChunks_MatchSerialScan() throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        long start = 1_772_159_606_000L;
+        for (int i = 0; i < 5_000; i++) {
+            boolean success = i % 13 != 0;
+            sb.append(start + i * 100L).append(',').append(i % 700)
+                    .append(",GET /item/").append(i % 3)
+                    .append(',').append(success ? 200 : 500)
+                    // every so often a quoted message with a line break in it
+                    .append(i % 50 == 0 ? ",\"first line\nsecond line\"" : ",OK")
+                    .append(",Users ").append(i % 4).append('-').append(i)
+                    .append(",text,").append(success).append(",,100,50,1,1,x,4,0,1\n");
+        }
+        Path file = tempDir.resolve("results.jtl");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+
+        JtlAggregator serial = new JtlAggregator();
+        JtlAggregator parallel;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (JtlFile jtl = JtlFile.open(file)) {
+            jtl.scan(jtl.dataStart(), jtl.size(), serial::record);
+            parallel = JtlParallelAggregator.aggregate(jtl, pool, 1_024);
+        } finally {
+            pool.shutdown();
+        }
+
+        List<SamplerAggregate> expected = List.copyOf(serial.getAggregates());
+        List<SamplerAggregate> actual = List.copyOf(parallel.getAggregates());
+        assertEquals(12, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getThreadGroup(), actual.get(i).getThreadGroup());
+            assertEquals(expected.get(i).getSamplerName(), actual.get(i).getSamplerName());
+            assertEquals(expected.get(i).getSampleCount(), actual.get(i).getSampleCount());
+            assertEquals(expected.get(i).getErrorCount(), actual.get(i).getErrorCount());
+            assertEquals(expected.get(i).getVolumeLastMinute(), actual.get(i).getVolumeLastMinute());
+            assertEquals(expected.get(i).getLatencies().percentile(50), actual.get(i).getLatencies().percentile(50));
+            assertEquals(expected.get(i).getLatencies().percentile(99), actual.get(i).getLatencies().percentile(99));
+            assertEquals(expected.get(i).getResponseCodeCounts(), actual.get(i).getResponseCodeCounts());
+        }
+    }
+
+    @Test
+    void TEST_QuotedLineBreakBeforeDigit_IsNotTakenForARowStart() throws IOException {
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        long start = 1_772_159_606_000L;
+        for (int i = 0; i < 2_000; i++) {
+            // every row has a line break followed by a digit inside a quoted field, so chunk targets land before some
+            sb.append(start + i * 100L).append(',').append(i % 700)
+                    .append(",GET /item/").append(i % 3)
+                    .append(",500,\"failed\n2,").append(i % 9).append(" retries\"")
+                    .append(",Users 1-").append(i)
+                    .append(",text,false,,100,50,1,1,x,4,0,1\n");
+        }
+        Path file = tempDir.resolve("results.jtl");
+        Files.writeString(file, sb.toString(), StandardCharsets.UTF_8);
+
+        JtlAggregator serial = new JtlAggregator();
+        JtlAggregator parallel;
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (JtlFile jtl = JtlFile.open(file)) {
+            jtl.scan(jtl.dataStart(), jtl.size(), serial::record);
+            parallel = JtlParallelAggregator.aggregate(jtl, pool, 1_024);
+        } finally {
+            pool.shutdown();
+        }
+
+        List<SamplerAggregate> expected = List.copyOf(serial.getAggregates());
+        List<SamplerAggregate> actual = List.copyOf(parallel.getAggregates());
+        assertEquals(3, expected.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getSamplerName(), actual.get(i).getSamplerName());
+            assertEquals(expected.get(i).getSampleCount(), actual.get(i).getSampleCount());
+            assertEquals(expected.get(i).getErrorCount(), actual.get(i).getErrorCount());
+            assertEquals(expected.get(i).getResponseCodeCounts(), actual.get(i).getResponseCodeCounts());
+        }
+    }
+
+    @Test
+    void TEST_HeaderOnlyFile_IsEmpty() throws IOException {
+        Path file = tempDir.resolve("empty.jtl");
+        Files.writeString(file, HEADER + "\n", StandardCharsets.UTF_8);
+
+        try (JtlFile jtl = JtlFile.open(file)) {
+            assertTrue(JtlParallelAggregator.aggregate(jtl, ForkJoinPool.commonPool(), 1_024).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JtlStreamReaderTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success";
+
+    @Test
+    void TEST_CompressedCsv_AggregatesLikeFile() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        JtlAggregator expected = new JtlAggregator();
+        for (int i = 0; i < 2_000; i++) {
+            boolean success = i % 9 != 0;
+            // Quoted messages with line breaks, so rows don't line up with chunks
+            csv.append(1_700_000_000_000L + i * 10L).append(',').append(i % 300).append(",GET /items/").append(i % 5)
+                    .append(',').append(success ? 200 : 500).append(",\"multi\nline, message\",Users 1-").append(i % 4)
+                    .append(",text,").append(success).append('\n');
+            expected.record("Users 1-" + i % 4, "GET /items/" + i % 5, i % 300, 1_700_000_000_000L + i * 10L, success ? 200 : 500, success);
+        }
+
+        byte[] compressed = gzip(csv.toString().getBytes(StandardCharsets.UTF_8));
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertSameAggregates(expected, JtlStreamReader.aggregate(in, 64));
+        }
+    }
+
+    @Test
+    void TEST_LastRowWithoutLineBreak_IsRead() throws IOException {
+        String csv = HEADER + "\n1000,12,GET /,200,OK,Users 1-1,text,true\n2000,30,GET /,500,Error,Users 1-2,text,false";
+
+        JtlAggregator aggregator = JtlStreamReader.aggregate(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 16);
+
+        SamplerAggregate aggregate = aggregator.getAggregates().iterator().next();
+        assertEquals(2, aggregate.getSampleCount());
+        assertEquals(1, aggregate.getErrorCount());
+    }
+
+    @Test
+    void TEST_BinaryStream_AggregatesLikeFile() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JtlAggregator expected = new JtlAggregator();
+        try (BinarySampleWriter writer = new BinarySampleWriter(bytes)) {
+            for (int i = 0; i < 3_000; i++) {
+                String thread = "Users " + (i % 3) + "-" + i % 11;
+                String label = "GET /items/" + (i % 30);
+                writer.write(thread, label, 1000L + i * 7L, i % 200, i % 13 == 0 ? 503 : 200, i % 13 != 0);
+                expected.record(thread, label, i % 200, 1000L + i * 7L, i % 13 == 0 ? 503 : 200, i % 13 != 0);
+            }
+        }
+
+        assertSameAggregates(expected, JtlStreamReader.aggregate(new ByteArrayInputStream(bytes.toByteArray()), 32));
+    }
+
+    @Test
+    void TEST_EmptyOrForeignStream_IsRejected() {
+        assertThrows(IOException.class, () -> JtlStreamReader.aggregate(new ByteArrayInputStream(new byte[0])));
+        assertThrows(IOException.class, () -> JtlStreamReader.aggregate(new ByteArrayInputStream("not,a,result\n".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertSameAggregates(JtlAggregator expected, JtlAggregator actual) {
+        assertEquals(expected.getAggregates().size(), actual.getAggregates().size());
+        Iterator<SamplerAggregate> actualAggregates = actual.getAggregates().iterator();
+        for (SamplerAggregate e : expected.getAggregates()) {
+            SamplerAggregate a = actualAggregates.next();
+            assertEquals(e.getThreadGroup(), a.getThreadGroup());
+            assertEquals(e.getSamplerName(), a.getSamplerName());
+            assertEquals(e.getSampleCount(), a.getSampleCount());
+            assertEquals(e.getErrorCount(), a.getErrorCount());
+            assertEquals(e.getResponseCodeCounts(), a.getResponseCodeCounts());
+            assertEquals(e.getLatencies().percentile(95), a.getLatencies().percentile(95));
+        }
+    }
+}
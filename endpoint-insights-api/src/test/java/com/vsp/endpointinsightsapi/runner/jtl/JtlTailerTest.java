@@ -0,0 +1,85 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JtlTailerTest {
+
+    private static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void TEST_GrowingFile_IsReadRowByRow() throws IOException {
+        Path file = tempDir.resolve("results.jtl");
+
+        try (JtlTailer tailer = new JtlTailer(file)) {
+            // JMeter hasn't created the file yet
+            assertFalse(tailer.poll());
+            assertFalse(tailer.isStarted());
+
+            append(file, HEADER.substring(0, 20));
+            assertFalse(tailer.poll());
+            assertFalse(tailer.isStarted());
+
+            append(file, HEADER.substring(20) + "\n1000,12,GET /,200,OK,Users 1-1,text,true,,1,1,1,1,x,1,0,1\n2000,3");
+            assertTrue(tailer.poll());
+            assertTrue(tailer.isStarted());
+            assertEquals(1, sampleCount(tailer.getAggregator()));
+
+            // Still mid-row
+            append(file, "0,GET /,500,");
+            assertFalse(tailer.poll());
+            assertEquals(1, sampleCount(tailer.getAggregator()));
+
+            append(file, "Error,Users 1-2,text,false,,1,1,1,1,x,1,0,1\n3000,5,GET /,200,OK,Users 1-1,text,true,,1,1,1,1,x,1,0,1");
+            assertTrue(tailer.poll());
+            assertEquals(2, sampleCount(tailer.getAggregator()));
+
+            // The writer is done, so the last row counts even without its line break
+            SamplerAggregate aggregate = tailer.finish().getAggregates().iterator().next();
+            assertEquals(3, aggregate.getSampleCount());
+            assertEquals(1, aggregate.getErrorCount());
+            assertEquals(30, aggregate.getLatencies().getMax());
+        }
+    }
+
+    @Test
+    void TEST_KilledWriter_LastRowIsDropped() throws IOException {
+        Path file = tempDir.resolve("results.jtl");
+        String whole = HEADER + "\n1000,12,GET /,200,OK,Users 1-1,text,true,,1,1,1,1,x,1,0,1\n";
+        append(file, whole + "1697,3");
+
+        try (JtlTailer tailer = new JtlTailer(file)) {
+            // Cut off partway through the timeStamp column, so reading it would date a sample to 1970
+            assertEquals(1, sampleCount(tailer.finish(false)));
+            assertEquals(1, tailer.getAggregator().getAggregates().size());
+        }
+        assertEquals(whole, Files.readString(file));
+    }
+
+    @Test
+    void TEST_NoFile_FinishesWithoutStarting() throws IOException {
+        try (JtlTailer tailer = new JtlTailer(tempDir.resolve("missing.jtl"))) {
+            assertTrue(tailer.finish().isEmpty());
+            assertFalse(tailer.isStarted());
+        }
+    }
+
+    private static long sampleCount(JtlAggregator aggregator) {
+        return aggregator.getAggregates().stream().mapToLong(SamplerAggregate::getSampleCount).sum();
+    }
+
+    private static void append(Path file, String content) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,41 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LabelDictionaryTest {
+
+    @Test
+    void TEST_BytesAndStrings_ShareIds() {
+        LabelDictionary dictionary = new LabelDictionary();
+        ByteBuffer row = ByteBuffer.wrap("1000,GET /café,Users 1-1".getBytes(StandardCharsets.UTF_8));
+
+        int sampler = dictionary.intern(row, 5, 15);
+        assertEquals(0, sampler);
+        assertEquals("GET /café", dictionary.name(sampler));
+        assertEquals(sampler, dictionary.intern("GET /café"));
+        assertEquals(sampler, dictionary.intern(row, 5, 15));
+
+        assertEquals(1, dictionary.intern("Users 1"));
+        assertEquals(1, dictionary.intern(row, 16, 23));
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    void TEST_ManyNames_KeepTheirIdsAcrossGrowth() {
+        LabelDictionary dictionary = new LabelDictionary();
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i, dictionary.intern("GET /item/" + i));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            byte[] name = ("GET /item/" + i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, dictionary.intern(ByteBuffer.wrap(name), 0, name.length));
+            assertEquals("GET /item/" + i, dictionary.name(i));
+        }
+        assertEquals(5_000, dictionary.size());
+    }
+}
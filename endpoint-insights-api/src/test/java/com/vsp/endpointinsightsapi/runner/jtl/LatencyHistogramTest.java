@@ -0,0 +1,164 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void TEST_EmptyHistogram_ReturnsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void TEST_SmallValues_AreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            long value = (i * 37) % 256;
+            histogram.record(value);
+            values.add(value);
+        }
+        Collections.sort(values);
+
+        for (double p : new double[]{1, 50, 95, 99, 100}) {
+            assertEquals(nearestRank(values, p), histogram.percentile(p), "p" + p);
+        }
+    }
+
+    @Test
+    void TEST_SparseHistogram_MatchesDense() {
+        LatencyHistogram dense = new LatencyHistogram(3);
+        LatencyHistogram sparse = LatencyHistogram.sparse(3);
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            long value = random.nextInt(10) == 0 ? random.nextInt(5_000_000) : 50 + random.nextInt(400);
+            dense.record(value);
+            sparse.record(value);
+        }
+        LatencyHistogram mergedIntoSparse = LatencyHistogram.sparse(3);
+        mergedIntoSparse.merge(dense);
+        LatencyHistogram mergedIntoDense = new LatencyHistogram(3);
+        mergedIntoDense.merge(sparse);
+
+        for (double p : new double[]{1, 50, 90, 99, 100}) {
+            assertEquals(dense.percentile(p), sparse.percentile(p), "p" + p);
+        }
+        assertArrayEquals(dense.encode(), sparse.encode());
+        assertArrayEquals(dense.encode(), mergedIntoSparse.encode());
+        assertArrayEquals(dense.encode(), mergedIntoDense.encode());
+        assertArrayEquals(dense.encode(), LatencyHistogram.decodeSparseFrom(ByteBuffer.wrap(dense.encode())).encode());
+    }
+
+    @Test
+    void TEST_LargeValues_WithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Long> values = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long value = 200 + random.nextInt(60_000);
+            histogram.record(value);
+            values.add(value);
+        }
+        Collections.sort(values);
+
+        for (double p : new double[]{50, 90, 95, 99, 99.9}) {
+            long expected = nearestRank(values, p);
+            long actual = histogram.percentile(p);
+            assertTrue(actual >= expected, "p" + p + " should never under-report");
+            assertTrue(actual - expected <= expected / 128, "p" + p + " expected ~" + expected + " but was " + actual);
+        }
+    }
+
+    @Test
+    void TEST_Merge_EqualsRecordingEverything() {
+        LatencyHistogram left = new LatencyHistogram();
+        LatencyHistogram right = new LatencyHistogram();
+        LatencyHistogram all = new LatencyHistogram();
+        for (int i = 0; i < 10_000; i++) {
+            long value = (i * 7919L) % 5_000;
+            (i % 3 == 0 ? left : right).record(value);
+            all.record(value);
+        }
+
+        left.merge(right);
+
+        assertEquals(all.getTotalCount(), left.getTotalCount());
+        assertEquals(all.getMin(), left.getMin());
+        assertEquals(all.getMax(), left.getMax());
+        for (double p : new double[]{50, 95, 99}) {
+            assertEquals(all.percentile(p), left.percentile(p));
+        }
+    }
+
+    @Test
+    void TEST_ValuesAboveTrackableRange_AreClampedButKeepMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(LatencyHistogram.HIGHEST_TRACKABLE_VALUE * 4);
+        histogram.record(-5);
+
+        assertEquals(2, histogram.getTotalCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(LatencyHistogram.HIGHEST_TRACKABLE_VALUE * 4, histogram.getMax());
+        assertTrue(histogram.percentile(100) >= LatencyHistogram.HIGHEST_TRACKABLE_VALUE - LatencyHistogram.HIGHEST_TRACKABLE_VALUE / 128);
+    }
+
+    @Test
+    void TEST_BucketBoundaries_AreContiguous() {
+        for (int index = 1; index < LatencyHistogram.indexFor(LatencyHistogram.HIGHEST_TRACKABLE_VALUE); index++) {
+            assertEquals(LatencyHistogram.highestEquivalentValue(index - 1) + 1, LatencyHistogram.lowestEquivalentValue(index));
+            assertEquals(index, LatencyHistogram.indexFor(LatencyHistogram.lowestEquivalentValue(index)));
+            assertEquals(index, LatencyHistogram.indexFor(LatencyHistogram.highestEquivalentValue(index)));
+        }
+    }
+
+    @Test
+    void TEST_Encoding_RoundTrips() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            histogram.record(5 + random.nextInt(2_000));
+        }
+
+        byte[] encoded = histogram.encode();
+        LatencyHistogram decoded = LatencyHistogram.decode(encoded);
+
+        assertTrue(encoded.length < 4_096, "encoded size was " + encoded.length);
+        assertEquals(histogram.getTotalCount(), decoded.getTotalCount());
+        assertEquals(histogram.getMin(), decoded.getMin());
+        assertEquals(histogram.getMax(), decoded.getMax());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            assertEquals(histogram.percentile(p), decoded.percentile(p));
+        }
+        assertEquals(0, LatencyHistogram.decode(new LatencyHistogram().encode()).getTotalCount());
+    }
+
+    @Test
+    void TEST_LowerPrecision_StaysWithinItsError() {
+        LatencyHistogram histogram = new LatencyHistogram(3);
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+
+        long p50 = histogram.percentile(50);
+        assertTrue(p50 >= 5_000 && p50 - 5_000 <= 5_000 / 8, "p50 was " + p50);
+        assertThrows(IllegalArgumentException.class, () -> histogram.merge(new LatencyHistogram()));
+    }
+
+    private static long nearestRank(List<Long> sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+}
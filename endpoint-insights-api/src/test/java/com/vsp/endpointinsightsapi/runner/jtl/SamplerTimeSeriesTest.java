@@ -0,0 +1,85 @@
+package com.vsp.endpointinsightsapi.runner.jtl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplerTimeSeriesTest {
+
+    private static final long START = 1_772_159_606_000L;
+
+    @Test
+    void TEST_Samples_AreBucketedBySecond() {
+        SamplerTimeSeries series = new SamplerTimeSeries();
+        series.record(START + 100, 10, true);
+        series.record(START + 900, 20, false);
+        series.record(START + 3_500, 40, true);
+
+        List<SamplerTimeSeries.Point> points = series.getPoints();
+        assertEquals(2, points.size());
+        assertEquals(START, points.get(0).startTime());
+        assertEquals(2, points.get(0).count());
+        assertEquals(1, points.get(0).errorCount());
+        assertEquals(20, points.get(0).latencies().getMax());
+        assertEquals(START + 3_000, points.get(1).startTime());
+    }
+
+    @Test
+    void TEST_LongRun_IsCoarsenedToStayBounded() {
+        SamplerTimeSeries series = new SamplerTimeSeries();
+        // one sample per second for an hour
+        for (int i = 0; i < 3_600; i++) {
+            series.record(START + i * 1_000L, 5, true);
+        }
+
+        assertEquals(8_000, series.getBucketWidthMs());
+        assertTrue(series.getPoints().size() <= SamplerTimeSeries.MAX_BUCKETS);
+        assertEquals(3_600, series.getPoints().stream().mapToLong(SamplerTimeSeries.Point::count).sum());
+    }
+
+    @Test
+    void TEST_Merge_MatchesSingleSeries() {
+        SamplerTimeSeries whole = new SamplerTimeSeries();
+        SamplerTimeSeries first = new SamplerTimeSeries();
+        SamplerTimeSeries second = new SamplerTimeSeries();
+        for (int i = 0; i < 2_000; i++) {
+            long ts = START + i * 700L;
+            boolean success = i % 9 != 0;
+            whole.record(ts, i % 400, success);
+            // the second half alone needs fewer buckets than the whole run
+            (i < 1_500 ? first : second).record(ts, i % 400, success);
+        }
+
+        first.merge(second);
+
+        assertEquals(whole.getBucketWidthMs(), first.getBucketWidthMs());
+        assertPointsEqual(whole.getPoints(), first.getPoints());
+    }
+
+    @Test
+    void TEST_Encoding_RoundTrips() {
+        SamplerTimeSeries series = new SamplerTimeSeries();
+        for (int i = 0; i < 900; i++) {
+            series.record(START + i * 333L, 20 + i % 150, i % 25 != 0);
+        }
+        series.coarsenTo(5_000);
+
+        SamplerTimeSeries decoded = SamplerTimeSeries.decode(series.encode());
+
+        assertEquals(5_000, decoded.getBucketWidthMs());
+        assertPointsEqual(series.getPoints(), decoded.getPoints());
+        assertThrows(IllegalArgumentException.class, () -> SamplerTimeSeries.decode(new byte[]{1, 2}));
+    }
+
+    private static void assertPointsEqual(List<SamplerTimeSeries.Point> expected, List<SamplerTimeSeries.Point> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).startTime(), actual.get(i).startTime());
+            assertEquals(expected.get(i).count(), actual.get(i).count());
+            assertEquals(expected.get(i).errorCount(), actual.get(i).errorCount());
+            assertEquals(expected.get(i).latencies().percentile(95), actual.get(i).latencies().percentile(95));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.vsp.endpointinsightsapi.service;
+
+import com.vsp.endpointinsightsapi.event.RunBatchEvent;
+import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.repository.ScheduleRunRepository;
+import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BatchSchedulerServiceTest {
+
+    private final TestBatchRepository testBatchRepository = mock(TestBatchRepository.class);
+    private final ScheduleRunRepository scheduleRunRepository = mock(ScheduleRunRepository.class);
+    private final TestBatch batch = new TestBatch();
+
+    // What schedule_run holds: the latest fire time claimed for each schedule
+    private final Map<String, Instant> claimed = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        batch.setBatchId(UUID.randomUUID());
+        batch.setBatchName("Hourly");
+        batch.setCronExpression("0 0 * * * *");
+        when(testBatchRepository.findById(batch.getBatchId())).thenAnswer(inv -> Optional.of(batch));
+
+        // Same outcome as the upsert: only moves the claimed fire time forward
+        when(scheduleRunRepository.claim(anyString(), any(Instant.class), anyString())).thenAnswer(inv -> {
+            synchronized (claimed) {
+                Instant previous = claimed.get(inv.<String>getArgument(0));
+                Instant fireTime = inv.getArgument(1);
+                if (previous != null && !previous.isBefore(fireTime)) {
+                    return false;
+                }
+                claimed.put(inv.getArgument(0), fireTime);
+                return true;
+            }
+        });
+    }
+
+    @Test
+    void scheduledBatch_onSeveralInstances_startsOncePerFireTime() throws Exception {
+        List<Instance> instances = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            instances.add(new Instance(1));
+        }
+
+        SimpleTriggerContext context = new SimpleTriggerContext();
+        for (int fire = 0; fire < 20; fire++) {
+            // Every instance works out the same fire time from the cron expression
+            Instant fireTime = null;
+            for (Instance instance : instances) {
+                fireTime = instance.trigger.nextExecution(context);
+            }
+            runTogether(instances.stream().map(instance -> instance.task).toList());
+            context = new SimpleTriggerContext(fireTime, fireTime, fireTime);
+        }
+
+        int started = instances.stream().mapToInt(instance -> instance.started.get()).sum();
+        assertEquals(20, started);
+    }
+
+    @Test
+    void scheduledBatch_scheduleChangedElsewhere_reschedulesWithoutStarting() {
+        Instance instance = new Instance(0);
+        instance.trigger.nextExecution(new SimpleTriggerContext());
+
+        batch.setCronExpression("0 30 * * * *");
+        instance.task.run();
+
+        assertEquals(0, instance.started.get());
+        verify(scheduleRunRepository, never()).claim(anyString(), any(Instant.class), anyString());
+        verify(instance.taskScheduler, times(2)).schedule(any(Runnable.class), any(Trigger.class));
+    }
+
+    @Test
+    void scheduledBatch_claimFails_skipsRun() {
+        when(scheduleRunRepository.claim(anyString(), any(Instant.class), anyString()))
+                .thenThrow(new QueryTimeoutException("timeout"));
+        Instance instance = new Instance(0);
+        instance.trigger.nextExecution(new SimpleTriggerContext());
+
+        instance.task.run();
+
+        assertEquals(0, instance.started.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcileSchedules_reschedulesOnlyChangedAndUnschedulesDeleted() {
+        TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        ScheduledFuture<?> hourly = mock(ScheduledFuture.class);
+        ScheduledFuture<?> nightly = mock(ScheduledFuture.class);
+        when(taskScheduler.schedule(any(Runnable.class), any(Trigger.class))).thenReturn(hourly, nightly);
+        TestBatch other = new TestBatch();
+        other.setBatchId(UUID.randomUUID());
+        other.setCronExpression("0 0 1 * * *");
+        when(testBatchRepository.findAll()).thenReturn(List.of(batch, other));
+        BatchSchedulerService service = new BatchSchedulerService(testBatchRepository, taskScheduler,
+                mock(ApplicationEventPublisher.class), scheduleRunRepository, 0, 60);
+
+        service.reconcileSchedules();
+        service.reconcileSchedules();
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Trigger.class));
+
+        // Changed and deleted through another instance
+        batch.setCronExpression("0 30 * * * *");
+        when(testBatchRepository.findAll()).thenReturn(List.of(batch));
+        service.reconcileSchedules();
+
+        verify(hourly).cancel(false);
+        verify(nightly).cancel(false);
+        verify(taskScheduler, times(3)).schedule(any(Runnable.class), any(Trigger.class));
+    }
+
+    @Test
+    void scheduledBatch_withJitter_claimsLaterWithoutWaiting() {
+        Instance instance = new Instance(500);
+        instance.trigger.nextExecution(new SimpleTriggerContext());
+
+        instance.task.run();
+
+        verify(instance.taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        assertEquals(1, instance.started.get());
+    }
+
+    private static void runTogether(List<Runnable> tasks) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (Runnable task : tasks) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * One API instance, sharing the batch and schedule_run tables with the others.
+     */
+    private class Instance {
+        private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+        private final AtomicInteger started = new AtomicInteger();
+        private final Runnable task;
+        private final Trigger trigger;
+
+        @SuppressWarnings("unchecked")
+        Instance(long claimJitterMillis) {
+            when(taskScheduler.schedule(any(Runnable.class), any(Trigger.class))).thenReturn(mock(ScheduledFuture.class));
+            // Claims put off by the jitter are made straight away
+            when(taskScheduler.schedule(any(Runnable.class), any(Instant.class))).thenAnswer(inv -> {
+                inv.<Runnable>getArgument(0).run();
+                return mock(ScheduledFuture.class);
+            });
+            ApplicationEventPublisher publisher = mock(ApplicationEventPublisher.class);
+            doAnswer(inv -> started.incrementAndGet()).when(publisher).publishEvent(any(RunBatchEvent.class));
+
+            new BatchSchedulerService(testBatchRepository, taskScheduler, publisher, scheduleRunRepository, claimJitterMillis, 60)
+                    .scheduleBatch(batch);
+
+            ArgumentCaptor<Runnable> taskCaptor = ArgumentCaptor.forClass(Runnable.class);
+            ArgumentCaptor<Trigger> triggerCaptor = ArgumentCaptor.forClass(Trigger.class);
+            verify(taskScheduler).schedule(taskCaptor.capture(), triggerCaptor.capture());
+            task = taskCaptor.getValue();
+            trigger = triggerCaptor.getValue();
+        }
+    }
+}
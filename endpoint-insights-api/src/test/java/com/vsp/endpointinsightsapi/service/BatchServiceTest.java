@@ -3,20 +3,29 @@ package com.vsp.endpointinsightsapi.service;
 import com.vsp.endpointinsightsapi.dto.BatchResponseDTO;
 import com.vsp.endpointinsightsapi.dto.BatchRequestDTO;
 import com.vsp.endpointinsightsapi.exception.BatchNotFoundException;
+import com.vsp.endpointinsightsapi.event.RunQueuedEvent;
 import com.vsp.endpointinsightsapi.exception.CustomException;
+import com.vsp.endpointinsightsapi.factory.TestRunFactory;
 import com.vsp.endpointinsightsapi.mapper.BatchMapper;
 import com.vsp.endpointinsightsapi.model.entity.BatchUpdateRequest;
 import com.vsp.endpointinsightsapi.model.Job;
 import com.vsp.endpointinsightsapi.model.TestBatch;
 import com.vsp.endpointinsightsapi.model.entity.TestBatchEmailList;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.repository.JobRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository;
 import com.vsp.endpointinsightsapi.repository.TestBatchEmailListsRepository;
 import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
+import com.vsp.endpointinsightsapi.repository.TestRunRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -50,6 +59,48 @@ class BatchServiceTest {
     @Mock
     JobRepository jobRepository;
 
+    @Mock
+    TestRunFactory testRunFactory;
+
+    @Mock
+    TestRunRepository testRunRepository;
+
+    @Mock
+    RunQueueRepository runQueueRepository;
+
+    @Mock
+    ApplicationEventPublisher applicationEventPublisher;
+
+    @Test
+    void runBatch_queuesRun() {
+        TestBatch batch = new TestBatch();
+        batch.setBatchId(UUID.randomUUID());
+        TestRun testRun = new TestRun();
+        testRun.setRunId(UUID.randomUUID());
+        when(testRunFactory.createForBatch(batch)).thenReturn(testRun);
+        when(runQueueRepository.enqueueBatch(testRun.getRunId(), batch.getBatchId(), RunPriority.MANUAL)).thenReturn(true);
+
+        assertSame(testRun, testBatchService.runBatch(batch));
+
+        verify(applicationEventPublisher).publishEvent(any(RunQueuedEvent.class));
+    }
+
+    @Test
+    void runBatch_alreadyQueued_throwsConflictAndDropsRun() {
+        TestBatch batch = new TestBatch();
+        batch.setBatchId(UUID.randomUUID());
+        TestRun testRun = new TestRun();
+        testRun.setRunId(UUID.randomUUID());
+        when(testRunFactory.createForBatch(batch)).thenReturn(testRun);
+        when(runQueueRepository.enqueueBatch(testRun.getRunId(), batch.getBatchId(), RunPriority.SCHEDULED)).thenReturn(false);
+
+        CustomException exception = assertThrows(CustomException.class,
+                () -> testBatchService.runBatch(batch, RunPriority.SCHEDULED));
+        assertEquals(HttpStatus.CONFLICT, exception.getHttpStatus());
+        verify(testRunRepository).deleteById(testRun.getRunId());
+        verify(applicationEventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void getBatchById_returnsDto() {
         UUID id = UUID.randomUUID();
@@ -452,6 +503,44 @@ class BatchServiceTest {
         verify(testBatchEmailListsRepository).saveAll(any());
     }
 
+    @Test
+    void createBatch_withParallelism_savesIt() {
+        UUID batchId = UUID.randomUUID();
+        TestBatch batch = new TestBatch();
+        batch.setBatchId(batchId);
+        batch.setJobs(new ArrayList<>());
+
+        BatchRequestDTO request = new BatchRequestDTO();
+        request.setBatchName("Test Batch");
+        request.setParallelism(2);
+
+        when(testBatchRepository.saveAndFlush(any(TestBatch.class))).thenReturn(batch);
+        when(testBatchRepository.findByIdWithJobsAndUsers(batchId)).thenReturn(Optional.of(batch));
+
+        testBatchService.createBatch(request);
+
+        ArgumentCaptor<TestBatch> saved = ArgumentCaptor.forClass(TestBatch.class);
+        verify(testBatchRepository).saveAndFlush(saved.capture());
+        assertEquals(2, saved.getValue().getParallelism());
+    }
+
+    @Test
+    void updateBatch_withZeroParallelism_throwsBadRequest() {
+        UUID batchId = UUID.randomUUID();
+        TestBatch existingBatch = new TestBatch();
+        existingBatch.setBatchId(batchId);
+
+        BatchUpdateRequest request = new BatchUpdateRequest();
+        request.setParallelism(0);
+
+        when(testBatchRepository.findById(batchId)).thenReturn(Optional.of(existingBatch));
+
+        CustomException exception = assertThrows(CustomException.class,
+                () -> testBatchService.updateBatch(batchId, request));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getHttpStatus());
+        verify(testBatchRepository, never()).saveAndFlush(any());
+    }
+
     @Test
     void updateBatch_withGroupIds_savesGroupIdentifiers() {
         UUID batchId = UUID.randomUUID();
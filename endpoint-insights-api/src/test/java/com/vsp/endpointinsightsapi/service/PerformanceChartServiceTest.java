@@ -4,6 +4,10 @@ import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartPointDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartResponseDTO;
 import com.vsp.endpointinsightsapi.dto.charts.ChartSeriesDTO;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResultSeries;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.repository.PerfTestResultSeriesRepository;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerTimeSeries;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -26,6 +30,9 @@ class PerformanceChartServiceTest {
     @Mock
     private TestRunService testRunService;
 
+    @Mock
+    private PerfTestResultSeriesRepository perfTestResultSeriesRepository;
+
     @InjectMocks
     private PerformanceChartService performanceChartService;
 
@@ -240,4 +247,40 @@ class PerformanceChartServiceTest {
 
         assertEquals("BatchTest API Performance", result.getTitle());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getRunTimelineChart_buildsSeriesPerSampler() {
+        UUID runId = UUID.randomUUID();
+        TestRun run = new TestRun();
+        run.setRunId(runId);
+
+        SamplerTimeSeries timeSeries = new SamplerTimeSeries();
+        long start = 1_772_159_606_000L;
+        timeSeries.record(start, 10, true);
+        timeSeries.record(start + 200, 30, false);
+        timeSeries.record(start + 2_000, 20, true);
+
+        PerfTestResultSeries stored = new PerfTestResultSeries();
+        stored.setResultId(UUID.randomUUID());
+        stored.setThreadGroup("Users 1");
+        stored.setSamplerName("GET /health");
+        stored.setBucketWidthMs(1000);
+        stored.setSeries(timeSeries.encode());
+
+        when(testRunService.getTestRunById(runId)).thenReturn(run);
+        when(perfTestResultSeriesRepository.findAllByRunId(runId)).thenReturn(List.of(stored));
+
+        ChartResponseDTO result = performanceChartService.getRunTimelineChart(runId);
+
+        assertEquals("secondsSinceStart", result.getXAxis());
+        assertEquals(3, result.getSeries().size());
+
+        ChartSeriesDTO requests = result.getSeries().get(0);
+        assertEquals("Users 1 / GET /health requests", requests.getName());
+        assertEquals(List.of("0", "2"), requests.getData().stream().map(ChartPointDTO::getLabel).toList());
+        assertEquals(List.of(2L, 1L), requests.getData().stream().map(ChartPointDTO::getValue).toList());
+
+        ChartSeriesDTO errors = result.getSeries().get(1);
+        assertEquals(1L, errors.getData().get(0).getValue());
+    }
+}
@@ -0,0 +1,216 @@
+package com.vsp.endpointinsightsapi.service;
+
+import com.vsp.endpointinsightsapi.model.Job;
+import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
+import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
+import com.vsp.endpointinsightsapi.repository.JobRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository.QueuedRun;
+import com.vsp.endpointinsightsapi.repository.RunQueueRepository.RemovedOrphan;
+import com.vsp.endpointinsightsapi.repository.TestBatchRepository;
+import com.vsp.endpointinsightsapi.repository.TestRunRepository;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RunQueueWorkerTest {
+
+    private static final String INSTANCE = "api-0";
+
+    @Mock
+    private RunQueueRepository runQueueRepository;
+
+    @Mock
+    private TestRunRepository testRunRepository;
+
+    @Mock
+    private JobRepository jobRepository;
+
+    @Mock
+    private TestBatchRepository testBatchRepository;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private BatchService batchService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private RunExecutor runExecutor;
+
+    private RunQueueWorker worker;
+    private final Job job = new Job();
+
+    @BeforeEach
+    void setUp() {
+        job.setJobId(UUID.randomUUID());
+        when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+        when(testRunRepository.findById(any())).thenAnswer(inv -> {
+            TestRun run = new TestRun();
+            run.setRunId(inv.getArgument(0));
+            return Optional.of(run);
+        });
+        when(runQueueRepository.finish(any())).thenReturn(true);
+        worker = new RunQueueWorker(runQueueRepository, testRunRepository, jobRepository, testBatchRepository,
+                jobService, batchService, taskScheduler, runExecutor, 2, 1000, 60, 2, INSTANCE);
+    }
+
+    private QueuedRun jobRun() {
+        return new QueuedRun(UUID.randomUUID(), job.getJobId(), null, RunPriority.MANUAL, UUID.randomUUID(), 1);
+    }
+
+    @Test
+    void claimRuns_stopsAtMaxRuns() {
+        when(runQueueRepository.claimNext(INSTANCE)).thenAnswer(inv -> Optional.of(jobRun()));
+        when(jobService.startRun(eq(job), any())).thenReturn(new CompletableFuture<>());
+
+        worker.claimRuns();
+
+        assertEquals(2, worker.getRunsInProgress());
+        verify(runQueueRepository, times(2)).claimNext(INSTANCE);
+        verify(jobService, times(2)).startRun(eq(job), any());
+    }
+
+    @Test
+    void finishedRun_leavesQueueAndMakesRoomForTheNext() {
+        QueuedRun first = jobRun();
+        QueuedRun second = jobRun();
+        when(runQueueRepository.claimNext(INSTANCE))
+                .thenReturn(Optional.of(first), Optional.empty(), Optional.of(second), Optional.empty());
+        CompletableFuture<Void> firstFinished = new CompletableFuture<>();
+        when(jobService.startRun(eq(job), any())).thenReturn(firstFinished, new CompletableFuture<>());
+
+        worker.claimRuns();
+        assertEquals(1, worker.getRunsInProgress());
+
+        firstFinished.complete(null);
+
+        verify(runQueueRepository).finish(first);
+        verify(jobService, times(2)).startRun(eq(job), any());
+        assertEquals(1, worker.getRunsInProgress());
+    }
+
+    @Test
+    void queuedRunOfDeletedBatch_isFailedAndRemoved() {
+        QueuedRun run = new QueuedRun(UUID.randomUUID(), null, UUID.randomUUID(), RunPriority.SCHEDULED, UUID.randomUUID(), 1);
+        when(runQueueRepository.claimNext(INSTANCE)).thenReturn(Optional.of(run), Optional.empty());
+        when(testBatchRepository.findById(run.batchId())).thenReturn(Optional.empty());
+        TestRun testRun = new TestRun();
+        testRun.setRunId(run.runId());
+        when(testRunRepository.findAllById(List.of(run.runId()))).thenReturn(List.of(testRun));
+
+        worker.claimRuns();
+
+        assertEquals(TestRunStatus.FAILED, testRun.getStatus());
+        assertNotNull(testRun.getFinishedAt());
+        verify(runQueueRepository).finish(run);
+        verify(batchService, never()).startRun(any(TestBatch.class), any(), any());
+        assertEquals(0, worker.getRunsInProgress());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_recoversOwnOrphansBeforePolling() {
+        when(taskScheduler.scheduleAtFixedRate(any(Runnable.class), any(Duration.class))).thenReturn(mock(ScheduledFuture.class));
+        when(taskScheduler.scheduleWithFixedDelay(any(Runnable.class), any(Duration.class))).thenReturn(mock(ScheduledFuture.class));
+        UUID requeuedId = UUID.randomUUID();
+        UUID exhaustedId = UUID.randomUUID();
+        when(runQueueRepository.requeueOrphans(INSTANCE, Duration.ofSeconds(60), 2)).thenReturn(List.of(requeuedId));
+        when(runQueueRepository.removeExhaustedOrphans(INSTANCE, Duration.ofSeconds(60), 2)).thenReturn(List.of(new RemovedOrphan(exhaustedId, false)));
+
+        TestRun requeued = new TestRun();
+        requeued.setStatus(TestRunStatus.RUNNING);
+        TestRun exhausted = new TestRun();
+        exhausted.setStatus(TestRunStatus.RUNNING);
+        when(testRunRepository.findAllById(List.of(requeuedId))).thenReturn(new ArrayList<>(List.of(requeued)));
+        when(testRunRepository.findAllById(List.of(exhaustedId))).thenReturn(new ArrayList<>(List.of(exhausted)));
+
+        worker.start();
+
+        assertEquals(TestRunStatus.PENDING, requeued.getStatus());
+        assertEquals(TestRunStatus.FAILED, exhausted.getStatus());
+        verify(taskScheduler).scheduleAtFixedRate(any(Runnable.class), eq(Duration.ofSeconds(20)));
+        verify(taskScheduler).scheduleWithFixedDelay(any(Runnable.class), eq(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_orphanAskedToCancel_isCancelledNotFailed() {
+        when(taskScheduler.scheduleAtFixedRate(any(Runnable.class), any(Duration.class))).thenReturn(mock(ScheduledFuture.class));
+        when(taskScheduler.scheduleWithFixedDelay(any(Runnable.class), any(Duration.class))).thenReturn(mock(ScheduledFuture.class));
+        UUID cancelledId = UUID.randomUUID();
+        UUID exhaustedId = UUID.randomUUID();
+        when(runQueueRepository.requeueOrphans(INSTANCE, Duration.ofSeconds(60), 2)).thenReturn(List.of());
+        when(runQueueRepository.removeExhaustedOrphans(INSTANCE, Duration.ofSeconds(60), 2))
+                .thenReturn(List.of(new RemovedOrphan(cancelledId, true), new RemovedOrphan(exhaustedId, false)));
+
+        TestRun cancelled = new TestRun();
+        cancelled.setStatus(TestRunStatus.RUNNING);
+        TestRun exhausted = new TestRun();
+        exhausted.setStatus(TestRunStatus.RUNNING);
+        when(testRunRepository.findAllById(List.of(cancelledId))).thenReturn(new ArrayList<>(List.of(cancelled)));
+        when(testRunRepository.findAllById(List.of(exhaustedId))).thenReturn(new ArrayList<>(List.of(exhausted)));
+
+        worker.start();
+
+        assertEquals(TestRunStatus.CANCELLED, cancelled.getStatus());
+        assertNotNull(cancelled.getFinishedAt());
+        assertEquals(TestRunStatus.FAILED, exhausted.getStatus());
+    }
+
+    @Test
+    void heartbeat_onlyWhileRunsAreInProgress() {
+        worker.heartbeat();
+        verify(runQueueRepository, never()).heartbeat(anyString());
+
+        when(runQueueRepository.claimNext(INSTANCE)).thenReturn(Optional.of(jobRun()), Optional.empty());
+        when(jobService.startRun(eq(job), any())).thenReturn(new CompletableFuture<>());
+        worker.claimRuns();
+        worker.heartbeat();
+
+        verify(runQueueRepository).heartbeat(INSTANCE);
+    }
+
+    @Test
+    void cancelRequestedRuns_cancelsEachRunOnce() {
+        QueuedRun run = jobRun();
+        when(runQueueRepository.claimNext(INSTANCE)).thenReturn(Optional.of(run), Optional.empty());
+        when(jobService.startRun(eq(job), any())).thenReturn(new CompletableFuture<>());
+        worker.claimRuns();
+
+        when(runQueueRepository.findCancelRequested(INSTANCE)).thenReturn(List.of(run.runId()));
+        // Its runners haven't started the first time round
+        when(runExecutor.cancel(run.runId())).thenReturn(false, true);
+
+        worker.cancelRequestedRuns();
+        worker.cancelRequestedRuns();
+        worker.cancelRequestedRuns();
+
+        verify(runExecutor, times(2)).cancel(run.runId());
+    }
+}
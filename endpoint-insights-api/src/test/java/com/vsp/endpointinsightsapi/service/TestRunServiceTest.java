@@ -1,13 +1,26 @@
 package com.vsp.endpointinsightsapi.service;
 
+import com.vsp.endpointinsightsapi.dto.CompileCacheStatsDTO;
+import com.vsp.endpointinsightsapi.dto.LatencyPercentilesDTO;
+import com.vsp.endpointinsightsapi.dto.LiveRunSnapshotDTO;
 import com.vsp.endpointinsightsapi.dto.RecentActivityDTO;
+import com.vsp.endpointinsightsapi.dto.RunQueueDTO;
 import com.vsp.endpointinsightsapi.model.Job;
+import com.vsp.endpointinsightsapi.model.TestRunResult;
 import com.vsp.endpointinsightsapi.model.TestBatch;
+import com.vsp.endpointinsightsapi.model.entity.PerfTestResult;
 import com.vsp.endpointinsightsapi.model.entity.TestRun;
+import com.vsp.endpointinsightsapi.model.enums.RunPriority;
 import com.vsp.endpointinsightsapi.model.enums.TestRunStatus;
+import com.vsp.endpointinsightsapi.exception.CustomException;
 import com.vsp.endpointinsightsapi.exception.JobNotFoundException;
 import com.vsp.endpointinsightsapi.exception.TestRunNotFoundException;
 import com.vsp.endpointinsightsapi.repository.*;
+import com.vsp.endpointinsightsapi.runner.CompileOutputCache;
+import com.vsp.endpointinsightsapi.runner.JMeterInterpreterService;
+import com.vsp.endpointinsightsapi.runner.ResultArchive;
+import com.vsp.endpointinsightsapi.runner.RunExecutor;
+import com.vsp.endpointinsightsapi.runner.jtl.LatencyHistogram;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -16,9 +29,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 
+import java.io.ByteArrayInputStream;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,6 +44,7 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -49,6 +66,24 @@ class TestRunServiceTest {
 	@Mock
 	private TestBatchRepository testBatchRepository;
 
+	@Mock
+	private LiveResultsService liveResultsService;
+
+	@Mock
+	private RunExecutor runExecutor;
+
+	@Mock
+	private RunQueueRepository runQueueRepository;
+
+	@Mock
+	private ResultArchive resultArchive;
+
+	@Mock
+	private JMeterInterpreterService jMeterInterpreterService;
+
+	@Mock
+	private CompileOutputCache compileOutputCache;
+
 	@InjectMocks
 	private TestRunService testRunService;
 
@@ -94,6 +129,89 @@ class TestRunServiceTest {
 		assertThrows(JobNotFoundException.class, () -> testRunService.createTestRun(run));
 	}
 
+	@Test
+	void cancelTestRun_queuedRun_isTakenOffQueueAndCancelled() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.PENDING);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+		when(runQueueRepository.cancelQueued(runId)).thenReturn(true);
+		when(testRunRepository.cancelUnfinished(eq(runId), any())).thenReturn(1);
+
+		TestRun result = testRunService.cancelTestRun(runId);
+
+		assertEquals(TestRunStatus.CANCELLED, result.getStatus());
+		assertNotNull(result.getFinishedAt());
+		verify(runQueueRepository, never()).requestCancel(any());
+	}
+
+	@Test
+	void cancelTestRun_runningRun_isLeftToItsRunners() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.RUNNING);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+		when(runQueueRepository.requestCancel(runId)).thenReturn(true);
+		when(runExecutor.cancel(runId)).thenReturn(true);
+
+		TestRun result = testRunService.cancelTestRun(runId);
+
+		// Marked cancelled by its runners once they've stopped
+		assertEquals(TestRunStatus.RUNNING, result.getStatus());
+		verify(runExecutor).cancel(runId);
+		verify(testRunRepository, never()).save(any());
+	}
+
+	@Test
+	void cancelTestRun_runningNowhere_isMarkedCancelled() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.RUNNING);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+		when(testRunRepository.cancelUnfinished(eq(runId), any())).thenReturn(1);
+
+		assertEquals(TestRunStatus.CANCELLED, testRunService.cancelTestRun(runId).getStatus());
+	}
+
+	@Test
+	void cancelTestRun_finishedMeanwhile_keepsItsOutcome() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.RUNNING);
+		TestRun finished = new TestRun();
+		finished.setRunId(runId);
+		finished.setStatus(TestRunStatus.COMPLETED);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run), Optional.of(finished));
+		when(testRunRepository.cancelUnfinished(eq(runId), any())).thenReturn(0);
+
+		assertEquals(TestRunStatus.COMPLETED, testRunService.cancelTestRun(runId).getStatus());
+	}
+
+	@Test
+	void cancelTestRun_finishedRun_throwsConflict() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = new TestRun();
+		run.setRunId(runId);
+		run.setStatus(TestRunStatus.COMPLETED);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+
+		CustomException e = assertThrows(CustomException.class, () -> testRunService.cancelTestRun(runId));
+		assertEquals(HttpStatus.CONFLICT, e.getHttpStatus());
+		verify(runQueueRepository, never()).cancelQueued(any());
+	}
+
+	@Test
+	void cancelTestRun_missingRun_throwsException() {
+		UUID runId = UUID.randomUUID();
+		when(testRunRepository.findById(runId)).thenReturn(Optional.empty());
+
+		assertThrows(TestRunNotFoundException.class, () -> testRunService.cancelTestRun(runId));
+	}
+
 	@Test
 	void getRecentTestRuns_limitsResults() {
 		TestRun run = new TestRun();
@@ -253,6 +371,86 @@ class TestRunServiceTest {
 		verify(testRunRepository).findById(runId);
 	}
 
+	@Test
+	void getLiveResults_existingRun_returnsSnapshot() {
+		UUID runId = UUID.randomUUID();
+		LiveRunSnapshotDTO snapshot = new LiveRunSnapshotDTO(runId, Instant.now(), List.of());
+		when(testRunRepository.existsById(runId)).thenReturn(true);
+		when(liveResultsService.getSnapshot(runId)).thenReturn(snapshot);
+
+		assertEquals(snapshot, testRunService.getLiveResults(runId));
+	}
+
+	@Test
+	void getLiveResults_missingRun_throwsException() {
+		UUID runId = UUID.randomUUID();
+		when(testRunRepository.existsById(runId)).thenReturn(false);
+
+		assertThrows(TestRunNotFoundException.class, () -> testRunService.getLiveResults(runId));
+	}
+
+	@Test
+	void getRunQueue_returnsExecutorStats() {
+		RunQueueDTO queue = new RunQueueDTO(2, 2, 3, Map.of(RunPriority.MANUAL, 1, RunPriority.SCHEDULED, 2), 10, 150, 900, 40);
+		when(runExecutor.getQueueStats()).thenReturn(queue);
+
+		assertEquals(queue, testRunService.getRunQueue());
+	}
+
+	@Test
+	void getCompileCacheStats_returnsCacheCounts() {
+		when(compileOutputCache.getHits()).thenReturn(7L);
+		when(compileOutputCache.getMisses()).thenReturn(3L);
+
+		assertEquals(new CompileCacheStatsDTO(7, 3), testRunService.getCompileCacheStats());
+	}
+
+	@Test
+	void getLatencyPercentiles_mergesHistogramsAcrossRuns() {
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		LatencyHistogram fast = new LatencyHistogram();
+		LatencyHistogram slow = new LatencyHistogram();
+		for (int i = 1; i <= 100; i++) {
+			fast.record(i);
+			slow.record(100 + i);
+		}
+		PerfTestResult legacy = perfResult("Users", "GET /", null);
+		when(perfTestResultRepository.findAllByRunIds(List.of(first, second)))
+				.thenReturn(List.of(perfResult("Users", "GET /", fast.encode()), perfResult("Users", "GET /", slow.encode()), legacy));
+
+		LatencyPercentilesDTO result = testRunService.getLatencyPercentiles(List.of(first, second), null, null, List.of(50.0, 99.5));
+
+		assertEquals(200, result.overall().sampleCount());
+		assertEquals(100L, result.overall().percentiles().get("50"));
+		assertEquals(199L, result.overall().percentiles().get("99.5"));
+		assertEquals(1, result.samplers().size());
+		assertEquals("GET /", result.samplers().get(0).samplerName());
+		assertEquals(1, result.resultsWithoutHistogram());
+	}
+
+	@Test
+	void getLatencyPercentiles_moreThanOneScope_throwsException() {
+		assertThrows(IllegalArgumentException.class,
+				() -> testRunService.getLatencyPercentiles(List.of(UUID.randomUUID()), List.of(UUID.randomUUID()), null, null));
+		assertThrows(IllegalArgumentException.class,
+				() -> testRunService.getLatencyPercentiles(null, null, null, null));
+	}
+
+	@Test
+	void getLatencyPercentiles_outOfRangePercentile_throwsException() {
+		assertThrows(IllegalArgumentException.class,
+				() -> testRunService.getLatencyPercentiles(null, List.of(UUID.randomUUID()), null, List.of(101.0)));
+	}
+
+	private static PerfTestResult perfResult(String threadGroup, String samplerName, byte[] histogram) {
+		PerfTestResult result = new PerfTestResult();
+		result.setThreadGroup(threadGroup);
+		result.setSamplerName(samplerName);
+		result.setLatencyHistogram(histogram);
+		return result;
+	}
+
 	@Test
 	void deleteTestRunById_existingRun_deletesRun() {
 		UUID runId = UUID.randomUUID();
@@ -262,6 +460,53 @@ class TestRunServiceTest {
 
 		verify(testRunRepository).existsById(runId);
 		verify(testRunRepository).deleteById(runId);
+		verify(resultArchive).delete(runId);
+	}
+
+	@Test
+	void reanalyseTestRun_archivedRun_replacesResults() throws Exception {
+		UUID runId = UUID.randomUUID();
+		Job job = new Job();
+		job.setJobId(UUID.randomUUID());
+		TestRun run = buildRun(job.getJobId(), null, TestRunStatus.COMPLETED);
+		run.setRunId(runId);
+		ResultArchive.Entry entry = new ResultArchive.Entry(new ByteArrayInputStream(new byte[0]), null);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+		when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+		when(resultArchive.contains(runId, job.getJobId())).thenReturn(true);
+		when(resultArchive.open(runId, job.getJobId())).thenReturn(Optional.of(entry));
+		when(jMeterInterpreterService.processResults(entry.results(), null, run, job)).thenReturn(new TestRunResult(false, null, List.of()));
+		when(testRunRepository.save(run)).thenReturn(run);
+
+		TestRun result = testRunService.reanalyseTestRun(runId);
+
+		assertEquals(TestRunStatus.FAILED, result.getStatus());
+		verify(perfTestResultRepository).deleteByRunIds(List.of(runId));
+		verify(testResultRepository).deleteByRunIds(List.of(runId));
+	}
+
+	@Test
+	void reanalyseTestRun_notArchived_throwsConflict() {
+		UUID runId = UUID.randomUUID();
+		Job job = new Job();
+		job.setJobId(UUID.randomUUID());
+		TestRun run = buildRun(job.getJobId(), null, TestRunStatus.COMPLETED);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+		when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+
+		CustomException e = assertThrows(CustomException.class, () -> testRunService.reanalyseTestRun(runId));
+		assertEquals(HttpStatus.CONFLICT, e.getHttpStatus());
+		verify(testResultRepository, never()).deleteByRunIds(any());
+	}
+
+	@Test
+	void reanalyseTestRun_runningRun_throwsConflict() {
+		UUID runId = UUID.randomUUID();
+		TestRun run = buildRun(UUID.randomUUID(), null, TestRunStatus.RUNNING);
+		when(testRunRepository.findById(runId)).thenReturn(Optional.of(run));
+
+		CustomException e = assertThrows(CustomException.class, () -> testRunService.reanalyseTestRun(runId));
+		assertEquals(HttpStatus.CONFLICT, e.getHttpStatus());
 	}
 
 	@Test
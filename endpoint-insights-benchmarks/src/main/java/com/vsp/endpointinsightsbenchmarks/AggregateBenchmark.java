@@ -0,0 +1,48 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlFile;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlParallelAggregator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a result file into per-sampler aggregates, which is what the interpreter does before computing
+ * percentiles and writing rows.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AggregateBenchmark {
+
+	@Benchmark
+	public JtlAggregator singleThreaded(JtlDataset data, RowCounter counter) throws IOException {
+		JtlAggregator aggregator = new JtlAggregator();
+		try (JtlFile jtl = JtlFile.open(data.file)) {
+			jtl.scan(jtl.dataStart(), jtl.size(), aggregator::record);
+		}
+		counter.rows += data.rows;
+		return aggregator;
+	}
+
+	@Benchmark
+	public JtlAggregator parallel(JtlDataset data, RowCounter counter) throws IOException {
+		JtlAggregator aggregator;
+		try (JtlFile jtl = JtlFile.open(data.file)) {
+			aggregator = JtlParallelAggregator.aggregate(jtl, ForkJoinPool.commonPool());
+		}
+		counter.rows += data.rows;
+		return aggregator;
+	}
+}
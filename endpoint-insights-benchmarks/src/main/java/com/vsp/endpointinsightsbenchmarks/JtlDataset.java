@@ -0,0 +1,47 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * One synthetic result file per parameter combination, generated before the trial and deleted after it.
+ *
+ * <p>The defaults keep a full run short. Larger files are selected on the command line, e.g.
+ * {@code -p rows=50000000 -p samplers=10000}.</p>
+ */
+@State(Scope.Benchmark)
+public class JtlDataset {
+
+	@Param({"1000000"})
+	public long rows;
+
+	@Param({"20", "2000"})
+	public int samplers;
+
+	@Param({"1", "20"})
+	public double errorPercent;
+
+	@Param({"false", "true"})
+	public boolean quotedLabels;
+
+	public Path file;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException {
+		file = Files.createTempFile("benchmark-", ".jtl");
+		new SyntheticJtl(rows, samplers, errorPercent, quotedLabels, 42).writeTo(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+}
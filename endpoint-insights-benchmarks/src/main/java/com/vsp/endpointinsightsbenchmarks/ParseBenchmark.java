@@ -0,0 +1,57 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import com.vsp.endpointinsightsapi.runner.jtl.JtlFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of tokenizing a result file on its own, without any aggregation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ParseBenchmark {
+
+	/**
+	 * Only the numeric columns, which the tokenizer parses in place.
+	 */
+	@Benchmark
+	public void tokenize(JtlDataset data, RowCounter counter, Blackhole blackhole) throws IOException {
+		try (JtlFile jtl = JtlFile.open(data.file)) {
+			jtl.scan(jtl.dataStart(), jtl.size(), record -> {
+				blackhole.consume(record.timeStamp());
+				blackhole.consume(record.elapsed());
+				blackhole.consume(record.responseCode());
+				blackhole.consume(record.success());
+				counter.rows++;
+			});
+		}
+	}
+
+	/**
+	 * Tokenizing plus decoding the thread name and label into Strings for every row, the way the interpreter worked
+	 * before names were interned from the row bytes.
+	 */
+	@Benchmark
+	public void tokenizeAndDecodeNames(JtlDataset data, RowCounter counter, Blackhole blackhole) throws IOException {
+		try (JtlFile jtl = JtlFile.open(data.file)) {
+			jtl.scan(jtl.dataStart(), jtl.size(), record -> {
+				blackhole.consume(record.timeStamp());
+				blackhole.consume(record.threadName());
+				blackhole.consume(record.label());
+				counter.rows++;
+			});
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlFile;
+import com.vsp.endpointinsightsapi.runner.jtl.LatencyHistogram;
+import com.vsp.endpointinsightsapi.runner.jtl.SamplerAggregate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of extracting results from aggregates that have already been built: the percentiles written per sampler, and
+ * the histogram encoding stored alongside them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PercentileBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Aggregates {
+		List<SamplerAggregate> aggregates;
+		List<byte[]> encoded;
+
+		@Setup(Level.Trial)
+		public void aggregate(JtlDataset data) throws IOException {
+			JtlAggregator aggregator = new JtlAggregator();
+			try (JtlFile jtl = JtlFile.open(data.file)) {
+				jtl.scan(jtl.dataStart(), jtl.size(), aggregator::record);
+			}
+			aggregates = List.copyOf(aggregator.getAggregates());
+			encoded = new ArrayList<>(aggregates.size());
+			for (SamplerAggregate aggregate : aggregates) {
+				encoded.add(aggregate.getLatencies().encode());
+			}
+		}
+	}
+
+	@Benchmark
+	public void percentiles(Aggregates state, Blackhole blackhole) {
+		for (SamplerAggregate aggregate : state.aggregates) {
+			LatencyHistogram latencies = aggregate.getLatencies();
+			blackhole.consume(latencies.percentile(50));
+			blackhole.consume(latencies.percentile(95));
+			blackhole.consume(latencies.percentile(99));
+		}
+	}
+
+	@Benchmark
+	public void encodeHistograms(Aggregates state, Blackhole blackhole) {
+		for (SamplerAggregate aggregate : state.aggregates) {
+			blackhole.consume(aggregate.getLatencies().encode());
+		}
+	}
+
+	@Benchmark
+	public void decodeHistogramsAndMerge(Aggregates state, Blackhole blackhole) {
+		LatencyHistogram overall = new LatencyHistogram();
+		for (byte[] bytes : state.encoded) {
+			overall.merge(LatencyHistogram.decode(bytes));
+		}
+		blackhole.consume(overall.percentile(99.9));
+	}
+}
@@ -0,0 +1,23 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports rows per second next to the primary score, so results read as cost per million samples regardless of the
+ * file size they were measured on.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RowCounter {
+
+	public long rows;
+
+	@Setup(Level.Iteration)
+	public void reset() {
+		rows = 0;
+	}
+}
@@ -0,0 +1,116 @@
+package com.vsp.endpointinsightsbenchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Writes JMeter CSV result files in the default {@code jmeter.save.saveservice} layout, with a chosen number of rows,
+ * distinct samplers, error mix and label quoting.
+ *
+ * <p>Output is deterministic for a given seed so that runs on different commits read exactly the same bytes.</p>
+ */
+public final class SyntheticJtl {
+
+	static final String HEADER = "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,failureMessage,"
+			+ "bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+	private static final String[] THREAD_GROUPS = {"Browse Users 1", "Checkout Users 2", "Admin Users 3"};
+	private static final int THREADS_PER_GROUP = 50;
+	private static final long START = 1_772_159_606_000L;
+
+	private final long rows;
+	private final int samplers;
+	private final double errorPercent;
+	private final boolean quotedLabels;
+	private final long seed;
+
+	/**
+	 * @param rows         number of sample rows to write
+	 * @param samplers     number of distinct sampler labels
+	 * @param errorPercent share of failed samples, from 0 to 100
+	 * @param quotedLabels whether labels contain commas and quotes, forcing the CSV writer to quote them
+	 */
+	public SyntheticJtl(long rows, int samplers, double errorPercent, boolean quotedLabels, long seed) {
+		this.rows = rows;
+		this.samplers = samplers;
+		this.errorPercent = errorPercent;
+		this.quotedLabels = quotedLabels;
+		this.seed = seed;
+	}
+
+	public void writeTo(Path file) throws IOException {
+		SplittableRandom random = new SplittableRandom(seed);
+		String[] labels = new String[samplers];
+		for (int i = 0; i < samplers; i++) {
+			labels[i] = quotedLabels
+					? "\"GET /api/search?q=a,b&page=" + i + " \"\"v2\"\"\""
+					: "GET /api/endpoint/" + i;
+		}
+
+		// Ten thousand samples a second, the rate of a mid-sized load test
+		double millisPerRow = 0.1;
+		StringBuilder row = new StringBuilder(256);
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			out.write(HEADER);
+			out.write('\n');
+			for (long i = 0; i < rows; i++) {
+				int group = random.nextInt(THREAD_GROUPS.length);
+				int sampler = skewedIndex(random, samplers);
+				boolean failed = random.nextDouble() * 100 < errorPercent;
+				long elapsed = latency(random, failed);
+				long timeStamp = START + (long) (i * millisPerRow);
+
+				row.setLength(0);
+				row.append(timeStamp).append(',')
+						.append(elapsed).append(',')
+						.append(labels[sampler]).append(',');
+				if (failed) {
+					appendFailure(row, random);
+				} else {
+					row.append("200,OK,");
+				}
+				row.append(THREAD_GROUPS[group]).append('-').append(1 + random.nextInt(THREADS_PER_GROUP)).append(',')
+						.append("text,")
+						.append(failed ? "false" : "true").append(',')
+						.append(failed ? "\"Assertion failed, expected 200\"" : "").append(',')
+						.append(512 + random.nextInt(4096)).append(",180,")
+						.append(THREADS_PER_GROUP).append(',').append(THREADS_PER_GROUP * THREAD_GROUPS.length).append(',')
+						.append("https://service.example.com/api/endpoint/").append(sampler).append(',')
+						.append(Math.max(0, elapsed - 2)).append(",0,")
+						.append(random.nextInt(3)).append('\n');
+				out.append(row);
+			}
+		}
+	}
+
+	private static void appendFailure(StringBuilder row, SplittableRandom random) {
+		switch (random.nextInt(4)) {
+			case 0 -> row.append("500,Internal Server Error,");
+			case 1 -> row.append("503,Service Unavailable,");
+			case 2 -> row.append("404,Not Found,");
+			default -> row.append("Non HTTP response code: java.net.SocketTimeoutException,\"Non HTTP response message: Read timed out\",");
+		}
+	}
+
+	/**
+	 * Picks samplers with a long tail, like real plans where a few endpoints take most of the traffic.
+	 */
+	private static int skewedIndex(SplittableRandom random, int size) {
+		double u = random.nextDouble();
+		return (int) Math.min(size - 1, (long) (size * u * u * u));
+	}
+
+	private static long latency(SplittableRandom random, boolean failed) {
+		if (failed && random.nextBoolean()) {
+			// Timeouts
+			return 30_000 + random.nextInt(500);
+		}
+		// Log-normal-ish body around 40 ms with a tail into the seconds
+		double gaussian = random.nextDouble() + random.nextDouble() + random.nextDouble() - 1.5;
+		return Math.max(1, Math.round(Math.exp(3.7 + gaussian * 1.2)));
+	}
+}
@@ -0,0 +1,223 @@
+package com.vsp.endpointinsightsjmeter;
+
+import com.vsp.endpointinsightsapi.runner.jtl.AggregateDeltas;
+import com.vsp.endpointinsightsapi.runner.jtl.JtlAggregator;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
+import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Backend listener aggregating samples inside JMeter and sending the API what changed every {@code interval_ms},
+ * instead of writing a result per sample.
+ *
+ * <p>Samples are folded into a {@link JtlAggregator}, the same one the API reads result files with, so a soak test
+ * holds a histogram and a few counters per sampler rather than a growing file. Every interval the aggregates gathered
+ * since the last send are swapped out and sent to the API's aggregate stream on {@code host}:{@code port} as an
+ * {@link AggregateDeltas} delta, tagged with {@code stream}.</p>
+ *
+ * <p>Each delta is numbered and kept until the API acknowledges it. When the connection drops, the deltas it didn't
+ * acknowledge are sent again, unchanged, once a new connection has been made, and the API drops any it had already
+ * received. Samples gathered while no connection can be made are merged and sent as one delta once one can, so a
+ * dropped connection neither loses samples nor counts them twice while the test runs.</p>
+ */
+public class AggregateStreamListener extends AbstractBackendListenerClient {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AggregateStreamListener.class);
+
+	static final String HOST = "host";
+	static final String PORT = "port";
+	static final String STREAM = "stream";
+	static final String INTERVAL_MS = "interval_ms";
+
+	private static final int CONNECT_TIMEOUT_MS = 2000;
+	private static final int ACKNOWLEDGE_TIMEOUT_MS = 5000;
+
+	private final Object lock = new Object();
+	private JtlAggregator pending = new JtlAggregator();
+
+	// Only used by the sender's thread
+	private final Deque<Delta> unacknowledged = new ArrayDeque<>();
+	private long nextSequence = 1;
+
+	private ScheduledExecutorService sender;
+	private ScheduledFuture<?> periodicSend;
+	private InetSocketAddress address;
+	private String stream;
+	private Socket socket;
+	private DataOutputStream out;
+	private DataInputStream in;
+
+	@Override
+	public Arguments getDefaultParameters() {
+		Arguments arguments = new Arguments();
+		arguments.addArgument(HOST, "127.0.0.1");
+		arguments.addArgument(PORT, "23999");
+		arguments.addArgument(STREAM, "");
+		arguments.addArgument(INTERVAL_MS, "1000");
+		return arguments;
+	}
+
+	@Override
+	public void setupTest(BackendListenerContext context) throws Exception {
+		super.setupTest(context);
+		address = new InetSocketAddress(context.getParameter(HOST), context.getIntParameter(PORT));
+		stream = context.getParameter(STREAM);
+		long intervalMs = Math.max(100, context.getLongParameter(INTERVAL_MS, 1000));
+
+		sender = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "aggregate-stream-sender");
+			thread.setDaemon(true);
+			return thread;
+		});
+		periodicSend = sender.scheduleWithFixedDelay(this::sendPending, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void handleSampleResults(List<SampleResult> results, BackendListenerContext context) {
+		synchronized (lock) {
+			for (SampleResult result : results) {
+				record(result);
+			}
+		}
+	}
+
+	@Override
+	public void teardownTest(BackendListenerContext context) throws Exception {
+		if (sender != null) {
+			periodicSend.cancel(false);
+			// Queued behind a send that may be under way, so the stream is only ever used by the sender's thread
+			try {
+				sender.submit(this::endStream).get();
+			} catch (ExecutionException e) {
+				LOG.error("Could not end aggregate stream {}: {}", stream, e.getCause().getMessage());
+			} finally {
+				sender.shutdown();
+				sender = null;
+			}
+		}
+		super.teardownTest(context);
+	}
+
+	/**
+	 * Sends the last samples, then the empty delta that tells the API every sample has been sent.
+	 */
+	private void endStream() {
+		if (sendPending()) {
+			try {
+				out.writeInt(0);
+				out.flush();
+			} catch (IOException e) {
+				LOG.warn("Could not end aggregate stream {}: {}", stream, e.getMessage());
+			}
+		} else {
+			LOG.error("Last samples of aggregate stream {} could not be sent to {}", stream, address);
+		}
+		disconnect();
+	}
+
+	private void record(SampleResult result) {
+		pending.record(result.getThreadName(), result.getSampleLabel(), result.getTime(), result.getTimeStamp(),
+				BinaryResultListener.responseCode(result.getResponseCode()), result.isSuccessful());
+		for (SampleResult subResult : result.getSubResults()) {
+			record(subResult);
+		}
+	}
+
+	/**
+	 * Sends what has been aggregated since the last send, outside the lock so samples keep being recorded meanwhile.
+	 *
+	 * @return whether everything has been sent and acknowledged
+	 */
+	private boolean sendPending() {
+		JtlAggregator aggregates;
+		synchronized (lock) {
+			aggregates = pending;
+			pending = new JtlAggregator();
+		}
+		Delta delta = null;
+		try {
+			if (out == null) {
+				connect();
+				// The API may or may not have received these before the last connection dropped, and drops repeats
+				for (Delta unsent : unacknowledged) {
+					write(unsent);
+				}
+			}
+			if (!aggregates.isEmpty()) {
+				delta = new Delta(nextSequence++, AggregateDeltas.encode(aggregates));
+				unacknowledged.add(delta);
+				write(delta);
+			}
+			out.flush();
+			while (!unacknowledged.isEmpty()) {
+				long acknowledged = in.readLong();
+				while (!unacknowledged.isEmpty() && unacknowledged.peekFirst().sequence() <= acknowledged) {
+					unacknowledged.removeFirst();
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			LOG.warn("Could not send aggregates to {}, will retry: {}", address, e.getMessage());
+			disconnect();
+			if (delta == null) {
+				// Never sent, so it can go out with the next delta instead of on its own
+				synchronized (lock) {
+					aggregates.merge(pending);
+					pending = aggregates;
+				}
+			}
+			return false;
+		}
+	}
+
+	private void write(Delta delta) throws IOException {
+		out.writeInt(delta.bytes().length);
+		out.writeLong(delta.sequence());
+		out.write(delta.bytes());
+	}
+
+	private void connect() throws IOException {
+		socket = new Socket();
+		socket.connect(address, CONNECT_TIMEOUT_MS);
+		socket.setSoTimeout(ACKNOWLEDGE_TIMEOUT_MS);
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out.write(AggregateDeltas.MAGIC);
+		out.writeUTF(stream);
+	}
+
+	private void disconnect() {
+		if (socket != null) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				LOG.debug("Could not close aggregate stream {}: {}", stream, e.getMessage());
+			}
+		}
+		socket = null;
+		out = null;
+		in = null;
+	}
+
+	private record Delta(long sequence, byte[] bytes) {
+	}
+}
@@ -0,0 +1,103 @@
+package com.vsp.endpointinsightsjmeter;
+
+import com.vsp.endpointinsightsapi.runner.jtl.BinarySampleWriter;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.visualizers.backend.AbstractBackendListenerClient;
+import org.apache.jmeter.visualizers.backend.BackendListenerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Backend listener writing every sample to {@code file} with a {@link BinarySampleWriter}, in place of JMeter's CSV
+ * result file.
+ *
+ * <p>Sub-results are written as samples of their own, the same as JMeter writes them as CSV rows. Samples arrive in
+ * batches on the backend listener's own thread; each batch is written out as soon as it has been encoded, so the API can
+ * follow the file while the test runs.</p>
+ */
+public class BinaryResultListener extends AbstractBackendListenerClient {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BinaryResultListener.class);
+
+	static final String FILE = "file";
+
+	private BinarySampleWriter writer;
+	private Path file;
+
+	@Override
+	public Arguments getDefaultParameters() {
+		Arguments arguments = new Arguments();
+		arguments.addArgument(FILE, "");
+		return arguments;
+	}
+
+	@Override
+	public void setupTest(BackendListenerContext context) throws Exception {
+		super.setupTest(context);
+		file = Path.of(context.getParameter(FILE));
+		writer = new BinarySampleWriter(Files.newOutputStream(file));
+	}
+
+	@Override
+	public void handleSampleResults(List<SampleResult> results, BackendListenerContext context) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			for (SampleResult result : results) {
+				write(result);
+			}
+			writer.flush();
+		} catch (IOException e) {
+			// Blocking the listener would stall the threads generating load, so the rest of the samples are dropped
+			LOG.error("Could not write samples to {}, no more will be written: {}", file, e.getMessage());
+			closeQuietly();
+		}
+	}
+
+	@Override
+	public void teardownTest(BackendListenerContext context) throws Exception {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+		super.teardownTest(context);
+	}
+
+	private void write(SampleResult result) throws IOException {
+		writer.write(result.getThreadName(), result.getSampleLabel(), result.getTimeStamp(), result.getTime(),
+				responseCode(result.getResponseCode()), result.isSuccessful());
+		for (SampleResult subResult : result.getSubResults()) {
+			write(subResult);
+		}
+	}
+
+	private void closeQuietly() {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			LOG.debug("Could not close {}: {}", file, e.getMessage());
+		}
+		writer = null;
+	}
+
+	/**
+	 * @return the response code as a number, or {@code -1} if it isn't one, the same as the API reads it from CSV
+	 */
+	static int responseCode(String code) {
+		if (code == null) {
+			return -1;
+		}
+		try {
+			return Integer.parseInt(code.strip());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+}
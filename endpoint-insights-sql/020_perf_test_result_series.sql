@@ -0,0 +1,15 @@
+-- Per-sampler time series: request count, error count and a latency histogram per time bucket,
+-- varint-encoded into one blob per perf_test_result row
+CREATE TABLE IF NOT EXISTS perf_test_result_series (
+    result_id UUID NOT NULL,
+    sampler_name VARCHAR(255) NOT NULL,
+    thread_group VARCHAR(255) NOT NULL,
+    bucket_width_ms INTEGER NOT NULL,
+    series BYTEA NOT NULL,
+    CONSTRAINT perf_test_result_series_pkey PRIMARY KEY (result_id),
+    CONSTRAINT fk_perf_test_result_series_result_id
+        FOREIGN KEY (result_id)
+        REFERENCES perf_test_result (result_id) ON DELETE CASCADE
+);
+
+ALTER TABLE IF EXISTS perf_test_result_series OWNER TO postgres;
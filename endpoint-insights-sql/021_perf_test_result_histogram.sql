@@ -0,0 +1,3 @@
+-- Full per-sampler latency histogram, varint-encoded, so any percentile can be computed after the run
+ALTER TABLE IF EXISTS perf_test_result
+    ADD COLUMN IF NOT EXISTS latency_histogram BYTEA;
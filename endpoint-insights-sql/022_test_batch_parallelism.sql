@@ -0,0 +1,4 @@
+-- How many of a batch's jobs may run their tests at once; NULL leaves only the global limit
+ALTER TABLE IF EXISTS test_batch
+    ADD COLUMN IF NOT EXISTS parallelism INTEGER
+        CONSTRAINT test_batch_parallelism_positive CHECK (parallelism IS NULL OR parallelism > 0);
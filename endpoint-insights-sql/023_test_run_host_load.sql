@@ -0,0 +1,7 @@
+-- Host load seen when JMeter was launched, so results measured on an oversubscribed host can be told apart
+ALTER TABLE IF EXISTS test_run
+    ADD COLUMN IF NOT EXISTS host_cpu_load DOUBLE PRECISION,
+    ADD COLUMN IF NOT EXISTS host_available_memory_mb BIGINT,
+    ADD COLUMN IF NOT EXISTS jmeter_heap_mb BIGINT,
+    ADD COLUMN IF NOT EXISTS launch_delay_ms BIGINT,
+    ADD COLUMN IF NOT EXISTS host_oversubscribed BOOLEAN;
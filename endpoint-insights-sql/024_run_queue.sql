@@ -0,0 +1,19 @@
+-- Runs waiting for, or claimed by, an API instance. A claimed run's heartbeat is kept fresh by the instance running
+-- it, so runs left behind by an instance that stopped can be handed to another one or failed
+CREATE TABLE IF NOT EXISTS run_queue (
+    run_id UUID NOT NULL,
+    job_id UUID,
+    batch_id UUID,
+    priority VARCHAR(20) NOT NULL,
+    state VARCHAR(20) NOT NULL,
+    enqueued_at TIMESTAMPTZ NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    claim_token UUID,
+    claimed_by VARCHAR(255),
+    heartbeat_at TIMESTAMPTZ,
+    CONSTRAINT run_queue_pkey PRIMARY KEY (run_id),
+    CONSTRAINT run_queue_run_fk FOREIGN KEY (run_id) REFERENCES test_run (run_id) ON DELETE CASCADE,
+    CONSTRAINT run_queue_state_check CHECK ((state::TEXT = ANY ((ARRAY['QUEUED', 'RUNNING'])::TEXT[])))
+);
+
+CREATE INDEX IF NOT EXISTS run_queue_state_idx ON run_queue (state, priority, enqueued_at);
@@ -0,0 +1,6 @@
+-- How long each stage of a run took, so slow clones and compiles can be told apart from slow tests
+ALTER TABLE IF EXISTS test_run
+    ADD COLUMN IF NOT EXISTS clone_ms BIGINT,
+    ADD COLUMN IF NOT EXISTS compile_ms BIGINT,
+    ADD COLUMN IF NOT EXISTS execute_ms BIGINT,
+    ADD COLUMN IF NOT EXISTS interpret_ms BIGINT;
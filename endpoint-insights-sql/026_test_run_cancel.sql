@@ -0,0 +1,10 @@
+-- Runs can be cancelled. A run that's already claimed is cancelled by the instance running it, which picks up the
+-- request from its row in the run queue
+ALTER TABLE IF EXISTS test_run
+    DROP CONSTRAINT IF EXISTS test_run_status_check;
+
+ALTER TABLE IF EXISTS test_run
+    ADD CONSTRAINT test_run_status_check CHECK ((status::TEXT = ANY ((ARRAY['PENDING', 'RUNNING', 'COMPLETED', 'FAILED', 'CANCELLED'])::TEXT[])));
+
+ALTER TABLE IF EXISTS run_queue
+    ADD COLUMN IF NOT EXISTS cancel_requested BOOLEAN NOT NULL DEFAULT false;
@@ -0,0 +1,3 @@
+-- A batch is queued or running at most once. Checking the batch's active flag alone let two requests both queue it
+-- while it waited for a slot, since the flag is only set once its run starts
+CREATE UNIQUE INDEX IF NOT EXISTS run_queue_batch_idx ON run_queue (batch_id) WHERE batch_id IS NOT NULL;